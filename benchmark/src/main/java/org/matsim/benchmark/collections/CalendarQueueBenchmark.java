@@ -0,0 +1,205 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueueBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.collections;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.utils.collections.CalendarQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link CalendarQueue} with the {@link PriorityQueue} and {@link PriorityBlockingQueue} which were
+ * previously used by the teleportation and the activity engine of the qsim. Every invocation simulates a day of 30
+ * hours in steps of one second: in every step, the agents whose activity ends are polled, and each of them is added
+ * again with the end of its next activity, until it has no more activities.
+ * <p></p>
+ * Run it with <code>java -cp ... org.matsim.benchmark.collections.CalendarQueueBenchmark</code>, or through the
+ * JMH command line runner.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalendarQueueBenchmark {
+
+	private static final int END_TIME = 30 * 3600;
+	private static final int ACTIVITIES_PER_AGENT = 8;
+	private static final Comparator<Agent> BY_LARGER_ID = (agent1, agent2) -> agent2.id.compareTo(agent1.id);
+
+	@Param({"calendarQueue", "priorityQueue", "priorityBlockingQueue"})
+	public String queueType;
+
+	@Param({"10000", "100000"})
+	public int numberOfAgents;
+
+	private Agent[] agents;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(4711);
+		this.agents = new Agent[this.numberOfAgents];
+		for (int i = 0; i < this.numberOfAgents; i++) {
+			double[] activityEnds = new double[ACTIVITIES_PER_AGENT];
+			double time = 5 * 3600 + random.nextInt(4 * 3600);
+			for (int a = 0; a < ACTIVITIES_PER_AGENT; a++) {
+				activityEnds[a] = time;
+				// between a quarter of an hour and three hours, with a few seconds of travel
+				time += 900 + random.nextInt(3 * 3600) + random.nextInt(60);
+			}
+			this.agents[i] = new Agent(Id.createPersonId(i), activityEnds);
+		}
+	}
+
+	@Benchmark
+	public int simulateDay() {
+		ActivityEndQueue queue = createQueue(this.queueType);
+		for (Agent agent : this.agents) {
+			agent.activity = 0;
+			queue.add(agent, agent.activityEnds[0]);
+		}
+		int ended = 0;
+		for (int now = 0; now <= END_TIME; now++) {
+			Agent agent;
+			while ((agent = queue.pollDue(now)) != null) {
+				ended++;
+				agent.activity++;
+				if (agent.activity < ACTIVITIES_PER_AGENT && agent.activityEnds[agent.activity] <= END_TIME) {
+					queue.add(agent, agent.activityEnds[agent.activity]);
+				}
+			}
+		}
+		return ended;
+	}
+
+	private static ActivityEndQueue createQueue(String queueType) {
+		switch (queueType) {
+			case "calendarQueue":
+				return new CalendarActivityEndQueue();
+			case "priorityQueue":
+				return new HeapActivityEndQueue(new PriorityQueue<>(500, AgentEntry.COMPARATOR));
+			case "priorityBlockingQueue":
+				return new HeapActivityEndQueue(new PriorityBlockingQueue<>(500, AgentEntry.COMPARATOR));
+			default:
+				throw new IllegalArgumentException("unknown queue type: " + queueType);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(CalendarQueueBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+	private static final class Agent {
+		final Id<Person> id;
+		final double[] activityEnds;
+		int activity = 0;
+
+		Agent(Id<Person> id, double[] activityEnds) {
+			this.id = id;
+			this.activityEnds = activityEnds;
+		}
+	}
+
+	private interface ActivityEndQueue {
+		void add(Agent agent, double time);
+
+		Agent pollDue(double now);
+	}
+
+	/** with the bucket width and horizon used by the activity engine */
+	private static final class CalendarActivityEndQueue implements ActivityEndQueue {
+		private final CalendarQueue<Agent> queue = new CalendarQueue<>(1.0, 1 << 17, BY_LARGER_ID);
+
+		@Override
+		public void add(Agent agent, double time) {
+			this.queue.add(agent, time);
+		}
+
+		@Override
+		public Agent pollDue(double now) {
+			return this.queue.pollDue(now);
+		}
+	}
+
+	/** like the previous activity engine, which kept entries of agent and time in a heap */
+	private static final class HeapActivityEndQueue implements ActivityEndQueue {
+		private final Queue<AgentEntry> queue;
+
+		HeapActivityEndQueue(Queue<AgentEntry> queue) {
+			this.queue = queue;
+		}
+
+		@Override
+		public void add(Agent agent, double time) {
+			this.queue.add(new AgentEntry(agent, time));
+		}
+
+		@Override
+		public Agent pollDue(double now) {
+			AgentEntry entry = this.queue.peek();
+			if (entry == null || entry.time > now) {
+				return null;
+			}
+			return this.queue.poll().agent;
+		}
+	}
+
+	private static final class AgentEntry {
+		static final Comparator<AgentEntry> COMPARATOR = (entry1, entry2) -> {
+			int cmp = Double.compare(entry1.time, entry2.time);
+			return cmp != 0 ? cmp : BY_LARGER_ID.compare(entry1.agent, entry2.agent);
+		};
+
+		final Agent agent;
+		final double time;
+
+		AgentEntry(Agent agent, double time) {
+			this.agent = agent;
+			this.time = time;
+		}
+	}
+
+}
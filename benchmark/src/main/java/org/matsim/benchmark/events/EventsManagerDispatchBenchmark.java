@@ -0,0 +1,221 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsManagerDispatchBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.events;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.events.handler.EventHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how fast {@link EventsManagerImpl} hands events over to the registered handlers, compared to the
+ * previous implementation ({@link PreviousEventsManagerImpl}), which called the handlers of the standard events
+ * through hard-coded casts and all others by reflection. Both are measured with a mix of standard events and with
+ * custom events.
+ * <p></p>
+ * Run it with <code>java -cp ... org.matsim.benchmark.events.EventsManagerDispatchBenchmark</code>, or through
+ * the JMH command line runner.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventsManagerDispatchBenchmark {
+
+	private static final int NUMBER_OF_EVENTS = 1000;
+
+	@Param({"standard", "custom"})
+	public String eventTypes;
+
+	private EventsManager events;
+	private EventsManager previousEvents;
+	private Event[] eventMix;
+
+	@Setup
+	public void setup() {
+		this.events = createEventsManager(new EventsManagerImpl());
+		this.previousEvents = createEventsManager(new PreviousEventsManagerImpl());
+
+		this.eventMix = new Event[NUMBER_OF_EVENTS];
+		for (int i = 0; i < NUMBER_OF_EVENTS; i++) {
+			this.eventMix[i] = "custom".equals(this.eventTypes) ? createCustomEvent(i) : createStandardEvent(i);
+		}
+	}
+
+	private static EventsManager createEventsManager(EventsManager events) {
+		events.addHandler(new CountingHandler());
+		events.addHandler(new CountingBasicHandler());
+		events.addHandler(new CountingCustomHandler());
+		events.initProcessing();
+		return events;
+	}
+
+	private static Event createStandardEvent(int i) {
+		double time = i;
+		switch (i % 4) {
+			case 0:
+				return new PersonDepartureEvent(time, Id.createPersonId(i % 100), Id.createLinkId(i % 50), "car");
+			case 1:
+				return new LinkLeaveEvent(time, Id.createVehicleId(i % 100), Id.createLinkId(i % 50));
+			case 2:
+				return new LinkEnterEvent(time, Id.createVehicleId(i % 100), Id.createLinkId(i % 50));
+			default:
+				return new PersonArrivalEvent(time, Id.createPersonId(i % 100), Id.createLinkId(i % 50), "car");
+		}
+	}
+
+	private static Event createCustomEvent(int i) {
+		return i % 2 == 0 ? new FirstCustomEvent(i) : new SecondCustomEvent(i);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_EVENTS)
+	public void generatedInvokers() {
+		for (Event event : this.eventMix) {
+			this.events.processEvent(event);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_EVENTS)
+	public void previousImplementation() {
+		for (Event event : this.eventMix) {
+			this.previousEvents.processEvent(event);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(EventsManagerDispatchBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+	public static class CountingHandler implements LinkEnterEventHandler, LinkLeaveEventHandler,
+			PersonDepartureEventHandler, PersonArrivalEventHandler {
+
+		long count = 0;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.count++;
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			this.count++;
+		}
+
+		@Override
+		public void handleEvent(PersonArrivalEvent event) {
+			this.count++;
+		}
+
+		@Override
+		public void handleEvent(PersonDepartureEvent event) {
+			this.count++;
+		}
+	}
+
+	public static class CountingBasicHandler implements BasicEventHandler {
+
+		long count = 0;
+
+		@Override
+		public void handleEvent(Event event) {
+			this.count++;
+		}
+	}
+
+	public static class FirstCustomEvent extends Event {
+
+		public FirstCustomEvent(double time) {
+			super(time);
+		}
+
+		@Override
+		public String getEventType() {
+			return "firstCustom";
+		}
+	}
+
+	public static class SecondCustomEvent extends Event {
+
+		public SecondCustomEvent(double time) {
+			super(time);
+		}
+
+		@Override
+		public String getEventType() {
+			return "secondCustom";
+		}
+	}
+
+	public interface FirstCustomEventHandler extends EventHandler {
+		void handleEvent(FirstCustomEvent event);
+	}
+
+	public interface SecondCustomEventHandler extends EventHandler {
+		void handleEvent(SecondCustomEvent event);
+	}
+
+	public static class CountingCustomHandler implements FirstCustomEventHandler, SecondCustomEventHandler {
+
+		long count = 0;
+
+		@Override
+		public void handleEvent(FirstCustomEvent event) {
+			this.count++;
+		}
+
+		@Override
+		public void handleEvent(SecondCustomEvent event) {
+			this.count++;
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationMemoryBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.population;
+
+import java.util.Random;
+
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.population.PopulationUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the heap retained by the same population when it is created by the default population factory and by the
+ * compact one ({@link PlansConfigGroup#setUsingCompactPlanElements(boolean)}), with network routes storing lists of
+ * ids or interned id indices. Every person gets the plan of {@link PopulationSnapshotReadBenchmark} and four copies of
+ * it, as after some iterations with the default plan memory size. The retained bytes per person are printed at the end
+ * of every trial; they are derived from the used heap after full garbage collections of the serial collector, which
+ * reports it precisely. The score is the time to create the population, including the garbage collections.
+ * <p></p>
+ * Run it with <code>java -cp ... org.matsim.benchmark.population.PopulationMemoryBenchmark</code>, or through the
+ * JMH command line runner.
+ *
+ * @see org.matsim.benchmark.routes.NetworkRouteMemoryBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-XX:+UseSerialGC"})
+public class PopulationMemoryBenchmark {
+
+	private static final int NUMBER_OF_PERSONS = 20000;
+	private static final int PLANS_PER_PERSON = 5;
+
+	@Param({"false", "true"})
+	public boolean compactPlanElements;
+
+	@Param({PlansConfigGroup.NetworkRouteType.LinkNetworkRoute, PlansConfigGroup.NetworkRouteType.InternedLinkIndexNetworkRoute})
+	public String networkRouteType;
+
+	private Config config;
+	private Population population;
+	private boolean measuring;
+	private long retainedBytes = 0;
+	private long measuredPersons = 0;
+
+	@Setup(Level.Iteration)
+	public void setup(IterationParams iterationParams) {
+		this.measuring = iterationParams.getType() == IterationType.MEASUREMENT;
+		this.config = ConfigUtils.createConfig();
+		this.config.plans().setUsingCompactPlanElements(this.compactPlanElements);
+		this.config.plans().setNetworkRouteType(this.networkRouteType);
+		// create the ids beforehand, they are shared by both factories and should not be counted
+		PopulationSnapshotReadBenchmark.createPopulation(PopulationUtils.createPopulation(ConfigUtils.createConfig()),
+				NUMBER_OF_PERSONS, new Random(4711));
+	}
+
+	@Benchmark
+	public void createPopulation() {
+		this.population = PopulationUtils.createPopulation(this.config);
+		PopulationSnapshotReadBenchmark.createPopulation(this.population, NUMBER_OF_PERSONS, new Random(4711));
+		for (Person person : this.population.getPersons().values()) {
+			for (int i = 1; i < PLANS_PER_PERSON; i++) {
+				person.createCopyOfSelectedPlanAndMakeSelected();
+			}
+		}
+		if (this.measuring) {
+			// compare with the heap after releasing the population, so that other garbage does not matter
+			long withPopulation = usedHeap();
+			this.population = null;
+			long withoutPopulation = usedHeap();
+			this.retainedBytes += withPopulation - withoutPopulation;
+			this.measuredPersons += NUMBER_OF_PERSONS;
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void printRetainedMemory() {
+		System.out.println("retained bytes per person: " + this.retainedBytes / this.measuredPersons);
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		// repeat until the collector has nothing left to free
+		for (int i = 0; i < 10; i++) {
+			System.gc();
+			long current = runtime.totalMemory() - runtime.freeMemory();
+			if (current >= used) {
+				return current;
+			}
+			used = current;
+		}
+		return used;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(PopulationMemoryBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,182 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationSnapshotReadBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.population;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.PopulationWriter;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.io.PopulationSnapshotReader;
+import org.matsim.core.population.io.PopulationSnapshotWriter;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares how long it takes to read the same population from a {@link PopulationSnapshotWriter population snapshot}
+ * and from the plans files written by {@link PopulationWriter}, uncompressed and gzipped. The population is generated
+ * once per trial and written to a temporary directory; every invocation reads it into a new scenario.
+ * <p></p>
+ * Run it with <code>java -cp ... org.matsim.benchmark.population.PopulationSnapshotReadBenchmark</code>, or through
+ * the JMH command line runner.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PopulationSnapshotReadBenchmark {
+
+	private static final int NUMBER_OF_LINKS = 10000;
+
+	@Param({"snapshot", "xml", "xmlGz"})
+	public String format;
+
+	@Param({"10000", "100000"})
+	public int numberOfPersons;
+
+	private File directory;
+	private String filename;
+
+	@Setup
+	public void setup() throws IOException {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		createPopulation(scenario.getPopulation(), this.numberOfPersons, new Random(4711));
+		this.directory = Files.createTempDirectory("population-benchmark").toFile();
+		switch (this.format) {
+			case "snapshot":
+				this.filename = new File(this.directory, "plans.snapshot").getPath();
+				new PopulationSnapshotWriter(scenario.getPopulation()).write(this.filename);
+				break;
+			case "xml":
+				this.filename = new File(this.directory, "plans.xml").getPath();
+				new PopulationWriter(scenario.getPopulation()).write(this.filename);
+				break;
+			case "xmlGz":
+				this.filename = new File(this.directory, "plans.xml.gz").getPath();
+				new PopulationWriter(scenario.getPopulation()).write(this.filename);
+				break;
+			default:
+				throw new IllegalArgumentException("unknown format: " + this.format);
+		}
+	}
+
+	/**
+	 * Adds persons with one plan each, home - work - shop - home, with car legs on network routes of 20 to 60 randomly
+	 * chosen links.
+	 */
+	static void createPopulation(Population population, int numberOfPersons, Random random) {
+		PopulationFactory factory = population.getFactory();
+		String[] types = {"home", "work", "shop", "home"};
+		for (int p = 0; p < numberOfPersons; p++) {
+			Person person = factory.createPerson(Id.createPersonId(p));
+			person.getAttributes().putAttribute("age", 18 + random.nextInt(60));
+			Plan plan = factory.createPlan();
+			plan.setScore(100.0 * random.nextDouble());
+			double time = 6 * 3600 + random.nextInt(3 * 3600);
+			Id<Link> linkId = Id.createLinkId(random.nextInt(NUMBER_OF_LINKS));
+			for (int a = 0; a < types.length; a++) {
+				if (a > 0) {
+					Leg leg = factory.createLeg("car");
+					leg.setDepartureTime(time);
+					Id<Link> nextLinkId = Id.createLinkId(random.nextInt(NUMBER_OF_LINKS));
+					List<Id<Link>> routeLinkIds = new ArrayList<>();
+					for (int l = 20 + random.nextInt(40); l > 0; l--) {
+						routeLinkIds.add(Id.createLinkId(random.nextInt(NUMBER_OF_LINKS)));
+					}
+					NetworkRoute route = factory.getRouteFactories().createRoute(NetworkRoute.class, linkId, nextLinkId);
+					route.setLinkIds(linkId, routeLinkIds, nextLinkId);
+					route.setTravelTime(1200.0);
+					route.setDistance(100.0 * routeLinkIds.size());
+					leg.setRoute(route);
+					leg.setTravelTime(1200.0);
+					plan.addLeg(leg);
+					time += 1200.0;
+					linkId = nextLinkId;
+				}
+				Activity activity = factory.createActivityFromCoord(types[a], new Coord(random.nextInt(50000), random.nextInt(50000)));
+				activity.setLinkId(linkId);
+				if (a < types.length - 1) {
+					time += 3600 + random.nextInt(6 * 3600);
+					activity.setEndTime(time);
+				}
+				plan.addActivity(activity);
+			}
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+	}
+
+	@Benchmark
+	public Population read() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		if (this.format.equals("snapshot")) {
+			new PopulationSnapshotReader(scenario).readFile(this.filename);
+		} else {
+			new PopulationReader(scenario).readFile(this.filename);
+		}
+		return scenario.getPopulation();
+	}
+
+	@TearDown
+	public void deleteFiles() {
+		new File(this.filename).delete();
+		this.directory.delete();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(PopulationSnapshotReadBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+}
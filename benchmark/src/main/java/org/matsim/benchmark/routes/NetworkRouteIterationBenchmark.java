@@ -0,0 +1,154 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkRouteIterationBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.routes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.population.routes.LinkIndexNetworkRouteFactory;
+import org.matsim.core.population.routes.LinkNetworkRouteFactory;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how fast the links of network routes are iterated, as done e.g. by the mobsim and by scoring, for routes
+ * which store their links as a list of ids ({@link LinkNetworkRouteFactory}) and for routes which store them as an
+ * array of id indices ({@link LinkIndexNetworkRouteFactory}). The latter have to look up every id by its index.
+ * <p></p>
+ * Run it with <code>java -cp ... org.matsim.benchmark.routes.NetworkRouteIterationBenchmark</code>, or through
+ * the JMH command line runner.
+ *
+ * @see NetworkRouteMemoryBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NetworkRouteIterationBenchmark {
+
+	private static final int NUMBER_OF_ROUTES = 1000;
+	private static final int NUMBER_OF_LINKS = 10000;
+
+	@Param({"linkIds", "linkIndices"})
+	public String routeType;
+
+	@Param({"10", "100"})
+	public int routeLength;
+
+	private NetworkRoute[] routes;
+
+	@Setup
+	public void setup() {
+		this.routes = createRoutes(createFactory(this.routeType), NUMBER_OF_ROUTES, this.routeLength, new Random(4711));
+	}
+
+	static RouteFactory createFactory(String routeType) {
+		switch (routeType) {
+			case "linkIds":
+				return new LinkNetworkRouteFactory();
+			case "linkIndices":
+				return new LinkIndexNetworkRouteFactory(false);
+			case "linkIndicesInterned":
+				return new LinkIndexNetworkRouteFactory(true);
+			default:
+				throw new IllegalArgumentException("unknown route type: " + routeType);
+		}
+	}
+
+	/**
+	 * Creates routes over randomly chosen links. Only every tenth route has its own links, the others repeat one of
+	 * them, as many agents in a scenario use the same routes.
+	 */
+	static NetworkRoute[] createRoutes(RouteFactory factory, int numberOfRoutes, int routeLength, Random random) {
+		NetworkRoute[] routes = new NetworkRoute[numberOfRoutes];
+		List<List<Id<Link>>> distinctLinkIds = new ArrayList<>();
+		for (int r = 0; r < numberOfRoutes; r++) {
+			List<Id<Link>> linkIds;
+			if (r % 10 == 0) {
+				linkIds = new ArrayList<>(routeLength);
+				for (int i = 0; i < routeLength; i++) {
+					linkIds.add(Id.createLinkId(random.nextInt(NUMBER_OF_LINKS)));
+				}
+				distinctLinkIds.add(linkIds);
+			} else {
+				linkIds = distinctLinkIds.get(random.nextInt(distinctLinkIds.size()));
+			}
+			Id<Link> startLinkId = Id.createLinkId(random.nextInt(NUMBER_OF_LINKS));
+			Id<Link> endLinkId = Id.createLinkId(random.nextInt(NUMBER_OF_LINKS));
+			NetworkRoute route = (NetworkRoute) factory.createRoute(startLinkId, endLinkId);
+			route.setLinkIds(startLinkId, new ArrayList<>(linkIds), endLinkId);
+			routes[r] = route;
+		}
+		return routes;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_ROUTES)
+	public long iterateLinkIds() {
+		long sum = 0;
+		for (NetworkRoute route : this.routes) {
+			for (Id<Link> linkId : route.getLinkIds()) {
+				sum += linkId.index();
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_ROUTES)
+	public long accessLinkIdsByPosition() {
+		long sum = 0;
+		for (NetworkRoute route : this.routes) {
+			List<Id<Link>> linkIds = route.getLinkIds();
+			for (int i = linkIds.size() - 1; i >= 0; i--) {
+				sum += linkIds.get(i).index();
+			}
+		}
+		return sum;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(NetworkRouteIterationBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,130 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkRouteMemoryBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.routes;
+
+import java.util.Random;
+
+import org.matsim.core.population.routes.LinkIndexNetworkRouteFactory;
+import org.matsim.core.population.routes.LinkNetworkRouteFactory;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the heap retained by network routes which store their links as a list of ids
+ * ({@link LinkNetworkRouteFactory}) and by routes which store them as an array of id indices
+ * ({@link LinkIndexNetworkRouteFactory}), with and without sharing identical link sequences. The retained bytes per
+ * route are printed at the end of every trial; they are derived from the used heap after full garbage collections
+ * of the serial collector, which reports it precisely, and include the reference in the array holding the routes.
+ * The score is the time to create the routes, including
+ * the garbage collections.
+ * <p></p>
+ * Run it with <code>java -cp ... org.matsim.benchmark.routes.NetworkRouteMemoryBenchmark</code>, or through the JMH
+ * command line runner. Add <code>-prof gc</code> to also see the bytes allocated while creating the routes.
+ *
+ * @see NetworkRouteIterationBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-XX:+UseSerialGC"})
+public class NetworkRouteMemoryBenchmark {
+
+	private static final int NUMBER_OF_ROUTES = 100000;
+
+	@Param({"linkIds", "linkIndices", "linkIndicesInterned"})
+	public String routeType;
+
+	@Param({"10", "100"})
+	public int routeLength;
+
+	private NetworkRoute[] routes;
+	private boolean measuring;
+	private long retainedBytes = 0;
+	private long measuredRoutes = 0;
+
+	@Setup(Level.Iteration)
+	public void setup(IterationParams iterationParams) {
+		this.measuring = iterationParams.getType() == IterationType.MEASUREMENT;
+		// create the ids beforehand, they are shared by both route types and should not be counted
+		NetworkRouteIterationBenchmark.createRoutes(new LinkNetworkRouteFactory(), NUMBER_OF_ROUTES, this.routeLength, new Random(4711));
+	}
+
+	@Benchmark
+	public void createRoutes() {
+		RouteFactory factory = NetworkRouteIterationBenchmark.createFactory(this.routeType);
+		this.routes = NetworkRouteIterationBenchmark.createRoutes(factory, NUMBER_OF_ROUTES, this.routeLength, new Random(4711));
+		if (this.measuring) {
+			// compare with the heap after releasing the routes, so that other garbage does not matter
+			long withRoutes = usedHeap();
+			this.routes = null;
+			long withoutRoutes = usedHeap();
+			this.retainedBytes += withRoutes - withoutRoutes;
+			this.measuredRoutes += NUMBER_OF_ROUTES;
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void printRetainedMemory() {
+		System.out.println("retained bytes per route: " + this.retainedBytes / this.measuredRoutes);
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		// repeat until the collector has nothing left to free
+		for (int i = 0; i < 10; i++) {
+			System.gc();
+			long current = runtime.totalMemory() - runtime.freeMemory();
+			if (current >= used) {
+				return current;
+			}
+			used = current;
+		}
+		return used;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(NetworkRouteMemoryBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+}
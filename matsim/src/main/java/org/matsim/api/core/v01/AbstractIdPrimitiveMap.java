@@ -0,0 +1,248 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AbstractIdPrimitiveMap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Manages the slots of the maps from {@link Id}s to primitive values. The values themselves are stored by the
+ * subclasses, one value per slot.
+ * <p></p>
+ * A map starts <em>sparse</em>: the {@link Id#index()} of the keys are stored in an open-addressing hash table (with
+ * linear probing), so the map only needs memory for the ids it actually contains. As soon as the map contains more
+ * than a quarter of all ids of its type, it becomes <em>dense</em>: the slot of a key is then its index, as in
+ * {@link IdMap}, which needs less memory per entry and no hashing. A dense map stays dense.
+ */
+abstract class AbstractIdPrimitiveMap<T> {
+
+	private static final int EMPTY = -1;
+	private static final int MIN_SPARSE_CAPACITY = 16;
+
+	final Class<T> idClass;
+	final boolean offHeap;
+	int size = 0;
+
+	/** the id index in each slot of a sparse map, or EMPTY; <code>null</code> if the map is dense */
+	private int[] keys;
+	/** the occupied slots of a dense map */
+	private BitSet occupied = null;
+	private int capacity;
+
+	AbstractIdPrimitiveMap(Class<T> idClass, boolean offHeap) {
+		this.idClass = idClass;
+		this.offHeap = offHeap;
+		this.keys = new int[MIN_SPARSE_CAPACITY];
+		Arrays.fill(this.keys, EMPTY);
+		this.capacity = MIN_SPARSE_CAPACITY;
+	}
+
+	/**
+	 * Replaces the value storage by a new one with the given number of slots, all set to 0.
+	 *
+	 * @return the old storage
+	 */
+	abstract Object swapValues(int capacity);
+
+	/**
+	 * Copies a value from the given old storage into the current one, or within the current storage if
+	 * <code>oldValues</code> is <code>null</code>.
+	 */
+	abstract void copyValue(Object oldValues, int oldSlot, int newSlot);
+
+	abstract void clearValue(int slot);
+
+	final int capacity() {
+		return this.capacity;
+	}
+
+	public final int size() {
+		return this.size;
+	}
+
+	public final boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public final boolean isDense() {
+		return this.keys == null;
+	}
+
+	public final boolean containsKey(Id<T> key) {
+		return findSlot(key.index()) >= 0;
+	}
+
+	/**
+	 * @return the slot of the given id index, or -1 if the map does not contain it
+	 */
+	final int findSlot(int index) {
+		if (this.keys == null) {
+			return index < this.capacity && this.occupied.get(index) ? index : -1;
+		}
+		int mask = this.capacity - 1;
+		int slot = hash(index) & mask;
+		while (true) {
+			int key = this.keys[slot];
+			if (key == index) {
+				return slot;
+			}
+			if (key == EMPTY) {
+				return -1;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * @return the slot of the given id index, adding it (with value 0) if the map does not contain it yet
+	 */
+	final int getOrCreateSlot(int index) {
+		if (this.keys == null) {
+			if (index >= this.capacity) {
+				resizeDense(Math.max(index + 1, Math.max(Id.getNumberOfIds(this.idClass), this.capacity + (this.capacity >> 1))));
+			}
+			if (!this.occupied.get(index)) {
+				this.occupied.set(index);
+				this.size++;
+			}
+			return index;
+		}
+		int slot = findSlot(index);
+		if (slot >= 0) {
+			return slot;
+		}
+		if (2 * (this.size + 1) > this.capacity) {
+			if (4 * (this.size + 1) > Id.getNumberOfIds(this.idClass)) {
+				resizeDense(Math.max(index + 1, Id.getNumberOfIds(this.idClass)));
+				return getOrCreateSlot(index);
+			}
+			rehash(2 * this.capacity);
+		}
+		slot = insert(index);
+		this.size++;
+		return slot;
+	}
+
+	private int insert(int index) {
+		int mask = this.capacity - 1;
+		int slot = hash(index) & mask;
+		while (this.keys[slot] != EMPTY) {
+			slot = (slot + 1) & mask;
+		}
+		this.keys[slot] = index;
+		return slot;
+	}
+
+	private void rehash(int newCapacity) {
+		int[] oldKeys = this.keys;
+		Object oldValues = swapValues(newCapacity);
+		this.keys = new int[newCapacity];
+		Arrays.fill(this.keys, EMPTY);
+		this.capacity = newCapacity;
+		for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+			if (oldKeys[oldSlot] != EMPTY) {
+				copyValue(oldValues, oldSlot, insert(oldKeys[oldSlot]));
+			}
+		}
+	}
+
+	private void resizeDense(int newCapacity) {
+		int[] oldKeys = this.keys;
+		int oldCapacity = this.capacity;
+		Object oldValues = swapValues(newCapacity);
+		this.capacity = newCapacity;
+		if (oldKeys != null) {
+			this.keys = null;
+			this.occupied = new BitSet(newCapacity);
+			for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+				if (oldKeys[oldSlot] != EMPTY) {
+					this.occupied.set(oldKeys[oldSlot]);
+					copyValue(oldValues, oldSlot, oldKeys[oldSlot]);
+				}
+			}
+		} else {
+			for (int index = this.occupied.nextSetBit(0); index >= 0 && index < oldCapacity; index = this.occupied.nextSetBit(index + 1)) {
+				copyValue(oldValues, index, index);
+			}
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the map contained the given key
+	 */
+	public final boolean remove(Id<T> key) {
+		int slot = findSlot(key.index());
+		if (slot < 0) {
+			return false;
+		}
+		this.size--;
+		if (this.keys == null) {
+			this.occupied.clear(slot);
+			clearValue(slot);
+			return true;
+		}
+		// move following entries of the same cluster back, so lookups do not need tombstones
+		int mask = this.capacity - 1;
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while (this.keys[next] != EMPTY) {
+			int home = hash(this.keys[next]) & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				this.keys[hole] = this.keys[next];
+				copyValue(null, next, hole);
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		this.keys[hole] = EMPTY;
+		clearValue(hole);
+		return true;
+	}
+
+	public final void clear() {
+		this.size = 0;
+		if (this.keys == null) {
+			this.occupied.clear();
+			swapValues(this.capacity);
+		} else {
+			this.keys = new int[MIN_SPARSE_CAPACITY];
+			Arrays.fill(this.keys, EMPTY);
+			this.capacity = MIN_SPARSE_CAPACITY;
+			swapValues(MIN_SPARSE_CAPACITY);
+		}
+	}
+
+	/**
+	 * @return the id index stored in the given slot, or -1 if the slot is empty
+	 */
+	final int getIndex(int slot) {
+		if (this.keys == null) {
+			return this.occupied.get(slot) ? slot : -1;
+		}
+		return this.keys[slot];
+	}
+
+	private static int hash(int index) {
+		int h = index * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}
@@ -26,9 +26,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.vehicles.Vehicle;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -44,7 +42,7 @@ import java.util.concurrent.ConcurrentHashMap;
 public abstract class Id<T> implements Comparable<Id<T>> {
 
 	private final static Map<Class<?>, Map<String, Id<?>>> cacheId = new ConcurrentHashMap<>();
-	private final static Map<Class<?>, List<Id<?>>> cacheIndex = new ConcurrentHashMap<>();
+	private final static Map<Class<?>, IdIndex> cacheIndex = new ConcurrentHashMap<>();
 
 	public static <T> Id<T> create(final long key, final Class<T> type) {
 		return create(Long.toString(key), type);
@@ -64,15 +62,21 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 		Gbl.assertNotNull(key);
 
 		Map<String, Id<?>> mapId = cacheId.computeIfAbsent(type, k -> new ConcurrentHashMap<>(1000));
-		List<Id<?>> mapIndex = cacheIndex.computeIfAbsent(type, k -> new ArrayList<>(1000));
+		IdIndex mapIndex = cacheIndex.computeIfAbsent(type, k -> new IdIndex());
 
 		Id<?> id = mapId.get(key);
 
 		if (id == null) {
-			int index = mapIndex.size(); // this is not thread safe, but basically all id-generating code is in a single-threaded loop anyway
-			id = new IdImpl<T>(key, index);
-			mapId.put(key, id);
-			mapIndex.add(id);
+			// ids may be created concurrently, e.g. by the parallel population readers
+			synchronized (mapIndex) {
+				id = mapId.get(key);
+				if (id == null) {
+					int index = mapIndex.size();
+					id = new IdImpl<T>(key, index);
+					mapIndex.add(id);
+					mapId.put(key, id);
+				}
+			}
 		}
 
 		return (Id<T>) id;
@@ -81,7 +85,7 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	public abstract int index();
 
 	public static <T> Id<T> get(int index, final Class<T> type) {
-		List<Id<?>> mapIndex = cacheIndex.get(type);
+		IdIndex mapIndex = cacheIndex.get(type);
 
 		if (mapIndex == null) {
 			return null;
@@ -101,7 +105,8 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	}
 
 	public static <T> int getNumberOfIds(final Class<T> type) {
-		return cacheIndex.getOrDefault(type, Collections.emptyList()).size();
+		IdIndex mapIndex = cacheIndex.get(type);
+		return mapIndex == null ? 0 : mapIndex.size();
 	}
 	
 	/**
@@ -161,6 +166,42 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 			return this.id;
 		}
 	}
+
+	/**
+	 * The ids of one type, by their index. Ids are only added while holding the lock on this object, but can be read
+	 * without locking: an id is stored in the array before the size is increased, and a larger array is published
+	 * before the size, so every index below the size read by another thread refers to an id in the array read after it.
+	 */
+	private static final class IdIndex {
+
+		private volatile Id<?>[] ids = new Id<?>[1000];
+		private volatile int size = 0;
+
+		int size() {
+			return this.size;
+		}
+
+		Id<?> get(final int index) {
+			int size = this.size;
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			}
+			return this.ids[index];
+		}
+
+		/** must only be called while holding the lock on this object */
+		void add(final Id<?> id) {
+			Id<?>[] ids = this.ids;
+			if (this.size == ids.length) {
+				ids = Arrays.copyOf(ids, ids.length + (ids.length >> 1));
+				ids[this.size] = id;
+				this.ids = ids;
+			} else {
+				ids[this.size] = id;
+			}
+			this.size++;
+		}
+	}
 	
 	public static <T> String writeId( Id<T> id ) {
 		if ( id==null ) {
@@ -11,6 +11,15 @@ import java.util.Set;
 import java.util.function.BiConsumer;
 
 /**
+ * A map from {@link Id}s to objects that uses the {@link Id#index()} of the keys as index into an array.
+ * <p></p>
+ * Unlike the maps to primitive values ({@link IdToDoubleMap}, {@link IdToIntMap}, {@link IdToLongMap}), this map
+ * always uses this dense layout and never switches to a sparse, hashed one: many users (e.g. the network, the
+ * facilities or the qsim) iterate over the map and rely on the iteration order being the order in which the ids were
+ * created, which a hash table cannot provide. Per id of the type, the dense layout needs one reference (4 bytes with
+ * compressed oops), so it only wastes memory if a map contains few ids of a type with very many ids. In such a case,
+ * a {@link java.util.HashMap} is the better choice if the iteration order does not matter.
+ *
  * @author mrieser / Simunto GmbH
  */
 public class IdMap<T, V> implements Map<Id<T>, V>, Iterable<V> {
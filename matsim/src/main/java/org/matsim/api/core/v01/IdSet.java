@@ -8,6 +8,12 @@ import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
+ * A set of {@link Id}s, stored as a bit per id of the type (see {@link Id#index()}).
+ * <p></p>
+ * There is no sparse variant: a hashed set would need at least 8 bytes per contained id (with a load factor of
+ * one half), so it would only need less memory than the bit set if the set contained less than one in 64 ids of its
+ * type. Like {@link IdMap}, the set iterates over the ids in the order in which they were created.
+ *
  * @author mrieser / Simunto GmbH
  */
 public class IdSet<T> implements Set<Id<T>> {
@@ -0,0 +1,116 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdToDoubleMap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * A map from {@link Id}s to <code>double</code> values, without boxing the values. Small maps store only the ids they
+ * contain, large ones store the values by {@link Id#index()} like {@link IdMap}; the map switches automatically.
+ * <p></p>
+ * The values can optionally be stored off-heap, which is useful for very large maps (e.g. one value per person or link
+ * of a large scenario) as they then do not have to be copied around by the garbage collector.
+ * <p></p>
+ * This class is not thread-safe.
+ */
+public final class IdToDoubleMap<T> extends AbstractIdPrimitiveMap<T> {
+
+	private DoubleBuffer values;
+
+	public IdToDoubleMap(Class<T> idClass) {
+		this(idClass, false);
+	}
+
+	/**
+	 * @param offHeap if <code>true</code>, the values are stored in direct memory, outside of the java heap.
+	 */
+	public IdToDoubleMap(Class<T> idClass, boolean offHeap) {
+		super(idClass, offHeap);
+		this.values = allocate(capacity());
+	}
+
+	/**
+	 * @return the value of the given key, or 0.0 if the map does not contain the key
+	 */
+	public double get(Id<T> key) {
+		return getOrDefault(key, 0.0);
+	}
+
+	public double getOrDefault(Id<T> key, double defaultValue) {
+		int slot = findSlot(key.index());
+		return slot < 0 ? defaultValue : this.values.get(slot);
+	}
+
+	public void put(Id<T> key, double value) {
+		int slot = getOrCreateSlot(key.index());
+		this.values.put(slot, value);
+	}
+
+	/**
+	 * Adds <code>value</code> to the value of the given key, starting at 0.0 for keys not yet contained in the map.
+	 *
+	 * @return the new value
+	 */
+	public double add(Id<T> key, double value) {
+		int slot = getOrCreateSlot(key.index());
+		double newValue = this.values.get(slot) + value;
+		this.values.put(slot, newValue);
+		return newValue;
+	}
+
+	public void forEach(ObjDoubleConsumer<Id<T>> action) {
+		for (int slot = 0, capacity = capacity(); slot < capacity; slot++) {
+			int index = getIndex(slot);
+			if (index >= 0) {
+				action.accept(Id.get(index, this.idClass), this.values.get(slot));
+			}
+		}
+	}
+
+	@Override
+	Object swapValues(int capacity) {
+		DoubleBuffer oldValues = this.values;
+		this.values = allocate(capacity);
+		return oldValues;
+	}
+
+	@Override
+	void copyValue(Object oldValues, int oldSlot, int newSlot) {
+		DoubleBuffer from = oldValues == null ? this.values : (DoubleBuffer) oldValues;
+		this.values.put(newSlot, from.get(oldSlot));
+	}
+
+	@Override
+	void clearValue(int slot) {
+		this.values.put(slot, 0.0);
+	}
+
+	private DoubleBuffer allocate(int capacity) {
+		if (this.offHeap) {
+			return ByteBuffer.allocateDirect(8 * capacity).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+		}
+		return DoubleBuffer.allocate(capacity);
+	}
+
+}
@@ -0,0 +1,110 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdToIntMap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A map from {@link Id}s to <code>int</code> values, without boxing the values. Works like {@link IdToDoubleMap}.
+ */
+public final class IdToIntMap<T> extends AbstractIdPrimitiveMap<T> {
+
+	private IntBuffer values;
+
+	public IdToIntMap(Class<T> idClass) {
+		this(idClass, false);
+	}
+
+	/**
+	 * @param offHeap if <code>true</code>, the values are stored in direct memory, outside of the java heap.
+	 */
+	public IdToIntMap(Class<T> idClass, boolean offHeap) {
+		super(idClass, offHeap);
+		this.values = allocate(capacity());
+	}
+
+	/**
+	 * @return the value of the given key, or 0 if the map does not contain the key
+	 */
+	public int get(Id<T> key) {
+		return getOrDefault(key, 0);
+	}
+
+	public int getOrDefault(Id<T> key, int defaultValue) {
+		int slot = findSlot(key.index());
+		return slot < 0 ? defaultValue : this.values.get(slot);
+	}
+
+	public void put(Id<T> key, int value) {
+		int slot = getOrCreateSlot(key.index());
+		this.values.put(slot, value);
+	}
+
+	/**
+	 * Adds <code>value</code> to the value of the given key, starting at 0 for keys not yet contained in the map.
+	 *
+	 * @return the new value
+	 */
+	public int add(Id<T> key, int value) {
+		int slot = getOrCreateSlot(key.index());
+		int newValue = this.values.get(slot) + value;
+		this.values.put(slot, newValue);
+		return newValue;
+	}
+
+	public void forEach(ObjIntConsumer<Id<T>> action) {
+		for (int slot = 0, capacity = capacity(); slot < capacity; slot++) {
+			int index = getIndex(slot);
+			if (index >= 0) {
+				action.accept(Id.get(index, this.idClass), this.values.get(slot));
+			}
+		}
+	}
+
+	@Override
+	Object swapValues(int capacity) {
+		IntBuffer oldValues = this.values;
+		this.values = allocate(capacity);
+		return oldValues;
+	}
+
+	@Override
+	void copyValue(Object oldValues, int oldSlot, int newSlot) {
+		IntBuffer from = oldValues == null ? this.values : (IntBuffer) oldValues;
+		this.values.put(newSlot, from.get(oldSlot));
+	}
+
+	@Override
+	void clearValue(int slot) {
+		this.values.put(slot, 0);
+	}
+
+	private IntBuffer allocate(int capacity) {
+		if (this.offHeap) {
+			return ByteBuffer.allocateDirect(4 * capacity).order(ByteOrder.nativeOrder()).asIntBuffer();
+		}
+		return IntBuffer.allocate(capacity);
+	}
+
+}
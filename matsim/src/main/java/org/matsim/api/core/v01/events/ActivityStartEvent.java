@@ -83,4 +83,23 @@ public class ActivityStartEvent extends Event implements HasPersonId {
 		attr.put(ATTRIBUTE_ACTTYPE, this.acttype);
 		return attr;
 	}
+
+	@Override
+	public void writeAsXML(final StringBuilder out) {
+		if (getClass() != ActivityStartEvent.class) {
+			// subclasses might have additional attributes
+			super.writeAsXML(out);
+			return;
+		}
+		writeXMLStart(out);
+		writeXMLAttribute(out, ATTRIBUTE_PERSON, this.personId.toString());
+		if (this.linkId != null) {
+			writeXMLAttribute(out, ATTRIBUTE_LINK, this.linkId.toString());
+		}
+		if (this.facilityId != null) {
+			writeXMLAttribute(out, ATTRIBUTE_FACILITY, this.facilityId.toString());
+		}
+		writeXMLAttribute(out, ATTRIBUTE_ACTTYPE, this.acttype);
+		writeXMLEnd(out);
+	}
 }
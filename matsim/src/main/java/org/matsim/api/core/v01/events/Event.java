@@ -48,6 +48,63 @@ public abstract class Event {
 		return attr;
 	}
 
+	/**
+	 * Appends this event as xml element (one line in an events file) to the given buffer.
+	 * <p></p>
+	 * The default implementation uses {@link #getAttributes()}. Event types that occur very often override this method
+	 * and write their attributes directly, without creating the map and the attribute strings, using
+	 * {@link #writeXMLStart(StringBuilder)}, {@link #writeXMLAttribute(StringBuilder, String, String)} and
+	 * {@link #writeXMLEnd(StringBuilder)}. The result must be the same as the one of the default implementation,
+	 * also for subclasses that add attributes in {@link #getAttributes()}.
+	 */
+	public void writeAsXML(final StringBuilder out) {
+		out.append("\t<event ");
+		for (Map.Entry<String, String> entry : getAttributes().entrySet()) {
+			writeXMLAttribute(out, entry.getKey(), entry.getValue());
+		}
+		writeXMLEnd(out);
+	}
+
+	/**
+	 * Writes the start of the xml element including the time and type attributes.
+	 */
+	protected final void writeXMLStart(final StringBuilder out) {
+		out.append("\t<event ").append(ATTRIBUTE_TIME).append("=\"").append(this.time).append("\" ");
+		writeXMLAttribute(out, ATTRIBUTE_TYPE, getEventType());
+	}
+
+	protected static void writeXMLAttribute(final StringBuilder out, final String key, final String value) {
+		out.append(key).append("=\"");
+		if (value == null) {
+			out.append((String) null);
+		} else {
+			// encode characters that have a special meaning in xml, see http://www.w3.org/International/questions/qa-escapes#use
+			for (int pos = 0, len = value.length(); pos < len; pos++) {
+				char ch = value.charAt(pos);
+				if (ch == '<') {
+					out.append("&lt;");
+				} else if (ch == '>') {
+					out.append("&gt;");
+				} else if (ch == '\"') {
+					out.append("&quot;");
+				} else if (ch == '&') {
+					out.append("&amp;");
+				} else {
+					out.append(ch);
+				}
+			}
+		}
+		out.append("\" ");
+	}
+
+	protected static void writeXMLAttribute(final StringBuilder out, final String key, final double value) {
+		out.append(key).append("=\"").append(value).append("\" ");
+	}
+
+	protected static void writeXMLEnd(final StringBuilder out) {
+		out.append(" />\n");
+	}
+
 	/** @return a unique, descriptive name for this event type, used to identify event types in files. */
 	abstract public String getEventType();
 
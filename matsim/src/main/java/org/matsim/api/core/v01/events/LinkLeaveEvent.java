@@ -78,4 +78,17 @@ public class LinkLeaveEvent extends Event implements HasLinkId {
 		attr.put(ATTRIBUTE_LINK, this.linkId.toString());
 		return attr;
 	}
+
+	@Override
+	public void writeAsXML(final StringBuilder out) {
+		if (getClass() != LinkLeaveEvent.class) {
+			// subclasses might have additional attributes
+			super.writeAsXML(out);
+			return;
+		}
+		writeXMLStart(out);
+		writeXMLAttribute(out, ATTRIBUTE_VEHICLE, this.vehicleId.toString());
+		writeXMLAttribute(out, ATTRIBUTE_LINK, this.linkId.toString());
+		writeXMLEnd(out);
+	}
 }
\ No newline at end of file
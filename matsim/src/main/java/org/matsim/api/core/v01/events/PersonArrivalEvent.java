@@ -73,4 +73,20 @@ public class PersonArrivalEvent extends Event implements HasPersonId {
 		}
 		return attr;
 	}
+
+	@Override
+	public void writeAsXML(final StringBuilder out) {
+		if (getClass() != PersonArrivalEvent.class) {
+			// subclasses might have additional attributes
+			super.writeAsXML(out);
+			return;
+		}
+		writeXMLStart(out);
+		writeXMLAttribute(out, ATTRIBUTE_PERSON, this.personId.toString());
+		writeXMLAttribute(out, ATTRIBUTE_LINK, (this.linkId == null ? null : this.linkId.toString()));
+		if (this.legMode != null) {
+			writeXMLAttribute(out, ATTRIBUTE_LEGMODE, this.legMode);
+		}
+		writeXMLEnd(out);
+	}
 }
\ No newline at end of file
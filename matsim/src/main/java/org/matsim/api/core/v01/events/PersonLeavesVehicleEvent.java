@@ -67,4 +67,17 @@ public class PersonLeavesVehicleEvent extends Event implements HasPersonId {
 		attrs.put(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
 		return attrs;
 	}
+
+	@Override
+	public void writeAsXML(final StringBuilder out) {
+		if (getClass() != PersonLeavesVehicleEvent.class) {
+			// subclasses might have additional attributes
+			super.writeAsXML(out);
+			return;
+		}
+		writeXMLStart(out);
+		writeXMLAttribute(out, ATTRIBUTE_PERSON, this.personId.toString());
+		writeXMLAttribute(out, ATTRIBUTE_VEHICLE, this.vehicleId.toString());
+		writeXMLEnd(out);
+	}
 }
\ No newline at end of file
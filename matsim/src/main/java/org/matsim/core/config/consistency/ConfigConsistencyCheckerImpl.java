@@ -158,6 +158,12 @@ public final class ConfigConsistencyCheckerImpl implements ConfigConsistencyChec
 				config.controler().getRoutingAlgorithmType() != RoutingAlgorithmType.Dijkstra ) {
 			log.warn("We don't know if non-Dijkstra routing works together with LinkToLink routing.");
 		}
+
+		if ( config.controler().getRoutingAlgorithmType() == RoutingAlgorithmType.ContractionHierarchies &&
+				config.plansCalcRoute().getRoutingRandomness() != 0. ) {
+			throw new IllegalStateException("ContractionHierarchies computes the routing costs independent of the person, " +
+					"so it cannot be used with routingRandomness. Set routingRandomness to 0.");
+		}
 		
 	}
 
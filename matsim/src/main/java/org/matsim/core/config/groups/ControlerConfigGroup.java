@@ -38,9 +38,9 @@ import java.util.Set;
 public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = Logger.getLogger( ControlerConfigGroup.class );
 
-	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks}
+	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks, ContractionHierarchies}
 
-	public enum EventsFileFormat {xml}
+	public enum EventsFileFormat {xml, bin}
 
 	public enum CompressionType {
 		none(""),
@@ -61,12 +61,14 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String FIRST_ITERATION = "firstIteration";
 	private static final String LAST_ITERATION = "lastIteration";
 	private static final String ROUTINGALGORITHM_TYPE = "routingAlgorithmType";
+	private static final String ROUTING_CACHE_DIRECTORY = "routingCacheDirectory";
 	private static final String RUNID = "runId";
 	private static final String LINKTOLINK_ROUTING_ENABLED = "enableLinkToLinkRouting";
 	/*package*/ static final String EVENTS_FILE_FORMAT = "eventsFileFormat";
 	private static final String SNAPSHOT_FORMAT = "snapshotFormat";
 	private static final String WRITE_EVENTS_INTERVAL = "writeEventsInterval";
 	private static final String WRITE_PLANS_INTERVAL = "writePlansInterval";
+	private static final String WRITE_POPULATION_SNAPSHOTS_INTERVAL = "writePopulationSnapshotsInterval";
 	private static final String OVERWRITE_FILE = "overwriteFiles";
 	private static final String CREATE_GRAPHS = "createGraphs";
 	private static final String DUMP_DATA_AT_END = "dumpDataAtEnd";
@@ -82,6 +84,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private int firstIteration = 0;
 	private int lastIteration = 1000;
 	private RoutingAlgorithmType routingAlgorithmType = RoutingAlgorithmType.AStarLandmarks;
+	private String routingCacheDirectory = null;
 
 	private boolean linkToLinkRoutingEnabled = false;
 
@@ -91,6 +94,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 
 	private int writeEventsInterval=10;
 	private int writePlansInterval=10;
+	private int writePopulationSnapshotsInterval = 0;
 	private Set<String> snapshotFormat = Collections.emptySet();
 	private String mobsim = MobsimType.qsim.toString();
 	private int writeSnapshotsInterval = 1;
@@ -107,14 +111,22 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + RoutingAlgorithmType.Dijkstra + ", " + 
-				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + " or "  + RoutingAlgorithmType.FastAStarLandmarks);
+				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + ", "  + RoutingAlgorithmType.FastAStarLandmarks + " or " +
+				RoutingAlgorithmType.ContractionHierarchies + " (needs routingRandomness=0, re-uses the routing costs per travelTimeBinSize)");
+		map.put(ROUTING_CACHE_DIRECTORY, "Directory in which the network preprocessing of the routing algorithm is cached, so later runs with the same " +
+				"network can re-use it. Used by " + RoutingAlgorithmType.ContractionHierarchies + ", " + RoutingAlgorithmType.AStarLandmarks + " and " + RoutingAlgorithmType.FastAStarLandmarks + ". Nothing is cached if not set.");
 		map.put(RUNID, "An identifier for the current run which is used as prefix for output files and mentioned in output xml files etc.");
-		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: xml."+IOUtils.NATIVE_NEWLINE+ "\t\t" +
+		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: xml, bin (compact binary format, "
+				+ "can be converted to xml with org.matsim.run.EventsFileConverter)."+IOUtils.NATIVE_NEWLINE+ "\t\t" +
 				"Multiple values can be specified separated by commas (',').");
 		map.put(WRITE_EVENTS_INTERVAL, "iterationNumber % writeEventsInterval == 0 defines in which iterations events are written " +
 				"to a file. `0' disables events writing completely.");
 		map.put(WRITE_PLANS_INTERVAL, "iterationNumber % writePlansInterval == 0 defines (hopefully) in which iterations plans are " +
 				"written to a file. `0' disables plans writing completely.  Some plans in early iterations are always written");
+		map.put(WRITE_POPULATION_SNAPSHOTS_INTERVAL, "iterationNumber % writePopulationSnapshotsInterval == 0 defines in which iterations a binary " +
+				"snapshot of the population is written before the mobsim, and whether one is written at the end of the run. A run can be " +
+				"restarted from such an iteration by using the snapshot as plans input file and the iteration as first iteration. " +
+				"`0' (the default) disables it.");
 		map.put(LINKTOLINK_ROUTING_ENABLED, "Default=false. If enabled, the router takes travel times needed for turning moves into account."
 		        + " Cannot be used if the (Fast)AStarLandmarks routing or TravelTimeCalculator.separateModes is enabled.");
 		map.put(FIRST_ITERATION, "Default=0; "); // TODO: add description
@@ -181,6 +193,16 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.routingAlgorithmType = type;
 	}
 
+	@StringGetter( ROUTING_CACHE_DIRECTORY )
+	public String getRoutingCacheDirectory() {
+		return this.routingCacheDirectory;
+	}
+
+	@StringSetter( ROUTING_CACHE_DIRECTORY )
+	public void setRoutingCacheDirectory(final String routingCacheDirectory) {
+		this.routingCacheDirectory = routingCacheDirectory;
+	}
+
 	@StringGetter( COMPRESSION_TYPE )
 	public CompressionType getCompressionType() {
 		return this.compressionType;
@@ -320,6 +342,16 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.writePlansInterval = writePlansInterval;
 	}
 	
+	@StringGetter( WRITE_POPULATION_SNAPSHOTS_INTERVAL )
+	public int getWritePopulationSnapshotsInterval() {
+		return this.writePopulationSnapshotsInterval;
+	}
+
+	@StringSetter( WRITE_POPULATION_SNAPSHOTS_INTERVAL )
+	public void setWritePopulationSnapshotsInterval(final int writePopulationSnapshotsInterval) {
+		this.writePopulationSnapshotsInterval = writePopulationSnapshotsInterval;
+	}
+
 	@StringGetter( WRITE_SNAPSHOTS_INTERVAL )
 	public int getWriteSnapshotsInterval() {
 		return writeSnapshotsInterval;
@@ -22,6 +22,7 @@ package org.matsim.core.config.groups;
 
 import java.util.Map;
 
+import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
 
 import org.apache.log4j.Logger;
@@ -42,10 +43,13 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	private static final String RANDOM_SEED = "randomSeed";
 	private static final String NUMBER_OF_THREADS = "numberOfThreads";
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
+	private static final String NUMBER_OF_REPLANNING_QUEUES_PER_THREAD = "numberOfReplanningQueuesPerThread";
 
 	private long randomSeed = 4711L;
 	@PositiveOrZero
 	private int numberOfThreads = 2;
+	@Positive
+	private int numberOfReplanningQueuesPerThread = 1;
 	private String coordinateSystem = "Atlantis" ;
 	// see https://matsim.atlassian.net/browse/MATSIM-898
 
@@ -55,6 +59,10 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		map.put(NUMBER_OF_THREADS, "\"global\" number of threads.  "
 				+ "This number is used, e.g., for replanning, but NOT in the mobsim.  "
 				+ "This can typically be set to as many cores as you have available, or possibly even slightly more.") ;
+		map.put(NUMBER_OF_REPLANNING_QUEUES_PER_THREAD, "Number of queues per thread into which the plans are distributed "
+				+ "by the multi-threaded replanning modules.  Threads which are done with their queue take over remaining ones, "
+				+ "so values larger than 1 balance the load better, at the cost of more instances of the replanning algorithms.  "
+				+ "Results are reproducible for the same value.") ;
 		return map ;
 	}
 
@@ -79,6 +87,15 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 
+	@StringGetter( NUMBER_OF_REPLANNING_QUEUES_PER_THREAD )
+	public int getNumberOfReplanningQueuesPerThread() {
+		return this.numberOfReplanningQueuesPerThread;
+	}
+	@StringSetter( NUMBER_OF_REPLANNING_QUEUES_PER_THREAD )
+	public void setNumberOfReplanningQueuesPerThread(final int numberOfReplanningQueuesPerThread) {
+		this.numberOfReplanningQueuesPerThread = numberOfReplanningQueuesPerThread;
+	}
+
 	@StringGetter( COORDINATE_SYSTEM )
 	public String getCoordinateSystem() {
 		return this.coordinateSystem;
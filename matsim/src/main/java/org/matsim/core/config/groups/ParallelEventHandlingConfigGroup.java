@@ -20,6 +20,7 @@
 
 package org.matsim.core.config.groups;
 
+import java.util.Arrays;
 import java.util.Map;
 
 import org.matsim.core.config.ReflectiveConfigGroup;
@@ -44,6 +45,13 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 	
 	private final static String ONE_THREAD_PER_HANDLER = "oneThreadPerHandler"; 
 	private Boolean oneThreadPerHandler = false;
+
+	private final static String EVENTS_QUEUE = "eventsQueue";
+	public enum EventsQueue { blockingQueue, ringBuffer }
+	private EventsQueue eventsQueue = EventsQueue.blockingQueue;
+
+	private final static String RING_BUFFER_SIZE = "ringBufferSize";
+	private int ringBufferSize = 65536;
 	
 	private boolean locked = false;
 
@@ -60,6 +68,12 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 				+ "before the next time step is simulated. E.g. neccessary when within-day replanning is used.");
 		comments.put(ONE_THREAD_PER_HANDLER, "If enabled, each event handler is assigned to its own thread. Note that enabling this feature disabled the " + NUMBER_OF_THREADS + " option! "
 				+ "This feature is still experimental!");
+		comments.put(EVENTS_QUEUE, "How the events are handed over to the events processing threads. " + EventsQueue.blockingQueue + ": every event is put into "
+				+ "a blocking queue. " + EventsQueue.ringBuffer + ": all events are written into one preallocated ring buffer that is read by one consumer thread per "
+				+ "group of event handlers (" + NUMBER_OF_THREADS + " groups); statistics are written to eventsProcessingStats.txt. " + ONE_THREAD_PER_HANDLER
+				+ " has precedence over this option. Options: " + Arrays.toString(EventsQueue.values()));
+		comments.put(RING_BUFFER_SIZE, "Number of events that fit into the ring buffer, rounded up to a power of two. Only used if " + EVENTS_QUEUE + " is "
+				+ EventsQueue.ringBuffer + ". Should be larger than the number of events that are created by event handlers within one time step.");
 		return comments;
 	}
 
@@ -127,6 +141,34 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		}
 	}
 	
+	@StringGetter( EVENTS_QUEUE )
+	public EventsQueue getEventsQueue() {
+		return this.eventsQueue;
+	}
+
+	@StringSetter( EVENTS_QUEUE )
+	public void setEventsQueue(EventsQueue eventsQueue) {
+		if ( !this.locked ) {
+			this.eventsQueue = eventsQueue;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
+	@StringGetter( RING_BUFFER_SIZE )
+	public int getRingBufferSize() {
+		return this.ringBufferSize;
+	}
+
+	@StringSetter( RING_BUFFER_SIZE )
+	public void setRingBufferSize(int ringBufferSize) {
+		if ( !this.locked ) {
+			this.ringBufferSize = ringBufferSize;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
 	public void makeLocked() {
 		this.locked = true;
 	}
@@ -77,6 +77,17 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	
 	// ---
 
+	private static final String ROUTE_CACHE_SIZE = "routeCacheSize" ;
+	private int routeCacheSize = 0 ;
+
+	private static final String ROUTE_CACHE_TIME_BIN_SIZE = "routeCacheTimeBinSize" ;
+	private double routeCacheTimeBinSize = 900. ;
+
+	private static final String BATCH_ROUTING_TIME_BIN_SIZE = "batchRoutingTimeBinSize" ;
+	private double batchRoutingTimeBinSize = 0. ;
+
+	// ---
+
 	public static class ModeRoutingParams extends ReflectiveConfigGroup implements MatsimParameters {
 		public static final String SET_TYPE = "teleportedModeParameters";
 		public static final String MODE = "mode";
@@ -405,6 +416,12 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 			setTeleportedModeSpeed(UNDEFINED, Double.parseDouble(value));
 		} else if (NETWORK_MODES.equals(key)) {
 			setNetworkModes(Arrays.asList(CollectionUtils.stringToArray(value)));
+		} else if (ROUTE_CACHE_SIZE.equals(key)) {
+			setRouteCacheSize(Integer.parseInt(value));
+		} else if (ROUTE_CACHE_TIME_BIN_SIZE.equals(key)) {
+			setRouteCacheTimeBinSize(Double.parseDouble(value));
+		} else if (BATCH_ROUTING_TIME_BIN_SIZE.equals(key)) {
+			setBatchRoutingTimeBinSize(Double.parseDouble(value));
 		} else if (key.startsWith(TELEPORTED_MODE_SPEEDS)) {
 			setTeleportedModeSpeed(key.substring(TELEPORTED_MODE_SPEEDS.length()), Double.parseDouble(value));
 		} else if (key.startsWith(TELEPORTED_MODE_FREESPEED_FACTORS)) {
@@ -418,6 +435,9 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	public final Map<String, String> getParams() {
 		Map<String, String> map = super.getParams();
 		map.put( NETWORK_MODES, CollectionUtils.arrayToString(this.networkModes.toArray(new String[this.networkModes.size()])));
+		map.put( ROUTE_CACHE_SIZE, Integer.toString(this.routeCacheSize) );
+		map.put( ROUTE_CACHE_TIME_BIN_SIZE, Double.toString(this.routeCacheTimeBinSize) );
+		map.put( BATCH_ROUTING_TIME_BIN_SIZE, Double.toString(this.batchRoutingTimeBinSize) );
 
 		//		map.put( BEELINE_DISTANCE_FACTOR, Double.toString(this.getBeelineDistanceFactor()) );
 
@@ -443,6 +463,17 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	        map.put(RANDOMNESS, "strength of the randomness for the utility of money in routing under toll.  "
 	          		+ "Leads to Pareto-optimal route with randomly drawn money-vs-other-attributes tradeoff. "
 	          		+ "Technically the width parameter of a log-normal distribution. 3.0 seems to be a good value. " ) ;
+		map.put(ROUTE_CACHE_SIZE, "Maximum number of network routes which are kept per mode during replanning, so that "
+				+ "persons with the same origin and destination link and a departure in the same time bin get the same route "
+				+ "without a new search.  The least recently used routes are dropped first.  The cache is emptied at the "
+				+ "beginning of every iteration.  Cached routes do not consider person-specific parts of the travel disutility, "
+				+ "such as the " + RANDOMNESS + ".  0 disables the cache (default).") ;
+		map.put(ROUTE_CACHE_TIME_BIN_SIZE, "Size of the departure time bins of the route cache, in seconds.") ;
+		map.put(BATCH_ROUTING_TIME_BIN_SIZE, "If positive, re-routing routes the trips of many plans together: network trips "
+				+ "which start on the same link within a time bin of this size (in seconds) are routed with a single search to all "
+				+ "their destinations, as if they all departed at the earliest departure time of the bin, and with the travel "
+				+ "disutility of one of their persons.  Only used for network modes without access and egress walk.  "
+				+ "0 disables batch routing (default).") ;
 		return map;
 	}
 
@@ -542,6 +573,27 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		this.routingRandomness = routingRandomness;
 	}
 
+	public int getRouteCacheSize() {
+		return routeCacheSize;
+	}
+	public void setRouteCacheSize(int routeCacheSize) {
+		this.routeCacheSize = routeCacheSize;
+	}
+
+	public double getRouteCacheTimeBinSize() {
+		return routeCacheTimeBinSize;
+	}
+	public void setRouteCacheTimeBinSize(double routeCacheTimeBinSize) {
+		this.routeCacheTimeBinSize = routeCacheTimeBinSize;
+	}
+
+	public double getBatchRoutingTimeBinSize() {
+		return batchRoutingTimeBinSize;
+	}
+	public void setBatchRoutingTimeBinSize(double batchRoutingTimeBinSize) {
+		this.batchRoutingTimeBinSize = batchRoutingTimeBinSize;
+	}
+
 	@Override protected void checkConsistency(Config config) {
 		super.checkConsistency(config);
 
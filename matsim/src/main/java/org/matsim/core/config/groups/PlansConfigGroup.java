@@ -34,6 +34,8 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	public abstract static class NetworkRouteType {
 		public static final String LinkNetworkRoute = "LinkNetworkRoute";
 		public static final String CompressedNetworkRoute = "CompressedNetworkRoute";
+		public static final String LinkIndexNetworkRoute = "LinkIndexNetworkRoute";
+		public static final String InternedLinkIndexNetworkRoute = "InternedLinkIndexNetworkRoute";
 	}
 
 	public enum ActivityDurationInterpretation { minOfDurationAndEndTime, tryEndTimeThenDuration, @Deprecated endTimeOnly }
@@ -67,7 +69,11 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 				NETWORK_ROUTE_TYPE,
 				"Defines how routes are stored in memory. Currently supported: " +
 				NetworkRouteType.LinkNetworkRoute + ", " +
-				NetworkRouteType.CompressedNetworkRoute + ".");
+				NetworkRouteType.CompressedNetworkRoute + ", " +
+				NetworkRouteType.LinkIndexNetworkRoute + ", " +
+				NetworkRouteType.InternedLinkIndexNetworkRoute + ". " +
+				"The link index routes need less memory than " + NetworkRouteType.LinkNetworkRoute +
+				"; the interned variant additionally stores identical routes of different plans only once.");
 //		comments.put(
 //				INPUT_PERSON_ATTRIBUTES_FILE,
 //				"Path to a file containing person attributes (required file format: ObjectAttributes).");
@@ -87,6 +93,10 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put(REMOVING_UNNECESSARY_PLAN_ATTRIBUTES, "(not tested) will remove plan attributes that are presumably not used, such as " +
                 "activityStartTime. default=false. Use with Caution!");
 
+		comments.put(USING_COMPACT_PLAN_ELEMENTS, "If true, persons, plans, activities and legs are created as memory-lean " +
+				"objects, which store coordinates and scores as primitive values, share activity types and modes, and only " +
+				"create their attributes when needed. Useful for very large populations. default=false.");
+
 		comments.put( INPUT_CRS , "The Coordinates Reference System in which the coordinates are expressed in the input file." +
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
@@ -193,6 +203,19 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		this.removingUnneccessaryPlanAttributes = removingUnneccessaryPlanAttributes;
 	}
 
+	// ---
+
+	private static final String USING_COMPACT_PLAN_ELEMENTS = "usingCompactPlanElements";
+	private boolean usingCompactPlanElements = false;
+	@StringGetter(USING_COMPACT_PLAN_ELEMENTS)
+	public boolean isUsingCompactPlanElements() {
+		return this.usingCompactPlanElements;
+	}
+	@StringSetter(USING_COMPACT_PLAN_ELEMENTS)
+	public void setUsingCompactPlanElements(final boolean usingCompactPlanElements) {
+		this.usingCompactPlanElements = usingCompactPlanElements;
+	}
+
 
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
@@ -270,6 +270,17 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(USE_PERSON_ID_FOR_MISSING_VEHICLE_ID, "If a route does not reference a vehicle, agents will use the vehicle with the same id as their own.");
 		map.put(USING_THREADPOOL, "if the qsim should use as many runners as there are threads (Christoph's dissertation version)"
 				+ " or more of them, together with a thread pool (seems to be faster in some situations, but is not tested).") ;
+		map.put(NETWORK_PARTITIONING, "How the nodes and links are distributed over the threads of the qsim. "
+				+ NetworkPartitioning.roundRobin + ": one node after the other (default). "
+				+ NetworkPartitioning.spatial + ": every thread gets a contiguous region of the network with about the same "
+				+ "number of links, so that fewer vehicles have to be handed over between threads. "
+				+ NetworkPartitioning.spatialWithLoadBalancing + ": like " + NetworkPartitioning.spatial + ", but from the second "
+				+ "iteration on the regions are chosen such that every thread gets about the same load as measured in the "
+				+ "previous iterations.") ;
+		map.put(USING_PARALLEL_AGENT_PROCESSING, "If true and numberOfThreads > 1, agents ending activities or teleported legs "
+				+ "compute their next state on the threads of the netsim engine. They are handed on in a fixed order, so the events "
+				+ "do not depend on the scheduling of the threads. Only use this with agents that do not modify shared data when ending "
+				+ "activities or legs. Default is false.") ;
 		map.put(FAST_CAPACITY_UPDATE, "If false, the qsim accumulates fractional flows up to one flow unit in every time step.  If true, "
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer. "
 				+ "Default is true.") ;
@@ -533,6 +544,29 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	public void setUsingThreadpool( boolean val ) {
 		this.usingThreadpool = val ;
 	}
+	// ---
+	private static final String NETWORK_PARTITIONING = "networkPartitioning" ;
+	public enum NetworkPartitioning { roundRobin, spatial, spatialWithLoadBalancing }
+	private NetworkPartitioning networkPartitioning = NetworkPartitioning.roundRobin ;
+	@StringGetter(NETWORK_PARTITIONING)
+	public NetworkPartitioning getNetworkPartitioning() {
+		return this.networkPartitioning ;
+	}
+	@StringSetter(NETWORK_PARTITIONING)
+	public void setNetworkPartitioning( NetworkPartitioning networkPartitioning ) {
+		this.networkPartitioning = networkPartitioning ;
+	}
+	// ---
+	private static final String USING_PARALLEL_AGENT_PROCESSING = "usingParallelAgentProcessing" ;
+	private boolean usingParallelAgentProcessing = false ;
+	@StringGetter(USING_PARALLEL_AGENT_PROCESSING)
+	public boolean isUsingParallelAgentProcessing() {
+		return this.usingParallelAgentProcessing ;
+	}
+	@StringSetter(USING_PARALLEL_AGENT_PROCESSING)
+	public void setUsingParallelAgentProcessing( boolean val ) {
+		this.usingParallelAgentProcessing = val ;
+	}
 
 	private static final String USE_LANES="useLanes" ;
 	private boolean useLanes = false ;
@@ -42,7 +42,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 
 	public static final String GROUPNAME = "travelTimeCalculator";
 
-	public enum TravelTimeCalculatorType {TravelTimeCalculatorArray,TravelTimeCalculatorHashMap}
+	public enum TravelTimeCalculatorType {TravelTimeCalculatorArray,TravelTimeCalculatorHashMap,TravelTimeCalculatorLinkIndexArray}
 
 	private static final String TRAVEL_TIME_CALCULATOR = "travelTimeCalculator";
 	private static final String TRAVEL_TIME_BIN_SIZE = "travelTimeBinSize";
@@ -57,6 +57,9 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	private static final String FILTERMODES = "filterModes";
 	private static final String SEPARATEMODES = "separateModes";
 
+	private static final String WRITE_TRAVEL_TIMES_INTERVAL = "writeTravelTimesInterval";
+	private static final String TRAVEL_TIMES_RESOLUTION = "travelTimesResolution";
+
 	private TravelTimeCalculatorType travelTimeCalculator = TravelTimeCalculatorType.TravelTimeCalculatorArray;
 	private String travelTimeAggregator = "optimistic";
 	private String travelTimeGetter = "average";
@@ -70,6 +73,9 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	private boolean filterModes = false;
 	private boolean separateModes = true;
 
+	private int writeTravelTimesInterval = 0;
+	private double travelTimesResolution = 0;
+
 	public TravelTimeCalculatorConfigGroup() {
 		super(GROUPNAME);
 		analyzedModes.add( TransportMode.car ) ;
@@ -90,6 +96,11 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 							 "respected by the travel time collector. 'car' is default which includes also buses from the pt simulation module.");
 		map.put(FILTERMODES, "(only for backwards compatiblity; only used if " + SEPARATEMODES + "==false)  Only modes included in analyzedModes are included." ) ;
 		map.put(SEPARATEMODES, "(only for backwards compatibility) If false, link travel times are measured and aggregated over all vehicles using the link." ) ;
+		map.put(WRITE_TRAVEL_TIMES_INTERVAL, "iterationNumber % " + WRITE_TRAVEL_TIMES_INTERVAL + " == 0 defines in which iterations the " +
+				"link travel times are written to a binary file, which can be memory-mapped as TravelTime by other processes. " +
+				"0 disables writing. default=0.");
+		map.put(TRAVEL_TIMES_RESOLUTION, "If > 0, the written travel times are rounded to multiples of this value (in sec) and stored in " +
+				"half the space. Travel times are then limited to 65534 times this value. 0 stores them exactly. default=0.");
 		map.put( TRAVEL_TIME_CALCULATOR, "possible values: " + Arrays.stream( TravelTimeCalculatorType.values() ).map( type -> type.toString() + ' ' ).collect( Collectors.joining() ) );
 		return map;
 	}
@@ -213,5 +224,25 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	public void setSeparateModes(boolean separateModes) {
 		this.separateModes = separateModes;
 	}
+	// ---
+	@StringGetter(WRITE_TRAVEL_TIMES_INTERVAL)
+	public int getWriteTravelTimesInterval() {
+		return this.writeTravelTimesInterval;
+	}
+
+	@StringSetter(WRITE_TRAVEL_TIMES_INTERVAL)
+	public void setWriteTravelTimesInterval(int writeTravelTimesInterval) {
+		this.writeTravelTimesInterval = writeTravelTimesInterval;
+	}
+	// ---
+	@StringGetter(TRAVEL_TIMES_RESOLUTION)
+	public double getTravelTimesResolution() {
+		return this.travelTimesResolution;
+	}
+
+	@StringSetter(TRAVEL_TIMES_RESOLUTION)
+	public void setTravelTimesResolution(double travelTimesResolution) {
+		this.travelTimesResolution = travelTimesResolution;
+	}
 
 }
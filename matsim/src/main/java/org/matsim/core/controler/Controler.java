@@ -82,10 +82,12 @@ public final class Controler implements ControlerI, MatsimServices, AllowsConfig
 		changeEvents("change_events.xml"),
 		counts("counts.xml"),
 		population("plans.xml"),
+		populationSnapshot("plans.snapshot"),
 		experiencedPlans("experienced_plans.xml"),
 		households("households.xml"),
 		facilities("facilities.xml"),
 		events("events.xml"),
+		eventsBinary("events.bin"),
 		transitSchedule("transitSchedule.xml"),
 		transitVehicles("transitVehicles.xml"),
 		vehicles("vehicles.xml"),
@@ -24,6 +24,7 @@ package org.matsim.core.controler;
 
 import org.matsim.analysis.*;
 import org.matsim.core.events.EventsManagerModule;
+import org.matsim.core.events.EventsProcessingStatsModule;
 import org.matsim.core.mobsim.DefaultMobsimModule;
 import org.matsim.core.population.VspPlansCleanerModule;
 import org.matsim.core.replanning.StrategyManagerModule;
@@ -62,6 +63,7 @@ public final class ControlerDefaultsModule extends AbstractModule {
         install(new VspPlansCleanerModule());
         install(new SnapshotWritersModule());
         install(new DependencyGraphModule());
+        install(new EventsProcessingStatsModule());
 
     	/* Comment by kai (mz thinks it is not helpful): The framework eventually calls the above method, which calls the include 
         * methods , which (fairly quickly) call their own install methods, etc.  Eventually, everything is resolved down to the
@@ -38,6 +38,7 @@ import org.matsim.core.controler.listener.ShutdownListener;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.NetworkChangeEventsWriter;
 import org.matsim.core.network.io.NetworkWriter;
+import org.matsim.core.population.io.PopulationSnapshotWriter;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
 import org.matsim.core.utils.io.UncheckedIOException;
@@ -138,9 +139,18 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 	}
 
 	private void dumpOutputEvents() {
+		if (this.controlerConfigGroup.getEventsFileFormats().contains(ControlerConfigGroup.EventsFileFormat.bin)) {
+			dumpOutputEvents(Controler.DefaultFiles.eventsBinary);
+		}
+		if (this.controlerConfigGroup.getEventsFileFormats().contains(ControlerConfigGroup.EventsFileFormat.xml)) {
+			dumpOutputEvents(Controler.DefaultFiles.events);
+		}
+	}
+
+	private void dumpOutputEvents(Controler.DefaultFiles eventsFile) {
 		try {
-			File toFile = new File(this.controlerIO.getOutputFilename(Controler.DefaultFiles.events));
-			File fromFile = new File(this.controlerIO.getIterationFilename(this.controlerConfigGroup.getLastIteration(), Controler.DefaultFiles.events));
+			File toFile = new File(this.controlerIO.getOutputFilename(eventsFile));
+			File fromFile = new File(this.controlerIO.getIterationFilename(this.controlerConfigGroup.getLastIteration(), eventsFile));
 			try {
 				Files.copy(fromFile.toPath(), toFile.toPath(),StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.COPY_ATTRIBUTES);
 			} catch (IOException e) {
@@ -276,7 +286,14 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 
 		final PopulationWriter writer = new PopulationWriter(this.population, this.network);
 		writer.putAttributeConverters(this.attributeConverters);
+		writer.setNumberOfThreads(this.config.global().getNumberOfThreads());
 		writer.write(this.controlerIO.getOutputFilename(Controler.DefaultFiles.population));
+
+		if (this.controlerConfigGroup.getWritePopulationSnapshotsInterval() > 0) {
+			final PopulationSnapshotWriter snapshotWriter = new PopulationSnapshotWriter(this.population);
+			snapshotWriter.putAttributeConverters(this.attributeConverters);
+			snapshotWriter.write(this.controlerIO.getOutputFilename(Controler.DefaultFiles.populationSnapshot, ControlerConfigGroup.CompressionType.none));
+		}
 	}
 
 }
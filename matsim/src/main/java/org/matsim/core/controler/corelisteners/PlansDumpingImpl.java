@@ -27,15 +27,21 @@ import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationWriter;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.ControlerConfigGroup.CompressionType;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.BeforeMobsimEvent;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.population.io.PopulationSnapshotWriter;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * {@link org.matsim.core.controler.listener.ControlerListener} that dumps the
@@ -43,6 +49,9 @@ import org.matsim.core.utils.geometry.transformations.TransformationFactory;
  * ({@link ControlerConfigGroup#getWritePlansInterval()} as well as in the first
  * iteration, just in case someone might check that the replanning worked
  * correctly in the first iteration.
+ * <p></p>
+ * Binary population snapshots are written every
+ * {@link ControlerConfigGroup#getWritePopulationSnapshotsInterval()} iterations.
  *
  * @author mrieser
  */
@@ -56,7 +65,9 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 	@Inject private Population population;
 	@Inject private IterationStopWatch stopwatch;
 	@Inject private OutputDirectoryHierarchy controlerIO;
+	@Inject private Map<Class<?>, AttributeConverter<?>> attributeConverters = Collections.emptyMap();
 	private int writePlansInterval ;
+	private final int writePopulationSnapshotsInterval;
 
 	private int writeMoreUntilIteration;
 
@@ -64,6 +75,7 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 	PlansDumpingImpl(ControlerConfigGroup config) {
 		this.writePlansInterval = config.getWritePlansInterval();
 		this.writeMoreUntilIteration = config.getWritePlansUntilIteration() ;
+		this.writePopulationSnapshotsInterval = config.getWritePopulationSnapshotsInterval();
 	}
 
 	@Override
@@ -77,8 +89,9 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 			final String inputCRS = config.plans().getInputCRS();
 			final String internalCRS = config.global().getCoordinateSystem();
 
+			final PopulationWriter writer;
 			if ( inputCRS == null ) {
-				new PopulationWriter(population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population));
+				writer = new PopulationWriter(population, network);
 			}
 			else {
 				log.info( "re-projecting population from "+internalCRS+" back to "+inputCRS+" for export" );
@@ -88,11 +101,20 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 								internalCRS,
 								inputCRS );
 
-				new PopulationWriter(transformation, population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population));
+				writer = new PopulationWriter(transformation, population, network);
 			}
+			writer.setNumberOfThreads(config.global().getNumberOfThreads());
+			writer.write(controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population));
 			log.info("finished plans dump.");
 			stopwatch.endOperation("dump all plans");
 		}
+		if (writePopulationSnapshotsInterval > 0 && event.getIteration() % writePopulationSnapshotsInterval == 0) {
+			stopwatch.beginOperation("dump population snapshot");
+			PopulationSnapshotWriter writer = new PopulationSnapshotWriter(population);
+			writer.putAttributeConverters(attributeConverters);
+			writer.write(controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.populationSnapshot, CompressionType.none));
+			stopwatch.endOperation("dump population snapshot");
+		}
 	}
 
 }
@@ -20,9 +20,15 @@
 
 package org.matsim.core.events;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -43,26 +49,10 @@ import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
-import org.matsim.api.core.v01.events.handler.ActivityEndEventHandler;
-import org.matsim.api.core.v01.events.handler.ActivityStartEventHandler;
-import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
-import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonEntersVehicleEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonLeavesVehicleEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonMoneyEventHandler;
-import org.matsim.api.core.v01.events.handler.PersonStuckEventHandler;
-import org.matsim.api.core.v01.events.handler.TransitDriverStartsEventHandler;
-import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
 import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
-import org.matsim.core.api.experimental.events.handler.AgentWaitingForPtEventHandler;
-import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
-import org.matsim.core.api.experimental.events.handler.VehicleDepartsAtFacilityEventHandler;
-import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.events.handler.EventHandler;
 
 /**
@@ -73,9 +63,10 @@ import org.matsim.core.events.handler.EventHandler;
  * <li>add method public void handleEvent(MyEvent event) to it</li>
  * <li>ready to go, just implement the interface somewhere and add a
  * HandlerObject with a call to <code>Events.addHandler(HandlerObject)</code></li>
- * <li>(optional) add an appropriate line in callHandlerFast() for speeding
- * up execution!</li>
  * </ol>
+ * The handleEvent methods are not called by reflection, but through small invoker classes that are generated
+ * (with {@link LambdaMetafactory}) once per handler interface when the first handler implementing it is added.
+ * Only if that is not possible, e.g. because the handler interface is not public, reflection is used.
  *
  * @author dstrippgen
  * @author mrieser
@@ -84,29 +75,62 @@ public final class EventsManagerImpl implements EventsManager {
 
 	private static final Logger log = Logger.getLogger(EventsManagerImpl.class);
 
+	/**
+	 * Calls the handleEvent method of one specific handler interface.
+	 */
+	@FunctionalInterface
+	/*package*/ interface EventHandlerInvoker {
+		void invoke(EventHandler handler, Event event);
+	}
+
+	/* the invokers only depend on the handler interface, so they can be shared by all instances */
+	private static final Map<Method, EventHandlerInvoker> invokers = new ConcurrentHashMap<>();
+
+	/*
+	 * Handlers for these event classes used to be called directly instead of by reflection, so their exceptions
+	 * were passed on unchanged, while the exceptions of all other handlers were wrapped. Callers may rely on
+	 * either, so this is kept as it was.
+	 */
+	private static final Set<Class<?>> eventClassesWithUnwrappedExceptions = new HashSet<>(Arrays.asList(
+			LinkLeaveEvent.class, LinkEnterEvent.class, VehicleEntersTrafficEvent.class, PersonArrivalEvent.class,
+			PersonDepartureEvent.class, ActivityEndEvent.class, ActivityStartEvent.class, TransitDriverStartsEvent.class,
+			PersonStuckEvent.class, PersonMoneyEvent.class, AgentWaitingForPtEvent.class, PersonEntersVehicleEvent.class,
+			PersonLeavesVehicleEvent.class, VehicleDepartsAtFacilityEvent.class, VehicleArrivesAtFacilityEvent.class,
+			Event.class));
+
 	static private class HandlerData {
 
 		protected Class<?> eventklass;
 		protected ArrayList<EventHandler> handlerList = new ArrayList<EventHandler>(5);
-		protected Method method;
-		protected HandlerData(final Class<?> eventklass, final Method method) {
+		/* for every handler the invoker of the handler interface it was registered with */
+		protected ArrayList<EventHandlerInvoker> invokerList = new ArrayList<EventHandlerInvoker>(5);
+		protected HandlerData(final Class<?> eventklass) {
 			this.eventklass = eventklass;
-			this.method = method;
+		}
+		protected void addHandler(final EventHandler handler, final Method method) {
+			this.handlerList.add(handler);
+			this.invokerList.add(invokers.computeIfAbsent(method, EventsManagerImpl::createInvoker));
 		}
 		protected void removeHandler(final EventHandler handler) {
-			this.handlerList.remove(handler);
+			int index = this.handlerList.indexOf(handler);
+			if (index >= 0) {
+				this.handlerList.remove(index);
+				this.invokerList.remove(index);
+			}
 		}
 	}
 
 	static private class HandlerInfo {
 		protected final Class<?> eventClass;
 		protected final EventHandler eventHandler;
-		protected final Method method;
+		protected final EventHandlerInvoker invoker;
+		protected final boolean wrapExceptions;
 
-		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method) {
+		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final EventHandlerInvoker invoker) {
 			this.eventClass = eventClass;
 			this.eventHandler = eventHandler;
-			this.method = method;
+			this.invoker = invoker;
+			this.wrapExceptions = !eventClassesWithUnwrappedExceptions.contains(eventClass);
 		}
 	}
 
@@ -207,10 +231,10 @@ public final class EventsManagerImpl implements EventsManager {
 					log.info("    > " + eventClass.getName());
 					HandlerData dat = findHandler(eventClass);
 					if (dat == null) {
-						dat = new HandlerData(eventClass, method);
+						dat = new HandlerData(eventClass);
 						this.handlerData.add(dat);
 					}
-					dat.handlerList.add(handler);
+					dat.addHandler(handler, method);
 				}
 			}
 		}
@@ -219,20 +243,52 @@ public final class EventsManagerImpl implements EventsManager {
 	private void computeEvent(final Event event) {
 		for (HandlerInfo info : getHandlersForClass(event.getClass())) {
 			synchronized(info.eventHandler) {
-				if (callHandlerFast(info.eventClass, event, info.eventHandler)) {
+				if (!info.wrapExceptions) {
+					info.invoker.invoke(info.eventHandler, event);
 					continue;
 				}
 				try {
-					info.method.invoke(info.eventHandler, event);
-				} catch (IllegalArgumentException | IllegalAccessException e) {
+					info.invoker.invoke(info.eventHandler, event);
+				} catch (RuntimeException | Error e) {
 					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
-				} catch (InvocationTargetException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e.getCause());
 				}
 			}
 		}
 	}
 
+	/**
+	 * Creates a class implementing {@link EventHandlerInvoker} which directly calls the given handleEvent method,
+	 * i.e. the equivalent of <code>(handler, event) -> ((LinkEnterEventHandler) handler).handleEvent((LinkEnterEvent) event)</code>.
+	 */
+	private static EventHandlerInvoker createInvoker(final Method method) {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodHandle handleEvent = lookup.unreflect(method);
+			CallSite site = LambdaMetafactory.metafactory(lookup, "invoke",
+					MethodType.methodType(EventHandlerInvoker.class),
+					MethodType.methodType(void.class, EventHandler.class, Event.class),
+					handleEvent, handleEvent.type());
+			return (EventHandlerInvoker) site.getTarget().invokeExact();
+		} catch (Throwable e) {
+			log.info("cannot generate invoker for " + method + ", will use reflection instead: " + e.getMessage());
+			return (handler, event) -> {
+				try {
+					method.invoke(handler, event);
+				} catch (IllegalAccessException ex) {
+					throw new RuntimeException(ex);
+				} catch (InvocationTargetException ex) {
+					if (ex.getCause() instanceof RuntimeException) {
+						throw (RuntimeException) ex.getCause();
+					}
+					if (ex.getCause() instanceof Error) {
+						throw (Error) ex.getCause();
+					}
+					throw new RuntimeException(ex.getCause());
+				}
+			};
+		}
+	}
+
 	private HandlerInfo[] getHandlersForClass(final Class<?> eventClass) {
 		Class<?> klass = eventClass;
 		HandlerInfo[] cache = this.cacheHandlers.get(eventClass);
@@ -245,8 +301,8 @@ public final class EventsManagerImpl implements EventsManager {
 		while (klass != Object.class) {
 			HandlerData dat = findHandler(klass);
 			if (dat != null) {
-				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(klass, handler, dat.method));
+				for (int i = 0; i < dat.handlerList.size(); i++) {
+					info.add(new HandlerInfo(klass, dat.handlerList.get(i), dat.invokerList.get(i)));
 				}
 			}
 			klass = klass.getSuperclass();
@@ -255,8 +311,8 @@ public final class EventsManagerImpl implements EventsManager {
 		for (Class<?> intfc : getAllInterfaces(eventClass)) {
 			HandlerData dat = findHandler(intfc);
 			if (dat != null) {
-				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(intfc, handler, dat.method));
+				for (int i = 0; i < dat.handlerList.size(); i++) {
+					info.add(new HandlerInfo(intfc, dat.handlerList.get(i), dat.invokerList.get(i)));
 				}
 			}
 		}
@@ -282,60 +338,6 @@ public final class EventsManagerImpl implements EventsManager {
 		return intfs;
 	}
 
-	// this method is purely for performance reasons and need not be implemented
-	private boolean callHandlerFast(final Class<?> klass, final Event ev, final EventHandler handler) {
-		if (klass == LinkLeaveEvent.class) {
-			((LinkLeaveEventHandler)handler).handleEvent((LinkLeaveEvent)ev);
-			return true;
-		} else if (klass == LinkEnterEvent.class) {
-			((LinkEnterEventHandler)handler).handleEvent((LinkEnterEvent)ev);
-			return true;
-		} else if (klass == VehicleEntersTrafficEvent.class) {
-			((VehicleEntersTrafficEventHandler)handler).handleEvent((VehicleEntersTrafficEvent)ev);
-			return true;
-		} else if (klass == PersonArrivalEvent.class) {
-			((PersonArrivalEventHandler)handler).handleEvent((PersonArrivalEvent)ev);
-			return true;
-		} else if (klass == PersonDepartureEvent.class) {
-			((PersonDepartureEventHandler)handler).handleEvent((PersonDepartureEvent)ev);
-			return true;
-		} else if (klass == ActivityEndEvent.class) {
-			((ActivityEndEventHandler)handler).handleEvent((ActivityEndEvent)ev);
-			return true;
-		} else if (klass == ActivityStartEvent.class) {
-			((ActivityStartEventHandler)handler).handleEvent((ActivityStartEvent)ev);
-			return true;
-		} else if (klass == TransitDriverStartsEvent.class) {
-			((TransitDriverStartsEventHandler) handler).handleEvent((TransitDriverStartsEvent) ev);
-			return true;
-		} else if (klass == PersonStuckEvent.class) {
-			((PersonStuckEventHandler)handler).handleEvent((PersonStuckEvent)ev);
-			return true;
-		} else if (klass == PersonMoneyEvent.class) {
-			((PersonMoneyEventHandler)handler).handleEvent((PersonMoneyEvent)ev);
-			return true;
-		} else if (klass == AgentWaitingForPtEvent.class) {
-			((AgentWaitingForPtEventHandler)handler).handleEvent((AgentWaitingForPtEvent)ev);
-			return true;
-		} else if (klass == PersonEntersVehicleEvent.class) {
-			((PersonEntersVehicleEventHandler)handler).handleEvent((PersonEntersVehicleEvent)ev);
-			return true;
-		} else if (klass == PersonLeavesVehicleEvent.class) {
-			((PersonLeavesVehicleEventHandler)handler).handleEvent((PersonLeavesVehicleEvent)ev);
-			return true;
-		} else if (klass == VehicleDepartsAtFacilityEvent.class) {
-			((VehicleDepartsAtFacilityEventHandler) handler).handleEvent((VehicleDepartsAtFacilityEvent) ev);
-			return true;
-		} else if (klass == VehicleArrivesAtFacilityEvent.class) {
-			((VehicleArrivesAtFacilityEventHandler) handler).handleEvent((VehicleArrivesAtFacilityEvent) ev);
-			return true;
-		} else if (klass == Event.class) {
-			((BasicEventHandler)handler).handleEvent(ev);
-			return true;
-		}
-		return false;
-	}
-
 	public void printEventHandlers() {
 		log.info("currently registered event-handlers:");
 		for (HandlerData handlerType : this.handlerData) {
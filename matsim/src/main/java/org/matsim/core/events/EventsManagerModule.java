@@ -22,6 +22,7 @@
  package org.matsim.core.events;
 
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.events.handler.EventHandler;
 
@@ -34,6 +35,8 @@ public final class EventsManagerModule extends AbstractModule {
 	public void install() {
 		if (getConfig().parallelEventHandling().getOneThreadPerHandler() != null && getConfig().parallelEventHandling().getOneThreadPerHandler()) {
 			bindEventsManager().to(ParallelEventsManager.class).asEagerSingleton();
+		} else if (getConfig().parallelEventHandling().getEventsQueue() == ParallelEventHandlingConfigGroup.EventsQueue.ringBuffer) {
+			bindEventsManager().to(RingBufferEventsManager.class).asEagerSingleton();
 		} else if (getConfig().parallelEventHandling().getNumberOfThreads() != null) {
 			if (getConfig().parallelEventHandling().getSynchronizeOnSimSteps() != null && getConfig().parallelEventHandling().getSynchronizeOnSimSteps()) {
 				bindEventsManager().to(SimStepParallelEventsManagerImpl.class).asEagerSingleton();
@@ -0,0 +1,85 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsProcessingStatsControlerListener.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+import javax.inject.Inject;
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+class EventsProcessingStatsControlerListener implements IterationEndsListener, ShutdownListener {
+
+	private final EventsManager eventsManager;
+	private final OutputDirectoryHierarchy controlerIO;
+	private BufferedWriter out = null;
+
+	@Inject
+	EventsProcessingStatsControlerListener(EventsManager eventsManager, OutputDirectoryHierarchy controlerIO) {
+		this.eventsManager = eventsManager;
+		this.controlerIO = controlerIO;
+	}
+
+	@Override
+	public void notifyIterationEnds(IterationEndsEvent event) {
+		if (!(this.eventsManager instanceof RingBufferEventsManager)) {
+			return;
+		}
+		RingBufferEventsManager.IterationStatistics statistics = ((RingBufferEventsManager) this.eventsManager).getLastIterationStatistics();
+		if (statistics == null) {
+			return;
+		}
+		try {
+			if (this.out == null) {
+				this.out = IOUtils.getBufferedWriter(this.controlerIO.getOutputFilename("eventsProcessingStats.txt"));
+				this.out.write("ITERATION\tevents\teventsPerSecond\tavgQueueDepth\tmaxQueueDepth\tmaxConsumerLag\n");
+			}
+			long maxConsumerLag = 0;
+			for (long lag : statistics.getMaxConsumerLags()) {
+				maxConsumerLag = Math.max(maxConsumerLag, lag);
+			}
+			this.out.write(event.getIteration() + "\t" + statistics.getNumberOfEvents() + "\t" + statistics.getEventsPerSecond() + "\t"
+					+ statistics.getAverageQueueDepth() + "\t" + statistics.getMaxQueueDepth() + "\t" + maxConsumerLag + "\n");
+			this.out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		if (this.out != null) {
+			try {
+				this.out.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+}
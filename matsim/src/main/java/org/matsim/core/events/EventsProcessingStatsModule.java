@@ -0,0 +1,39 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsProcessingStatsModule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.controler.AbstractModule;
+
+/**
+ * Writes the throughput of the events processing to eventsProcessingStats.txt, if the events manager collects such
+ * statistics (currently only if the {@link ParallelEventHandlingConfigGroup.EventsQueue#ringBuffer} is used).
+ */
+public final class EventsProcessingStatsModule extends AbstractModule {
+
+	@Override
+	public void install() {
+		if (getConfig().parallelEventHandling().getEventsQueue() == ParallelEventHandlingConfigGroup.EventsQueue.ringBuffer) {
+			addControlerListenerBinding().to(EventsProcessingStatsControlerListener.class);
+		}
+	}
+
+}
@@ -0,0 +1,331 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.EventsReaderXMLv1.CustomEventMapper;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Stack;
+
+/**
+ * Reads events files written by {@link EventWriterBinary} and passes the events to an {@link EventsManager}.
+ * <p></p>
+ * Events that are not stored in a type-specific way are converted with the same rules as in the xml format (see
+ * {@link EventsReaderXMLv1}), including custom event mappers.
+ */
+public final class EventsReaderBinary implements MatsimReader {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final EventsManager events;
+	private final EventsReaderXMLv1 genericEventsReader;
+
+	private InputStream in;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position = 0;
+	private int limit = 0;
+
+	private final List<String> dictionary = new ArrayList<>();
+	private final IdCache<Person> personIds = new IdCache<>(Person.class);
+	private final IdCache<Link> linkIds = new IdCache<>(Link.class);
+	private final IdCache<Vehicle> vehicleIds = new IdCache<>(Vehicle.class);
+	private final IdCache<ActivityFacility> facilityIds = new IdCache<>(ActivityFacility.class);
+	private double lastTime;
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.events = events;
+		this.genericEventsReader = new EventsReaderXMLv1(events);
+	}
+
+	public void addCustomEventMapper(String eventType, CustomEventMapper<?> mapper) {
+		this.genericEventsReader.addCustomEventMapper(eventType, mapper);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		readURL(IOUtils.resolveFileOrResource(filename));
+	}
+
+	@Override
+	public void readURL(final URL url) {
+		try (InputStream stream = IOUtils.getInputStream(url)) {
+			readStream(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void readStream(final InputStream stream) {
+		this.in = stream;
+		this.position = 0;
+		this.limit = 0;
+		this.dictionary.clear();
+		this.personIds.clear();
+		this.linkIds.clear();
+		this.vehicleIds.clear();
+		this.facilityIds.clear();
+		this.lastTime = 0.0;
+		try {
+			for (byte b : EventWriterBinary.MAGIC) {
+				if (readByte() != b) {
+					throw new IllegalArgumentException("not a binary MATSim events file.");
+				}
+			}
+			long version = readVarLong();
+			if (version != EventWriterBinary.VERSION) {
+				throw new IllegalArgumentException("unsupported version of the binary events format: " + version);
+			}
+			while (readEvent()) {
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.in = null;
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if the end of the stream was reached
+	 */
+	private boolean readEvent() throws IOException {
+		int tag = (int) readVarLong();
+		if (tag == EventWriterBinary.TAG_END) {
+			return false;
+		}
+		double time = readTime();
+		switch (tag) {
+			case EventWriterBinary.TAG_LINK_ENTER:
+				this.events.processEvent(new LinkEnterEvent(time, readId(this.vehicleIds), readId(this.linkIds)));
+				break;
+			case EventWriterBinary.TAG_LINK_LEAVE:
+				this.events.processEvent(new LinkLeaveEvent(time, readId(this.vehicleIds), readId(this.linkIds)));
+				break;
+			case EventWriterBinary.TAG_VEHICLE_ENTERS_TRAFFIC:
+				this.events.processEvent(new VehicleEntersTrafficEvent(time, readId(this.personIds), readId(this.linkIds),
+						readId(this.vehicleIds), readString(), readDouble()));
+				break;
+			case EventWriterBinary.TAG_VEHICLE_LEAVES_TRAFFIC:
+				this.events.processEvent(new VehicleLeavesTrafficEvent(time, readId(this.personIds), readId(this.linkIds),
+						readId(this.vehicleIds), readString(), readDouble()));
+				break;
+			case EventWriterBinary.TAG_PERSON_DEPARTURE:
+				this.events.processEvent(new PersonDepartureEvent(time, readId(this.personIds), readId(this.linkIds), readString()));
+				break;
+			case EventWriterBinary.TAG_PERSON_ARRIVAL:
+				this.events.processEvent(new PersonArrivalEvent(time, readId(this.personIds), readId(this.linkIds), readString()));
+				break;
+			case EventWriterBinary.TAG_ACTIVITY_START:
+				this.events.processEvent(new ActivityStartEvent(time, readId(this.personIds), readId(this.linkIds),
+						readId(this.facilityIds), readString()));
+				break;
+			case EventWriterBinary.TAG_ACTIVITY_END:
+				this.events.processEvent(new ActivityEndEvent(time, readId(this.personIds), readId(this.linkIds),
+						readId(this.facilityIds), readString()));
+				break;
+			case EventWriterBinary.TAG_PERSON_ENTERS_VEHICLE:
+				this.events.processEvent(new PersonEntersVehicleEvent(time, readId(this.personIds), readId(this.vehicleIds)));
+				break;
+			case EventWriterBinary.TAG_PERSON_LEAVES_VEHICLE:
+				this.events.processEvent(new PersonLeavesVehicleEvent(time, readId(this.personIds), readId(this.vehicleIds)));
+				break;
+			case EventWriterBinary.TAG_GENERIC:
+				readGenericEvent(time);
+				break;
+			default:
+				throw new IllegalArgumentException("unknown tag in binary events file: " + tag);
+		}
+		return true;
+	}
+
+	private void readGenericEvent(double time) throws IOException {
+		AttributesImpl atts = new AttributesImpl();
+		atts.addAttribute(null, Event.ATTRIBUTE_TIME, Event.ATTRIBUTE_TIME, null, Double.toString(time));
+		atts.addAttribute(null, Event.ATTRIBUTE_TYPE, Event.ATTRIBUTE_TYPE, null, readString());
+		int count = (int) readVarLong();
+		for (int i = 0; i < count; i++) {
+			String key = readString();
+			atts.addAttribute(null, key, key, null, readRawString());
+		}
+		this.genericEventsReader.startTag(EventsReaderXMLv1.EVENT, atts, new Stack<>());
+	}
+
+	private double readTime() throws IOException {
+		long value = readVarLong();
+		if ((value & 1) == 0) {
+			long zigZag = value >>> 1;
+			long delta = (zigZag >>> 1) ^ -(zigZag & 1);
+			this.lastTime = this.lastTime + delta;
+		} else {
+			this.lastTime = readDouble();
+		}
+		return this.lastTime;
+	}
+
+	private <T> Id<T> readId(IdCache<T> cache) throws IOException {
+		int reference = (int) readVarLong();
+		if (reference == EventWriterBinary.STRING_NULL) {
+			return null;
+		}
+		int index = reference == EventWriterBinary.STRING_NEW ? readNewString() : reference - EventWriterBinary.STRING_OFFSET;
+		return cache.get(index, this.dictionary);
+	}
+
+	private String readString() throws IOException {
+		int reference = (int) readVarLong();
+		if (reference == EventWriterBinary.STRING_NULL) {
+			return null;
+		}
+		int index = reference == EventWriterBinary.STRING_NEW ? readNewString() : reference - EventWriterBinary.STRING_OFFSET;
+		return this.dictionary.get(index);
+	}
+
+	/**
+	 * @return the index of the new string in the dictionary
+	 */
+	private int readNewString() throws IOException {
+		int length = (int) readVarLong();
+		this.dictionary.add(readUtf8(length).intern());
+		return this.dictionary.size() - 1;
+	}
+
+	private String readRawString() throws IOException {
+		int length = (int) readVarLong();
+		if (length == 0) {
+			return null;
+		}
+		return readUtf8(length - 1);
+	}
+
+	private String readUtf8(int length) throws IOException {
+		byte[] bytes = new byte[length];
+		int copied = 0;
+		while (copied < length) {
+			if (this.position == this.limit) {
+				fillBuffer();
+			}
+			int n = Math.min(length - copied, this.limit - this.position);
+			System.arraycopy(this.buffer, this.position, bytes, copied, n);
+			this.position += n;
+			copied += n;
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private double readDouble() throws IOException {
+		long bits = 0;
+		for (int i = 0; i < 8; i++) {
+			bits |= ((long) readByte() & 0xFF) << (8 * i);
+		}
+		return Double.longBitsToDouble(bits);
+	}
+
+	private long readVarLong() throws IOException {
+		long value = 0;
+		int shift = 0;
+		while (true) {
+			int b = readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+			shift += 7;
+			if (shift > 63) {
+				throw new IllegalArgumentException("malformed varint in binary events file.");
+			}
+		}
+	}
+
+	private int readByte() throws IOException {
+		if (this.position == this.limit) {
+			fillBuffer();
+		}
+		return this.buffer[this.position++];
+	}
+
+	private void fillBuffer() throws IOException {
+		int n = this.in.read(this.buffer, 0, BUFFER_SIZE);
+		if (n <= 0) {
+			throw new EOFException("unexpected end of binary events file.");
+		}
+		this.position = 0;
+		this.limit = n;
+	}
+
+	/**
+	 * Caches the ids of one type by their index in the dictionary, so every id string is looked up only once.
+	 */
+	private static final class IdCache<T> {
+		private final Class<T> type;
+		private Id<T>[] ids;
+
+		@SuppressWarnings("unchecked")
+		IdCache(Class<T> type) {
+			this.type = type;
+			this.ids = new Id[1024];
+		}
+
+		Id<T> get(int index, List<String> dictionary) {
+			if (index >= this.ids.length) {
+				this.ids = Arrays.copyOf(this.ids, Math.max(index + 1, this.ids.length * 2));
+			}
+			Id<T> id = this.ids[index];
+			if (id == null) {
+				id = Id.create(dictionary.get(index), this.type);
+				this.ids[index] = id;
+			}
+			return id;
+		}
+
+		void clear() {
+			Arrays.fill(this.ids, null);
+		}
+	}
+
+}
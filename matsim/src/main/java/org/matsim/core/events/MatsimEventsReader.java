@@ -71,6 +71,8 @@ public final class MatsimEventsReader implements MatsimReader {
 		String lcFilename = filename.toLowerCase(Locale.ROOT);
 		if (lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz")) {
 			new XmlEventsReader(this.events, map ).readFile(filename );
+		} else if (isBinaryEventsFile(lcFilename)) {
+			createBinaryEventsReader().readFile(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
@@ -78,12 +80,33 @@ public final class MatsimEventsReader implements MatsimReader {
 		}
 	}
 
+	private static boolean isBinaryEventsFile(String lcFilename) {
+		for (String extension : new String[] {".bin", ".bin.gz", ".bin.lz4", ".bin.bz2", ".bin.zst", ".bin.zstd"}) {
+			if (lcFilename.endsWith(extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private EventsReaderBinary createBinaryEventsReader() {
+		EventsReaderBinary reader = new EventsReaderBinary(this.events);
+		for (Map.Entry<String, CustomEventMapper> entry : this.map.entrySet()) {
+			reader.addCustomEventMapper(entry.getKey(), entry.getValue());
+		}
+		return reader;
+	}
+
 	public void readStream(final InputStream stream) {
 		new XmlEventsReader(this.events, map ).parse(stream );
 	}
 
 	@Override
 	public void readURL( final URL url ) {
+		if (isBinaryEventsFile(url.getPath().toLowerCase(Locale.ROOT))) {
+			createBinaryEventsReader().readURL(url);
+			return;
+		}
 		new XmlEventsReader( this.events, map ).readURL( url );
 	}
 
@@ -0,0 +1,510 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsManager.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.gbl.Gbl;
+
+import javax.inject.Inject;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An EventsManager that handles all events in separate threads, like {@link SimStepParallelEventsManagerImpl},
+ * but without allocating anything per event and without locks.
+ * <p></p>
+ * All events are written into one preallocated ring buffer. Producers (there can be several, e.g. the threads of the
+ * QNetsimEngine) claim a slot by incrementing a shared cursor and then publish the event in this slot. The event
+ * handlers are distributed over several groups; every group is served by one consumer thread that follows the
+ * cursor with its own sequence and processes all events that are available at once (batching). Once all consumers
+ * have passed a slot, it is cleared (so that the event can be garbage collected) and can be reused.
+ * <p></p>
+ * If synchronizeOnSimSteps is set, {@link #afterSimStep(double)} waits until all consumers have processed all events
+ * of the time step, including the events that were created by event handlers while doing so. The ring buffer must be
+ * large enough to hold the events created by the event handlers within one time step, otherwise an exception is thrown.
+ * If it is not set, the events created by event handlers end up behind younger events of the mobsim, i.e. the
+ * consumers see them out of chronological order (as with the {@link ParallelEventsManagerImpl}).
+ * <p></p>
+ * For every iteration, some statistics (events per second, queue depth, consumer lag) are collected, see
+ * {@link #getLastIterationStatistics()}.
+ */
+final class RingBufferEventsManager implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(RingBufferEventsManager.class);
+
+	private final int numOfThreads;
+	private final boolean syncOnSimSteps;
+
+	private final EventsManagerImpl delegate;
+	private final EventsManagerImpl[] eventsManagers;
+	private int handlerCount = 0;
+
+	private final Event[] entries;
+	/* whether the event in a slot was created by an event handler, only used if not synchronizing on sim steps */
+	private final boolean[] createdByHandler;
+	/* for every slot, the round of the sequence that was last published in it; allows several producers */
+	private final AtomicIntegerArray publishedRounds;
+	private final int mask;
+	private final int indexShift;
+	/* the highest sequence that was claimed by a producer */
+	private final AtomicLong cursor = new AtomicLong(-1);
+	/* the highest sequence whose slot was cleared after all consumers passed it; producers may reuse the slots up to it */
+	private volatile long releasedSequence = -1;
+	/* the highest sequence for which a thread has started to clear the slots, guarantees that only one thread clears a slot */
+	private final AtomicLong releaseClaim = new AtomicLong(-1);
+
+	private Consumer[] consumers = new Consumer[0];
+	private volatile boolean parallelMode = false;
+	private final AtomicReference<Throwable> hadException = new AtomicReference<>();
+
+	private long iterationStartSequence;
+	private long iterationStartTime;
+	private long queueDepthSum;
+	private long queueDepthSamples;
+	private long maxQueueDepth;
+	private long[] maxConsumerLags;
+	private IterationStatistics lastIterationStatistics = null;
+
+	@Inject
+	RingBufferEventsManager(ParallelEventHandlingConfigGroup config) {
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1,
+				config.getSynchronizeOnSimSteps() == null || config.getSynchronizeOnSimSteps(),
+				config.getRingBufferSize());
+	}
+
+	public RingBufferEventsManager(int numOfThreads) {
+		this(numOfThreads, true, 65536);
+	}
+
+	public RingBufferEventsManager(int numOfThreads, boolean syncOnSimSteps, int ringBufferSize) {
+		if (numOfThreads < 1) {
+			throw new IllegalArgumentException("numOfThreads must be at least 1, but is " + numOfThreads);
+		}
+		if (ringBufferSize < 1 || ringBufferSize > (1 << 30)) {
+			throw new IllegalArgumentException("ringBufferSize must be in [1, 2^30], but is " + ringBufferSize);
+		}
+		this.numOfThreads = numOfThreads;
+		this.syncOnSimSteps = syncOnSimSteps;
+
+		int size = Integer.highestOneBit(Math.max(1, ringBufferSize - 1)) << 1;
+		this.entries = new Event[size];
+		this.createdByHandler = new boolean[size];
+		this.publishedRounds = new AtomicIntegerArray(size);
+		for (int i = 0; i < size; i++) {
+			this.publishedRounds.set(i, -1);
+		}
+		this.mask = size - 1;
+		this.indexShift = Integer.numberOfTrailingZeros(size);
+
+		this.delegate = new EventsManagerImpl();
+		this.eventsManagers = new EventsManagerImpl[numOfThreads];
+		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl();
+
+		log.info("number of threads=" + numOfThreads + ", ring buffer size=" + size + ", synchronize on sim steps=" + syncOnSimSteps);
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		if (this.parallelMode) {
+			publish(event);
+		} else {
+			this.delegate.processEvent(event);
+		}
+	}
+
+	private void publish(final Event event) {
+		final long sequence = this.cursor.incrementAndGet();
+		final long wrapPoint = sequence - this.entries.length;
+		if (wrapPoint > this.releasedSequence) {
+			waitForCapacity(wrapPoint);
+		}
+		final int index = (int) sequence & this.mask;
+		this.entries[index] = event;
+		if (!this.syncOnSimSteps) {
+			this.createdByHandler[index] = isConsumerThread(Thread.currentThread());
+		}
+		this.publishedRounds.lazySet(index, (int) (sequence >>> this.indexShift));
+	}
+
+	private void waitForCapacity(final long wrapPoint) {
+		int idleCount = 0;
+		while (wrapPoint > this.releasedSequence) {
+			// the consumers might not have cleared the slots they passed yet
+			releaseProcessedSlots();
+			if (wrapPoint <= this.releasedSequence) {
+				break;
+			}
+			for (Consumer consumer : this.consumers) {
+				if (consumer.thread == Thread.currentThread() && consumer.sequence.get() < wrapPoint) {
+					// the consumer would wait for itself
+					throw new RuntimeException("The ring buffer is full while an event handler creates new events. "
+							+ "Increase the ring buffer size, currently " + this.entries.length + ".");
+				}
+			}
+			idleCount = idle(idleCount);
+		}
+	}
+
+	/**
+	 * Clears the slots that all consumers have passed and makes them available to the producers. Several threads
+	 * may call this concurrently, but only one of them clears a given range of slots; the others return immediately.
+	 */
+	private void releaseProcessedSlots() {
+		final long released = this.releasedSequence;
+		// a crashed consumer reports Long.MAX_VALUE as its sequence
+		final long processed = Math.min(getMinimumConsumerSequence(), this.cursor.get());
+		if (processed > released && this.releaseClaim.compareAndSet(released, processed)) {
+			for (long s = released + 1; s <= processed; s++) {
+				this.entries[(int) s & this.mask] = null;
+			}
+			this.releasedSequence = processed;
+		}
+	}
+
+	private boolean isConsumerThread(Thread thread) {
+		for (Consumer consumer : this.consumers) {
+			if (consumer.thread == thread) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private long getMinimumConsumerSequence() {
+		long minimum = Long.MAX_VALUE;
+		for (Consumer consumer : this.consumers) {
+			minimum = Math.min(minimum, consumer.sequence.get());
+		}
+		return minimum;
+	}
+
+	/**
+	 * Spins for a while, then yields and finally parks the thread for a short time.
+	 */
+	private static int idle(int idleCount) {
+		if (idleCount < 100) {
+			// just spin
+		} else if (idleCount < 200) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(1000);
+		}
+		return idleCount + 1;
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		this.delegate.addHandler(handler);
+
+		this.eventsManagers[this.handlerCount % this.numOfThreads].addHandler(handler);
+		this.handlerCount++;
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		if (this.parallelMode) log.warn("Removing EventHandler while the RingBufferEventsManager is in 'parallel' mode. This is not expected to happen :?");
+
+		this.delegate.removeHandler(handler);
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.removeHandler(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		this.delegate.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+		this.delegate.initProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.initProcessing();
+
+		this.hadException.set(null);
+
+		// the sequences are not reset between iterations, the consumers simply start behind the current cursor
+		long start = this.cursor.get();
+		this.releaseClaim.set(start);
+		this.releasedSequence = start;
+		this.iterationStartSequence = start;
+		this.iterationStartTime = System.nanoTime();
+		this.queueDepthSum = 0;
+		this.queueDepthSamples = 0;
+		this.maxQueueDepth = 0;
+		this.maxConsumerLags = new long[this.numOfThreads];
+
+		Consumer[] consumers = new Consumer[this.numOfThreads];
+		for (int i = 0; i < this.numOfThreads; i++) {
+			consumers[i] = new Consumer(this.eventsManagers[i], start);
+		}
+		this.consumers = consumers;
+		for (int i = 0; i < this.numOfThreads; i++) {
+			Thread thread = new Thread(consumers[i]);
+			thread.setDaemon(true);
+			thread.setName(RingBufferEventsManager.class.getSimpleName() + "Consumer" + i);
+			consumers[i].thread = thread;
+			thread.start();
+		}
+
+		/*
+		 * During the simulation Events are processed in
+		 * the consumer threads.
+		 */
+		this.parallelMode = true;
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		if (!this.parallelMode) {
+			return;
+		}
+		sampleQueueDepth();
+
+		if (this.syncOnSimSteps) {
+			waitForConsumers();
+		}
+	}
+
+	/**
+	 * Waits until all consumers have processed all published events. Event handlers might create additional events
+	 * while processing them. They are claimed before the consumer that creates them has finished the current event,
+	 * so we are done as soon as the cursor has not moved while the consumers caught up. If an exception occurred, at
+	 * least one of the consumers has crashed and would never catch up, so we do not wait at all.
+	 */
+	private void waitForConsumers() {
+		long target;
+		do {
+			target = this.cursor.get();
+			int idleCount = 0;
+			while (getMinimumConsumerSequence() < target && this.hadException.get() == null) {
+				idleCount = idle(idleCount);
+			}
+		} while (this.cursor.get() != target && this.hadException.get() == null);
+	}
+
+	private void sampleQueueDepth() {
+		long claimed = this.cursor.get();
+		long depth = claimed - getMinimumConsumerSequence();
+		if (depth < 0) {
+			depth = 0; // a crashed consumer reports Long.MAX_VALUE as its sequence
+		}
+		this.queueDepthSum += depth;
+		this.queueDepthSamples++;
+		this.maxQueueDepth = Math.max(this.maxQueueDepth, depth);
+		for (int i = 0; i < this.consumers.length; i++) {
+			long lag = claimed - this.consumers[i].sequence.get();
+			this.maxConsumerLags[i] = Math.max(this.maxConsumerLags[i], lag);
+		}
+	}
+
+	/*
+	 * In some chases Events are created after this method has been called.
+	 * To ensure that they are processed in real time, we process them not
+	 * in the parallel threads but directly in the calling thread.
+	 */
+	@Override
+	public synchronized void finishProcessing() {
+		if (this.parallelMode) {
+			// without synchronization on the sim steps, the event handlers might still create events
+			waitForConsumers();
+			// also the consumers that are still alive after an exception have to be stopped
+			publish(new LastEventOfIteration(Double.POSITIVE_INFINITY));
+			for (Consumer consumer : this.consumers) {
+				try {
+					consumer.thread.join();
+				} catch (InterruptedException e) {
+					this.hadException.compareAndSet(null, e);
+				}
+			}
+			// do not keep the events of this iteration reachable
+			releaseProcessedSlots();
+
+			double seconds = (System.nanoTime() - this.iterationStartTime) / 1e9;
+			long numberOfEvents = this.cursor.get() - this.iterationStartSequence - 1;
+			this.lastIterationStatistics = new IterationStatistics(numberOfEvents, seconds,
+					this.queueDepthSamples == 0 ? 0 : (double) this.queueDepthSum / this.queueDepthSamples,
+					this.maxQueueDepth, this.maxConsumerLags);
+			log.info("events processing statistics: " + this.lastIterationStatistics);
+
+			/*
+			 * After the simulation Events are processed in
+			 * the Main Thread.
+			 */
+			this.parallelMode = false;
+			this.consumers = new Consumer[0];
+		}
+
+		this.delegate.finishProcessing();
+		for (EventsManager eventsManager : this.eventsManagers) eventsManager.finishProcessing();
+
+		Throwable throwable = this.hadException.get();
+		if (throwable != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", throwable);
+		}
+	}
+
+	/**
+	 * @return the statistics of the last call to {@link #initProcessing()} / {@link #finishProcessing()}, or
+	 * 		<code>null</code> if the events were never processed in parallel.
+	 */
+	public IterationStatistics getLastIterationStatistics() {
+		return this.lastIterationStatistics;
+	}
+
+	private final class Consumer implements Runnable {
+
+		private final EventsManager eventsManager;
+		/* the highest sequence that was completely processed by this consumer */
+		private final AtomicLong sequence;
+		private Thread thread;
+		private double lastEventTime = Double.NEGATIVE_INFINITY;
+
+		Consumer(EventsManager eventsManager, long startSequence) {
+			this.eventsManager = eventsManager;
+			this.sequence = new AtomicLong(startSequence);
+		}
+
+		@Override
+		public void run() {
+			try {
+				long next = this.sequence.get() + 1;
+				int idleCount = 0;
+				while (true) {
+					long available = getHighestPublishedSequence(next, cursor.get());
+					if (available < next) {
+						idleCount = idle(idleCount);
+						continue;
+					}
+					idleCount = 0;
+
+					for (long s = next; s <= available; s++) {
+						final int index = (int) s & mask;
+						Event event = entries[index];
+						if (event instanceof LastEventOfIteration) {
+							this.sequence.set(s);
+							Gbl.printCurrentThreadCpuTime();
+							return;
+						}
+
+						/*
+						 * Check whether the events are ordered chronologically. Without synchronization on the
+						 * sim steps, events created by event handlers are older than the mobsim events that were
+						 * published before them, so they are not checked.
+						 */
+						if (syncOnSimSteps || !createdByHandler[index]) {
+							if (event.getTime() < this.lastEventTime) {
+								throw new RuntimeException("Events in the ring buffer are not ordered chronologically. " +
+										"This should never happen. Is the RingBufferEventsManager registered " +
+										"as a MobsimAfterSimStepListener?");
+							}
+							this.lastEventTime = event.getTime();
+						}
+
+						this.eventsManager.processEvent(event);
+					}
+					this.sequence.lazySet(available);
+					next = available + 1;
+					releaseProcessedSlots();
+				}
+			} catch (Throwable e) {
+				hadException.compareAndSet(null, e);
+				log.error("Thread " + Thread.currentThread().getName() + " died with exception while handling events.", e);
+				// do not block the producers or the end of the time step
+				this.sequence.set(Long.MAX_VALUE);
+			}
+		}
+
+		/**
+		 * @return the highest sequence up to which all slots starting at <code>from</code> are published, or
+		 * 		<code>from - 1</code> if the slot <code>from</code> is not yet published.
+		 */
+		private long getHighestPublishedSequence(long from, long claimed) {
+			for (long s = from; s <= claimed; s++) {
+				if (publishedRounds.get((int) s & mask) != (int) (s >>> indexShift)) {
+					return s - 1;
+				}
+			}
+			return claimed;
+		}
+	}
+
+	/**
+	 * Throughput numbers of the events processing during one iteration (one mobsim run).
+	 */
+	public static final class IterationStatistics {
+		private final long numberOfEvents;
+		private final double seconds;
+		private final double averageQueueDepth;
+		private final long maxQueueDepth;
+		private final long[] maxConsumerLags;
+
+		IterationStatistics(long numberOfEvents, double seconds, double averageQueueDepth, long maxQueueDepth, long[] maxConsumerLags) {
+			this.numberOfEvents = numberOfEvents;
+			this.seconds = seconds;
+			this.averageQueueDepth = averageQueueDepth;
+			this.maxQueueDepth = maxQueueDepth;
+			this.maxConsumerLags = maxConsumerLags.clone();
+		}
+
+		public long getNumberOfEvents() {
+			return this.numberOfEvents;
+		}
+
+		public double getEventsPerSecond() {
+			return this.seconds > 0 ? this.numberOfEvents / this.seconds : 0;
+		}
+
+		/**
+		 * @return the average number of events that were not yet processed by all consumers, sampled at the end of every time step
+		 */
+		public double getAverageQueueDepth() {
+			return this.averageQueueDepth;
+		}
+
+		public long getMaxQueueDepth() {
+			return this.maxQueueDepth;
+		}
+
+		/**
+		 * @return for every consumer (group of event handlers), the maximum number of events it was behind the producers at the end of a time step
+		 */
+		public long[] getMaxConsumerLags() {
+			return this.maxConsumerLags.clone();
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder lags = new StringBuilder();
+			for (long lag : this.maxConsumerLags) {
+				if (lags.length() > 0) lags.append(',');
+				lags.append(lag);
+			}
+			return "events=" + this.numberOfEvents + " eventsPerSecond=" + getEventsPerSecond()
+					+ " averageQueueDepth=" + this.averageQueueDepth + " maxQueueDepth=" + this.maxQueueDepth
+					+ " maxConsumerLags=[" + lags + "]";
+		}
+	}
+
+}
@@ -0,0 +1,317 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes events in a compact binary format, which is much smaller and faster to write and read than the xml format.
+ * The file can be read with {@link org.matsim.core.events.MatsimEventsReader} (or directly with
+ * {@link org.matsim.core.events.EventsReaderBinary}), and converted from and to xml with
+ * {@link org.matsim.run.EventsFileConverter}.
+ * <p></p>
+ * Format: after a header (magic bytes and version), every event is stored as a record consisting of a tag identifying
+ * the event type, the time as difference to the previous event and the attributes of the event. Integers are stored as
+ * variable-length integers (varints). Strings (ids, modes, activity types, attribute names) are stored only once: the
+ * first occurrence contains the string itself, later occurrences only the index of the string in the file. The most common
+ * event types are written without building their attribute maps; all other events are written as their attributes.
+ * The stream is terminated by {@link #TAG_END}.
+ * <p></p>
+ * The file is compressed according to its extension, see {@link IOUtils#getOutputStream(java.net.URL, boolean)};
+ * <code>.bin.lz4</code> or <code>.bin.zst</code> are recommended.
+ */
+public final class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final byte[] MAGIC = {'M', 'E', 'V', 'B'};
+	public static final int VERSION = 1;
+
+	public static final int TAG_END = 0;
+	public static final int TAG_GENERIC = 1;
+	public static final int TAG_LINK_ENTER = 2;
+	public static final int TAG_LINK_LEAVE = 3;
+	public static final int TAG_VEHICLE_ENTERS_TRAFFIC = 4;
+	public static final int TAG_VEHICLE_LEAVES_TRAFFIC = 5;
+	public static final int TAG_PERSON_DEPARTURE = 6;
+	public static final int TAG_PERSON_ARRIVAL = 7;
+	public static final int TAG_ACTIVITY_START = 8;
+	public static final int TAG_ACTIVITY_END = 9;
+	public static final int TAG_PERSON_ENTERS_VEHICLE = 10;
+	public static final int TAG_PERSON_LEAVES_VEHICLE = 11;
+
+	/* strings are referenced as: 0 = null, 1 = new string follows, n >= 2 = string number n - 2 of the dictionary */
+	public static final int STRING_NULL = 0;
+	public static final int STRING_NEW = 1;
+	public static final int STRING_OFFSET = 2;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final OutputStream out;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position = 0;
+
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	private double lastTime = 0.0;
+
+	public EventWriterBinary(final String outfilename) {
+		this(IOUtils.getOutputStream(IOUtils.getFileUrl(outfilename), false));
+	}
+
+	public EventWriterBinary(final OutputStream stream) {
+		this.out = stream;
+		for (byte b : MAGIC) {
+			writeByte(b);
+		}
+		writeVarLong(VERSION);
+	}
+
+	@Override
+	public void closeFile() {
+		writeVarLong(TAG_END);
+		try {
+			flushBuffer();
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		Class<?> eventClass = event.getClass();
+		// only the exact classes, subclasses might have additional attributes
+		if (eventClass == LinkEnterEvent.class) {
+			LinkEnterEvent e = (LinkEnterEvent) event;
+			writeHeader(TAG_LINK_ENTER, e.getTime());
+			writeId(e.getVehicleId());
+			writeId(e.getLinkId());
+		} else if (eventClass == LinkLeaveEvent.class) {
+			LinkLeaveEvent e = (LinkLeaveEvent) event;
+			writeHeader(TAG_LINK_LEAVE, e.getTime());
+			writeId(e.getVehicleId());
+			writeId(e.getLinkId());
+		} else if (eventClass == VehicleEntersTrafficEvent.class) {
+			VehicleEntersTrafficEvent e = (VehicleEntersTrafficEvent) event;
+			writeHeader(TAG_VEHICLE_ENTERS_TRAFFIC, e.getTime());
+			writeId(e.getPersonId());
+			writeId(e.getLinkId());
+			writeId(e.getVehicleId());
+			writeString(e.getNetworkMode());
+			writeDouble(e.getRelativePositionOnLink());
+		} else if (eventClass == VehicleLeavesTrafficEvent.class) {
+			VehicleLeavesTrafficEvent e = (VehicleLeavesTrafficEvent) event;
+			writeHeader(TAG_VEHICLE_LEAVES_TRAFFIC, e.getTime());
+			writeId(e.getPersonId());
+			writeId(e.getLinkId());
+			writeId(e.getVehicleId());
+			writeString(e.getNetworkMode());
+			writeDouble(e.getRelativePositionOnLink());
+		} else if (eventClass == PersonDepartureEvent.class) {
+			PersonDepartureEvent e = (PersonDepartureEvent) event;
+			writeHeader(TAG_PERSON_DEPARTURE, e.getTime());
+			writeId(e.getPersonId());
+			writeId(e.getLinkId());
+			writeString(e.getLegMode());
+		} else if (eventClass == PersonArrivalEvent.class) {
+			PersonArrivalEvent e = (PersonArrivalEvent) event;
+			writeHeader(TAG_PERSON_ARRIVAL, e.getTime());
+			writeId(e.getPersonId());
+			writeId(e.getLinkId());
+			writeString(e.getLegMode());
+		} else if (eventClass == ActivityStartEvent.class) {
+			ActivityStartEvent e = (ActivityStartEvent) event;
+			writeHeader(TAG_ACTIVITY_START, e.getTime());
+			writeId(e.getPersonId());
+			writeId(e.getLinkId());
+			writeId(e.getFacilityId());
+			writeString(e.getActType());
+		} else if (eventClass == ActivityEndEvent.class) {
+			ActivityEndEvent e = (ActivityEndEvent) event;
+			writeHeader(TAG_ACTIVITY_END, e.getTime());
+			writeId(e.getPersonId());
+			writeId(e.getLinkId());
+			writeId(e.getFacilityId());
+			writeString(e.getActType());
+		} else if (eventClass == PersonEntersVehicleEvent.class) {
+			PersonEntersVehicleEvent e = (PersonEntersVehicleEvent) event;
+			writeHeader(TAG_PERSON_ENTERS_VEHICLE, e.getTime());
+			writeId(e.getPersonId());
+			writeId(e.getVehicleId());
+		} else if (eventClass == PersonLeavesVehicleEvent.class) {
+			PersonLeavesVehicleEvent e = (PersonLeavesVehicleEvent) event;
+			writeHeader(TAG_PERSON_LEAVES_VEHICLE, e.getTime());
+			writeId(e.getPersonId());
+			writeId(e.getVehicleId());
+		} else {
+			writeHeader(TAG_GENERIC, event.getTime());
+			Map<String, String> attributes = event.getAttributes();
+			writeString(event.getEventType());
+			int count = 0;
+			for (String key : attributes.keySet()) {
+				if (!isImplicitAttribute(key)) {
+					count++;
+				}
+			}
+			writeVarLong(count);
+			for (Map.Entry<String, String> entry : attributes.entrySet()) {
+				if (!isImplicitAttribute(entry.getKey())) {
+					writeString(entry.getKey());
+					// values are often unique (e.g. amounts), so they do not go into the dictionary
+					writeRawString(entry.getValue());
+				}
+			}
+		}
+		if (this.position >= BUFFER_SIZE - 1024) {
+			try {
+				flushBuffer();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private static boolean isImplicitAttribute(String key) {
+		return Event.ATTRIBUTE_TIME.equals(key) || Event.ATTRIBUTE_TYPE.equals(key);
+	}
+
+	/**
+	 * Writes the tag and the time. If the difference to the previous time is integral (the usual case), it is stored zig-zag
+	 * encoded and shifted by one bit; all other times (fractional, infinite, ...) as a marker (1) followed by the 8 bytes
+	 * of the double.
+	 */
+	private void writeHeader(int tag, double time) {
+		writeVarLong(tag);
+		double delta = time - this.lastTime;
+		if (delta == Math.rint(delta) && Math.abs(delta) < (1L << 52) && this.lastTime + delta == time) {
+			long longDelta = (long) delta;
+			writeVarLong(((longDelta << 1) ^ (longDelta >> 63)) << 1);
+		} else {
+			writeVarLong(1);
+			writeDouble(time);
+		}
+		this.lastTime = time;
+	}
+
+	private void writeId(Id<?> id) {
+		writeString(id == null ? null : id.toString());
+	}
+
+	private void writeString(String s) {
+		if (s == null) {
+			writeVarLong(STRING_NULL);
+			return;
+		}
+		Integer index = this.dictionary.get(s);
+		if (index != null) {
+			writeVarLong(index + STRING_OFFSET);
+		} else {
+			this.dictionary.put(s, this.dictionary.size());
+			writeVarLong(STRING_NEW);
+			writeBytes(s.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	private void writeRawString(String s) {
+		if (s == null) {
+			writeVarLong(0);
+		} else {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeVarLong(bytes.length + 1);
+			copyBytes(bytes);
+		}
+	}
+
+	private void writeBytes(byte[] bytes) {
+		writeVarLong(bytes.length);
+		copyBytes(bytes);
+	}
+
+	private void copyBytes(byte[] bytes) {
+		try {
+			if (this.position + bytes.length > BUFFER_SIZE) {
+				flushBuffer();
+				if (bytes.length > BUFFER_SIZE) {
+					this.out.write(bytes);
+					return;
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+		this.position += bytes.length;
+	}
+
+	private void writeDouble(double value) {
+		long bits = Double.doubleToRawLongBits(value);
+		for (int i = 0; i < 8; i++) {
+			writeByte((int) (bits >>> (8 * i)));
+		}
+	}
+
+	private void writeVarLong(long value) {
+		while ((value & ~0x7FL) != 0) {
+			writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		writeByte((int) value);
+	}
+
+	private void writeByte(int b) {
+		if (this.position == BUFFER_SIZE) {
+			try {
+				flushBuffer();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		this.buffer[this.position++] = (byte) b;
+	}
+
+	private void flushBuffer() throws IOException {
+		this.out.write(this.buffer, 0, this.position);
+		this.position = 0;
+	}
+
+}
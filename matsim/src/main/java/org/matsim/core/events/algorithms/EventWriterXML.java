@@ -29,15 +29,35 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
+/**
+ * Writes events in the xml format.
+ * <p></p>
+ * The events append themselves to a buffer (see {@link Event#writeAsXML(StringBuilder)}). Full buffers are handed
+ * over to a separate thread that encodes and writes (and, depending on the file name, compresses) them, while the
+ * events are written into a second buffer. Thus the thread producing the events (usually the mobsim) does not have to
+ * wait for the disk or the compression.
+ */
 public class EventWriterXML implements EventWriter, BasicEventHandler {
-	private final BufferedWriter out;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/** marks the end of the file for the writer thread */
+	private static final StringBuilder END_OF_FILE = new StringBuilder();
+
+	private final Writer out;
+	private final BlockingQueue<StringBuilder> fullBuffers = new ArrayBlockingQueue<>(2);
+	private final BlockingQueue<StringBuilder> emptyBuffers = new ArrayBlockingQueue<>(2);
+	private final Thread writerThread;
+	private volatile Throwable exception = null;
+	private StringBuilder buffer;
 
 	public EventWriterXML(final String outfilename) {
-		this.out = IOUtils.getBufferedWriter(outfilename);
-		this.writeHeader();
+		this(IOUtils.getBufferedWriter(outfilename));
 	}
 
 	/**
@@ -46,29 +66,52 @@ public class EventWriterXML implements EventWriter, BasicEventHandler {
 	 * @param stream
 	 */
 	public EventWriterXML(final OutputStream stream ) {
-		this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
-		this.writeHeader();
+		this(new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)));
 	}
 
-	private void writeHeader() {
-		try {
-			this.out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<events version=\"1.0\">\n");
-		} catch (IOException e) {
-			throw new UncheckedIOException(e);
-		}
+	private EventWriterXML(final Writer out) {
+		this.out = out;
+		this.buffer = new StringBuilder(BUFFER_SIZE + 1024);
+		this.emptyBuffers.add(new StringBuilder(BUFFER_SIZE + 1024));
+		this.writerThread = new Thread(this::writeBuffers, "EventWriterXML");
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+		this.buffer.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<events version=\"1.0\">\n");
 	}
 
 	@Override
 	public void closeFile() {
+		if (this.buffer == null) {
+			// already closed
+			return;
+		}
+		this.buffer.append("</events>");
+		// I added a "\n" to make it look nicer on the console.  Can't say if this may have unintended side
+		// effects anywhere else.  kai, oct'12
+		// fails signalsystems test (and presumably other tests in contrib/playground) since they compare
+		// checksums of event files.  Removed that change again.  kai, oct'12
+		try {
+			this.fullBuffers.put(this.buffer);
+			this.fullBuffers.put(END_OF_FILE);
+			this.writerThread.join();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		this.buffer = null;
 		try {
-			this.out.write("</events>");
-			// I added a "\n" to make it look nicer on the console.  Can't say if this may have unintended side
-			// effects anywhere else.  kai, oct'12
-			// fails signalsystems test (and presumably other tests in contrib/playground) since they compare
-			// checksums of event files.  Removed that change again.  kai, oct'12
 			this.out.close();
 		} catch (IOException e) {
-			throw new UncheckedIOException(e);
+			recordException(e);
+		}
+		Throwable e = this.exception;
+		if (e instanceof IOException) {
+			throw new UncheckedIOException((IOException) e);
+		} else if (e instanceof RuntimeException) {
+			throw (RuntimeException) e;
+		} else if (e instanceof Error) {
+			throw (Error) e;
+		} else if (e != null) {
+			throw new RuntimeException(e);
 		}
 	}
 
@@ -78,74 +121,56 @@ public class EventWriterXML implements EventWriter, BasicEventHandler {
 
 	@Override
 	public void handleEvent(final Event event) {
-		try {
-			this.out.append("\t<event ");
-			Map<String, String> attr = event.getAttributes();
-			for (Map.Entry<String, String> entry : attr.entrySet()) {
-				this.out.append(entry.getKey());
-				this.out.append("=\"");
-				this.out.append(encodeAttributeValue(entry.getValue()));
-				this.out.append("\" ");
+		event.writeAsXML(this.buffer);
+		if (this.buffer.length() >= BUFFER_SIZE) {
+			try {
+				this.fullBuffers.put(this.buffer);
+				this.buffer = this.emptyBuffers.take();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
 			}
-			this.out.append(" />\n");
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
 	}
 
-	// the following method was taken from MatsimXmlWriter in order to correctly encode attributes, but
-	// to forego the overhead of using the full MatsimXmlWriter.
 	/**
-	 * Encodes the given string in such a way that it no longer contains
-	 * characters that have a special meaning in xml.
-	 * 
-	 * @see <a href="http://www.w3.org/International/questions/qa-escapes#use">http://www.w3.org/International/questions/qa-escapes#use</a>
-	 * @param attributeValue
-	 * @return String with some characters replaced by their xml-encoding.
+	 * Runs in the writer thread. After a failure, the buffers are still taken (but no longer written) until the end
+	 * of the file, so the thread producing the events does not block; the failure is thrown in {@link #closeFile()}.
 	 */
-	private String encodeAttributeValue(final String attributeValue) {
-		if (attributeValue == null) {
-			return null;
-		}
-		int len = attributeValue.length();
-		boolean encode = false;
-		for (int pos = 0; pos < len; pos++) {
-			char ch = attributeValue.charAt(pos);
-			if (ch == '<') {
-				encode = true;
-				break;
-			} else if (ch == '>') {
-				encode = true;
-				break;
-			} else if (ch == '\"') {
-				encode = true;
-				break;
-			} else if (ch == '&') {
-				encode = true;
-				break;
+	private void writeBuffers() {
+		char[] chars = new char[BUFFER_SIZE + 1024];
+		while (true) {
+			StringBuilder full;
+			try {
+				full = this.fullBuffers.take();
+			} catch (InterruptedException e) {
+				recordException(e);
+				continue;
 			}
-		}
-		if (encode) {
-			StringBuilder bf = new StringBuilder(attributeValue.length() + 30);
-			for (int pos = 0; pos < len; pos++) {
-				char ch = attributeValue.charAt(pos);
-				if (ch == '<') {
-					bf.append("&lt;");
-				} else if (ch == '>') {
-					bf.append("&gt;");
-				} else if (ch == '\"') {
-					bf.append("&quot;");
-				} else if (ch == '&') {
-					bf.append("&amp;");
-				} else {
-					bf.append(ch);
+			if (full == END_OF_FILE) {
+				return;
+			}
+			try {
+				if (this.exception == null) {
+					int length = full.length();
+					if (chars.length < length) {
+						chars = new char[length];
+					}
+					full.getChars(0, length, chars, 0);
+					this.out.write(chars, 0, length);
 				}
+			} catch (Throwable e) {
+				recordException(e);
 			}
-			
-			return bf.toString();
+			full.setLength(0);
+			// there are never more than two buffers, so there is always space in the queue
+			this.emptyBuffers.offer(full);
 		}
-		return attributeValue;
+	}
 
+	private void recordException(Throwable e) {
+		if (this.exception == null) {
+			this.exception = e;
+		}
 	}
 
 }
@@ -19,10 +19,8 @@
 
 package org.matsim.core.mobsim.qsim;
 
-import java.util.Comparator;
-import java.util.Iterator;
-import java.util.Queue;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -33,6 +31,7 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimAgent.State;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
+import org.matsim.core.utils.collections.CalendarQueue;
 import org.matsim.core.utils.misc.Time;
 
 import javax.inject.Inject;
@@ -50,51 +49,26 @@ public class ActivityEngineDefaultImpl implements ActivityEngine {
 		this.eventsManager = eventsManager;
 	}
 
-	/**
-	 * Agents cannot be added directly to the activityEndsList since that would
-	 * not be thread-safe when within-day replanning is used. There, an agent's
-	 * activity end time can be modified. As a result, the agent is located at
-	 * the wrong position in the activityEndsList until it is updated by using
-	 * rescheduleActivityEnd(...). However, if another agent is added to the list
-	 * in the mean time, it might be inserted at the wrong position.
-	 * cdobler, apr'12
-	 */
-	private static class AgentEntry {
-		public AgentEntry(MobsimAgent agent, double activityEndTime) {
-			this.agent = agent;
-			this.activityEndTime = activityEndTime;
-		}
-		final MobsimAgent agent;
-		final double activityEndTime;
-	}
-
 	private InternalInterface internalInterface;
 	
 	/**
-	 * This list needs to be a "blocking" queue since this is needed for
-	 * thread-safety in the parallel qsim. cdobler, oct'10
+	 * The agents by their activity end time, in buckets of one second, as they are only polled once per time step.
+	 * The buckets cover about 36 hours, so only activities ending later than that are kept in a heap. If agents end
+	 * their activities at the same time, the agent with the larger id is first.
+	 * <p></p>
+	 * Agents are added from the threads of the parallel qsim, so adding and removing agents is synchronized on the queue.
+	 * Polling is not, as the engines do their sim steps one after the other, and agents are thus not added by other
+	 * threads during {@link #doSimStep(double)}.
+	 * <p></p>
+	 * The queue keeps the activity end time of an agent when it is added. An agent whose activity end time is modified
+	 * by within-day replanning is at the wrong position until it is updated by rescheduleActivityEnd(...).
 	 */
-	private final Queue<AgentEntry> activityEndsList = new PriorityBlockingQueue<>(500, new Comparator<AgentEntry>() {
-
-		@Override
-		public int compare(AgentEntry arg0, AgentEntry arg1) {
-			int cmp = Double.compare(arg0.activityEndTime, arg1.activityEndTime);
-			if (cmp == 0) {
-				// Both depart at the same time -> let the one with the larger id be first (=smaller)
-				//
-				// yy We are not sure what the above comment line is supposed to say.  Presumably, it is supposed
-				// to say that the agent with the larger ID should be "smaller" one in the comparison.
-				// In practice, it seems
-				// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
-				// It is unclear why this convention is supposed to be helpful.
-				// kai & dominik, jul'12
-				//
-				return arg1.agent.getId().compareTo(arg0.agent.getId());
-			}
-			return cmp;
-		}
-
-	});
+	private final CalendarQueue<MobsimAgent> activityEndsList = new CalendarQueue<>(1.0, 1 << 17,
+			// yy We are not sure why the agent with the larger id should be first.  It seems
+			// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
+			// It is unclear why this convention is supposed to be helpful.
+			// kai & dominik, jul'12
+			(agent1, agent2) -> agent2.getId().compareTo(agent1.getId()));
 	
 	// See handleActivity for the reason for this.
 	private boolean beforeFirstSimStep = true;
@@ -107,28 +81,46 @@ public class ActivityEngineDefaultImpl implements ActivityEngine {
 	@Override
 	public void doSimStep(double time) {
 		beforeFirstSimStep = false;
-		while (activityEndsList.peek() != null) {
-			if (activityEndsList.peek().activityEndTime <= time) {
-				MobsimAgent agent = activityEndsList.poll().agent;
-				unregisterAgentAtActivityLocation(agent);
-				agent.endActivityAndComputeNextState(time);
-				internalInterface.arrangeNextAgentState(agent);
-			} else {
-				return;
+		ParallelAgentProcessing parallelAgentProcessing = internalInterface.getMobsim().getParallelAgentProcessing();
+		if (parallelAgentProcessing != null) {
+			// agents whose activities end in this time step while the others are handed on are processed in another round
+			List<MobsimAgent> agents;
+			while (!(agents = pollDueAgents(time)).isEmpty()) {
+				for (MobsimAgent agent : agents) {
+					unregisterAgentAtActivityLocation(agent);
+				}
+				parallelAgentProcessing.process(agents, agent -> agent.endActivityAndComputeNextState(time),
+						internalInterface::arrangeNextAgentState);
 			}
+			return;
+		}
+		MobsimAgent agent;
+		while ((agent = activityEndsList.pollDue(time)) != null) {
+			unregisterAgentAtActivityLocation(agent);
+			agent.endActivityAndComputeNextState(time);
+			internalInterface.arrangeNextAgentState(agent);
 		}
 	}
 
+	private List<MobsimAgent> pollDueAgents(double time) {
+		List<MobsimAgent> agents = new ArrayList<>();
+		MobsimAgent agent;
+		while ((agent = activityEndsList.pollDue(time)) != null) {
+			agents.add(agent);
+		}
+		return agents;
+	}
+
 	@Override
 	public void afterSim() {
 		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		for (AgentEntry entry : activityEndsList) {
-			if (entry.activityEndTime!=Double.POSITIVE_INFINITY && entry.activityEndTime!=Time.UNDEFINED_TIME) {
+		activityEndsList.forEach((agent, activityEndTime) -> {
+			if (activityEndTime!=Double.POSITIVE_INFINITY && activityEndTime!=Time.UNDEFINED_TIME) {
 				// since we are at an activity, it is not plausible to assume that the agents know mode or destination
 				// link id.  Thus generating the event with ``null'' in the corresponding entries.  kai, mar'12
-				eventsManager.processEvent(new PersonStuckEvent(now, entry.agent.getId(), null, null));
+				eventsManager.processEvent(new PersonStuckEvent(now, agent.getId(), null, null));
 			}
-		}
+		});
 		activityEndsList.clear();
 	}
 
@@ -161,8 +153,7 @@ public class ActivityEngineDefaultImpl implements ActivityEngine {
 			internalInterface.arrangeNextAgentState(agent) ;
 		} else {
 			// The agent commences an activity on this link.
-			final AgentEntry agentEntry = new AgentEntry(agent, agent.getActivityEndTime());
-			activityEndsList.add(agentEntry);
+			addAgentToQueue(agent, agent.getActivityEndTime());
 			internalInterface.registerAdditionalAgentOnLink(agent);
 		}
 		// Why beforeFirstSimStep matters:
@@ -194,16 +185,16 @@ public class ActivityEngineDefaultImpl implements ActivityEngine {
 		
 		
 		double newActivityEndTime = agent.getActivityEndTime();
-		AgentEntry oldEntry = removeAgentFromQueue(agent);
+		boolean wasQueued = removeAgentFromQueue(agent);
 
 		// The intention in the following is that an agent that is no longer alive has an activity end time of infinity.  The number of
 		// alive agents is only modified when an activity end time is changed between a finite time and infinite.  kai, jun'11
-		if (oldEntry == null) {
+		if (!wasQueued) {
 			if (newActivityEndTime == Double.POSITIVE_INFINITY) {
 				// agent was de-activated and still should be de-activated - nothing to do here
 			} else {
 				// re-activate the agent
-				activityEndsList.add(new AgentEntry(agent, newActivityEndTime));
+				addAgentToQueue(agent, newActivityEndTime);
 				internalInterface.registerAdditionalAgentOnLink(agent);
 				((org.matsim.core.mobsim.qsim.AgentCounter) internalInterface.getMobsim().getAgentCounter()).incLiving();
 			}
@@ -218,20 +209,20 @@ public class ActivityEngineDefaultImpl implements ActivityEngine {
 			/*
 			 *  The activity is just rescheduled during the day, so we keep the agent active. cdobler, oct'11
 			 */
-			activityEndsList.add(new AgentEntry(agent, newActivityEndTime));
+			addAgentToQueue(agent, newActivityEndTime);
 		}
 	}
 
-	private AgentEntry removeAgentFromQueue(MobsimAgent agent) {
-		Iterator<AgentEntry> iterator = activityEndsList.iterator();
-		while (iterator.hasNext()) {
-			AgentEntry entry = iterator.next();
-			if (entry.agent == agent) {
-				iterator.remove();
-				return entry;
-			}
+	private void addAgentToQueue(MobsimAgent agent, double activityEndTime) {
+		synchronized (activityEndsList) {
+			activityEndsList.add(agent, activityEndTime);
+		}
+	}
+
+	private boolean removeAgentFromQueue(MobsimAgent agent) {
+		synchronized (activityEndsList) {
+			return activityEndsList.remove(agent);
 		}
-		return null;
 	}
 
 	private void unregisterAgentAtActivityLocation(final MobsimAgent agent) {
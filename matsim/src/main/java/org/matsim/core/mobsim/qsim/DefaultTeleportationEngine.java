@@ -34,7 +34,7 @@ import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.qsim.interfaces.DepartureHandler;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.network.NetworkUtils;
-import org.matsim.core.utils.collections.Tuple;
+import org.matsim.core.utils.collections.CalendarQueue;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.facilities.Facility;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
@@ -51,18 +51,11 @@ import java.util.*;
 public final class DefaultTeleportationEngine implements TeleportationEngine {
 	private static final Logger log = Logger.getLogger( DefaultTeleportationEngine.class ) ;
 	
-	private final Queue<Tuple<Double, MobsimAgent>> teleportationList = new PriorityQueue<>(
-			30, new Comparator<Tuple<Double, MobsimAgent>>() {
-
-		@Override
-		public int compare(Tuple<Double, MobsimAgent> o1, Tuple<Double, MobsimAgent> o2) {
-			int ret = o1.getFirst().compareTo(o2.getFirst()); // first compare time information
-			if (ret == 0) {
-				ret = o2.getSecond().getId().compareTo(o1.getSecond().getId()); // if they're equal, compare the Ids: the one with the larger Id should be first
-			}
-			return ret;
-		}
-	});
+	/**
+	 * The agents by their arrival time, in buckets of one time step, as they are only polled once per time step.
+	 * Agents arriving more than 2^17 time steps later are kept in a heap.
+	 */
+	private final CalendarQueue<MobsimAgent> teleportationList;
 	private final LinkedHashMap<Id<Person>, TeleportationVisData> teleportationData = new LinkedHashMap<>();
 	private InternalInterface internalInterface;
 	private Scenario scenario;
@@ -76,6 +69,10 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 		this.eventsManager = eventsManager;
 		
 		withTravelTimeCheck = scenario.getConfig().qsim().isUsingTravelTimeCheckInTeleportation() ;
+
+		// if they arrive at the same time, the agent with the larger id is first
+		this.teleportationList = new CalendarQueue<>(scenario.getConfig().qsim().getTimeStepSize(), 1 << 17,
+				(agent1, agent2) -> agent2.getId().compareTo(agent1.getId()));
 	}
 
 	@Override
@@ -95,7 +92,7 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 		}
     	
 		double arrivalTime = now + travelTime ;
-		this.teleportationList.add(new Tuple<>(arrivalTime, agent));
+		this.teleportationList.add(agent, arrivalTime);
 		
 		// === below here is only visualization, no dynamics ===
 		Id<Person> agentId = agent.getId();
@@ -126,22 +123,44 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 
 	private void handleTeleportationArrivals() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		while (teleportationList.peek() != null) {
-			Tuple<Double, MobsimAgent> entry = teleportationList.peek();
-			if (entry.getFirst() <= now) {
-				teleportationList.poll();
-				MobsimAgent personAgent = entry.getSecond();
-				personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent
-						.getDestinationLinkId());
-				double distance = personAgent.getExpectedTravelDistance();
-				this.eventsManager.processEvent(new TeleportationArrivalEvent(this.internalInterface.getMobsim().getSimTimer().getTimeOfDay(), personAgent.getId(), distance));
-				personAgent.endLegAndComputeNextState(now);
-				this.teleportationData.remove(personAgent.getId());
-				internalInterface.arrangeNextAgentState(personAgent);
-			} else {
-				break;
+		ParallelAgentProcessing parallelAgentProcessing = internalInterface.getMobsim().getParallelAgentProcessing();
+		if (parallelAgentProcessing != null) {
+			// agents arriving in this time step while the others are handed on are processed in another round
+			List<MobsimAgent> agents;
+			while (!(agents = pollArrivedAgents(now)).isEmpty()) {
+				// the events manager of the qsim, so the event stays in front of the events of the agent
+				EventsManager events = internalInterface.getMobsim().getEventsManager();
+				parallelAgentProcessing.process(agents, agent -> endTeleportation(agent, now, events), this::handOnAgent);
 			}
+			return;
 		}
+		MobsimAgent personAgent;
+		while ((personAgent = teleportationList.pollDue(now)) != null) {
+			endTeleportation(personAgent, now, this.eventsManager);
+			handOnAgent(personAgent);
+		}
+	}
+
+	private List<MobsimAgent> pollArrivedAgents(double now) {
+		List<MobsimAgent> agents = new ArrayList<>();
+		MobsimAgent agent;
+		while ((agent = teleportationList.pollDue(now)) != null) {
+			agents.add(agent);
+		}
+		return agents;
+	}
+
+	private static void endTeleportation(MobsimAgent personAgent, double now, EventsManager events) {
+		personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent
+				.getDestinationLinkId());
+		double distance = personAgent.getExpectedTravelDistance();
+		events.processEvent(new TeleportationArrivalEvent(now, personAgent.getId(), distance));
+		personAgent.endLegAndComputeNextState(now);
+	}
+
+	private void handOnAgent(MobsimAgent personAgent) {
+		this.teleportationData.remove(personAgent.getId());
+		internalInterface.arrangeNextAgentState(personAgent);
 	}
 
 	@Override
@@ -152,8 +171,7 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 	@Override
 	public void afterSim() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		for (Tuple<Double, MobsimAgent> entry : teleportationList) {
-			MobsimAgent agent = entry.getSecond();
+		for (MobsimAgent agent : teleportationList) {
 			eventsManager.processEvent(new PersonStuckEvent(now, agent.getId(), agent.getDestinationLinkId(), agent.getMode()));
 		}
 		teleportationList.clear();
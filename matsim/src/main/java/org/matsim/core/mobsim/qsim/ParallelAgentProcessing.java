@@ -0,0 +1,162 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelAgentProcessing.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Lets the agents which end an activity or a teleported leg in a time step compute their next state on the threads of
+ * the {@link QNetsimEngine}, which are idle while the other engines do their sim step.
+ * <p></p>
+ * The agents are processed in two parts. The first part only concerns the agent itself (e.g. ending the activity and
+ * advancing the plan) and is run in parallel, for blocks of consecutive agents. The events created meanwhile by any
+ * thread working on a block are not passed on, but collected per agent. The second part (handing the agent on to the
+ * next engine) is done by the mobsim thread, agent by agent in the original order, after passing on the events of
+ * that agent. The events and the state of the engines are thus the same as if all agents were processed one after the
+ * other, independent of the number of threads.
+ * <p></p>
+ * For this, the agents have to use the events manager of the QSim, which is {@link #getEventsManager()}.
+ */
+final class ParallelAgentProcessing {
+
+	private static final int AGENTS_PER_BLOCK = 128;
+
+	private final EventsManager delegate;
+	private final ThreadLocal<List<Event>> eventsBuffer = new ThreadLocal<>();
+	private final EventsManager eventsManager = new BufferingEventsManager();
+	private QNetsimEngine netsimEngine = null;
+
+	ParallelAgentProcessing(final EventsManager delegate) {
+		this.delegate = delegate;
+	}
+
+	EventsManager getEventsManager() {
+		return this.eventsManager;
+	}
+
+	void setNetsimEngine(final QNetsimEngine netsimEngine) {
+		this.netsimEngine = netsimEngine;
+	}
+
+	/**
+	 * Processes the given agents as if <code>parallelPart</code> and <code>sequentialPart</code> were called for one
+	 * agent after the other.
+	 */
+	void process(final List<MobsimAgent> agents, final Consumer<MobsimAgent> parallelPart, final Consumer<MobsimAgent> sequentialPart) {
+		int blockCount = (agents.size() + AGENTS_PER_BLOCK - 1) / AGENTS_PER_BLOCK;
+		if (this.netsimEngine == null || blockCount < 2) {
+			for (MobsimAgent agent : agents) {
+				parallelPart.accept(agent);
+				sequentialPart.accept(agent);
+			}
+			return;
+		}
+
+		@SuppressWarnings("unchecked")
+		final List<Event>[] blockEvents = new List[blockCount];
+		// per agent, the end of its events in the events of its block
+		final int[] eventsEnd = new int[agents.size()];
+		List<Runnable> tasks = new ArrayList<>(blockCount);
+		for (int block = 0; block < blockCount; block++) {
+			final int index = block;
+			tasks.add(() -> {
+				List<Event> events = new ArrayList<>();
+				this.eventsBuffer.set(events);
+				try {
+					for (int i = index * AGENTS_PER_BLOCK, end = Math.min(i + AGENTS_PER_BLOCK, agents.size()); i < end; i++) {
+						parallelPart.accept(agents.get(i));
+						eventsEnd[i] = events.size();
+					}
+				} finally {
+					this.eventsBuffer.remove();
+				}
+				blockEvents[index] = events;
+			});
+		}
+		this.netsimEngine.runInParallel(tasks);
+
+		for (int block = 0; block < blockCount; block++) {
+			List<Event> events = blockEvents[block];
+			int next = 0;
+			for (int i = block * AGENTS_PER_BLOCK, end = Math.min(i + AGENTS_PER_BLOCK, agents.size()); i < end; i++) {
+				for (; next < eventsEnd[i]; next++) {
+					this.delegate.processEvent(events.get(next));
+				}
+				sequentialPart.accept(agents.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Collects the events of the thread while it processes a block of agents, and passes on all other events.
+	 */
+	private final class BufferingEventsManager implements EventsManager {
+
+		@Override
+		public void processEvent(final Event event) {
+			List<Event> events = eventsBuffer.get();
+			if (events == null) {
+				delegate.processEvent(event);
+			} else {
+				events.add(event);
+			}
+		}
+
+		@Override
+		public void addHandler(final EventHandler handler) {
+			delegate.addHandler(handler);
+		}
+
+		@Override
+		public void removeHandler(final EventHandler handler) {
+			delegate.removeHandler(handler);
+		}
+
+		@Override
+		public void resetHandlers(final int iteration) {
+			delegate.resetHandlers(iteration);
+		}
+
+		@Override
+		public void initProcessing() {
+			delegate.initProcessing();
+		}
+
+		@Override
+		public void afterSimStep(final double time) {
+			delegate.afterSimStep(time);
+		}
+
+		@Override
+		public void finishProcessing() {
+			delegate.finishProcessing();
+		}
+	}
+
+}
@@ -112,6 +112,8 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 
 	private NetsimEngine netEngine;
 
+	private ParallelAgentProcessing parallelAgentProcessing = null;
+
 	private final Collection<MobsimEngine> mobsimEngines = new ArrayList<>();
 
 	private final MobsimTimer simTimer;
@@ -215,7 +217,13 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	private QSim( final Scenario sc, EventsManager events, Injector childInjector ) {
 		this.scenario = sc;
 		if ( sc.getConfig().qsim().getNumberOfThreads() > 1) {
-			this.events = EventsUtils.getParallelFeedableInstance( events );
+			EventsManager parallelFeedableEvents = EventsUtils.getParallelFeedableInstance( events );
+			if ( sc.getConfig().qsim().isUsingParallelAgentProcessing() ) {
+				this.parallelAgentProcessing = new ParallelAgentProcessing( parallelFeedableEvents );
+				this.events = this.parallelAgentProcessing.getEventsManager();
+			} else {
+				this.events = parallelFeedableEvents;
+			}
 		} else {
 			this.events = events;
 		}
@@ -593,6 +601,9 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		}
 		if (mobsimEngine instanceof NetsimEngine) {
 			this.netEngine = (NetsimEngine) mobsimEngine;
+			if (this.parallelAgentProcessing != null && mobsimEngine instanceof QNetsimEngine) {
+				this.parallelAgentProcessing.setNetsimEngine((QNetsimEngine) mobsimEngine);
+			}
 		}
 		if (mobsimEngine instanceof TeleportationEngine) {
 			this.teleportationEngine = (TeleportationEngine) mobsimEngine;
@@ -606,6 +617,14 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		if (analyzeRunTimes) this.mobsimEngineRunTimes.put(mobsimEngine, new AtomicLong());
 	}
 
+	/**
+	 * @return the helper to process agents on the threads of the netsim engine, or <code>null</code> if the agents
+	 * 		are not to be processed in parallel
+	 */
+	/*package*/ ParallelAgentProcessing getParallelAgentProcessing() {
+		return this.parallelAgentProcessing;
+	}
+
 	@Override
 	public AgentCounter getAgentCounter() {
 		return this.agentCounter;
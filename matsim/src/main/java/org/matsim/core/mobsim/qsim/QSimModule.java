@@ -41,11 +41,13 @@ import org.matsim.core.mobsim.qsim.pt.SimpleTransitStopHandlerFactory;
 import org.matsim.core.mobsim.qsim.pt.TransitEngineModule;
 import org.matsim.core.mobsim.qsim.pt.TransitStopHandlerFactory;
 import org.matsim.core.mobsim.qsim.qnetsimengine.DefaultQNetworkFactory;
+import org.matsim.core.mobsim.qsim.qnetsimengine.NetsimLoadStatistics;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QLanesNetworkFactory;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngineModule;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetworkFactory;
 
 import com.google.inject.Key;
+import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
 import com.google.inject.name.Names;
 
@@ -110,7 +112,10 @@ public class QSimModule extends AbstractModule {
 		// I don't know why this is here.  kai, nov'18
 
 		bind(Mobsim.class).toProvider(QSimProvider.class);
-		
+
+		bind(NetsimLoadStatistics.class).in(Singleton.class);
+		// (needs to be bound here, and not in QNetsimEngineModule, since it has to survive from one mobsim run to the next)
+
 		// yyyy the following will eventually be moved to QSim scope, and into QNetsimEngineModule:
 //		if ( config.qsim().isUseLanes() ) {
 //			bind(QNetworkFactory.class).to( QLanesNetworkFactory.class ) ;
@@ -107,6 +107,12 @@ abstract class AbstractQLink implements QLinkI {
 
 	private boolean active = false;
 
+	/*
+	 * Number of time steps in which this link was processed by its runner. Only written by that
+	 * runner, and only read after the mobsim, see NetsimLoadStatistics.
+	 */
+	/*package*/ int simStepCount = 0;
+
 	private TransitQLink transitQLink;
 	
 	private final QNodeI toQNode ;
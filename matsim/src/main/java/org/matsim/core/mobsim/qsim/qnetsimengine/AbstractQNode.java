@@ -46,6 +46,12 @@ abstract class AbstractQNode implements QNodeI {
 	 */
 	private final AtomicBoolean active = new AtomicBoolean(false);
 
+	/*
+	 * Number of time steps in which this node was processed by its runner. Only written by that
+	 * runner, and only read after the mobsim, see NetsimLoadStatistics.
+	 */
+	/*package*/ int simStepCount = 0;
+
 	// for Customizable
 	private final Map<String, Object> customAttributes = new HashMap<>();
 	
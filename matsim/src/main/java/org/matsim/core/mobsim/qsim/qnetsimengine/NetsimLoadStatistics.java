@@ -0,0 +1,93 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetsimLoadStatistics.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+
+import javax.inject.Singleton;
+import java.util.Arrays;
+
+/**
+ * Remembers how much work every node (together with its out-links, which are handled by the same
+ * {@link QNetsimEngineRunner}) caused in the previous mobsim runs, so that the next {@link QNetsimEngine}
+ * can partition the network such that all runners need about the same wall clock time.
+ * <p></p>
+ * The work is measured as the number of time steps in which the node and its out-links were active. A
+ * new measurement is averaged with the previous weights to avoid that the partitioning oscillates between
+ * iterations.
+ * <p></p>
+ * This is a singleton on the level of the controler (see {@link org.matsim.core.mobsim.qsim.QSimModule}), i.e.
+ * it survives from one iteration to the next, in contrast to the {@link QNetsimEngine} itself.
+ */
+@Singleton
+public final class NetsimLoadStatistics {
+
+	private static final double SMOOTHING_FACTOR = 0.5;
+
+	private double[] weightsByNodeIndex = null;
+
+	/**
+	 * @return <code>true</code> if at least one mobsim run was recorded
+	 */
+	public boolean hasWeights() {
+		return this.weightsByNodeIndex != null;
+	}
+
+	/**
+	 * @return the (smoothed) number of time steps the node and its out-links were active, or
+	 * 		{@link Double#NaN} if nothing is known about this node.
+	 */
+	public double getWeight(final Id<Node> nodeId) {
+		if (this.weightsByNodeIndex == null || nodeId.index() >= this.weightsByNodeIndex.length) {
+			return Double.NaN;
+		}
+		return this.weightsByNodeIndex[nodeId.index()];
+	}
+
+	/*package*/ void recordMobsimRun(final QNetwork network) {
+		double[] previousWeights = this.weightsByNodeIndex;
+		double[] weights = new double[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(weights, Double.NaN);
+
+		for (QNodeI qNode : network.getNetsimNodes().values()) {
+			Node node = qNode.getNode();
+			double weight = 1.0; // so that nodes which were never active still count a little bit
+			if (qNode instanceof AbstractQNode) {
+				weight += ((AbstractQNode) qNode).simStepCount;
+			}
+			for (Link outLink : node.getOutLinks().values()) {
+				QLinkI qLink = network.getNetsimLink(outLink.getId());
+				if (qLink instanceof AbstractQLink) {
+					weight += ((AbstractQLink) qLink).simStepCount;
+				}
+			}
+			int index = node.getId().index();
+			if (previousWeights != null && index < previousWeights.length && !Double.isNaN(previousWeights[index])) {
+				weight = SMOOTHING_FACTOR * weight + (1 - SMOOTHING_FACTOR) * previousWeights[index];
+			}
+			weights[index] = weight;
+		}
+		this.weightsByNodeIndex = weights;
+	}
+
+}
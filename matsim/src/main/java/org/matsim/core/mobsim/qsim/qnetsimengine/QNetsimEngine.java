@@ -25,11 +25,13 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.NetworkPartitioning;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.config.groups.QSimConfigGroup.StarttimeInterpretation;
 import org.matsim.core.config.groups.QSimConfigGroup.VehicleBehavior;
@@ -49,6 +51,7 @@ import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
 
 import javax.inject.Inject;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -61,6 +64,8 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.Phaser;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Coordinates the movement of vehicles on the links and the nodes.
@@ -119,6 +124,10 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	private ExecutorService pool;
 
 	private final boolean usingThreadpool;
+
+	private final NetworkPartitioning networkPartitioning;
+
+	private final NetsimLoadStatistics loadStatistics;
 	
 	// for detailed run time analysis - used in combination with QSim.analyzeRunTimes
 	public static int numObservedTimeSteps = 24*3600;
@@ -133,13 +142,19 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		this(sim, null);
 	}
 
-	@Inject
 	public QNetsimEngine(final QSim sim, QNetworkFactory netsimNetworkFactory) {
+		this(sim, netsimNetworkFactory, new NetsimLoadStatistics());
+	}
+
+	@Inject
+	public QNetsimEngine(final QSim sim, QNetworkFactory netsimNetworkFactory, NetsimLoadStatistics loadStatistics) {
 		this.qsim = sim;
+		this.loadStatistics = loadStatistics;
 
 		final Config config = sim.getScenario().getConfig();
 		final QSimConfigGroup qsimConfigGroup = config.qsim();
 		this.usingThreadpool = qsimConfigGroup.isUsingThreadpool();
+		this.networkPartitioning = qsimConfigGroup.getNetworkPartitioning();
 
 
 		// configuring the car departure hander (including the vehicle behavior)
@@ -240,6 +255,15 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			engine.afterSim();
 		}
 
+		for (int i = 0; i < this.engines.size(); i++) {
+			QNetsimEngineRunner engine = this.engines.get(i);
+			log.info("QNetsimEngineRunner #" + i + " spent " + engine.getNodesRunTime() / 1e9 + " s moving nodes and "
+					+ engine.getLinksRunTime() / 1e9 + " s moving links.");
+		}
+		if (this.networkPartitioning == NetworkPartitioning.spatialWithLoadBalancing) {
+			this.loadStatistics.recordMobsimRun(this.network);
+		}
+
 		if (this.usingThreadpool) {
 			this.pool.shutdown();
 		} else {
@@ -338,6 +362,47 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	}
 
 
+	/**
+	 * Runs the given tasks on the threads of this engine and returns when all of them are done. This allows other
+	 * engines to use these threads in their own sim step, while this engine is not moving nodes and links. The tasks
+	 * are picked up by whichever thread is free first, so they must not depend on the thread they are run on.
+	 * <p></p>
+	 * Must only be called from the thread of the mobsim, and not during {@link #doSimStep(double)}.
+	 */
+	public void runInParallel(final List<? extends Runnable> tasks) {
+		if (tasks.isEmpty()) {
+			return;
+		}
+		AtomicInteger nextTask = new AtomicInteger();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		for (QNetsimEngineRunner engine : this.engines) {
+			engine.setTasks(tasks, nextTask, failure);
+		}
+		try {
+			if (this.usingThreadpool) {
+				for (Future<Boolean> future : pool.invokeAll(this.engines)) {
+					future.get();
+				}
+			} else {
+				this.startBarrier.arriveAndAwaitAdvance();
+				this.endBarrier.arriveAndAwaitAdvance();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e) ;
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			for (QNetsimEngineRunner engine : this.engines) {
+				engine.setTasks(null, null, null);
+			}
+		}
+		if (failure.get() instanceof RuntimeException) {
+			throw (RuntimeException) failure.get();
+		} else if (failure.get() != null) {
+			throw new RuntimeException(failure.get());
+		}
+	}
+
 	/*package*/ void printSimLog(double time) {
 		if (time >= this.infoTime) {
 			this.infoTime += INFO_PERIOD;
@@ -380,6 +445,19 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		return this.network;
 	}
 
+	/**
+	 * @return for every runner the wall clock time (in nanoseconds) it has spent moving nodes and links in the
+	 * 		current mobsim run, excluding the time it was waiting for the other runners. Comparing these values shows
+	 * 		how well the network is balanced between the runners.
+	 */
+	public long[] getRunnerRunTimes() {
+		long[] runTimes = new long[this.engines.size()];
+		for (int i = 0; i < runTimes.length; i++) {
+			runTimes[i] = this.engines.get(i).getNodesRunTime() + this.engines.get(i).getLinksRunTime();
+		}
+		return runTimes;
+	}
+
 	public VehicularDepartureHandler getDepartureHandler() {
 		return dpHandler;
 	}
@@ -469,9 +547,12 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		int nodes[] = new int[numOfRunners];
 		int links[] = new int[numOfRunners];
 
-		int roundRobin = 0;
-		for (QNodeI node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.numOfRunners;
+		List<QNodeI> qNodes = new ArrayList<>(network.getNetsimNodes().values());
+		int[] assignment = getRunnerAssignment(qNodes);
+
+		for (int n = 0; n < qNodes.size(); n++) {
+			QNodeI node = qNodes.get(n);
+			int i = assignment[n];
 			if( node instanceof AbstractQNode){
 				((AbstractQNode) node).setNetElementActivationRegistry(this.engines.get(i));
 			}
@@ -497,8 +578,10 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 				links[i]++;
 
 			}
+		}
 
-			roundRobin++;
+		if (isPartitioningSpatially() && this.numOfRunners > 1) {
+			initNodeHandover(qNodes, assignment);
 		}
 
 		// print some statistics
@@ -509,6 +592,74 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		this.linksToActivateInitially.clear();
 	}
 
+	private boolean isPartitioningSpatially() {
+		return this.networkPartitioning == NetworkPartitioning.spatial
+				|| this.networkPartitioning == NetworkPartitioning.spatialWithLoadBalancing;
+	}
+
+	private int[] getRunnerAssignment(List<QNodeI> qNodes) {
+		int[] assignment = new int[qNodes.size()];
+		if (isPartitioningSpatially() && this.numOfRunners > 1) {
+			boolean useMeasuredWeights = this.networkPartitioning == NetworkPartitioning.spatialWithLoadBalancing
+					&& this.loadStatistics.hasWeights();
+			List<Node> nodes = new ArrayList<>(qNodes.size());
+			double[] weights = new double[qNodes.size()];
+			for (int n = 0; n < qNodes.size(); n++) {
+				Node node = qNodes.get(n).getNode();
+				nodes.add(node);
+				weights[n] = useMeasuredWeights ? this.loadStatistics.getWeight(node.getId()) : Double.NaN;
+				if (Double.isNaN(weights[n])) {
+					weights[n] = QNetworkPartitioner.getDefaultWeight(node);
+				}
+			}
+			if (useMeasuredWeights) {
+				log.info("Partitioning the network based on the load measured in the previous mobsim run(s).");
+			}
+			assignment = QNetworkPartitioner.partition(nodes, weights, this.numOfRunners);
+		} else {
+			for (int n = 0; n < qNodes.size(); n++) {
+				assignment[n] = n % this.numOfRunners;
+			}
+		}
+		return assignment;
+	}
+
+	/*
+	 * A node can only be activated by the runners owning one of its in-links, i.e. the runners
+	 * owning the from-nodes of its in-links. Every node is at most once in the hand-over queue,
+	 * so the number of such nodes per pair of runners is the capacity that queue needs.
+	 */
+	private void initNodeHandover(List<QNodeI> qNodes, int[] assignment) {
+		int[] runnerByNodeIndex = new int[Id.getNumberOfIds(Node.class)];
+		for (int n = 0; n < qNodes.size(); n++) {
+			runnerByNodeIndex[qNodes.get(n).getNode().getId().index()] = assignment[n];
+		}
+
+		int[][] capacities = new int[this.numOfRunners][this.numOfRunners];
+		boolean[] isProducer = new boolean[this.numOfRunners];
+		for (int n = 0; n < qNodes.size(); n++) {
+			int consumer = assignment[n];
+			Arrays.fill(isProducer, false);
+			for (Link inLink : qNodes.get(n).getNode().getInLinks().values()) {
+				isProducer[runnerByNodeIndex[inLink.getFromNode().getId().index()]] = true;
+			}
+			for (int producer = 0; producer < this.numOfRunners; producer++) {
+				if (isProducer[producer] && producer != consumer) {
+					capacities[consumer][producer]++;
+				}
+			}
+		}
+
+		int borderNodes = 0;
+		for (int i = 0; i < this.numOfRunners; i++) {
+			this.engines.get(i).initNodeHandover(i, capacities[i]);
+			for (int capacity : capacities[i]) {
+				borderNodes += capacity;
+			}
+		}
+		log.info("Spatial network partitioning: " + borderNodes + " node activations can cross the border between two runners.");
+	}
+
 	public void printEngineRunTimes() {
 		if (!QSim.analyzeRunTimes) return;
 		
@@ -27,6 +27,8 @@ import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * These are the "threads" of the {@link QNetsimEngine}. The "run()" method is implicitly called by starting the thread.
@@ -54,6 +56,18 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	 */
 	private final Queue<QNodeI> nodesQueue = new ConcurrentLinkedQueue<>();
 
+	/*
+	 * Only used when the network is partitioned spatially. Then, nodes activated by the runner
+	 * owning them (or by the main thread while all runners are waiting) are added directly to
+	 * localNodes, while nodes activated by another runner are handed over through the inbox of
+	 * the producing runner. The inboxes are drained in the order of the producing runners, which
+	 * also makes the order in which nodes are processed independent of the thread scheduling.
+	 */
+	private static final ThreadLocal<QNetsimEngineRunner> currentRunner = new ThreadLocal<>();
+	private int runnerIndex = -1;
+	private SingleProducerSingleConsumerQueue<QNodeI>[] inboxes = null;
+	private final List<QNodeI> localNodes = new ArrayList<>();
+
 	/*
 	 * Needs not to be thread-safe since links are only activated from nodes which
 	 * are handled (by design) from links handled by the same thread. Therefore,
@@ -76,8 +90,20 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 	private boolean movingNodes;
 
+	/*
+	 * Tasks of other engines which are run instead of moving nodes and links, see QNetsimEngine.runInParallel(...).
+	 * Set by the main thread while the runners are waiting, so they need not be volatile.
+	 */
+	private List<? extends Runnable> tasks = null;
+	private AtomicInteger nextTask = null;
+	private AtomicReference<Throwable> taskFailure = null;
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
+
+	// always collected, cheap enough (four calls to System.nanoTime() per time step)
+	private long nodesRunTime = 0;
+	private long linksRunTime = 0;
 	{	
 		if (QSim.analyzeRunTimes) runTimes = new long[QNetsimEngine.numObservedTimeSteps];
 		else runTimes = null;
@@ -100,10 +126,66 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		time = t;
 	}
 
+	/**
+	 * Switches this runner to the hand-over of node activations through single-producer/single-consumer
+	 * queues, see {@link QNetworkPartitioner}.
+	 *
+	 * @param runnerIndex the index of this runner
+	 * @param inboxCapacities for every runner, the maximum number of nodes of this runner that it can activate,
+	 * 		i.e. the number of nodes of this runner which have an in-link owned by that runner
+	 */
+	@SuppressWarnings("unchecked")
+	/*package*/ void initNodeHandover(final int runnerIndex, final int[] inboxCapacities) {
+		this.runnerIndex = runnerIndex;
+		this.inboxes = new SingleProducerSingleConsumerQueue[inboxCapacities.length];
+		for (int i = 0; i < inboxCapacities.length; i++) {
+			if (i != runnerIndex && inboxCapacities[i] > 0) {
+				this.inboxes[i] = new SingleProducerSingleConsumerQueue<>(inboxCapacities[i]);
+			}
+		}
+		// nodes which were activated before the hand-over was set up
+		this.localNodes.addAll(this.nodesQueue);
+		this.nodesQueue.clear();
+	}
+
+	/**
+	 * @return the wall clock time (in nanoseconds) this runner has spent moving nodes since the start of the mobsim,
+	 * 		not including the time waiting for the other runners.
+	 */
+	/*package*/ long getNodesRunTime() {
+		return this.nodesRunTime;
+	}
+
+	/**
+	 * @return the wall clock time (in nanoseconds) this runner has spent moving links since the start of the mobsim,
+	 * 		not including the time waiting for the other runners.
+	 */
+	/*package*/ long getLinksRunTime() {
+		return this.linksRunTime;
+	}
+
 	public void afterSim() {
 		this.simulationRunning = false;
 	}
 
+	/*package*/ void setTasks(List<? extends Runnable> tasks, AtomicInteger nextTask, AtomicReference<Throwable> taskFailure) {
+		this.tasks = tasks;
+		this.nextTask = nextTask;
+		this.taskFailure = taskFailure;
+	}
+
+	private void runTasks() {
+		try {
+			int task;
+			while ((task = this.nextTask.getAndIncrement()) < this.tasks.size()) {
+				this.tasks.get(task).run();
+			}
+		} catch (RuntimeException | Error e) {
+			// the other runners finish their tasks; the failure is rethrown by the main thread
+			this.taskFailure.compareAndSet(null, e);
+		}
+	}
+
 	@Override
 	public Boolean call() {
 		// implementing "call" and "run" side by side because it seems the easier way to 
@@ -116,16 +198,27 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			return false;
 		}
 
-		if (this.movingNodes) {
-			moveNodes();
-		} else {
-			moveLinks();
+		if (this.tasks != null) {
+			runTasks();
+			return true;
+		}
+
+		currentRunner.set(this);
+		try {
+			if (this.movingNodes) {
+				moveNodes();
+			} else {
+				moveLinks();
+			}
+		} finally {
+			currentRunner.remove();
 		}
 		return true ;
 	}
 
 	@Override
 	public void run() {
+		currentRunner.set(this);
 
 		// The method is ended when the simulationRunning flag is set to false.
 		while(true) {
@@ -144,6 +237,12 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 				return;
 			}
 
+			if (this.tasks != null) {
+				runTasks();
+				this.endBarrier.arriveAndAwaitAdvance();
+				continue;
+			}
+
 			moveNodes();
 
 			// After moving the QNodes all we use a Phaser to synchronize the threads.
@@ -165,30 +264,56 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		}
 	}
 	private void moveNodes() {
+		long start = System.nanoTime();
 		boolean remainsActive;
 		this.lockNodes = true;
-		QNodeI node;
-		Iterator<QNodeI> simNodes = this.nodesQueue.iterator();
-		while (simNodes.hasNext()) {
-			node = simNodes.next();
-			remainsActive = node.doSimStep(time);
-			if (!remainsActive) simNodes.remove();
+		if (this.inboxes != null) {
+			moveLocalNodes();
+		} else {
+			QNodeI node;
+			Iterator<QNodeI> simNodes = this.nodesQueue.iterator();
+			while (simNodes.hasNext()) {
+				node = simNodes.next();
+				countSimStep(node);
+				remainsActive = node.doSimStep(time);
+				if (!remainsActive) simNodes.remove();
+			}
 		}
 		this.lockNodes = false;
+		this.nodesRunTime += System.nanoTime() - start;
+	}
+	private void moveLocalNodes() {
+		for (SingleProducerSingleConsumerQueue<QNodeI> inbox : this.inboxes) {
+			if (inbox != null) inbox.drainTo(this.localNodes);
+		}
+		// compact the list in place instead of removing single elements from it
+		int remaining = 0;
+		for (int i = 0, n = this.localNodes.size(); i < n; i++) {
+			QNodeI node = this.localNodes.get(i);
+			countSimStep(node);
+			if (node.doSimStep(time)) this.localNodes.set(remaining++, node);
+		}
+		this.localNodes.subList(remaining, this.localNodes.size()).clear();
+	}
+	private static void countSimStep(QNodeI node) {
+		if (node instanceof AbstractQNode) ((AbstractQNode) node).simStepCount++;
 	}
 	private void moveLinks() {
+		long start = System.nanoTime();
 		boolean remainsActive;
 		lockLinks = true;
 		QLinkI link;
 		ListIterator<QLinkI> simLinks = this.linksList.listIterator();
 		while (simLinks.hasNext()) {
 			link = simLinks.next();
+			if (link instanceof AbstractQLink) ((AbstractQLink) link).simStepCount++;
 
 			remainsActive = link.doSimStep();
 
 			if (!remainsActive) simLinks.remove();
 		}
 		lockLinks = false;
+		this.linksRunTime += System.nanoTime() - start;
 	}
 
 	/*
@@ -214,7 +339,17 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	 */
 	@Override
 	protected void registerNodeAsActive(QNodeI node) {
-		if (!this.lockNodes) this.nodesQueue.add(node);
+		if (this.inboxes != null) {
+			QNetsimEngineRunner producer = currentRunner.get();
+			if (producer != null && producer != this) {
+				this.inboxes[producer.runnerIndex].offer(node);
+				return;
+			}
+		}
+		if (!this.lockNodes) {
+			if (this.inboxes != null) this.localNodes.add(node);
+			else this.nodesQueue.add(node);
+		}
 		else throw new RuntimeException("Tried to activate a QNode at a time where this was not allowed. Aborting!");
 	}
 
@@ -226,6 +361,13 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	 */
 	@Override
 	public int getNumberOfSimulatedNodes() {
+		if (this.inboxes != null) {
+			int size = this.localNodes.size();
+			for (SingleProducerSingleConsumerQueue<QNodeI> inbox : this.inboxes) {
+				if (inbox != null) size += inbox.size();
+			}
+			return size;
+		}
 		return this.nodesQueue.size();
 	}
 
@@ -0,0 +1,130 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.network.Node;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Splits the nodes of a network into spatially contiguous parts of approximately equal weight,
+ * using recursive coordinate bisection (a k-d split of the node coordinates). Every part is later owned
+ * by one {@link QNetsimEngineRunner}, so that most node activations stay within the same runner and
+ * only the nodes along the borders of the parts have to be handed over between runners.
+ * <p></p>
+ * The result only depends on the node coordinates, the node ids and the weights, i.e. it is deterministic
+ * for a given network.
+ */
+final class QNetworkPartitioner {
+
+	private QNetworkPartitioner() {
+	}
+
+	/**
+	 * The default weight of a node, used when no measured processing costs are available: the node itself
+	 * plus all its out-links, which are handled by the same runner.
+	 */
+	static double getDefaultWeight(Node node) {
+		return 1.0 + node.getOutLinks().size();
+	}
+
+	/**
+	 * @param nodes the nodes to partition
+	 * @param weights the weight (processing cost) of every node, in the same order as <code>nodes</code>
+	 * @param numberOfParts into how many parts the nodes should be split
+	 * @return for every node (in the same order as <code>nodes</code>) the index of the part it was assigned to,
+	 * 		in the range <code>[0, numberOfParts)</code>
+	 */
+	static int[] partition(final List<? extends Node> nodes, final double[] weights, final int numberOfParts) {
+		if (nodes.size() != weights.length) {
+			throw new IllegalArgumentException("need exactly one weight per node, but got " + weights.length + " weights for " + nodes.size() + " nodes.");
+		}
+		if (numberOfParts < 1) {
+			throw new IllegalArgumentException("numberOfParts must be at least 1, but is " + numberOfParts);
+		}
+
+		int n = nodes.size();
+		double[] x = new double[n];
+		double[] y = new double[n];
+		int[] idIndex = new int[n];
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			Node node = nodes.get(i);
+			Coord coord = node.getCoord();
+			if (coord != null) {
+				x[i] = coord.getX();
+				y[i] = coord.getY();
+			}
+			idIndex[i] = node.getId().index();
+			order[i] = i;
+		}
+
+		int[] parts = new int[n];
+		bisect(order, 0, n, 0, numberOfParts, x, y, idIndex, weights, parts);
+		return parts;
+	}
+
+	private static void bisect(Integer[] order, int from, int to, int firstPart, int numberOfParts,
+							   double[] x, double[] y, int[] idIndex, double[] weights, int[] parts) {
+		if (numberOfParts == 1 || to - from <= 1) {
+			for (int i = from; i < to; i++) {
+				parts[order[i]] = firstPart;
+			}
+			return;
+		}
+
+		double minX = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		double totalWeight = 0;
+		for (int i = from; i < to; i++) {
+			int node = order[i];
+			minX = Math.min(minX, x[node]);
+			maxX = Math.max(maxX, x[node]);
+			minY = Math.min(minY, y[node]);
+			maxY = Math.max(maxY, y[node]);
+			totalWeight += weights[node];
+		}
+
+		// split orthogonal to the longer side of the bounding box; ties are broken by the node id to stay deterministic
+		final double[] coord = (maxX - minX >= maxY - minY) ? x : y;
+		Arrays.sort(order, from, to, Comparator.<Integer>comparingDouble(node -> coord[node]).thenComparingInt(node -> idIndex[node]));
+
+		int lowerParts = numberOfParts / 2;
+		double targetWeight = totalWeight * lowerParts / numberOfParts;
+		double accumulated = 0;
+		int split = from;
+		while (split < to - 1 && accumulated + weights[order[split]] / 2 <= targetWeight) {
+			accumulated += weights[order[split]];
+			split++;
+		}
+		// make sure both halves get at least one node, so every runner has something to do on non-trivial networks
+		split = Math.max(split, from + 1);
+
+		bisect(order, from, split, firstPart, lowerParts, x, y, idIndex, weights, parts);
+		bisect(order, split, to, firstPart + lowerParts, numberOfParts - lowerParts, x, y, idIndex, weights, parts);
+	}
+
+}
@@ -0,0 +1,91 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SingleProducerSingleConsumerQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free ring buffer for exactly one producing and one consuming thread.
+ * <p></p>
+ * Used to hand over node activations from one {@link QNetsimEngineRunner} to another one
+ * when the network is partitioned spatially. The capacity is chosen by the caller such that
+ * the buffer cannot overflow: every node can be in the buffer at most once, so the number of
+ * border nodes between two runners is an upper bound.
+ *
+ * @param <T> the type of the elements in the queue
+ */
+final class SingleProducerSingleConsumerQueue<T> {
+
+	private final Object[] buffer;
+	private final int mask;
+
+	/* only written by the consumer */
+	private final AtomicLong head = new AtomicLong(0);
+	/* only written by the producer */
+	private final AtomicLong tail = new AtomicLong(0);
+
+	SingleProducerSingleConsumerQueue(final int minCapacity) {
+		int capacity = Integer.highestOneBit(Math.max(1, minCapacity - 1)) << 1;
+		this.buffer = new Object[capacity];
+		this.mask = capacity - 1;
+	}
+
+	int capacity() {
+		return this.buffer.length;
+	}
+
+	/**
+	 * Must only be called from the producing thread.
+	 */
+	void offer(final T element) {
+		final long currentTail = this.tail.get();
+		if (currentTail - this.head.get() == this.buffer.length) {
+			throw new IllegalStateException("Queue is full, capacity = " + this.buffer.length);
+		}
+		this.buffer[(int) currentTail & this.mask] = element;
+		this.tail.lazySet(currentTail + 1);
+	}
+
+	/**
+	 * Moves all currently available elements, in the order they were offered, into the given collection.
+	 * Must only be called from the consuming thread.
+	 *
+	 * @return the number of elements that were moved
+	 */
+	@SuppressWarnings("unchecked")
+	int drainTo(final Collection<? super T> target) {
+		final long currentHead = this.head.get();
+		final long currentTail = this.tail.get();
+		for (long i = currentHead; i < currentTail; i++) {
+			int index = (int) i & this.mask;
+			target.add((T) this.buffer[index]);
+			this.buffer[index] = null;
+		}
+		this.head.lazySet(currentTail);
+		return (int) (currentTail - currentHead);
+	}
+
+	int size() {
+		return (int) (this.tail.get() - this.head.get());
+	}
+
+}
@@ -0,0 +1,767 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactNetwork.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.NetworkFactory;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.io.CompactNetworkWriter;
+import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable network that keeps the data of its nodes and links in primitive arrays instead of one object per
+ * node/link with its own maps and attributes.
+ * <p></p>
+ * The arrays are memory-mapped from a file written by {@link CompactNetworkWriter}. They are thus not part of the
+ * java heap, the file does not have to be parsed, and multiple JVMs on the same machine that use the same network
+ * file share the data through the page cache of the operating system.
+ * <p></p>
+ * Nodes and links are small flyweight objects (one per node/link, so they can still be compared by identity) that
+ * only know their index into the arrays. They can be looked up by their id as in any other network. Their
+ * attributes are only decoded when {@link Link#getAttributes()} or {@link Node#getAttributes()} is called for the first
+ * time.
+ * <p></p>
+ * Design thoughts:<ul>
+ * <li> The network cannot be modified; all methods that would modify the network, its nodes or its links throw
+ * an {@link UnsupportedOperationException}. This also means that it does not support network change events, i.e.
+ * it cannot be used as time variant network.
+ * <li> The ids are not stored by their {@link Id#index()}, as the index of an id is only valid within one JVM.
+ * The nodes and links are stored in the order of the original network, and the ids are created when the file is
+ * loaded.
+ * </ul>
+ */
+public final class CompactNetwork implements Network, SearchableNetwork {
+
+	private final static Logger log = Logger.getLogger(CompactNetwork.class);
+
+	public static final byte[] MAGIC = new byte[] { 'M', 'N', 'W', 'B' };
+	public static final int VERSION = 1;
+	/** size of the header, in bytes; all other sections start at multiples of 8 bytes */
+	public static final int HEADER_SIZE = 56;
+
+	private final String name;
+	private final double capacityPeriod;
+	private final double effectiveLaneWidth;
+	private final double effectiveCellSize;
+
+	private final DoubleBuffer nodeX;
+	private final DoubleBuffer nodeY;
+	private final DoubleBuffer nodeZ;
+	private final IntBuffer linkFromNode;
+	private final IntBuffer linkToNode;
+	private final DoubleBuffer linkLength;
+	private final DoubleBuffer linkFreespeed;
+	private final DoubleBuffer linkCapacity;
+	private final DoubleBuffer linkLanes;
+	private final IntBuffer linkModes;
+	private final IntBuffer nodeOutLinksStart;
+	private final IntBuffer nodeOutLinks;
+	private final IntBuffer nodeInLinksStart;
+	private final IntBuffer nodeInLinks;
+	private final IntBuffer attributesStart;
+	private final IntBuffer attributeEntries;
+
+	private final Set<String>[] modeSets;
+	private final String[] strings;
+
+	private final CompactNode[] nodeArray;
+	private final CompactLink[] linkArray;
+	private final Map<Id<Node>, Node> nodes;
+	private final Map<Id<Link>, Link> links;
+
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+	private final NetworkFactory factory;
+	private Attributes attributes = null;
+
+	private QuadTree<Node> nodeQuadTree = null;
+	private LinkQuadTree linkQuadTree = null;
+
+	/**
+	 * Memory-maps the network from the given file, which must have been written by {@link CompactNetworkWriter}.
+	 */
+	public static CompactNetwork read(final String filename) {
+		try (FileChannel channel = FileChannel.open(new File(filename).toPath(), StandardOpenOption.READ)) {
+			return new CompactNetwork(channel);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @see #read(String)
+	 */
+	public static CompactNetwork read(final URL url) {
+		return read(toFile(url).getPath());
+	}
+
+	/**
+	 * @return <code>true</code> if the given url points to a local file that starts like a file written by
+	 * {@link CompactNetworkWriter}. Other files (e.g. in the xml format, or remote ones, that cannot be memory-mapped)
+	 * return <code>false</code>.
+	 */
+	public static boolean isCompactNetworkFile(final URL url) {
+		if (!"file".equals(url.getProtocol())) {
+			return false;
+		}
+		File file = toFile(url);
+		if (!file.isFile()) {
+			return false;
+		}
+		try (InputStream stream = new FileInputStream(file)) {
+			byte[] magic = new byte[MAGIC.length];
+			int read = 0;
+			while (read < magic.length) {
+				int n = stream.read(magic, read, magic.length - read);
+				if (n < 0) {
+					return false;
+				}
+				read += n;
+			}
+			return Arrays.equals(magic, MAGIC);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static File toFile(final URL url) {
+		if (!"file".equals(url.getProtocol())) {
+			throw new IllegalArgumentException("compact networks can only be read from local files, as they are memory-mapped: " + url);
+		}
+		try {
+			return new File(url.toURI());
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			// e.g. relative urls like file:../network.xml, which are not hierarchical
+			return new File(url.getPath());
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private CompactNetwork(final FileChannel channel) throws IOException {
+		ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+		byte[] magic = new byte[MAGIC.length];
+		header.get(magic);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IllegalArgumentException("not a compact network file.");
+		}
+		int version = header.getInt();
+		if (version != VERSION) {
+			throw new IllegalArgumentException("unsupported version of the compact network format: " + version);
+		}
+		int nodeCount = header.getInt();
+		int linkCount = header.getInt();
+		int modeSetCount = header.getInt();
+		int stringCount = header.getInt();
+		int attributeEntryCount = header.getInt();
+		int nameIndex = header.getInt();
+		this.capacityPeriod = header.getDouble();
+		this.effectiveLaneWidth = header.getDouble();
+		this.effectiveCellSize = header.getDouble();
+
+		Sections sections = new Sections(channel, HEADER_SIZE);
+		this.nodeX = sections.doubles(nodeCount);
+		this.nodeY = sections.doubles(nodeCount);
+		this.nodeZ = sections.doubles(nodeCount);
+		this.linkFromNode = sections.ints(linkCount);
+		this.linkToNode = sections.ints(linkCount);
+		this.linkLength = sections.doubles(linkCount);
+		this.linkFreespeed = sections.doubles(linkCount);
+		this.linkCapacity = sections.doubles(linkCount);
+		this.linkLanes = sections.doubles(linkCount);
+		this.linkModes = sections.ints(linkCount);
+		this.nodeOutLinksStart = sections.ints(nodeCount + 1);
+		this.nodeOutLinks = sections.ints(this.nodeOutLinksStart.get(nodeCount));
+		this.nodeInLinksStart = sections.ints(nodeCount + 1);
+		this.nodeInLinks = sections.ints(this.nodeInLinksStart.get(nodeCount));
+		this.attributesStart = sections.ints(nodeCount + linkCount + 2);
+		this.attributeEntries = sections.ints(3 * attributeEntryCount);
+
+		// the ids have to be created in every JVM, so the strings are read (and not mapped)
+		channel.position(sections.position);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+		this.nodeArray = new CompactNode[nodeCount];
+		IdMap<Node, Node> nodeMap = new IdMap<>(Node.class, Id.getNumberOfIds(Node.class) + nodeCount);
+		for (int i = 0; i < nodeCount; i++) {
+			CompactNode node = new CompactNode(this, i, Id.create(readString(in), Node.class));
+			this.nodeArray[i] = node;
+			nodeMap.put(node.id, node);
+		}
+		this.linkArray = new CompactLink[linkCount];
+		IdMap<Link, Link> linkMap = new IdMap<>(Link.class, Id.getNumberOfIds(Link.class) + linkCount);
+		for (int i = 0; i < linkCount; i++) {
+			CompactLink link = new CompactLink(this, i, Id.create(readString(in), Link.class));
+			this.linkArray[i] = link;
+			linkMap.put(link.id, link);
+		}
+		this.modeSets = new Set[modeSetCount];
+		for (int i = 0; i < modeSetCount; i++) {
+			String modes = readString(in);
+			Set<String> modeSet = new HashSet<>();
+			for (String mode : modes.split(",")) {
+				if (!mode.isEmpty()) {
+					modeSet.add(mode.intern());
+				}
+			}
+			this.modeSets[i] = Collections.unmodifiableSet(modeSet);
+		}
+		this.strings = new String[stringCount];
+		for (int i = 0; i < stringCount; i++) {
+			this.strings[i] = readString(in).intern();
+		}
+		this.name = nameIndex < 0 ? null : this.strings[nameIndex];
+		this.nodes = Collections.unmodifiableMap(nodeMap);
+		this.links = Collections.unmodifiableMap(linkMap);
+		this.factory = new NetworkFactoryImpl(this);
+		log.info("memory-mapped network with " + nodeCount + " nodes and " + linkCount + " links.");
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Maps the sections of the file one after the other, each into its own buffer, so no single buffer gets larger
+	 * than the 2GB that can be addressed in a {@link ByteBuffer}.
+	 */
+	private static final class Sections {
+		private final FileChannel channel;
+		long position;
+
+		Sections(FileChannel channel, long position) {
+			this.channel = channel;
+			this.position = position;
+		}
+
+		DoubleBuffer doubles(int count) throws IOException {
+			return map(8L * count).asDoubleBuffer();
+		}
+
+		IntBuffer ints(int count) throws IOException {
+			return map(4L * count).asIntBuffer();
+		}
+
+		private ByteBuffer map(long size) throws IOException {
+			ByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, size);
+			this.position += (size + 7) & ~7L;
+			return buffer;
+		}
+	}
+
+	/**
+	 * Sets converters for attribute values of custom types. Must be called before the attributes are accessed for
+	 * the first time.
+	 */
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	/**
+	 * @param element the index of a node, <code>nodeCount + index</code> for a link, or
+	 * <code>nodeCount + linkCount</code> for the network itself
+	 */
+	private Attributes decodeAttributes(int element) {
+		Attributes decoded = new Attributes();
+		int end = this.attributesStart.get(element + 1);
+		for (int entry = this.attributesStart.get(element); entry < end; entry++) {
+			String key = this.strings[this.attributeEntries.get(3 * entry)];
+			String className = this.strings[this.attributeEntries.get(3 * entry + 1)];
+			String value = this.strings[this.attributeEntries.get(3 * entry + 2)];
+			Object object = this.attributesConverter.convert(className, value);
+			if (object != null) {
+				decoded.putAttribute(key, object);
+			}
+		}
+		return decoded;
+	}
+
+	@Override
+	public NetworkFactory getFactory() {
+		return this.factory;
+	}
+
+	@Override
+	public Map<Id<Node>, Node> getNodes() {
+		return this.nodes;
+	}
+
+	@Override
+	public Map<Id<Link>, Link> getLinks() {
+		return this.links;
+	}
+
+	@Override
+	public double getCapacityPeriod() {
+		return this.capacityPeriod;
+	}
+
+	@Override
+	public double getEffectiveLaneWidth() {
+		return this.effectiveLaneWidth;
+	}
+
+	@Override
+	public double getEffectiveCellSize() {
+		return this.effectiveCellSize;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public synchronized Attributes getAttributes() {
+		if (this.attributes == null) {
+			this.attributes = decodeAttributes(this.nodeArray.length + this.linkArray.length);
+		}
+		return this.attributes;
+	}
+
+	@Override
+	public void addNode(final Node nn) {
+		throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+	}
+
+	@Override
+	public void addLink(final Link ll) {
+		throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+	}
+
+	@Override
+	public Node removeNode(final Id<Node> nodeId) {
+		throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+	}
+
+	@Override
+	public Link removeLink(final Id<Link> linkId) {
+		throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+	}
+
+	@Override
+	public void setCapacityPeriod(final double capPeriod) {
+		throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+	}
+
+	@Override
+	public void setEffectiveCellSize(final double effectiveCellSize) {
+		throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+	}
+
+	@Override
+	public void setEffectiveLaneWidth(final double effectiveLaneWidth) {
+		throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+	}
+
+	@Override
+	public void setName(final String name) {
+		throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+	}
+
+	@Override
+	public Link getNearestLinkExactly(final Coord coord) {
+		return getLinkQuadTree().getNearest(coord.getX(), coord.getY());
+	}
+
+	@Override
+	public Node getNearestNode(final Coord coord) {
+		return getNodeQuadTree().getClosest(coord.getX(), coord.getY());
+	}
+
+	@Override
+	public Collection<Node> getNearestNodes(final Coord coord, final double distance) {
+		return getNodeQuadTree().getDisk(coord.getX(), coord.getY(), distance);
+	}
+
+	@Override
+	public synchronized QuadTree<Node> getNodeQuadTree() {
+		if (this.nodeQuadTree == null) {
+			double[] bounds = getBounds();
+			QuadTree<Node> quadTree = new QuadTree<>(bounds[0], bounds[1], bounds[2], bounds[3]);
+			for (int i = 0; i < this.nodeArray.length; i++) {
+				quadTree.put(this.nodeX.get(i), this.nodeY.get(i), this.nodeArray[i]);
+			}
+			this.nodeQuadTree = quadTree;
+		}
+		return this.nodeQuadTree;
+	}
+
+	@Override
+	public synchronized LinkQuadTree getLinkQuadTree() {
+		if (this.linkQuadTree == null) {
+			double[] bounds = getBounds();
+			LinkQuadTree quadTree = new LinkQuadTree(bounds[0], bounds[1], bounds[2], bounds[3]);
+			for (Link link : this.linkArray) {
+				quadTree.put(link);
+			}
+			this.linkQuadTree = quadTree;
+		}
+		return this.linkQuadTree;
+	}
+
+	private double[] getBounds() {
+		double minx = Double.POSITIVE_INFINITY;
+		double miny = Double.POSITIVE_INFINITY;
+		double maxx = Double.NEGATIVE_INFINITY;
+		double maxy = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < this.nodeArray.length; i++) {
+			minx = Math.min(minx, this.nodeX.get(i));
+			miny = Math.min(miny, this.nodeY.get(i));
+			maxx = Math.max(maxx, this.nodeX.get(i));
+			maxy = Math.max(maxy, this.nodeY.get(i));
+		}
+		// same margin as in NetworkImpl
+		return new double[] { minx - 1.0, miny - 1.0, maxx + 1.0, maxy + 1.0 };
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() +
+				"[capperiod=" + this.capacityPeriod + "]" +
+				"[nof_nodes=" + this.nodeArray.length + "]";
+	}
+
+	private static final class CompactNode implements Node {
+		private final CompactNetwork network;
+		private final int index;
+		private final Id<Node> id;
+		private Attributes attributes = null;
+
+		CompactNode(CompactNetwork network, int index, Id<Node> id) {
+			this.network = network;
+			this.index = index;
+			this.id = id;
+		}
+
+		@Override
+		public Id<Node> getId() {
+			return this.id;
+		}
+
+		@Override
+		public Coord getCoord() {
+			double z = this.network.nodeZ.get(this.index);
+			if (Double.isNaN(z)) {
+				return new Coord(this.network.nodeX.get(this.index), this.network.nodeY.get(this.index));
+			}
+			return new Coord(this.network.nodeX.get(this.index), this.network.nodeY.get(this.index), z);
+		}
+
+		@Override
+		public Map<Id<Link>, ? extends Link> getInLinks() {
+			return new LinkRange(this.network, this.network.nodeInLinksStart, this.network.nodeInLinks, this.index);
+		}
+
+		@Override
+		public Map<Id<Link>, ? extends Link> getOutLinks() {
+			return new LinkRange(this.network, this.network.nodeOutLinksStart, this.network.nodeOutLinks, this.index);
+		}
+
+		@Override
+		public synchronized Attributes getAttributes() {
+			if (this.attributes == null) {
+				this.attributes = this.network.decodeAttributes(this.index);
+			}
+			return this.attributes;
+		}
+
+		@Override
+		public boolean addInLink(final Link link) {
+			throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+		}
+
+		@Override
+		public boolean addOutLink(final Link link) {
+			throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+		}
+
+		@Override
+		public Link removeInLink(final Id<Link> linkId) {
+			throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+		}
+
+		@Override
+		public Link removeOutLink(final Id<Link> outLinkId) {
+			throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+		}
+
+		@Override
+		public void setCoord(final Coord coord) {
+			throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+		}
+
+		@Override
+		public String toString() {
+			return "[id=" + this.id + "]" +
+					"[coord=" + getCoord() + "]" +
+					"[type=null]" +
+					"[nof_inlinks=" + getInLinks().size() + "]" +
+					"[nof_outlinks=" + getOutLinks().size() + "]";
+		}
+	}
+
+	private static final class CompactLink implements Link {
+		private final CompactNetwork network;
+		private final int index;
+		private final Id<Link> id;
+		private Attributes attributes = null;
+
+		CompactLink(CompactNetwork network, int index, Id<Link> id) {
+			this.network = network;
+			this.index = index;
+			this.id = id;
+		}
+
+		@Override
+		public Id<Link> getId() {
+			return this.id;
+		}
+
+		@Override
+		public Node getFromNode() {
+			return this.network.nodeArray[this.network.linkFromNode.get(this.index)];
+		}
+
+		@Override
+		public Node getToNode() {
+			return this.network.nodeArray[this.network.linkToNode.get(this.index)];
+		}
+
+		@Override
+		public Coord getCoord() {
+			int from = this.network.linkFromNode.get(this.index);
+			int to = this.network.linkToNode.get(this.index);
+			return new Coord((this.network.nodeX.get(from) + this.network.nodeX.get(to)) / 2.0,
+					(this.network.nodeY.get(from) + this.network.nodeY.get(to)) / 2.0);
+		}
+
+		@Override
+		public double getLength() {
+			return this.network.linkLength.get(this.index);
+		}
+
+		@Override
+		public double getNumberOfLanes() {
+			return this.network.linkLanes.get(this.index);
+		}
+
+		@Override
+		public double getNumberOfLanes(final double time) {
+			return getNumberOfLanes();
+		}
+
+		@Override
+		public double getFreespeed() {
+			return this.network.linkFreespeed.get(this.index);
+		}
+
+		@Override
+		public double getFreespeed(final double time) {
+			return getFreespeed();
+		}
+
+		@Override
+		public double getCapacity() {
+			return this.network.linkCapacity.get(this.index);
+		}
+
+		@Override
+		public double getCapacity(final double time) {
+			return getCapacity();
+		}
+
+		@Override
+		public double getFlowCapacityPerSec() {
+			return getCapacity() / this.network.capacityPeriod;
+		}
+
+		@Override
+		public double getFlowCapacityPerSec(final double time) {
+			return getFlowCapacityPerSec();
+		}
+
+		@Override
+		public Set<String> getAllowedModes() {
+			return this.network.modeSets[this.network.linkModes.get(this.index)];
+		}
+
+		@Override
+		public synchronized Attributes getAttributes() {
+			if (this.attributes == null) {
+				this.attributes = this.network.decodeAttributes(this.network.nodeArray.length + this.index);
+			}
+			return this.attributes;
+		}
+
+		@Override
+		public boolean setFromNode(final Node node) {
+			throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+		}
+
+		@Override
+		public boolean setToNode(final Node node) {
+			throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+		}
+
+		@Override
+		public void setFreespeed(final double freespeed) {
+			throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+		}
+
+		@Override
+		public void setLength(final double length) {
+			throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+		}
+
+		@Override
+		public void setNumberOfLanes(final double lanes) {
+			throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+		}
+
+		@Override
+		public void setCapacity(final double capacity) {
+			throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+		}
+
+		@Override
+		public void setAllowedModes(final Set<String> modes) {
+			throw new UnsupportedOperationException("A CompactNetwork cannot be modified.");
+		}
+
+		@Override
+		public String toString() {
+			return "[id=" + this.id + "]" +
+					"[from_id=" + getFromNode().getId() + "]" +
+					"[to_id=" + getToNode().getId() + "]" +
+					"[length=" + getLength() + "]" +
+					"[freespeed=" + getFreespeed() + "]" +
+					"[capacity=" + getCapacity() + "]" +
+					"[permlanes=" + getNumberOfLanes() + "]" +
+					"[modes=" + getAllowedModes() + "]";
+		}
+	}
+
+	/**
+	 * The in- or out-links of a node, as read-only map view on the links stored for the node.
+	 */
+	private static final class LinkRange extends AbstractMap<Id<Link>, Link> {
+		private final CompactNetwork network;
+		private final IntBuffer links;
+		private final int start;
+		private final int end;
+
+		LinkRange(CompactNetwork network, IntBuffer starts, IntBuffer links, int node) {
+			this.network = network;
+			this.links = links;
+			this.start = starts.get(node);
+			this.end = starts.get(node + 1);
+		}
+
+		@Override
+		public int size() {
+			return this.end - this.start;
+		}
+
+		@Override
+		public Link get(Object key) {
+			// nodes have only few links, so a linear search is fine
+			for (int i = this.start; i < this.end; i++) {
+				CompactLink link = this.network.linkArray[this.links.get(i)];
+				if (link.id.equals(key)) {
+					return link;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public Set<Entry<Id<Link>, Link>> entrySet() {
+			return new AbstractSet<Entry<Id<Link>, Link>>() {
+				@Override
+				public Iterator<Entry<Id<Link>, Link>> iterator() {
+					return new Iterator<Entry<Id<Link>, Link>>() {
+						private int next = LinkRange.this.start;
+
+						@Override
+						public boolean hasNext() {
+							return this.next < LinkRange.this.end;
+						}
+
+						@Override
+						public Entry<Id<Link>, Link> next() {
+							if (this.next >= LinkRange.this.end) {
+								throw new NoSuchElementException();
+							}
+							CompactLink link = LinkRange.this.network.linkArray[LinkRange.this.links.get(this.next++)];
+							return new SimpleImmutableEntry<>(link.id, link);
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return LinkRange.this.size();
+				}
+			};
+		}
+	}
+
+}
@@ -35,6 +35,7 @@ import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.NetworkConfigGroup;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.network.algorithms.NetworkSimplifier;
+import org.matsim.core.network.io.CompactNetworkWriter;
 import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.utils.geometry.CoordUtils;
@@ -787,6 +788,22 @@ public final class NetworkUtils {
 		new NetworkWriter(network).write(string) ;
 	}
 	
+	/**
+	 * Writes the network in the binary format that can be memory-mapped with {@link #readCompactNetwork(String)}.
+	 */
+	public static void writeCompactNetwork(Network network, String filename) {
+		new CompactNetworkWriter(network).write(filename);
+	}
+
+	/**
+	 * Memory-maps an immutable network from a file written by {@link #writeCompactNetwork(Network, String)}.
+	 *
+	 * @see CompactNetwork
+	 */
+	public static Network readCompactNetwork(String filename) {
+		return CompactNetwork.read(filename);
+	}
+
 	public static Link findLinkInOppositeDirection(Link link) {
 		for ( Link candidateLink : link.getToNode().getOutLinks().values() ) {
 			if ( candidateLink.getToNode().equals( link.getFromNode() ) ) {
@@ -0,0 +1,257 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactNetworkWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.io;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.internal.MatsimWriter;
+import org.matsim.core.network.CompactNetwork;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a network in the binary format that can be memory-mapped by {@link CompactNetwork}.
+ * <p></p>
+ * The file is not compressed (it could not be memory-mapped otherwise). It consists of a header, followed by one
+ * section per array (node coordinates, link attributes, in- and out-links per node, attributes), each starting at a
+ * multiple of 8 bytes, and finally the ids and other strings. All numbers are stored in big-endian byte order.
+ * Network change events are not written.
+ */
+public final class CompactNetworkWriter implements MatsimWriter {
+
+	private final static Logger log = Logger.getLogger(CompactNetworkWriter.class);
+
+	private final Network network;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+
+	private DataOutputStream out;
+	private long position;
+
+	public CompactNetworkWriter(final Network network) {
+		this.network = network;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	@Override
+	public void write(final String filename) {
+		List<Node> nodes = new ArrayList<>(this.network.getNodes().values());
+		List<Link> links = new ArrayList<>(this.network.getLinks().values());
+		int nodeCount = nodes.size();
+		int linkCount = links.size();
+
+		int[] nodeIndices = new int[Id.getNumberOfIds(Node.class)];
+		for (int i = 0; i < nodeCount; i++) {
+			nodeIndices[nodes.get(i).getId().index()] = i;
+		}
+		int[] linkIndices = new int[Id.getNumberOfIds(Link.class)];
+		for (int i = 0; i < linkCount; i++) {
+			linkIndices[links.get(i).getId().index()] = i;
+		}
+
+		Map<String, Integer> modeSets = new LinkedHashMap<>();
+		int[] linkModes = new int[linkCount];
+		for (int i = 0; i < linkCount; i++) {
+			String modes = String.join(",", links.get(i).getAllowedModes());
+			linkModes[i] = modeSets.computeIfAbsent(modes, k -> modeSets.size());
+		}
+
+		Map<String, Integer> strings = new LinkedHashMap<>();
+		int nameIndex = this.network.getName() == null ? -1 : getStringIndex(strings, this.network.getName());
+		int[] attributesStart = new int[nodeCount + linkCount + 2];
+		int[] attributeEntries = new int[0];
+		int entryCount = 0;
+		for (int element = 0; element <= nodeCount + linkCount; element++) {
+			attributesStart[element] = entryCount;
+			Attributes attributes;
+			if (element < nodeCount) {
+				attributes = nodes.get(element).getAttributes();
+			} else if (element < nodeCount + linkCount) {
+				attributes = links.get(element - nodeCount).getAttributes();
+			} else {
+				attributes = this.network.getAttributes();
+			}
+			if (attributes.size() == 0) {
+				continue;
+			}
+			for (Map.Entry<String, Object> attribute : attributes.getAsMap().entrySet()) {
+				String value = this.attributesConverter.convertToString(attribute.getValue());
+				if (value == null) {
+					continue;
+				}
+				if (attributeEntries.length < 3 * (entryCount + 1)) {
+					attributeEntries = Arrays.copyOf(attributeEntries, Math.max(3 * (entryCount + 1), 2 * attributeEntries.length));
+				}
+				attributeEntries[3 * entryCount] = getStringIndex(strings, attribute.getKey());
+				attributeEntries[3 * entryCount + 1] = getStringIndex(strings, attribute.getValue().getClass().getName());
+				attributeEntries[3 * entryCount + 2] = getStringIndex(strings, value);
+				entryCount++;
+			}
+		}
+		attributesStart[nodeCount + linkCount + 1] = entryCount;
+
+		try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 64 * 1024))) {
+			this.out = stream;
+			this.position = 0;
+
+			this.out.write(CompactNetwork.MAGIC);
+			this.out.writeInt(CompactNetwork.VERSION);
+			this.out.writeInt(nodeCount);
+			this.out.writeInt(linkCount);
+			this.out.writeInt(modeSets.size());
+			this.out.writeInt(strings.size());
+			this.out.writeInt(entryCount);
+			this.out.writeInt(nameIndex);
+			this.out.writeDouble(this.network.getCapacityPeriod());
+			this.out.writeDouble(this.network.getEffectiveLaneWidth());
+			this.out.writeDouble(this.network.getEffectiveCellSize());
+			this.position = CompactNetwork.HEADER_SIZE;
+
+			for (Node node : nodes) {
+				this.out.writeDouble(node.getCoord().getX());
+			}
+			endSection(8L * nodeCount);
+			for (Node node : nodes) {
+				this.out.writeDouble(node.getCoord().getY());
+			}
+			endSection(8L * nodeCount);
+			for (Node node : nodes) {
+				Coord coord = node.getCoord();
+				this.out.writeDouble(coord.hasZ() ? coord.getZ() : Double.NaN);
+			}
+			endSection(8L * nodeCount);
+
+			for (Link link : links) {
+				this.out.writeInt(nodeIndices[link.getFromNode().getId().index()]);
+			}
+			endSection(4L * linkCount);
+			for (Link link : links) {
+				this.out.writeInt(nodeIndices[link.getToNode().getId().index()]);
+			}
+			endSection(4L * linkCount);
+			for (Link link : links) {
+				this.out.writeDouble(link.getLength());
+			}
+			endSection(8L * linkCount);
+			for (Link link : links) {
+				this.out.writeDouble(link.getFreespeed());
+			}
+			endSection(8L * linkCount);
+			for (Link link : links) {
+				this.out.writeDouble(link.getCapacity());
+			}
+			endSection(8L * linkCount);
+			for (Link link : links) {
+				this.out.writeDouble(link.getNumberOfLanes());
+			}
+			endSection(8L * linkCount);
+			writeInts(linkModes, linkModes.length);
+
+			writeNodeLinks(nodes, linkIndices, true);
+			writeNodeLinks(nodes, linkIndices, false);
+
+			writeInts(attributesStart, attributesStart.length);
+			writeInts(attributeEntries, 3 * entryCount);
+
+			for (Node node : nodes) {
+				writeString(node.getId().toString());
+			}
+			for (Link link : links) {
+				writeString(link.getId().toString());
+			}
+			for (String modes : modeSets.keySet()) {
+				writeString(modes);
+			}
+			for (String string : strings.keySet()) {
+				writeString(string);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.out = null;
+		}
+		log.info("wrote compact network with " + nodeCount + " nodes and " + linkCount + " links to " + filename);
+	}
+
+	private static int getStringIndex(Map<String, Integer> strings, String string) {
+		return strings.computeIfAbsent(string, k -> strings.size());
+	}
+
+	private void writeNodeLinks(List<Node> nodes, int[] linkIndices, boolean outLinks) throws IOException {
+		int start = 0;
+		for (Node node : nodes) {
+			this.out.writeInt(start);
+			start += (outLinks ? node.getOutLinks() : node.getInLinks()).size();
+		}
+		this.out.writeInt(start);
+		endSection(4L * (nodes.size() + 1));
+		for (Node node : nodes) {
+			for (Link link : (outLinks ? node.getOutLinks() : node.getInLinks()).values()) {
+				this.out.writeInt(linkIndices[link.getId().index()]);
+			}
+		}
+		endSection(4L * start);
+	}
+
+	private void writeInts(int[] values, int length) throws IOException {
+		for (int i = 0; i < length; i++) {
+			this.out.writeInt(values[i]);
+		}
+		endSection(4L * length);
+	}
+
+	/**
+	 * Pads the section that was just written to a multiple of 8 bytes.
+	 */
+	private void endSection(long size) throws IOException {
+		this.position += size;
+		while ((this.position & 7) != 0) {
+			this.out.writeByte(0);
+			this.position++;
+		}
+	}
+
+	private void writeString(String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		this.out.writeInt(bytes.length);
+		this.out.write(bytes);
+	}
+
+}
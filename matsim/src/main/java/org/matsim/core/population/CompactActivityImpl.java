@@ -0,0 +1,175 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactActivityImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Memory-lean variant of {@link ActivityImpl}. The coordinate is stored in the activity itself instead of a separate
+ * {@link Coord} object, so {@link #getCoord()} returns a new, equal object on every call. The attributes are only
+ * created when they are requested for the first time.
+ *
+ * @see CompactPopulationFactoryImpl
+ */
+/* deliberately package */ final class CompactActivityImpl implements Activity {
+
+	private static final byte NO_COORD = 0;
+	private static final byte COORD_2D = 1;
+	private static final byte COORD_3D = 2;
+
+	private double endTime = Time.getUndefinedTime();
+	private double startTime = Time.getUndefinedTime();
+	private double dur = Time.getUndefinedTime();
+
+	private double x;
+	private double y;
+	private double z;
+	private byte coordType = NO_COORD;
+
+	private String type;
+	private Id<Link> linkId = null;
+	private Id<ActivityFacility> facilityId = null;
+
+	private Attributes attributes = null;
+
+	/* deliberately package */ CompactActivityImpl(final String type) {
+		this.type = type.intern();
+	}
+
+	@Override
+	public double getEndTime() {
+		return this.endTime;
+	}
+
+	@Override
+	public void setEndTime(final double endTime) {
+		this.endTime = endTime;
+	}
+
+	@Override
+	public double getStartTime() {
+		return this.startTime;
+	}
+
+	@Override
+	public void setStartTime(final double startTime) {
+		this.startTime = startTime;
+	}
+
+	@Override
+	public double getMaximumDuration() {
+		return this.dur;
+	}
+
+	@Override
+	public void setMaximumDuration(final double dur) {
+		this.dur = dur;
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type.intern();
+	}
+
+	@Override
+	public Coord getCoord() {
+		switch (this.coordType) {
+			case COORD_2D:
+				return new Coord(this.x, this.y);
+			case COORD_3D:
+				return new Coord(this.x, this.y, this.z);
+			default:
+				return null;
+		}
+	}
+
+	@Override
+	public void setCoord(final Coord coord) {
+		if (coord == null) {
+			this.coordType = NO_COORD;
+			return;
+		}
+		this.x = coord.getX();
+		this.y = coord.getY();
+		if (coord.hasZ()) {
+			this.z = coord.getZ();
+			this.coordType = COORD_3D;
+		} else {
+			this.coordType = COORD_2D;
+		}
+	}
+
+	@Override
+	public Id<Link> getLinkId() {
+		return this.linkId;
+	}
+
+	@Override
+	public void setLinkId(final Id<Link> linkId) {
+		this.linkId = linkId;
+	}
+
+	@Override
+	public Id<ActivityFacility> getFacilityId() {
+		return this.facilityId;
+	}
+
+	@Override
+	public void setFacilityId(final Id<ActivityFacility> facilityId) {
+		this.facilityId = facilityId;
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		if (this.attributes == null) {
+			this.attributes = new Attributes();
+		}
+		return this.attributes;
+	}
+
+	@Override
+	public boolean hasAttributes() {
+		return this.attributes != null && !this.attributes.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "act [type=" + this.getType() + "]" +
+				"[coord=" + this.getCoord() + "]" +
+				"[linkId=" + this.linkId + "]" +
+				"[startTime=" + Time.writeTime(this.getStartTime()) + "]" +
+				"[endTime=" + Time.writeTime(this.getEndTime()) + "]" +
+				"[duration=" + Time.writeTime(this.getMaximumDuration()) + "]" +
+				"[facilityId=" + this.facilityId + "]" ;
+	}
+
+}
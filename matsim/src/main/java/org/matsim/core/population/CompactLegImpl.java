@@ -0,0 +1,110 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactLegImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Memory-lean variant of {@link LegImpl}, with an interned mode and attributes which are only created when they are
+ * requested for the first time.
+ *
+ * @see CompactPopulationFactoryImpl
+ */
+/* deliberately package */ final class CompactLegImpl implements Leg {
+
+	private Route route = null;
+
+	private double depTime = Time.getUndefinedTime();
+	private double travTime = Time.getUndefinedTime();
+	private String mode;
+
+	private Attributes attributes = null;
+
+	/* deliberately package */ CompactLegImpl(final String transportMode) {
+		this.mode = transportMode.intern();
+	}
+
+	@Override
+	public String getMode() {
+		return this.mode;
+	}
+
+	@Override
+	public void setMode(final String transportMode) {
+		this.mode = transportMode.intern();
+	}
+
+	@Override
+	public double getDepartureTime() {
+		return this.depTime;
+	}
+
+	@Override
+	public void setDepartureTime(final double depTime) {
+		this.depTime = depTime;
+	}
+
+	@Override
+	public double getTravelTime() {
+		return this.travTime;
+	}
+
+	@Override
+	public void setTravelTime(final double travTime) {
+		this.travTime = travTime;
+	}
+
+	@Override
+	public Route getRoute() {
+		return this.route;
+	}
+
+	@Override
+	public void setRoute(final Route route) {
+		this.route = route;
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		if (this.attributes == null) {
+			this.attributes = new Attributes();
+		}
+		return this.attributes;
+	}
+
+	@Override
+	public boolean hasAttributes() {
+		return this.attributes != null && !this.attributes.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "leg [mode=" + this.getMode() + "]" +
+				"[depTime=" + Time.writeTime(this.getDepartureTime()) + "]" +
+				"[travTime=" + Time.writeTime(this.getTravelTime()) + "]" +
+				"[arrTime=" + Time.writeTime(this.getDepartureTime() + this.getTravelTime()) + "]" +
+				"[route=" + this.route + "]";
+	}
+
+}
@@ -0,0 +1,166 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPersonImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.replanning.selectors.RandomPlanSelector;
+import org.matsim.core.scenario.CustomizableUtils;
+import org.matsim.core.scenario.Lockable;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Memory-lean variant of {@link PersonImpl}, with attributes which are only created when they are requested for the
+ * first time. Copies of the selected plan are created with the compact plan elements of the factory which created
+ * the person, so the population stays compact over the iterations.
+ *
+ * @see CompactPopulationFactoryImpl
+ */
+/* deliberately package */ final class CompactPersonImpl implements Person, Lockable {
+
+	private final CompactPopulationFactoryImpl factory;
+	private final List<Plan> plans = new ArrayList<>(6);
+	private Id<Person> id;
+
+	private Plan selectedPlan = null;
+
+	private Customizable customizableDelegate;
+	private boolean locked;
+
+	private Attributes attributes = null;
+
+	/* deliberately package */ CompactPersonImpl(final Id<Person> id, final CompactPopulationFactoryImpl factory) {
+		this.id = id;
+		this.factory = factory;
+	}
+
+	@Override
+	public Plan getSelectedPlan() {
+		return this.selectedPlan;
+	}
+
+	@Override
+	public boolean addPlan(final Plan plan) {
+		plan.setPerson(this);
+		// Make sure there is a selected plan if there is at least one plan
+		if (this.selectedPlan == null) this.selectedPlan = plan;
+		return this.plans.add(plan);
+	}
+
+	@Override
+	public void setSelectedPlan(final Plan selectedPlan) {
+		if (selectedPlan != null && !plans.contains( selectedPlan )) {
+			throw new IllegalStateException("The plan to be set as selected is not null nor stored in the person's plans");
+		}
+		this.selectedPlan = selectedPlan;
+	}
+
+	@Override
+	public Plan createCopyOfSelectedPlanAndMakeSelected() {
+		Plan oldPlan = this.getSelectedPlan();
+		if (oldPlan == null) {
+			return null;
+		}
+		Plan newPlan = this.factory.createCopy(oldPlan);
+		newPlan.setPerson(oldPlan.getPerson());
+		this.getPlans().add(newPlan);
+		this.setSelectedPlan(newPlan);
+		return newPlan;
+	}
+
+	@Override
+	public Id<Person> getId() {
+		return this.id;
+	}
+
+	/* deliberately package */ void changeId(final Id<Person> newId) {
+		// see PersonImpl.changeId
+		try {
+			testForLocked() ;
+		} catch ( Exception ee ) {
+			Logger.getLogger(getClass()).warn("cannot change person id while in population.  remove the person, change Id, re-add.");
+			throw ee ;
+		}
+		this.id = newId;
+	}
+
+	@Override
+	public boolean removePlan(final Plan plan) {
+		boolean result = this.getPlans().remove(plan);
+		if ((this.getSelectedPlan() == plan) && result) {
+			this.setSelectedPlan(new RandomPlanSelector<Plan, Person>().selectPlan(this));
+		}
+		return result;
+	}
+
+	@Override
+	public List<Plan> getPlans() {
+		return this.plans;
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		if (this.customizableDelegate == null) {
+			this.customizableDelegate = CustomizableUtils.createCustomizable();
+		}
+		return this.customizableDelegate.getCustomAttributes();
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		if (this.attributes == null) {
+			this.attributes = new Attributes();
+		}
+		return this.attributes;
+	}
+
+	@Override
+	public boolean hasAttributes() {
+		return this.attributes != null && !this.attributes.isEmpty();
+	}
+
+	@Override
+	public void setLocked() {
+		this.locked = true ;
+	}
+
+	private void testForLocked() {
+		if ( this.locked ) {
+			throw new RuntimeException("too late to do this") ;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder();
+		b.append("[id=").append(this.getId()).append("]");
+		b.append("[nof_plans=").append(this.getPlans().size()).append("]");
+		return b.toString();
+	}
+
+}
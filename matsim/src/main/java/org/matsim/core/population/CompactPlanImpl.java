@@ -0,0 +1,142 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlanImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.scenario.CustomizableUtils;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Memory-lean variant of {@link PlanImpl}. The score is kept as a primitive value, which is only boxed when it is
+ * requested, the type is interned, and the attributes are only created when they are requested for the first time.
+ *
+ * @see CompactPopulationFactoryImpl
+ */
+/* deliberately package */ final class CompactPlanImpl implements Plan {
+
+	private final ArrayList<PlanElement> actsLegs = new ArrayList<>();
+
+	private double score;
+	private boolean hasScore = false;
+	private Person person = null;
+
+	private String type = null;
+
+	private Customizable customizableDelegate;
+
+	private Attributes attributes = null;
+
+	/* deliberately package */ CompactPlanImpl() {}
+
+	@Override
+	public Person getPerson() {
+		return this.person;
+	}
+
+	@Override
+	public void setPerson(final Person person) {
+		this.person = person;
+	}
+
+	@Override
+	public Double getScore() {
+		return this.hasScore ? this.score : null;
+	}
+
+	@Override
+	public void setScore(final Double score) {
+		this.hasScore = score != null;
+		this.score = this.hasScore ? score : 0.0;
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type == null ? null : type.intern();
+	}
+
+	@Override
+	public List<PlanElement> getPlanElements() {
+		return this.actsLegs;
+	}
+
+	@Override
+	public void addLeg(final Leg leg) {
+		this.actsLegs.add(leg);
+	}
+
+	@Override
+	public void addActivity(final Activity act) {
+		this.actsLegs.add(act);
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		if (this.attributes == null) {
+			this.attributes = new Attributes();
+		}
+		return this.attributes;
+	}
+
+	@Override
+	public boolean hasAttributes() {
+		return this.attributes != null && !this.attributes.isEmpty();
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		if (this.customizableDelegate == null) {
+			this.customizableDelegate = CustomizableUtils.createCustomizable();
+		}
+		return this.customizableDelegate.getCustomAttributes();
+	}
+
+	@Override
+	public String toString() {
+		String scoreString = "undefined";
+		if (this.hasScore) {
+			scoreString = Double.toString(this.score);
+		}
+		String personIdString = "undefined" ;
+		if ( this.getPerson() != null ) {
+			personIdString = this.getPerson().getId().toString() ;
+		}
+
+		return "[score=" + scoreString + "]" +
+				"[nof_acts_legs=" + getPlanElements().size() + "]" +
+				"[type=" + this.type + "]" +
+				"[personId=" + personIdString + "]" ;
+	}
+
+}
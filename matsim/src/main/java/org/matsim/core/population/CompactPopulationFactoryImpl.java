@@ -0,0 +1,112 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPopulationFactoryImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+
+/**
+ * Population factory which creates memory-lean persons, plans, activities and legs. They behave like the default
+ * implementations, but store coordinates and scores as primitive values, intern activity types and modes, and only
+ * create the attributes of an object when they are requested for the first time.
+ * <p></p>
+ * Note that plan elements created through the static helpers in {@link PopulationUtils} (e.g. by routing modules)
+ * are still the default implementations; the two kinds can be mixed freely within a plan.
+ */
+/* deliberately package */ final class CompactPopulationFactoryImpl extends PopulationFactoryImpl {
+
+	CompactPopulationFactoryImpl(RouteFactories routeFactory) {
+		super(routeFactory);
+	}
+
+	@Override
+	public Person createPerson(final Id<Person> id) {
+		return new CompactPersonImpl(id, this);
+	}
+
+	@Override
+	public Plan createPlan() {
+		return new CompactPlanImpl();
+	}
+
+	@Override
+	public Activity createActivityFromCoord(final String actType, final Coord coord) {
+		Activity act = new CompactActivityImpl(actType);
+		act.setCoord(coord);
+		return act;
+	}
+
+	@Override
+	public Activity createActivityFromLinkId(final String actType, final Id<Link> linkId) {
+		Activity act = new CompactActivityImpl(actType);
+		act.setLinkId(linkId);
+		return act;
+	}
+
+	@Override
+	public Activity createActivityFromActivityFacilityId(final String actType, final Id<ActivityFacility> activityFacilityId) {
+		Activity act = new CompactActivityImpl(actType);
+		act.setFacilityId(activityFacilityId);
+		return act;
+	}
+
+	@Override
+	public Leg createLeg(final String legMode) {
+		return new CompactLegImpl(legMode);
+	}
+
+	/**
+	 * Like {@link PopulationUtils#copyFromTo(Plan, Plan)}, but creates the copy from compact plan elements. The
+	 * person of the copy is not set.
+	 */
+	Plan createCopy(final Plan plan) {
+		Plan copy = createPlan();
+		copy.setScore(plan.getScore());
+		copy.setType(plan.getType());
+		for (PlanElement pe : plan.getPlanElements()) {
+			if (pe instanceof Activity) {
+				Activity act = (Activity) pe;
+				Activity newAct = createActivityFromLinkId(act.getType(), act.getLinkId());
+				PopulationUtils.copyFromTo(act, newAct);
+				copy.addActivity(newAct);
+			} else if (pe instanceof Leg) {
+				Leg leg = (Leg) pe;
+				Leg newLeg = createLeg(leg.getMode());
+				PopulationUtils.copyFromTo(leg, newLeg);
+				copy.addLeg(newLeg);
+			} else {
+				throw new IllegalArgumentException("unrecognized plan element type discovered");
+			}
+		}
+		AttributesUtils.copyAttributesFromTo(plan, copy);
+		return copy;
+	}
+
+}
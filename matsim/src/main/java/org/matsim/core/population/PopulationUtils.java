@@ -43,6 +43,7 @@ import org.matsim.core.population.io.PopulationReader;
 import org.matsim.core.population.io.PopulationWriter;
 import org.matsim.core.population.io.StreamingPopulationReader;
 import org.matsim.core.population.routes.CompressedNetworkRouteFactory;
+import org.matsim.core.population.routes.LinkIndexNetworkRouteFactory;
 import org.matsim.core.population.routes.LinkNetworkRouteFactory;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteFactories;
@@ -110,10 +111,17 @@ public final class PopulationUtils {
 			factory = new LinkNetworkRouteFactory();
 		} else if (PlansConfigGroup.NetworkRouteType.CompressedNetworkRoute.equals(networkRouteType) && network != null) {
 			factory = new CompressedNetworkRouteFactory(network);
+		} else if (PlansConfigGroup.NetworkRouteType.LinkIndexNetworkRoute.equals(networkRouteType)) {
+			factory = new LinkIndexNetworkRouteFactory(false);
+		} else if (PlansConfigGroup.NetworkRouteType.InternedLinkIndexNetworkRoute.equals(networkRouteType)) {
+			factory = new LinkIndexNetworkRouteFactory(true);
 		} else {
 			throw new IllegalArgumentException("The type \"" + networkRouteType + "\" is not a supported type for network routes.");
 		}
 		routeFactory.setRouteFactory(NetworkRoute.class, factory);
+		if (plansConfigGroup.isUsingCompactPlanElements()) {
+			return new PopulationImpl(new CompactPopulationFactoryImpl(routeFactory));
+		}
 		return new PopulationImpl(new PopulationFactoryImpl(routeFactory));
 	}
 
@@ -202,6 +210,11 @@ public final class PopulationUtils {
 			// attributes should be made unmodifiable
 			return delegate.getAttributes();
 		}
+
+		@Override
+		public boolean hasAttributes() {
+			return delegate.hasAttributes();
+		}
 	}
 
 	public static Activity unmodifiableActivity( Activity act ) {
@@ -293,6 +306,11 @@ public final class PopulationUtils {
 			// attributes should be made unmodifiable
 			return delegate.getAttributes();
 		}
+
+		@Override
+		public boolean hasAttributes() {
+			return delegate.hasAttributes();
+		}
 	}
 
 	/**
@@ -375,6 +393,11 @@ public final class PopulationUtils {
 			// TODO yyyy should be made unmodifiable.  kai, jan'17
 			return delegate.getAttributes() ;
 		}
+
+		@Override
+		public boolean hasAttributes() {
+			return delegate.hasAttributes();
+		}
 	}
 
 	/**
@@ -1001,6 +1024,8 @@ public final class PopulationUtils {
 	public static void changePersonId( Person person, Id<Person> id ) {
 		if ( person instanceof PersonImpl ) {
 			((PersonImpl) person).changeId(id);
+		} else if ( person instanceof CompactPersonImpl ) {
+			((CompactPersonImpl) person).changeId(id);
 		} else {
 			throw new RuntimeException("wrong implementation of interface Person") ;
 		}
@@ -0,0 +1,39 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BatchPlanAlgorithm.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.algorithms;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.population.Plan;
+
+/**
+ * A {@link PlanAlgorithm} which handles many plans together faster than one after the other.
+ * {@link org.matsim.core.replanning.modules.AbstractMultithreadedModule} hands all plans of a queue at once to such
+ * algorithms.
+ */
+public interface BatchPlanAlgorithm extends PlanAlgorithm {
+
+	/**
+	 * Handles the plans, in the same way as {@link #run(Plan)} would handle each of them.
+	 */
+	void run(List<Plan> plans);
+
+}
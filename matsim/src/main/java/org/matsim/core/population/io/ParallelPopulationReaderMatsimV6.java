@@ -0,0 +1,320 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.vehicles.Vehicle;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Parallel implementation of the PopulationReaderMatsimV6. The main thread only tokenizes the file and collects the
+ * xml data of the persons into chunks, which are interpreted by a pool of threads, i.e. the times, coordinates,
+ * routes and attributes of the persons are created in parallel. The persons are added to the population by the main
+ * thread in the order of the file, so the result does not depend on the number of threads.
+ * <p></p>
+ * The ids of the persons, and the link, facility and vehicle ids of their activities and routes are created by the main
+ * thread in the order of the file, so their indices, and thus the iteration order of e.g. {@link org.matsim.api.core.v01.IdMap}s,
+ * are the same as with the non-parallel reader. The ids in the descriptions of routes other than network routes, e.g.
+ * the transit stop and line ids of pt routes, are also created in order, by parsing these routes once more on the main
+ * thread. Ids in attributes converted by custom {@link AttributeConverter}s are created by the threads.
+ * <p></p>
+ * Only a limited number of chunks are processed at the same time, so the reader also works with population streaming.
+ */
+/* deliberately package */ final class ParallelPopulationReaderMatsimV6 extends PopulationReaderMatsimV6 {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV6.class);
+
+	private static final String POPULATION = "population";
+	private static final String PERSON = "person";
+	private static final String ACT = "activity";
+	private static final String LEG = "leg";
+	private static final String ROUTE = "route";
+	private static final String ATTR_PERSON_ID = "id";
+	private static final String ATTR_ACT_LINK = "link";
+	private static final String ATTR_ACT_FACILITY = "facility";
+	private static final String ATTR_LEG_MODE = "mode";
+	private static final String ATTR_ROUTE_STARTLINK = "start_link";
+	private static final String ATTR_ROUTE_ENDLINK = "end_link";
+	private static final String ATTR_ROUTE_VEHICLE = "vehicleRefId";
+
+	private static final int PERSONS_PER_CHUNK = 256;
+
+	private final Scenario scenario;
+	private final int numThreads;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+	private final Queue<Future<List<Person>>> pendingChunks = new ArrayDeque<>();
+
+	private ExecutorService executor = null;
+	private List<Tag> currentChunk = null;
+	private int personsInChunk = 0;
+	private boolean inPerson = false;
+	private String legMode = null;
+	private Attributes routeAtts = null;
+
+	ParallelPopulationReaderMatsimV6(
+			final String inputCRS,
+			final String targetCRS,
+			final Scenario scenario,
+			final int numThreads) {
+		super(inputCRS, targetCRS, scenario);
+		this.scenario = scenario;
+		this.numThreads = numThreads;
+	}
+
+	@Override
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		super.putAttributeConverter(clazz, converter);
+		this.attributeConverters.put(clazz, converter);
+	}
+
+	@Override
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		super.putAttributeConverters(converters);
+		this.attributeConverters.putAll(converters);
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (PERSON.equals(name)) {
+			if (this.executor == null) {
+				log.info("Start parallel population reading with " + this.numThreads + " threads...");
+				this.executor = Executors.newFixedThreadPool(this.numThreads, new DaemonThreadFactory());
+			}
+			if (this.currentChunk == null) {
+				this.currentChunk = new ArrayList<>();
+			}
+			this.inPerson = true;
+		}
+		if (this.inPerson) {
+			// copy the attributes, as the object is re-used by the parser
+			Attributes copy = new AttributesImpl(atts);
+			this.currentChunk.add(new Tag(name, copy, null));
+			createIds(name, copy);
+		} else {
+			super.startTag(name, atts, context);
+		}
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (this.inPerson) {
+			this.currentChunk.add(new Tag(name, null, content));
+			if (ROUTE.equals(name)) {
+				createRouteIds(content);
+			}
+			if (PERSON.equals(name)) {
+				this.inPerson = false;
+				this.personsInChunk++;
+				if (this.personsInChunk == PERSONS_PER_CHUNK) {
+					submitChunk();
+				}
+			}
+			return;
+		}
+		if (POPULATION.equals(name) && this.executor != null) {
+			if (this.currentChunk != null) {
+				submitChunk();
+			}
+			try {
+				while (!this.pendingChunks.isEmpty()) {
+					addNextChunk();
+				}
+			} finally {
+				this.executor.shutdown();
+				this.executor = null;
+			}
+			log.info("Finished parallel population reading...");
+		}
+		super.endTag(name, content, context);
+	}
+
+	/**
+	 * Creates the ids of a start tag, in the same order as {@link PopulationReaderMatsimV6} does. The ids of a route
+	 * are created at its end tag, when its description is known.
+	 */
+	private void createIds(final String name, final Attributes atts) {
+		switch (name) {
+			case PERSON:
+				Id.create(atts.getValue(ATTR_PERSON_ID), Person.class);
+				break;
+			case ACT:
+				if (atts.getValue(ATTR_ACT_LINK) != null) {
+					Id.create(atts.getValue(ATTR_ACT_LINK), Link.class);
+				}
+				if (atts.getValue(ATTR_ACT_FACILITY) != null) {
+					Id.create(atts.getValue(ATTR_ACT_FACILITY), ActivityFacility.class);
+				}
+				break;
+			case LEG:
+				this.legMode = atts.getValue(ATTR_LEG_MODE);
+				break;
+			case ROUTE:
+				this.routeAtts = atts;
+				break;
+			default:
+				break;
+		}
+	}
+
+	private void createRouteIds(final String content) {
+		String startLinkId = this.routeAtts.getValue(ATTR_ROUTE_STARTLINK);
+		String endLinkId = this.routeAtts.getValue(ATTR_ROUTE_ENDLINK);
+		RouteFactories factories = this.scenario.getPopulation().getFactory().getRouteFactories();
+		Class<? extends Route> routeClass = factories.getRouteClassForType(getRouteType(this.routeAtts, this.legMode));
+		Route route = factories.createRoute(routeClass,
+				startLinkId == null ? null : Id.create(startLinkId, Link.class),
+				endLinkId == null ? null : Id.create(endLinkId, Link.class));
+		if (route instanceof NetworkRoute) {
+			String vehicleRefId = this.routeAtts.getValue(ATTR_ROUTE_VEHICLE);
+			if (vehicleRefId != null && !vehicleRefId.equals("null")) {
+				Id.create(vehicleRefId, Vehicle.class);
+			}
+			// only the ids, the route itself is created by a thread
+			NetworkUtils.getLinkIds(content.trim());
+		} else {
+			route.setRouteDescription(content.trim());
+		}
+		this.routeAtts = null;
+	}
+
+	private void submitChunk() {
+		final List<Tag> chunk = this.currentChunk;
+		final CoordinateTransformation coordinateTransformation = getCoordinateTransformation();
+		this.pendingChunks.add(this.executor.submit(new Callable<List<Person>>() {
+			@Override
+			public List<Person> call() {
+				ChunkReader reader = new ChunkReader(scenario, coordinateTransformation);
+				reader.putAttributeConverters(attributeConverters);
+				return reader.read(chunk);
+			}
+		}));
+		this.currentChunk = null;
+		this.personsInChunk = 0;
+		// limit the number of chunks kept in memory
+		while (this.pendingChunks.size() > 4 * this.numThreads) {
+			addNextChunk();
+		}
+	}
+
+	private void addNextChunk() {
+		List<Person> persons;
+		try {
+			persons = this.pendingChunks.poll().get();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+		for (Person person : persons) {
+			addPerson(person);
+		}
+	}
+
+	/**
+	 * Interprets the xml data of a chunk of persons, and collects the persons instead of adding them to the
+	 * population.
+	 */
+	private static final class ChunkReader extends PopulationReaderMatsimV6 {
+
+		private final List<Person> persons = new ArrayList<>();
+
+		ChunkReader(final Scenario scenario, final CoordinateTransformation coordinateTransformation) {
+			super(null, null, scenario);
+			setCoordinateTransformation(coordinateTransformation);
+		}
+
+		List<Person> read(final List<Tag> chunk) {
+			Stack<String> context = new Stack<>();
+			context.push(POPULATION);
+			for (Tag tag : chunk) {
+				if (tag.atts != null) {
+					startTag(tag.name, tag.atts, context);
+					context.push(tag.name);
+				} else {
+					context.pop();
+					endTag(tag.name, tag.content, context);
+				}
+			}
+			return this.persons;
+		}
+
+		@Override
+		void addPerson(final Person person) {
+			this.persons.add(person);
+		}
+	}
+
+	/**
+	 * A start tag with its attributes, or an end tag with its content.
+	 */
+	private static final class Tag {
+		final String name;
+		final Attributes atts;
+		final String content;
+
+		Tag(final String name, final Attributes atts, final String content) {
+			this.name = name;
+			this.atts = atts;
+			this.content = content;
+		}
+	}
+
+	private static final class DaemonThreadFactory implements ThreadFactory {
+		private int count = 0;
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			Thread thread = new Thread(r, ParallelPopulationReaderMatsimV6.class.getSimpleName() + "_" + this.count++);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
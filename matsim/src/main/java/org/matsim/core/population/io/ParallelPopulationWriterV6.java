@@ -0,0 +1,194 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationWriterV6.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.core.utils.misc.Counter;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+/**
+ * Writes a population in the format of population_v6.dtd with several threads. The persons are split into blocks,
+ * which are formatted and compressed independently of each other, and written to the file in their original order.
+ * Every block is a complete gzip member or zstd frame, so the decompressed file is the same as the one written by
+ * {@link PopulationWriterHandlerImplV6} alone.
+ */
+/* deliberately package */ final class ParallelPopulationWriterV6 {
+
+	private static final int PERSONS_PER_BLOCK = 500;
+
+	private final CoordinateTransformation coordinateTransformation;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters;
+	private final int numberOfThreads;
+
+	ParallelPopulationWriterV6(
+			final CoordinateTransformation coordinateTransformation,
+			final Map<Class<?>, AttributeConverter<?>> attributeConverters,
+			final int numberOfThreads) {
+		this.coordinateTransformation = coordinateTransformation;
+		this.attributeConverters = attributeConverters;
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * @return <code>true</code> if the compression of the file can be split into blocks
+	 */
+	static boolean canWrite(final String filename) {
+		return IOUtils.isConcatenationSupported(IOUtils.getFileUrl(filename));
+	}
+
+	void write(final Population population, final Iterable<? extends Person> persons, final String filename, final Counter counter) {
+		final URL url = IOUtils.getFileUrl(filename);
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads);
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(new File(url.toURI())))) {
+			final PopulationWriterHandlerImplV6 handler = createHandler();
+			out.write(compress(url, format(writer -> {
+				handler.writeHeaderAndStartElement(writer);
+				handler.startPlans(population, writer);
+				handler.writeSeparator(writer);
+			})));
+
+			Queue<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+			Queue<Integer> pendingSizes = new ArrayDeque<>();
+			List<Person> block = new ArrayList<>(PERSONS_PER_BLOCK);
+			for (Person person : persons) {
+				block.add(person);
+				if (block.size() == PERSONS_PER_BLOCK) {
+					pendingBlocks.add(executor.submit(new BlockFormatter(url, block)));
+					pendingSizes.add(block.size());
+					block = new ArrayList<>(PERSONS_PER_BLOCK);
+					// limit the number of blocks kept in memory
+					while (pendingBlocks.size() > 2 * this.numberOfThreads) {
+						writeNextBlock(pendingBlocks, pendingSizes, out, counter);
+					}
+				}
+			}
+			if (!block.isEmpty()) {
+				pendingBlocks.add(executor.submit(new BlockFormatter(url, block)));
+				pendingSizes.add(block.size());
+			}
+			while (!pendingBlocks.isEmpty()) {
+				writeNextBlock(pendingBlocks, pendingSizes, out, counter);
+			}
+
+			out.write(compress(url, format(handler::endPlans)));
+		} catch (IOException | URISyntaxException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void writeNextBlock(Queue<Future<byte[]>> pendingBlocks, Queue<Integer> pendingSizes,
+			OutputStream out, Counter counter) throws IOException {
+		try {
+			out.write(pendingBlocks.poll().get());
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new UncheckedIOException(e.getCause());
+		}
+		int size = pendingSizes.poll();
+		for (int i = 0; i < size; i++) {
+			counter.incCounter();
+		}
+	}
+
+	private PopulationWriterHandlerImplV6 createHandler() {
+		PopulationWriterHandlerImplV6 handler = new PopulationWriterHandlerImplV6(this.coordinateTransformation);
+		handler.putAttributeConverters(this.attributeConverters);
+		return handler;
+	}
+
+	private static byte[] format(BlockContent content) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+			content.writeTo(writer);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Compresses the data as a whole, instead of compressing while formatting, as the handler flushes the writer
+	 * after every person, which would end a compressed block each time.
+	 */
+	private static byte[] compress(URL url, byte[] data) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4 + 64);
+		try (OutputStream out = IOUtils.getCompressedOutputStream(url, bytes)) {
+			out.write(data);
+		}
+		return bytes.toByteArray();
+	}
+
+	private interface BlockContent {
+		void writeTo(BufferedWriter writer) throws IOException;
+	}
+
+	private final class BlockFormatter implements Callable<byte[]> {
+
+		private final URL url;
+		private final List<Person> persons;
+
+		BlockFormatter(final URL url, final List<Person> persons) {
+			this.url = url;
+			this.persons = persons;
+		}
+
+		@Override
+		public byte[] call() throws IOException {
+			final PopulationWriterHandlerImplV6 handler = createHandler();
+			return compress(this.url, format(writer -> {
+				for (Person person : this.persons) {
+					handler.writePerson(person, writer);
+				}
+			}));
+		}
+	}
+
+}
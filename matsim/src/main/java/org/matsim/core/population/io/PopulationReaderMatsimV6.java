@@ -191,7 +191,7 @@ import java.util.Stack;
 	public void endTag(final String name, final String content, final Stack<String> context) {
 		switch ( name ) {
 			case PERSON:
-				this.plans.addPerson(this.currperson);
+				addPerson(this.currperson);
 				this.currperson = null;
 				break;
 			case ATTRIBUTE:
@@ -227,6 +227,21 @@ import java.util.Stack;
 		}
 	}
 
+	/**
+	 * Called for every person once it is read completely.
+	 */
+	void addPerson(final Person person) {
+		this.plans.addPerson(person);
+	}
+
+	CoordinateTransformation getCoordinateTransformation() {
+		return this.coordinateTransformation;
+	}
+
+	void setCoordinateTransformation(final CoordinateTransformation coordinateTransformation) {
+		this.coordinateTransformation = coordinateTransformation;
+	}
+
 	private void startPopulation(final Attributes atts) {
 		this.plans.setName(atts.getValue(ATTR_POPULATION_DESC));
 	}
@@ -391,18 +406,7 @@ import java.util.Stack;
 	private void startRoute(final Attributes atts) {
 		String startLinkId = atts.getValue(ATTR_ROUTE_STARTLINK);
 		String endLinkId = atts.getValue(ATTR_ROUTE_ENDLINK);
-		String routeType = atts.getValue("type");
-		
-		if (routeType == null) {
-			String legMode = this.currleg.getMode();
-			if ("pt".equals(legMode)) {
-				routeType = "experimentalPt1";
-			} else if ("car".equals(legMode)) {
-				routeType = "links";
-			} else {
-				routeType = "generic";
-			}
-		}
+		String routeType = getRouteType(atts, this.currleg.getMode());
 		
 		RouteFactories factory = this.scenario.getPopulation().getFactory().getRouteFactories();
 		Class<? extends Route> routeClass = factory.getRouteClassForType(routeType);
@@ -422,6 +426,24 @@ import java.util.Stack;
 		}
 	}
 
+	/**
+	 * @return the type of the route with the given attributes; for routes without type, it is guessed from the mode of
+	 * the leg
+	 */
+	static String getRouteType(final Attributes atts, final String legMode) {
+		String routeType = atts.getValue("type");
+		if (routeType == null) {
+			if ("pt".equals(legMode)) {
+				routeType = "experimentalPt1";
+			} else if ("car".equals(legMode)) {
+				routeType = "links";
+			} else {
+				routeType = "generic";
+			}
+		}
+		return routeType;
+	}
+
 	private void endRoute(final String content) {
 		this.routeDescription = content;
 
@@ -0,0 +1,332 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationSnapshotReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.utils.misc.Counter;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributable;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Reads a population snapshot written by {@link PopulationSnapshotWriter} into the population of a scenario.
+ * <p></p>
+ * Every block of the file is memory-mapped and decoded directly from the mapped buffer, so reading needs neither
+ * xml parsing nor decompression. The file must therefore be a local file. The persons, plans and routes are created
+ * with the factories of the population, so e.g. the configured network route implementation is used.
+ */
+public final class PopulationSnapshotReader {
+
+	private static final Logger log = Logger.getLogger(PopulationSnapshotReader.class);
+
+	private final Population population;
+	private final PopulationFactory factory;
+	private final RouteFactories routeFactories;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+
+	private ByteBuffer buffer;
+	private String[] strings;
+	private Id<Link>[] linkIds;
+	private byte[] stringBytes = new byte[256];
+
+	public PopulationSnapshotReader(final Scenario scenario) {
+		this.population = scenario.getPopulation();
+		this.factory = this.population.getFactory();
+		this.routeFactories = this.factory.getRouteFactories();
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	/**
+	 * @return <code>true</code> if the given URL points to a local file which starts like a population snapshot
+	 */
+	public static boolean isSnapshotFile(final URL url) {
+		if (!"file".equals(url.getProtocol())) {
+			return false;
+		}
+		File file = toFile(url);
+		if (!file.isFile() || file.length() < 4) {
+			return false;
+		}
+		try (DataInputStream stream = new DataInputStream(new FileInputStream(file))) {
+			return stream.readInt() == PopulationSnapshotWriter.MAGIC;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void readURL(final URL url) {
+		readFile(toFile(url).getPath());
+	}
+
+	private static File toFile(final URL url) {
+		if (!"file".equals(url.getProtocol())) {
+			throw new IllegalArgumentException("population snapshots can only be read from local files, as they are memory-mapped: " + url);
+		}
+		try {
+			return new File(url.toURI());
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			// e.g. relative urls like file:../plans.xml, which are not hierarchical
+			return new File(url.getPath());
+		}
+	}
+
+	public void readFile(final String filename) {
+		log.info("reading population snapshot from " + filename);
+		Counter counter = new Counter("[" + getClass().getSimpleName() + "] read person # ");
+		Path path = Paths.get(filename);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(8);
+			readFully(channel, header, 0);
+			if (header.getInt(0) != PopulationSnapshotWriter.MAGIC) {
+				throw new IllegalArgumentException(filename + " is not a population snapshot");
+			}
+			if (header.getInt(4) != PopulationSnapshotWriter.VERSION) {
+				throw new IllegalArgumentException(filename + " is a population snapshot of version " + header.getInt(4)
+						+ ", but only version " + PopulationSnapshotWriter.VERSION + " is supported");
+			}
+			long position = 8;
+			long size = channel.size();
+			boolean first = true;
+			ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+			while (position < size) {
+				lengthBuffer.clear();
+				readFully(channel, lengthBuffer, position);
+				int length = lengthBuffer.getInt(0);
+				this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, position + 4, length);
+				readStrings();
+				if (first) {
+					this.population.setName(readString());
+					readAttributes(this.population);
+					first = false;
+				} else {
+					int personCount = this.buffer.getInt();
+					for (int i = 0; i < personCount; i++) {
+						this.population.addPerson(readPerson());
+						counter.incCounter();
+					}
+				}
+				position += 4 + length;
+			}
+			counter.printCounter();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.buffer = null;
+			this.strings = null;
+			this.linkIds = null;
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+		while (target.hasRemaining()) {
+			if (channel.read(target, position + target.position()) < 0) {
+				throw new IOException("unexpected end of population snapshot");
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readStrings() {
+		int count = this.buffer.getInt();
+		this.strings = new String[count];
+		this.linkIds = new Id[count];
+		for (int i = 0; i < count; i++) {
+			this.strings[i] = readString();
+		}
+	}
+
+	private String readString() {
+		int length = this.buffer.getInt();
+		if (length == PopulationSnapshotWriter.NULL) {
+			return null;
+		}
+		if (length > this.stringBytes.length) {
+			this.stringBytes = new byte[Math.max(length, 2 * this.stringBytes.length)];
+		}
+		this.buffer.get(this.stringBytes, 0, length);
+		return new String(this.stringBytes, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private String readRef() {
+		int ref = this.buffer.getInt();
+		return ref == PopulationSnapshotWriter.NULL ? null : this.strings[ref];
+	}
+
+	private Id<Link> readLinkId() {
+		int ref = this.buffer.getInt();
+		if (ref == PopulationSnapshotWriter.NULL) {
+			return null;
+		}
+		Id<Link> linkId = this.linkIds[ref];
+		if (linkId == null) {
+			linkId = Id.create(this.strings[ref], Link.class);
+			this.linkIds[ref] = linkId;
+		}
+		return linkId;
+	}
+
+	private Person readPerson() {
+		Person person = this.factory.createPerson(Id.create(readString(), Person.class));
+		readAttributes(person);
+		int planCount = this.buffer.getInt();
+		for (int i = 0; i < planCount; i++) {
+			byte flags = this.buffer.get();
+			Plan plan = this.factory.createPlan();
+			if ((flags & PopulationSnapshotWriter.PLAN_SCORE) != 0) {
+				plan.setScore(this.buffer.getDouble());
+			}
+			if ((flags & PopulationSnapshotWriter.PLAN_TYPE) != 0) {
+				plan.setType(readRef());
+			}
+			readAttributes(plan);
+			int elementCount = this.buffer.getInt();
+			for (int j = 0; j < elementCount; j++) {
+				if (this.buffer.get() == PopulationSnapshotWriter.ACTIVITY) {
+					plan.addActivity(readActivity());
+				} else {
+					plan.addLeg(readLeg());
+				}
+			}
+			person.addPlan(plan);
+			if ((flags & PopulationSnapshotWriter.PLAN_SELECTED) != 0) {
+				person.setSelectedPlan(plan);
+			}
+		}
+		return person;
+	}
+
+	private Activity readActivity() {
+		String type = readRef();
+		byte flags = this.buffer.get();
+		Coord coord = null;
+		if ((flags & PopulationSnapshotWriter.ACTIVITY_COORD) != 0) {
+			double x = this.buffer.getDouble();
+			double y = this.buffer.getDouble();
+			coord = (flags & PopulationSnapshotWriter.ACTIVITY_Z) != 0 ? new Coord(x, y, this.buffer.getDouble()) : new Coord(x, y);
+		}
+		Activity activity = this.factory.createActivityFromLinkId(type, readLinkId());
+		if (coord != null) {
+			activity.setCoord(coord);
+		}
+		String facilityId = readRef();
+		if (facilityId != null) {
+			activity.setFacilityId(Id.create(facilityId, ActivityFacility.class));
+		}
+		activity.setStartTime(this.buffer.getDouble());
+		activity.setEndTime(this.buffer.getDouble());
+		activity.setMaximumDuration(this.buffer.getDouble());
+		readAttributes(activity);
+		return activity;
+	}
+
+	private Leg readLeg() {
+		Leg leg = this.factory.createLeg(readRef());
+		leg.setDepartureTime(this.buffer.getDouble());
+		leg.setTravelTime(this.buffer.getDouble());
+		readAttributes(leg);
+		byte routeKind = this.buffer.get();
+		if (routeKind == PopulationSnapshotWriter.NO_ROUTE) {
+			return leg;
+		}
+		Class<? extends Route> routeClass = this.routeFactories.getRouteClassForType(readRef());
+		Id<Link> startLinkId = readLinkId();
+		Id<Link> endLinkId = readLinkId();
+		Route route = this.routeFactories.createRoute(routeClass, startLinkId, endLinkId);
+		double travelTime = this.buffer.getDouble();
+		double distance = this.buffer.getDouble();
+		if (routeKind == PopulationSnapshotWriter.NETWORK_ROUTE) {
+			String vehicleId = readRef();
+			int linkCount = this.buffer.getInt();
+			List<Id<Link>> linkIds = new ArrayList<>(linkCount);
+			for (int i = 0; i < linkCount; i++) {
+				linkIds.add(readLinkId());
+			}
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			networkRoute.setLinkIds(startLinkId, linkIds, endLinkId);
+			if (vehicleId != null) {
+				networkRoute.setVehicleId(Id.create(vehicleId, Vehicle.class));
+			}
+		} else {
+			String description = readString();
+			if (description != null) {
+				route.setRouteDescription(description);
+			}
+		}
+		route.setTravelTime(travelTime);
+		route.setDistance(distance);
+		leg.setRoute(route);
+		return leg;
+	}
+
+	private void readAttributes(Attributable attributable) {
+		int count = this.buffer.getInt();
+		if (count == 0) {
+			// do not request the attributes, some implementations create them lazily
+			return;
+		}
+		Attributes attributes = attributable.getAttributes();
+		for (int i = 0; i < count; i++) {
+			String name = readRef();
+			String className = readRef();
+			Object value = this.attributesConverter.convert(className, readString());
+			if (value != null) {
+				attributes.putAttribute(name, value);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,325 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationSnapshotWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.misc.Counter;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributable;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Writes a population into an uncompressed binary snapshot, which {@link PopulationSnapshotReader} can read much
+ * faster than the xml formats.
+ * <p></p>
+ * The file consists of blocks of a few megabytes, which can be memory-mapped and decoded independently. Every block
+ * starts with a table of the strings used in it (ids, activity types, modes, ...), which are then referenced by
+ * their position in the table, so e.g. network routes are stored as arrays of indices. The first block contains the
+ * name and attributes of the population, every further block a number of persons. Attribute values are converted
+ * to strings with the same {@link AttributeConverter}s as in the xml formats.
+ * <p></p>
+ * Coordinates are written as they are, i.e. in the internal coordinate system of the run.
+ * <p></p>
+ * The format is meant to restart runs, not to exchange populations: it may change between versions of MATSim.
+ */
+public final class PopulationSnapshotWriter {
+
+	private static final Logger log = Logger.getLogger(PopulationSnapshotWriter.class);
+
+	static final int MAGIC = 0x4D50534E; // MPSN
+	static final int VERSION = 1;
+
+	static final int NULL = -1;
+
+	static final byte PLAN_SELECTED = 1;
+	static final byte PLAN_SCORE = 2;
+	static final byte PLAN_TYPE = 4;
+
+	static final byte ACTIVITY = 0;
+	static final byte LEG = 1;
+
+	static final byte ACTIVITY_COORD = 1;
+	static final byte ACTIVITY_Z = 2;
+
+	static final byte NO_ROUTE = 0;
+	static final byte NETWORK_ROUTE = 1;
+	static final byte OTHER_ROUTE = 2;
+
+	private static final int BLOCK_SIZE = 4 * 1024 * 1024;
+
+	private final Population population;
+	private final int blockSize;
+	private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter();
+
+	public PopulationSnapshotWriter(final Population population) {
+		this(population, BLOCK_SIZE);
+	}
+
+	/**
+	 * @param blockSize the number of bytes after which a block is completed; blocks end after a whole person, so they
+	 * are usually a bit larger
+	 */
+	PopulationSnapshotWriter(final Population population, final int blockSize) {
+		this.population = population;
+		this.blockSize = blockSize;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.attributesConverter.putAttributeConverters(converters);
+	}
+
+	public void write(final String filename) {
+		log.info("writing population snapshot to " + filename);
+		Counter counter = new Counter("[" + getClass().getSimpleName() + "] dumped person # ");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+
+			Block block = new Block(this.blockSize);
+			block.writeString(this.population.getName());
+			writeAttributes(block, this.population);
+			block.flush(out);
+
+			for (Person person : this.population.getPersons().values()) {
+				writePerson(block, person);
+				block.personCount++;
+				counter.incCounter();
+				if (block.body.size() >= this.blockSize) {
+					block.flush(out);
+				}
+			}
+			if (block.personCount > 0) {
+				block.flush(out);
+			}
+			counter.printCounter();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void writePerson(Block block, Person person) throws IOException {
+		DataOutputStream out = block.out;
+		block.writeString(person.getId().toString());
+		writeAttributes(block, person);
+		out.writeInt(person.getPlans().size());
+		for (Plan plan : person.getPlans()) {
+			byte flags = 0;
+			if (plan == person.getSelectedPlan()) {
+				flags |= PLAN_SELECTED;
+			}
+			if (plan.getScore() != null) {
+				flags |= PLAN_SCORE;
+			}
+			if (plan.getType() != null) {
+				flags |= PLAN_TYPE;
+			}
+			out.writeByte(flags);
+			if (plan.getScore() != null) {
+				out.writeDouble(plan.getScore());
+			}
+			if (plan.getType() != null) {
+				out.writeInt(block.ref(plan.getType()));
+			}
+			writeAttributes(block, plan);
+			out.writeInt(plan.getPlanElements().size());
+			for (PlanElement element : plan.getPlanElements()) {
+				if (element instanceof Activity) {
+					writeActivity(block, (Activity) element);
+				} else {
+					writeLeg(block, (Leg) element);
+				}
+			}
+		}
+	}
+
+	private void writeActivity(Block block, Activity activity) throws IOException {
+		DataOutputStream out = block.out;
+		out.writeByte(ACTIVITY);
+		out.writeInt(block.ref(activity.getType()));
+		Coord coord = activity.getCoord();
+		out.writeByte(coord == null ? 0 : coord.hasZ() ? ACTIVITY_COORD | ACTIVITY_Z : ACTIVITY_COORD);
+		if (coord != null) {
+			out.writeDouble(coord.getX());
+			out.writeDouble(coord.getY());
+			if (coord.hasZ()) {
+				out.writeDouble(coord.getZ());
+			}
+		}
+		out.writeInt(block.ref(activity.getLinkId()));
+		out.writeInt(block.ref(activity.getFacilityId()));
+		out.writeDouble(activity.getStartTime());
+		out.writeDouble(activity.getEndTime());
+		out.writeDouble(activity.getMaximumDuration());
+		writeAttributes(block, activity);
+	}
+
+	private void writeLeg(Block block, Leg leg) throws IOException {
+		DataOutputStream out = block.out;
+		out.writeByte(LEG);
+		out.writeInt(block.ref(leg.getMode()));
+		out.writeDouble(leg.getDepartureTime());
+		out.writeDouble(leg.getTravelTime());
+		writeAttributes(block, leg);
+		Route route = leg.getRoute();
+		if (route == null) {
+			out.writeByte(NO_ROUTE);
+			return;
+		}
+		out.writeByte(route instanceof NetworkRoute ? NETWORK_ROUTE : OTHER_ROUTE);
+		out.writeInt(block.ref(route.getRouteType()));
+		out.writeInt(block.ref(route.getStartLinkId()));
+		out.writeInt(block.ref(route.getEndLinkId()));
+		out.writeDouble(route.getTravelTime());
+		out.writeDouble(route.getDistance());
+		if (route instanceof NetworkRoute) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			out.writeInt(block.ref(networkRoute.getVehicleId()));
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			out.writeInt(linkIds.size());
+			for (Id<Link> linkId : linkIds) {
+				out.writeInt(block.ref(linkId));
+			}
+		} else {
+			block.writeString(route.getRouteDescription());
+		}
+	}
+
+	private void writeAttributes(Block block, Attributable attributable) throws IOException {
+		DataOutputStream out = block.out;
+		if (!attributable.hasAttributes()) {
+			out.writeInt(0);
+			return;
+		}
+		Attributes attributes = attributable.getAttributes();
+		List<Map.Entry<String, Object>> entries = new ArrayList<>();
+		List<String> values = new ArrayList<>();
+		for (Map.Entry<String, Object> entry : attributes.getAsMap().entrySet()) {
+			String value = this.attributesConverter.convertToString(entry.getValue());
+			if (value != null) {
+				entries.add(entry);
+				values.add(value);
+			}
+		}
+		out.writeInt(entries.size());
+		for (int i = 0; i < entries.size(); i++) {
+			out.writeInt(block.ref(entries.get(i).getKey()));
+			out.writeInt(block.ref(entries.get(i).getValue().getClass().getName()));
+			block.writeString(values.get(i));
+		}
+	}
+
+	/**
+	 * Collects the content of one block and the strings it references.
+	 */
+	private static final class Block {
+
+		private final ByteArrayOutputStream body;
+		private final DataOutputStream out;
+		private final Map<String, Integer> refs = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+		/** the number of persons in the block, NULL in the first block */
+		private int personCount = NULL;
+
+		Block(int blockSize) {
+			this.body = new ByteArrayOutputStream(blockSize + blockSize / 4);
+			this.out = new DataOutputStream(this.body);
+		}
+
+		int ref(Object value) {
+			if (value == null) {
+				return NULL;
+			}
+			String string = value.toString();
+			Integer ref = this.refs.get(string);
+			if (ref == null) {
+				ref = this.strings.size();
+				this.refs.put(string, ref);
+				this.strings.add(string);
+			}
+			return ref;
+		}
+
+		void writeString(String string) throws IOException {
+			writeString(this.out, string);
+		}
+
+		/**
+		 * Writes the length of the block, the string table, the number of persons (except in the first block) and
+		 * the content, and clears the block.
+		 */
+		void flush(DataOutputStream file) throws IOException {
+			ByteArrayOutputStream header = new ByteArrayOutputStream();
+			DataOutputStream headerOut = new DataOutputStream(header);
+			headerOut.writeInt(this.strings.size());
+			for (String string : this.strings) {
+				writeString(headerOut, string);
+			}
+			if (this.personCount != NULL) {
+				headerOut.writeInt(this.personCount);
+			}
+			headerOut.flush();
+			this.out.flush();
+			file.writeInt(header.size() + this.body.size());
+			header.writeTo(file);
+			this.body.writeTo(file);
+			this.body.reset();
+			this.refs.clear();
+			this.strings.clear();
+			// all further blocks contain persons
+			this.personCount = 0;
+		}
+
+		private static void writeString(DataOutputStream out, String string) throws IOException {
+			if (string == null) {
+				out.writeInt(NULL);
+				return;
+			}
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+}
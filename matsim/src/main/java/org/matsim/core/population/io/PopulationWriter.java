@@ -22,7 +22,9 @@ package org.matsim.core.population.io;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
@@ -45,6 +47,7 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 
 	private final CoordinateTransformation coordinateTransformation;
 	private PopulationWriterHandler handler = null;
+	private int numberOfThreads = 1;
 	private final Population population;
 	private final Network network;
 	private Counter counter = new Counter("[" + this.getClass().getSimpleName() + "] dumped person # ");
@@ -128,11 +131,32 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 		this.converters.put( key, converter );
 	}
 
+	/**
+	 * Sets the number of threads used to format and compress the persons. More than one thread is only used for the
+	 * population_v6 format, when writing uncompressed, gzip or zstd files. The content of the file does not depend on
+	 * the number of threads, but gzip and zstd files then consist of several concatenated parts.
+	 */
+	public void setNumberOfThreads( final int numberOfThreads ) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
 	/**
 	 * Writes all plans to the file.
 	 */
 	@Override
 	public final void write(final String filename) {
+		if (this.numberOfThreads > 1 && this.handler instanceof PopulationWriterHandlerImplV6
+				&& this.useCompression == null && ParallelPopulationWriterV6.canWrite(filename)) {
+			try {
+				new ParallelPopulationWriterV6(this.coordinateTransformation, this.converters, this.numberOfThreads)
+						.write(this.population, getPersonsToWrite(), filename, this.counter);
+				log.info("Population written to: " + filename);
+			} finally {
+				counter.printCounter();
+				counter.reset();
+			}
+			return;
+		}
 		try {
 			this.handler.putAttributeConverters(converters);
 			this.openFile(filename);
@@ -174,6 +198,17 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 	}
 
 
+	private List<Person> getPersonsToWrite() {
+		List<Person> persons = new ArrayList<>();
+		for (Person p : PopulationUtils.getSortedPersons(this.population).values()) {
+			if ((this.write_person_fraction < 1.0) && (MatsimRandom.getRandom().nextDouble() >= this.write_person_fraction)) {
+				continue;
+			}
+			persons.add(p);
+		}
+		return persons;
+	}
+
 	private  final void writePersons() {
 		for (Person p : PopulationUtils.getSortedPersons(this.population).values()) {
 			writePerson(p);
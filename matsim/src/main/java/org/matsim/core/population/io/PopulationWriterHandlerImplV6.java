@@ -127,7 +127,9 @@ import static org.matsim.core.utils.io.XmlUtils.encodeContent;
 		out.write(encodeAttributeValue(person.getId().toString()));
 		out.write("\"");
 		out.write(">\n");
-		this.attributesWriter.writeAttributes( "\t\t" , out , person.getAttributes() );
+		if (person.hasAttributes()) {
+			this.attributesWriter.writeAttributes( "\t\t" , out , person.getAttributes() );
+		}
 	}
 
 	private static void endPerson(final BufferedWriter out) throws IOException {
@@ -152,7 +154,9 @@ import static org.matsim.core.utils.io.XmlUtils.encodeContent;
 		}
 		out.write(">\n");
 		
-		this.attributesWriter.writeAttributes( "\t\t\t\t" , out , plan.getAttributes() );
+		if (plan.hasAttributes()) {
+			this.attributesWriter.writeAttributes( "\t\t\t\t" , out , plan.getAttributes() );
+		}
 
 	}
 
@@ -205,7 +209,9 @@ import static org.matsim.core.utils.io.XmlUtils.encodeContent;
 		}
 		out.write(" >\n");
 
-		this.attributesWriter.writeAttributes( "\t\t\t\t" , out , act.getAttributes() );
+		if (act.hasAttributes()) {
+			this.attributesWriter.writeAttributes( "\t\t\t\t" , out , act.getAttributes() );
+		}
 
 		out.write("\t\t\t</activity>\n");
 	}
@@ -236,7 +242,9 @@ import static org.matsim.core.utils.io.XmlUtils.encodeContent;
 
 		out.write(">\n");
 
-		this.attributesWriter.writeAttributes( "\t\t\t\t" , out , leg.getAttributes() );
+		if (leg.hasAttributes()) {
+			this.attributesWriter.writeAttributes( "\t\t\t\t" , out , leg.getAttributes() );
+		}
 	}
 
 	private static void endLeg(final BufferedWriter out) throws IOException {
@@ -30,7 +30,7 @@ import org.matsim.core.network.algorithms.SubsequentLinksAnalyzer;
 
 public final class CompressedNetworkRouteFactory implements RouteFactory {
 
-	private Map<Id<Link>, Id<Link>> subsequentLinks = null;
+	private volatile Map<Id<Link>, Id<Link>> subsequentLinks = null;
 	private final Network network;
 	/**
 	 * Uses {@link SubsequentLinksAnalyzer} to get the map of subsequent links,
@@ -47,12 +47,26 @@ public final class CompressedNetworkRouteFactory implements RouteFactory {
 		if ( network==null ) {
 			throw new RuntimeException( "need to set Network in Population in order to be able to create compressed routes") ;
 		}
-		if (this.subsequentLinks == null) {
-			this.subsequentLinks = new SubsequentLinksAnalyzer(this.network).getSubsequentLinks();
-		}
-		return new CompressedNetworkRouteImpl(startLinkId, endLinkId, this.network, this.subsequentLinks);
+		return new CompressedNetworkRouteImpl(startLinkId, endLinkId, this.network, getSubsequentLinks());
 	}
 	
+	/**
+	 * Routes may be created concurrently, e.g. by the parallel population readers, so the map is only analyzed once.
+	 */
+	private Map<Id<Link>, Id<Link>> getSubsequentLinks() {
+		Map<Id<Link>, Id<Link>> links = this.subsequentLinks;
+		if (links == null) {
+			synchronized (this) {
+				links = this.subsequentLinks;
+				if (links == null) {
+					links = new SubsequentLinksAnalyzer(this.network).getSubsequentLinks();
+					this.subsequentLinks = links;
+				}
+			}
+		}
+		return links;
+	}
+
 	@Override
 	public String getCreatedRouteType() {
 		return "links";
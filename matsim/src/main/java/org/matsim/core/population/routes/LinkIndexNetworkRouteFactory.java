@@ -0,0 +1,55 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkIndexNetworkRouteFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Route;
+
+/**
+ * Creates network routes which store their links as arrays of id indices. If interning is enabled, all routes created
+ * by the same factory share identical sequences of links.
+ *
+ * @see LinkIndexNetworkRouteImpl
+ */
+public final class LinkIndexNetworkRouteFactory implements RouteFactory {
+
+	private final LinkIndexNetworkRouteImpl.LinkSequenceDictionary dictionary;
+
+	public LinkIndexNetworkRouteFactory() {
+		this(false);
+	}
+
+	public LinkIndexNetworkRouteFactory(final boolean intern) {
+		this.dictionary = intern ? new LinkIndexNetworkRouteImpl.LinkSequenceDictionary() : null;
+	}
+
+	@Override
+	public Route createRoute(final Id<Link> startLinkId, final Id<Link> endLinkId) {
+		return new LinkIndexNetworkRouteImpl(startLinkId, endLinkId, this.dictionary);
+	}
+
+	@Override
+	public String getCreatedRouteType() {
+		return LinkNetworkRouteImpl.ROUTE_TYPE;
+	}
+
+}
@@ -0,0 +1,293 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkIndexNetworkRouteImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.WeakHashMap;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Implementation of {@link NetworkRoute} which stores the links of the route as an array of their
+ * {@linkplain Id#index() id indices}, instead of a list of id objects. Each link takes four bytes, the same as a
+ * compressed object reference, so the saving compared to {@link LinkNetworkRouteImpl} is not per link: the indices are
+ * primitives, which the garbage collector does not need to trace, and there is no ArrayList with its unmodifiable view
+ * per route. The links can still be accessed directly, unlike in {@link CompressedNetworkRouteImpl}, but iterating them
+ * is slower than with {@link LinkNetworkRouteImpl}, as every id is looked up by its index.
+ * <p></p>
+ * The array of a route is never modified, but replaced when the links are set. This allows to share the arrays between
+ * routes: if the route has a {@link LinkSequenceDictionary}, identical sequences of links are stored only once for all
+ * routes using that dictionary, e.g. for the many plans of many agents which use the same route.
+ */
+final class LinkIndexNetworkRouteImpl extends AbstractRoute implements NetworkRoute {
+
+	private final LinkSequenceDictionary dictionary;
+	private LinkSequence links = LinkSequence.EMPTY;
+	private double travelCost = Double.NaN;
+	private Id<Vehicle> vehicleId = null;
+
+	LinkIndexNetworkRouteImpl(final Id<Link> startLinkId, final Id<Link> endLinkId, final LinkSequenceDictionary dictionary) {
+		super(startLinkId, endLinkId);
+		this.dictionary = dictionary;
+	}
+
+	@Override
+	public LinkIndexNetworkRouteImpl clone() {
+		// the link sequence is immutable, so it can be shared with the clone
+		return (LinkIndexNetworkRouteImpl) super.clone();
+	}
+
+	@Override
+	public List<Id<Link>> getLinkIds() {
+		return this.links;
+	}
+
+	@Override
+	public NetworkRoute getSubRoute(final Id<Link> fromLinkId, final Id<Link> toLinkId) {
+		int[] indices = this.links.indices;
+		int fromIndex = -1;
+		int toIndex = -1;
+
+		if (fromLinkId.equals(this.getStartLinkId())) {
+			fromIndex = 0;
+		} else {
+			for (int i = 0; (i < indices.length) && (fromIndex < 0); i++) {
+				if (fromLinkId.index() == indices[i]) {
+					fromIndex = i + 1;
+				}
+			}
+			if (fromIndex < 0 && fromLinkId.equals(this.getEndLinkId())) {
+				fromIndex = indices.length;
+			}
+			if (fromIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because fromLinkId is not part of the route.");
+			}
+		}
+
+		if (fromLinkId.equals(toLinkId)) {
+			toIndex = fromIndex - 1;
+		} else {
+			for (int i = fromIndex; (i < indices.length) && (toIndex < 0); i++) {
+				if (fromLinkId.index() == indices[i]) {
+					fromIndex = i + 1; // in case of a loop, cut it short
+				}
+				if (toLinkId.index() == indices[i]) {
+					toIndex = i;
+				}
+			}
+			if (toIndex < 0 && toLinkId.equals(this.getEndLinkId())) {
+				toIndex = indices.length;
+			}
+			if (toIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because toLinkId is not part of the route.");
+			}
+		}
+		LinkIndexNetworkRouteImpl subRoute = new LinkIndexNetworkRouteImpl(fromLinkId, toLinkId, this.dictionary);
+		if (toIndex > fromIndex) {
+			subRoute.links = intern(new LinkSequence(Arrays.copyOfRange(indices, fromIndex, toIndex)));
+		}
+		return subRoute;
+	}
+
+	@Override
+	public double getTravelCost() {
+		return this.travelCost;
+	}
+
+	@Override
+	public void setTravelCost(final double travelCost) {
+		this.travelCost = travelCost;
+	}
+
+	@Override
+	public void setLinkIds(final Id<Link> startLinkId, final List<Id<Link>> srcRoute, final Id<Link> endLinkId) {
+		setStartLinkId(startLinkId);
+		setEndLinkId(endLinkId);
+		if (srcRoute == null || srcRoute.isEmpty()) {
+			this.links = LinkSequence.EMPTY;
+			return;
+		}
+		if (srcRoute instanceof LinkSequence) {
+			this.links = intern((LinkSequence) srcRoute);
+			return;
+		}
+		int[] indices = new int[srcRoute.size()];
+		int i = 0;
+		for (Id<Link> linkId : srcRoute) {
+			indices[i++] = linkId.index();
+		}
+		this.links = intern(new LinkSequence(indices));
+	}
+
+	private LinkSequence intern(final LinkSequence sequence) {
+		return this.dictionary == null ? sequence : this.dictionary.intern(sequence);
+	}
+
+	@Override
+	public Id<Vehicle> getVehicleId() {
+		return this.vehicleId;
+	}
+
+	@Override
+	public void setVehicleId(final Id<Vehicle> vehicleId) {
+		this.vehicleId = vehicleId;
+	}
+
+	@Override
+	public String getRouteDescription() {
+		StringBuilder desc = new StringBuilder(100);
+		desc.append(this.getStartLinkId().toString());
+		for (Id<Link> linkId : this.links) {
+			desc.append(" ");
+			desc.append(linkId.toString());
+		}
+		// If the start links equals the end link additionally check if its is a round trip.
+		if (!this.getEndLinkId().equals(this.getStartLinkId()) || this.links.size() > 0) {
+			desc.append(" ");
+			desc.append(this.getEndLinkId().toString());
+		}
+		return desc.toString();
+	}
+
+	@Override
+	public void setRouteDescription(final String routeDescription) {
+		List<Id<Link>> linkIds = NetworkUtils.getLinkIds(routeDescription);
+		Id<Link> startLinkId = getStartLinkId();
+		Id<Link> endLinkId = getEndLinkId();
+		if (linkIds.size() > 0) {
+			startLinkId = linkIds.remove(0);
+			setStartLinkId(startLinkId);
+		}
+		if (linkIds.size() > 0) {
+			endLinkId = linkIds.remove(linkIds.size() - 1);
+			setEndLinkId(endLinkId);
+		}
+		this.setLinkIds(startLinkId, linkIds, endLinkId);
+	}
+
+	@Override
+	public String getRouteType() {
+		return LinkNetworkRouteImpl.ROUTE_TYPE;
+	}
+
+	@Override
+	public String toString() {
+		String str = super.toString();
+		str += " linkIds=" + this.getLinkIds() ;
+		str += " travelCost=" + this.getTravelCost() ;
+		return str ;
+	}
+
+	/**
+	 * An immutable sequence of links, stored as id indices, which is also a read-only list of the link ids. The hash code
+	 * is the one specified by {@link List#hashCode()}, so that the sequence can be mixed with other lists of link ids in
+	 * hash based collections. As it needs to look up every id, it is only computed once.
+	 */
+	static final class LinkSequence extends AbstractList<Id<Link>> implements RandomAccess {
+
+		static final LinkSequence EMPTY = new LinkSequence(new int[0]);
+
+		private final int[] indices;
+		private final int hash;
+
+		LinkSequence(final int[] indices) {
+			this.indices = indices;
+			int hash = 1;
+			for (int index : indices) {
+				hash = 31 * hash + Id.get(index, Link.class).hashCode();
+			}
+			this.hash = hash;
+		}
+
+		@Override
+		public Id<Link> get(final int index) {
+			return Id.get(this.indices[index], Link.class);
+		}
+
+		@Override
+		public int size() {
+			return this.indices.length;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (obj instanceof LinkSequence) {
+				LinkSequence other = (LinkSequence) obj;
+				return this.hash == other.hash && Arrays.equals(this.indices, other.indices);
+			}
+			return super.equals(obj);
+		}
+	}
+
+	/**
+	 * Keeps one instance of every sequence of links in use, so that routes with the same links share their sequence.
+	 * Sequences no longer used by any route are removed by the garbage collector. The dictionary is split into segments
+	 * which are locked independently, as routes are usually created by several threads in parallel.
+	 */
+	static final class LinkSequenceDictionary {
+
+		private final List<Map<LinkSequence, WeakReference<LinkSequence>>> segments = new ArrayList<>();
+
+		LinkSequenceDictionary() {
+			for (int i = 0; i < 16; i++) {
+				this.segments.add(new WeakHashMap<>());
+			}
+		}
+
+		LinkSequence intern(final LinkSequence sequence) {
+			Map<LinkSequence, WeakReference<LinkSequence>> segment = this.segments.get((sequence.hash ^ (sequence.hash >>> 16)) & 15);
+			synchronized (segment) {
+				WeakReference<LinkSequence> reference = segment.get(sequence);
+				LinkSequence existing = reference == null ? null : reference.get();
+				if (existing != null) {
+					return existing;
+				}
+				segment.put(sequence, new WeakReference<>(sequence));
+				return sequence;
+			}
+		}
+
+		int size() {
+			int size = 0;
+			for (Map<LinkSequence, WeakReference<LinkSequence>> segment : this.segments) {
+				synchronized (segment) {
+					size += segment.size();
+				}
+			}
+			return size;
+		}
+	}
+
+}
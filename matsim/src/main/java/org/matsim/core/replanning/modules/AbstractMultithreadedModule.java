@@ -24,13 +24,15 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.population.algorithms.BatchPlanAlgorithm;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
 import java.lang.Thread.UncaughtExceptionHandler;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -40,14 +42,19 @@ import java.util.concurrent.atomic.AtomicReference;
  * Just overwrite getPlanAlgoInstance() to return an instance of your plan
  * algorithm.
  * <p></p>
- * <code>initThreads()</code> creates the threads, but does not yet start them.
+ * <code>initThreads()</code> creates the threads and the queues of plans, but does not yet start the threads.
+ * Every queue has its own instance of the plan algorithm.
  * <p></p>
- * <code>handlePlan(Plan)</code> distributes the plans equally to all threads.
+ * <code>handlePlan(Plan)</code> distributes the plans equally to all queues.
  * <p></p>
- * <code>finishReplanning()</code> finally starts the threads and waits for all threads to be finished.
+ * <code>finishReplanning()</code> finally starts the threads and waits for all threads to be finished.  Every
+ * thread takes the next unprocessed queue until no queue is left, so threads which got fast plans help with the
+ * remaining queues.  If the plan algorithm is a {@link BatchPlanAlgorithm}, it gets all plans of its queue at once.
  * <p></p>
- * While this approach does not lead to optimal performance gains ("slow threads" vs.
- * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
+ * As the plans of a queue are always handled by the same algorithm instance in the same order, the results do not
+ * depend on which thread handles a queue, which keeps the runs reproducible.  With one queue per thread (the
+ * default), this is the same as a static assignment of the plans to the threads; more queues per thread balance the
+ * load better, at the cost of more algorithm instances.  Additionally, as the threads are only
  * started after all to-be-handled plans are added, we can use unsynchronized data structures.
  * <p></p>
  * Design comments/questions:<ul>
@@ -59,10 +66,13 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
 	private final int numOfThreads;
+	private final int queuesPerThread;
 
+	private PlanQueue[] queues = null;
 	private PlanAlgoThread[] algothreads = null;
 	private Thread[] threads = null;
 	private PlanAlgorithm directAlgo = null;
+	private List<Plan> directPlans = null;
 	private String name = null;
 
 	private int count = 0;
@@ -83,11 +93,19 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	abstract public PlanAlgorithm getPlanAlgoInstance();
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
-		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this(globalConfigGroup.getNumberOfThreads(), globalConfigGroup.getNumberOfReplanningQueuesPerThread());
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
+		this(numOfThreads, 1);
+	}
+
+	public AbstractMultithreadedModule(final int numOfThreads, final int queuesPerThread) {
+		if (queuesPerThread < 1) {
+			throw new IllegalArgumentException("at least one queue per thread is required, but got " + queuesPerThread);
+		}
 		this.numOfThreads = numOfThreads;
+		this.queuesPerThread = queuesPerThread;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -105,6 +123,9 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		if (this.numOfThreads == 0) {
 			// it seems, no threads are desired :(
 			this.directAlgo = getPlanAlgoInstance();
+			if (this.directAlgo instanceof BatchPlanAlgorithm) {
+				this.directPlans = new ArrayList<>();
+			}
 		} else {
 			initThreads();
 		}
@@ -118,8 +139,10 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void handlePlan(final Plan plan) {
 		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			this.queues[this.count % this.queues.length].addPlan(plan);
 			this.count++;
+		} else if (this.directPlans != null) {
+			this.directPlans.add(plan);
 		} else {
 			this.directAlgo.run(plan);
 		}
@@ -136,11 +159,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	public final void finishReplanning() {
 		this.beforeFinishReplanningHook();
 		
+		if (this.directPlans != null) {
+			((BatchPlanAlgorithm) this.directAlgo).run(this.directPlans);
+		}
 		if (this.directAlgo == null) {
 			// only try to start threads if we did not directly work on all the plans
-			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
+			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans in "
+					+ this.queues.length + " queues");
 
 			// start threads
+			long start = System.nanoTime();
 			for (Thread thread : this.threads) {
 				thread.start();
 			}
@@ -154,12 +182,15 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 				throw new RuntimeException(e);
 			}
 			log.info("[" + this.name + "] all " + this.threads.length + " threads finished.");
+			logStatistics(System.nanoTime() - start);
 			Throwable throwable = this.hadException.get();
 			if (throwable != null) {
 				throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
 			}
 		}
 		// reset
+		this.queues = null;
+		this.directPlans = null;
 		this.algothreads = null;
 		this.threads = null;
 		this.replanningContext = null;
@@ -176,16 +207,22 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		this.hadException.set(null);
 		this.threads = new Thread[this.numOfThreads];
 		this.algothreads = new PlanAlgoThread[this.numOfThreads];
+		this.queues = new PlanQueue[this.numOfThreads * this.queuesPerThread];
 
-		Counter counter = null;
-		// setup threads
-		for (int i = 0; i < this.numOfThreads; i++) {
+		// setup queues
+		for (int i = 0; i < this.queues.length; i++) {
 			PlanAlgorithm algo = getPlanAlgoInstance();
 			if (i == 0) {
 				this.name = algo.getClass().getSimpleName();
-				counter = new Counter("[" + this.name + "] handled plan # ");
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
+			this.queues[i] = new PlanQueue(algo);
+		}
+
+		// setup threads
+		Counter counter = new Counter("[" + this.name + "] handled plan # ");
+		AtomicInteger nextQueue = new AtomicInteger(0);
+		for (int i = 0; i < this.numOfThreads; i++) {
+			PlanAlgoThread algothread = new PlanAlgoThread(this.queues, nextQueue, counter);
 			Thread thread = new Thread(algothread, this.name + "." + i);
 			thread.setUncaughtExceptionHandler(this.exceptionHandler);
 			this.threads[i] = thread;
@@ -193,10 +230,27 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		}
 	}
 
+	private void logStatistics(final long elapsedNanos) {
+		double elapsed = Math.max(elapsedNanos, 1) / 1e9;
+		for (int i = 0; i < this.algothreads.length; i++) {
+			PlanAlgoThread algothread = this.algothreads[i];
+			double busy = algothread.busyNanos / 1e9;
+			log.info(String.format("[%s] thread %d: %d plans in %d queues, utilisation %.1f%%, %.1f plans/s",
+					this.name, i, algothread.handledPlans, algothread.handledQueues, 100.0 * busy / elapsed,
+					busy > 0 ? algothread.handledPlans / busy : 0.0));
+		}
+		log.info(String.format("[%s] total: %d plans in %.1f s, %.1f plans/s", this.name, this.count, elapsed,
+				this.count / elapsed));
+	}
+
 	/* package (for a test) */ final int getNumOfThreads() {
 		return numOfThreads;
 	}
 
+	/* package (for a test) */ final int getQueuesPerThread() {
+		return queuesPerThread;
+	}
+
 	private final static class ExceptionHandler implements UncaughtExceptionHandler {
 
 		private final AtomicReference<Throwable> hadException;
@@ -213,26 +267,58 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	}
 
-	private final static class PlanAlgoThread implements Runnable {
+	private final static class PlanQueue {
 
 		private final PlanAlgorithm planAlgo;
-		private final List<Plan> plans = new LinkedList<>();
-		private final Counter counter;
+		private final List<Plan> plans = new ArrayList<>();
 
-		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
+		PlanQueue(final PlanAlgorithm algo) {
 			this.planAlgo = algo;
-			this.counter = counter;
 		}
 
-		public void addPlanToThread(final Plan plan) {
+		void addPlan(final Plan plan) {
 			this.plans.add(plan);
 		}
+	}
+
+	private final static class PlanAlgoThread implements Runnable {
+
+		private final PlanQueue[] queues;
+		private final AtomicInteger nextQueue;
+		private final Counter counter;
+
+		/* statistics, only read after the thread has finished */
+		private int handledQueues = 0;
+		private int handledPlans = 0;
+		private long busyNanos = 0;
+
+		public PlanAlgoThread(final PlanQueue[] queues, final AtomicInteger nextQueue, final Counter counter) {
+			this.queues = queues;
+			this.nextQueue = nextQueue;
+			this.counter = counter;
+		}
 
 		@Override
 		public void run() {
-			for (Plan plan : this.plans) {
-				this.planAlgo.run(plan);
-				this.counter.incCounter();
+			int index;
+			while ((index = this.nextQueue.getAndIncrement()) < this.queues.length) {
+				PlanQueue queue = this.queues[index];
+				long start = System.nanoTime();
+				if (queue.planAlgo instanceof BatchPlanAlgorithm) {
+					((BatchPlanAlgorithm) queue.planAlgo).run(queue.plans);
+					for (int i = 0; i < queue.plans.size(); i++) {
+						this.counter.incCounter();
+					}
+					this.handledPlans += queue.plans.size();
+				} else {
+					for (Plan plan : queue.plans) {
+						queue.planAlgo.run(plan);
+						this.counter.incCounter();
+						this.handledPlans++;
+					}
+				}
+				this.busyNanos += System.nanoTime() - start;
+				this.handledQueues++;
 			}
 		}
 	}
@@ -0,0 +1,42 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BatchRoutingModule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.population.PlanElement;
+
+/**
+ * A {@link RoutingModule} which can route many trips at once faster than one after the other, e.g. by answering all
+ * trips from the same origin with a single search.
+ */
+public interface BatchRoutingModule extends RoutingModule {
+
+	/**
+	 * Computes the routes of all requests, which all have the main mode of this module.  Every trip is computed as
+	 * by {@link #calcRoute}, but implementations may approximate, e.g. use the same departure time or person-specific
+	 * travel disutility for similar requests; see the implementations for details.
+	 *
+	 * @return the trips, in the order of the requests.
+	 */
+	List<List<? extends PlanElement>> calcRoutes(List<RoutingRequest> requests);
+
+}
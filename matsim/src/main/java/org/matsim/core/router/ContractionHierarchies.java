@@ -0,0 +1,221 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchies.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.ContractionHierarchiesGraph.Metric;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Least cost path calculator on a customizable contraction hierarchy, see {@link ContractionHierarchiesFactory}.
+ * <p></p>
+ * A query searches upwards from the start node using the forward costs and upwards from the end node using the
+ * backward costs of the arcs. In a contraction hierarchy without witness searches, the nodes reached this way are
+ * exactly the ancestors of the start and end node in the elimination tree, so both searches simply walk up the tree
+ * and need no priority queue.
+ * <p></p>
+ * The route is chosen with the link costs of the time bin in which the trip starts. The travel time and cost of
+ * the returned path are calculated along the route with the actual departure times at each link, as in
+ * {@link Dijkstra}. Instances of this class are not thread-safe, but the hierarchy and its costs are shared by all
+ * instances of the same factory.
+ */
+public class ContractionHierarchies implements LeastCostPathCalculator {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchies.class);
+
+	private final ContractionHierarchiesGraph graph;
+	private final ContractionHierarchiesFactory.Customizations customizations;
+	private final TravelDisutility travelCosts;
+	private final TravelTime travelTimes;
+
+	private final double[] forwardCost;
+	private final double[] backwardCost;
+	private final int[] forwardArc;
+	private final int[] backwardArc;
+	private int[] unpackStack = new int[64];
+
+	ContractionHierarchies(final ContractionHierarchiesGraph graph,
+			final ContractionHierarchiesFactory.Customizations customizations, final TravelDisutility travelCosts,
+			final TravelTime travelTimes) {
+		this.graph = graph;
+		this.customizations = customizations;
+		this.travelCosts = travelCosts;
+		this.travelTimes = travelTimes;
+		this.forwardCost = new double[graph.nodeCount];
+		this.backwardCost = new double[graph.nodeCount];
+		Arrays.fill(this.forwardCost, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.backwardCost, Double.POSITIVE_INFINITY);
+		this.forwardArc = new int[graph.nodeCount];
+		this.backwardArc = new int[graph.nodeCount];
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person,
+			final Vehicle vehicle) {
+		int from = this.graph.getRank(fromNode);
+		int to = this.graph.getRank(toNode);
+		if (from == ContractionHierarchiesGraph.NONE || to == ContractionHierarchiesGraph.NONE) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network of the contraction hierarchy: "
+					+ fromNode.getId() + ", " + toNode.getId());
+		}
+		List<Link> links = new ArrayList<>();
+		if (from != to) {
+			Metric metric = this.customizations.getMetric(starttime, this.travelCosts);
+			int meetingNode = search(metric, from, to);
+			if (meetingNode == ContractionHierarchiesGraph.NONE) {
+				log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Some possible reasons:");
+				log.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+				log.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+				log.warn("  * Network for considered mode is not connected to starting or ending point of route.  Setting insertingAccessEgressWalk to true may help.");
+				log.warn("This will now return null, but it may fail later with a null pointer exception.");
+				reset(from, to);
+				return null;
+			}
+			unpackPath(metric, from, to, meetingNode, links);
+			reset(from, to);
+		}
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(fromNode);
+		double time = starttime;
+		double cost = 0.0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			cost += this.travelCosts.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.travelTimes.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - starttime, cost);
+	}
+
+	/**
+	 * @return the node with the lowest sum of forward and backward costs, or NONE if there is no path
+	 */
+	private int search(Metric metric, int from, int to) {
+		this.forwardCost[from] = 0.0;
+		for (int node = from; node != ContractionHierarchiesGraph.NONE; node = this.graph.parent[node]) {
+			relax(node, metric.up, this.forwardCost, this.forwardArc);
+		}
+		this.backwardCost[to] = 0.0;
+		for (int node = to; node != ContractionHierarchiesGraph.NONE; node = this.graph.parent[node]) {
+			relax(node, metric.down, this.backwardCost, this.backwardArc);
+		}
+		int meetingNode = ContractionHierarchiesGraph.NONE;
+		double bestCost = Double.POSITIVE_INFINITY;
+		for (int node = from; node != ContractionHierarchiesGraph.NONE; node = this.graph.parent[node]) {
+			double cost = this.forwardCost[node] + this.backwardCost[node];
+			if (cost < bestCost) {
+				bestCost = cost;
+				meetingNode = node;
+			}
+		}
+		return meetingNode;
+	}
+
+	private void relax(int node, double[] arcCosts, double[] nodeCosts, int[] nodeArcs) {
+		double cost = nodeCosts[node];
+		if (cost == Double.POSITIVE_INFINITY) {
+			return;
+		}
+		for (int arc = this.graph.firstArc[node], end = this.graph.firstArc[node + 1]; arc < end; arc++) {
+			double newCost = cost + arcCosts[arc];
+			int head = this.graph.arcHead[arc];
+			if (newCost < nodeCosts[head]) {
+				nodeCosts[head] = newCost;
+				nodeArcs[head] = arc;
+			}
+		}
+	}
+
+	private void reset(int from, int to) {
+		for (int node = from; node != ContractionHierarchiesGraph.NONE; node = this.graph.parent[node]) {
+			this.forwardCost[node] = Double.POSITIVE_INFINITY;
+		}
+		for (int node = to; node != ContractionHierarchiesGraph.NONE; node = this.graph.parent[node]) {
+			this.backwardCost[node] = Double.POSITIVE_INFINITY;
+		}
+	}
+
+	private void unpackPath(Metric metric, int from, int to, int meetingNode, List<Link> links) {
+		// the upward arcs from the start node to the meeting node, collected backwards
+		int upCount = 0;
+		for (int node = meetingNode; node != from; node = this.graph.arcTail[this.forwardArc[node]]) {
+			push(upCount++, this.forwardArc[node] << 1);
+		}
+		int[] upArcs = Arrays.copyOf(this.unpackStack, upCount);
+		for (int i = upCount - 1; i >= 0; i--) {
+			unpackArc(metric, upArcs[i], links);
+		}
+		for (int node = meetingNode; node != to; node = this.graph.arcTail[this.backwardArc[node]]) {
+			unpackArc(metric, (this.backwardArc[node] << 1) | 1, links);
+		}
+	}
+
+	/**
+	 * Adds the links of the given arc to the path. Arcs are encoded as <code>2 * arc</code> for the upward and
+	 * <code>2 * arc + 1</code> for the downward direction.
+	 */
+	private void unpackArc(Metric metric, int directedArc, List<Link> links) {
+		int size = 0;
+		push(size++, directedArc);
+		while (size > 0) {
+			int current = this.unpackStack[--size];
+			int arc = current >> 1;
+			boolean upward = (current & 1) == 0;
+			int via = upward ? metric.upVia[arc] : metric.downVia[arc];
+			if (via < ContractionHierarchiesGraph.NONE) {
+				links.add(this.graph.links[-via - 2]);
+				continue;
+			}
+			int lower = this.graph.arcTail[arc];
+			int higher = this.graph.arcHead[arc];
+			int viaLower = this.graph.findArc(via, lower);
+			int viaHigher = this.graph.findArc(via, higher);
+			// push the second part first, so the first part is unpacked first
+			if (upward) {
+				// lower -> via -> higher
+				push(size++, viaHigher << 1);
+				push(size++, (viaLower << 1) | 1);
+			} else {
+				// higher -> via -> lower
+				push(size++, viaLower << 1);
+				push(size++, (viaHigher << 1) | 1);
+			}
+		}
+	}
+
+	private void push(int position, int value) {
+		if (position == this.unpackStack.length) {
+			this.unpackStack = Arrays.copyOf(this.unpackStack, 2 * position);
+		}
+		this.unpackStack[position] = value;
+	}
+
+}
@@ -0,0 +1,176 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.ContractionHierarchiesGraph.Metric;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link ContractionHierarchies} path calculators.
+ * <p></p>
+ * The contraction hierarchy of a network is built once, when the first path calculator for the network is
+ * requested, or read from the routing cache directory if it was built for the same network by an earlier run.
+ * Its arc costs are computed lazily (and in parallel) for every time bin in which routes are requested, and are
+ * then shared read-only by all path calculators for the same network, travel time and class of travel disutility,
+ * i.e. typically by all replanning threads. The {@link org.matsim.core.router.costcalculators.TravelDisutilityFactory}
+ * creates a new travel disutility for every thread, so the instances cannot be used to decide which path calculators
+ * may share their costs; travel disutilities of the same class for the same travel time are assumed to compute the
+ * same costs. At the start of every iteration, the costs are discarded, so they are re-computed from the travel times
+ * of the last iteration.
+ * <p></p>
+ * The link costs are evaluated without a person or vehicle, so person-specific travel disutilities (e.g. with
+ * routing randomness) are not supported. Every time bin needs memory for two costs and two shortcut middle
+ * nodes per arc, so the number of time bins should be kept reasonably small for large networks.
+ */
+@Singleton
+public class ContractionHierarchiesFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	private final double timeBinSize;
+	private final int numberOfThreads;
+	private final String cacheDirectory;
+	private final Map<Network, ContractionHierarchiesGraph> graphs = new HashMap<>();
+	private final Map<Network, Map<CustomizationKey, Customizations>> customizations = new HashMap<>();
+
+	@Inject
+	public ContractionHierarchiesFactory(final TravelTimeCalculatorConfigGroup travelTimeCalculatorConfigGroup,
+			final GlobalConfigGroup globalConfigGroup, final ControlerConfigGroup controlerConfigGroup) {
+		this(travelTimeCalculatorConfigGroup.getTraveltimeBinSize(), globalConfigGroup.getNumberOfThreads(),
+				controlerConfigGroup.getRoutingCacheDirectory());
+	}
+
+	/**
+	 * @param timeBinSize the duration in seconds for which the same link costs are used to find a route
+	 */
+	public ContractionHierarchiesFactory(final double timeBinSize) {
+		this(timeBinSize, 1, null);
+	}
+
+	/**
+	 * @param timeBinSize the duration in seconds for which the same link costs are used to find a route
+	 * @param numberOfThreads the number of threads used to compute the arc costs
+	 * @param cacheDirectory the directory in which contraction hierarchies are cached, may be <code>null</code>
+	 */
+	public ContractionHierarchiesFactory(final double timeBinSize, final int numberOfThreads, final String cacheDirectory) {
+		this.timeBinSize = timeBinSize;
+		this.numberOfThreads = numberOfThreads;
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(final Network network,
+			final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		ContractionHierarchiesGraph graph = this.graphs.computeIfAbsent(network,
+				k -> ContractionHierarchiesGraph.create(network, this.cacheDirectory));
+		Customizations customizations = this.customizations.computeIfAbsent(network, k -> new HashMap<>())
+				.computeIfAbsent(new CustomizationKey(travelTimes, travelCosts.getClass()),
+						k -> new Customizations(graph, this.timeBinSize, this.numberOfThreads));
+		return new ContractionHierarchies(graph, customizations, travelCosts, travelTimes);
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		List<Customizations> all = new ArrayList<>();
+		synchronized (this) {
+			for (Map<CustomizationKey, Customizations> perNetwork : this.customizations.values()) {
+				all.addAll(perNetwork.values());
+			}
+		}
+		for (Customizations c : all) {
+			c.clear();
+		}
+	}
+
+	private static final class CustomizationKey {
+
+		private final TravelTime travelTime;
+		private final Class<?> travelDisutilityClass;
+
+		CustomizationKey(final TravelTime travelTime, final Class<?> travelDisutilityClass) {
+			this.travelTime = travelTime;
+			this.travelDisutilityClass = travelDisutilityClass;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof CustomizationKey)) {
+				return false;
+			}
+			CustomizationKey other = (CustomizationKey) o;
+			return this.travelTime == other.travelTime && this.travelDisutilityClass == other.travelDisutilityClass;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(this.travelTime) + this.travelDisutilityClass.hashCode();
+		}
+	}
+
+	/**
+	 * The arc costs of one network, travel time and class of travel disutility, per time bin.
+	 */
+	static final class Customizations {
+
+		private final ContractionHierarchiesGraph graph;
+		private final double timeBinSize;
+		private final int numberOfThreads;
+		private final ConcurrentMap<Integer, Metric> metrics = new ConcurrentHashMap<>();
+
+		Customizations(final ContractionHierarchiesGraph graph, final double timeBinSize, final int numberOfThreads) {
+			this.graph = graph;
+			this.timeBinSize = timeBinSize;
+			this.numberOfThreads = numberOfThreads;
+		}
+
+		/**
+		 * @return the arc costs for the time bin of the given time, computed with the given travel disutility if
+		 *         they are not available yet
+		 */
+		Metric getMetric(final double time, final TravelDisutility travelCosts) {
+			int bin = time > 0 ? (int) (time / this.timeBinSize) : 0;
+			return this.metrics.computeIfAbsent(bin, b -> this.graph.customize(travelCosts, b * this.timeBinSize,
+					this.numberOfThreads));
+		}
+
+		void clear() {
+			this.metrics.clear();
+		}
+	}
+
+}
@@ -0,0 +1,697 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesGraph.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.router.util.TravelDisutility;
+
+/**
+ * The metric-independent part of a customizable contraction hierarchy: the order of the nodes and the
+ * shortcut arcs that result from contracting them in this order.
+ * <p></p>
+ * The nodes are ordered by recursive bisection along their coordinates, where the nodes separating the two
+ * halves get the highest ranks. All nodes are contracted without witness searches, so the resulting upward
+ * graph does not depend on the link costs and can be re-used for any {@link TravelDisutility}: computing
+ * the arc costs for a given disutility and time (see {@link #customize(TravelDisutility, double, int)}) only
+ * needs one pass over all triangles of the graph. As the upward graph only depends on the network topology, it
+ * can be cached in a file and re-used by later runs with the same network.
+ * <p></p>
+ * The nodes are identified by their rank. Every arc connects a node with a higher ranked neighbor and has a
+ * cost for each direction.
+ */
+final class ContractionHierarchiesGraph {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchiesGraph.class);
+
+	private static final int LEAF_SIZE = 8;
+	private static final int CACHE_MAGIC = 0x4d434842; // "MCHB"
+	private static final int CACHE_VERSION = 1;
+	/** levels with fewer nodes than this are customized by a single thread */
+	static final int MIN_PARALLEL_LEVEL_SIZE = 256;
+	static final int NONE = -1;
+
+	final Network network;
+	final int nodeCount;
+	final Node[] nodes;
+	private final int[] rankByNodeIndex;
+
+	/** the upward arcs of node r are firstArc[r] ... firstArc[r+1]-1, sorted by their head */
+	final int[] firstArc;
+	final int[] arcTail;
+	final int[] arcHead;
+	/** the lowest ranked upward neighbor of every node, or NONE */
+	final int[] parent;
+	/** the arcs to node r from lower ranked nodes are downArcs[firstDownArc[r]] ... downArcs[firstDownArc[r+1]-1] */
+	private final int[] firstDownArc;
+	private final int[] downArcs;
+	/**
+	 * the nodes by their height in the elimination tree, i.e. the maximum number of descendants on a path down to a
+	 * leaf. The arcs of all nodes of the same height can be customized independently of each other.
+	 */
+	private final int[] levelStart;
+	private final int[] levelNodes;
+
+	final Link[] links;
+	/** 2 * arc for links in upward direction, 2 * arc + 1 for links in downward direction, or NONE for loops */
+	private final int[] linkArcs;
+	/** the links whose arc starts at node r are tailLinks[firstTailLink[r]] ... tailLinks[firstTailLink[r+1]-1] */
+	private final int[] firstTailLink;
+	private final int[] tailLinks;
+
+	/**
+	 * Builds the contraction hierarchy of the given network, or reads it from the cache directory if it was built
+	 * for the same network before.
+	 *
+	 * @param cacheDirectory may be <code>null</code> to not use a cache
+	 */
+	static ContractionHierarchiesGraph create(final Network network, final String cacheDirectory) {
+		File cacheFile = null;
+		if (cacheDirectory != null) {
+			cacheFile = new File(cacheDirectory, "contractionHierarchy_" + Long.toHexString(fingerprint(network)) + ".bin");
+			if (cacheFile.exists()) {
+				ContractionHierarchiesGraph graph = readCache(network, cacheFile);
+				if (graph != null) {
+					log.info("read contraction hierarchy from " + cacheFile);
+					return graph;
+				}
+			}
+		}
+		ContractionHierarchiesGraph graph = build(network);
+		if (cacheFile != null) {
+			graph.writeCache(cacheFile);
+		}
+		return graph;
+	}
+
+	private ContractionHierarchiesGraph(final Network network, final Node[] nodes, final int[] firstArc, final int[] arcHead) {
+		this.network = network;
+		this.nodeCount = nodes.length;
+		this.nodes = nodes;
+		this.firstArc = firstArc;
+		this.arcHead = arcHead;
+		int arcCount = arcHead.length;
+
+		this.rankByNodeIndex = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(this.rankByNodeIndex, NONE);
+		for (int r = 0; r < this.nodeCount; r++) {
+			this.rankByNodeIndex[nodes[r].getId().index()] = r;
+		}
+
+		this.arcTail = new int[arcCount];
+		this.parent = new int[this.nodeCount];
+		int[] height = new int[this.nodeCount];
+		int maxHeight = 0;
+		this.firstDownArc = new int[this.nodeCount + 1];
+		for (int r = 0; r < this.nodeCount; r++) {
+			for (int arc = firstArc[r]; arc < firstArc[r + 1]; arc++) {
+				this.arcTail[arc] = r;
+				this.firstDownArc[arcHead[arc] + 1]++;
+			}
+			this.parent[r] = firstArc[r] < firstArc[r + 1] ? arcHead[firstArc[r]] : NONE;
+			if (this.parent[r] != NONE) {
+				// the children have lower ranks, so the height of r is final here
+				height[this.parent[r]] = Math.max(height[this.parent[r]], height[r] + 1);
+			}
+			maxHeight = Math.max(maxHeight, height[r]);
+		}
+		for (int r = 0; r < this.nodeCount; r++) {
+			this.firstDownArc[r + 1] += this.firstDownArc[r];
+		}
+		this.downArcs = new int[arcCount];
+		int[] next = Arrays.copyOf(this.firstDownArc, this.nodeCount);
+		for (int arc = 0; arc < arcCount; arc++) {
+			this.downArcs[next[arcHead[arc]]++] = arc;
+		}
+
+		this.levelStart = new int[maxHeight + 2];
+		for (int r = 0; r < this.nodeCount; r++) {
+			this.levelStart[height[r] + 1]++;
+		}
+		for (int level = 0; level <= maxHeight; level++) {
+			this.levelStart[level + 1] += this.levelStart[level];
+		}
+		this.levelNodes = new int[this.nodeCount];
+		next = Arrays.copyOf(this.levelStart, maxHeight + 1);
+		for (int r = 0; r < this.nodeCount; r++) {
+			this.levelNodes[next[height[r]]++] = r;
+		}
+
+		this.links = network.getLinks().values().toArray(new Link[0]);
+		this.linkArcs = new int[this.links.length];
+		this.firstTailLink = new int[this.nodeCount + 1];
+		for (int l = 0; l < this.links.length; l++) {
+			int from = getRank(this.links[l].getFromNode());
+			int to = getRank(this.links[l].getToNode());
+			if (from == to) {
+				this.linkArcs[l] = NONE;
+				continue;
+			}
+			int tail = Math.min(from, to);
+			int arc = findArc(tail, Math.max(from, to));
+			if (arc == NONE) {
+				throw new IllegalArgumentException("the contraction hierarchy has no arc for link " + this.links[l].getId());
+			}
+			this.linkArcs[l] = from < to ? 2 * arc : 2 * arc + 1;
+			this.firstTailLink[tail + 1]++;
+		}
+		for (int r = 0; r < this.nodeCount; r++) {
+			this.firstTailLink[r + 1] += this.firstTailLink[r];
+		}
+		this.tailLinks = new int[this.firstTailLink[this.nodeCount]];
+		next = Arrays.copyOf(this.firstTailLink, this.nodeCount);
+		for (int l = 0; l < this.links.length; l++) {
+			if (this.linkArcs[l] != NONE) {
+				this.tailLinks[next[this.arcTail[this.linkArcs[l] >> 1]]++] = l;
+			}
+		}
+		log.info("contraction hierarchy for " + this.nodeCount + " nodes and " + this.links.length + " links has "
+				+ arcCount + " arcs and " + (maxHeight + 1) + " levels.");
+	}
+
+	private static ContractionHierarchiesGraph build(final Network network) {
+		int nodeCount = network.getNodes().size();
+		Node[] nodesByIndex = network.getNodes().values().toArray(new Node[0]);
+		int[] indexById = new int[Id.getNumberOfIds(Node.class)];
+		for (int i = 0; i < nodeCount; i++) {
+			indexById[nodesByIndex[i].getId().index()] = i;
+		}
+
+		int[][] neighbors = collectNeighbors(network, nodeCount, indexById);
+		int[] order = new NodeOrder(nodesByIndex, neighbors).order;
+
+		Node[] nodes = new Node[nodeCount];
+		int[] rank = new int[nodeCount];
+		for (int r = 0; r < nodeCount; r++) {
+			rank[order[r]] = r;
+			nodes[r] = nodesByIndex[order[r]];
+		}
+
+		// contract the nodes in the order of their rank. The upward neighbors of a contracted node form a clique, but
+		// it is sufficient to add them to its lowest ranked upward neighbor, which forms a clique with them in turn.
+		int[][] up = new int[nodeCount][];
+		for (int i = 0; i < nodeCount; i++) {
+			int[] upward = new int[neighbors[i].length];
+			int count = 0;
+			for (int neighbor : neighbors[i]) {
+				if (rank[neighbor] > rank[i]) {
+					upward[count++] = rank[neighbor];
+				}
+			}
+			upward = Arrays.copyOf(upward, count);
+			Arrays.sort(upward);
+			up[rank[i]] = upward;
+		}
+		int arcCount = 0;
+		for (int r = 0; r < nodeCount; r++) {
+			int[] upward = up[r];
+			arcCount += upward.length;
+			if (upward.length > 0) {
+				int p = upward[0];
+				up[p] = mergeAbove(up[p], upward, p);
+			}
+		}
+
+		int[] firstArc = new int[nodeCount + 1];
+		int[] arcHead = new int[arcCount];
+		int arc = 0;
+		for (int r = 0; r < nodeCount; r++) {
+			firstArc[r] = arc;
+			for (int head : up[r]) {
+				arcHead[arc++] = head;
+			}
+			up[r] = null;
+		}
+		firstArc[nodeCount] = arc;
+		return new ContractionHierarchiesGraph(network, nodes, firstArc, arcHead);
+	}
+
+	private static int[][] collectNeighbors(Network network, int nodeCount, int[] indexById) {
+		int[] degree = new int[nodeCount];
+		for (Link link : network.getLinks().values()) {
+			degree[indexById[link.getFromNode().getId().index()]]++;
+			degree[indexById[link.getToNode().getId().index()]]++;
+		}
+		int[][] neighbors = new int[nodeCount][];
+		for (int i = 0; i < nodeCount; i++) {
+			neighbors[i] = new int[degree[i]];
+			degree[i] = 0;
+		}
+		for (Link link : network.getLinks().values()) {
+			int from = indexById[link.getFromNode().getId().index()];
+			int to = indexById[link.getToNode().getId().index()];
+			if (from != to) {
+				neighbors[from][degree[from]++] = to;
+				neighbors[to][degree[to]++] = from;
+			}
+		}
+		for (int i = 0; i < nodeCount; i++) {
+			int[] sorted = Arrays.copyOf(neighbors[i], degree[i]);
+			Arrays.sort(sorted);
+			int count = 0;
+			for (int j = 0; j < sorted.length; j++) {
+				if (j == 0 || sorted[j] != sorted[j - 1]) {
+					sorted[count++] = sorted[j];
+				}
+			}
+			neighbors[i] = Arrays.copyOf(sorted, count);
+		}
+		return neighbors;
+	}
+
+	/**
+	 * @return all values of <code>a</code> and all values of <code>b</code> larger than <code>min</code>, sorted
+	 *         and without duplicates. Both arrays must be sorted.
+	 */
+	private static int[] mergeAbove(int[] a, int[] b, int min) {
+		int[] merged = new int[a.length + b.length];
+		int i = 0;
+		int j = 0;
+		int count = 0;
+		while (j < b.length && b[j] <= min) {
+			j++;
+		}
+		while (i < a.length || j < b.length) {
+			int value;
+			if (j == b.length || (i < a.length && a[i] <= b[j])) {
+				value = a[i++];
+			} else {
+				value = b[j++];
+			}
+			if (count == 0 || merged[count - 1] != value) {
+				merged[count++] = value;
+			}
+		}
+		return count == merged.length ? merged : Arrays.copyOf(merged, count);
+	}
+
+	/**
+	 * Orders the nodes by nested dissection along their coordinates.
+	 */
+	private static final class NodeOrder {
+
+		private final double[] x;
+		private final double[] y;
+		private final int[][] neighbors;
+		private final int[] stamp;
+		private int nextStamp = 1;
+		final int[] order;
+		private int ordered = 0;
+
+		NodeOrder(Node[] nodesByIndex, int[][] neighbors) {
+			int nodeCount = nodesByIndex.length;
+			this.x = new double[nodeCount];
+			this.y = new double[nodeCount];
+			for (int i = 0; i < nodeCount; i++) {
+				Coord coord = nodesByIndex[i].getCoord();
+				this.x[i] = coord.getX();
+				this.y[i] = coord.getY();
+			}
+			this.neighbors = neighbors;
+			this.stamp = new int[nodeCount];
+			this.order = new int[nodeCount];
+
+			int[] all = new int[nodeCount];
+			for (int i = 0; i < nodeCount; i++) {
+				all[i] = i;
+			}
+			dissect(all, 0, nodeCount, new int[nodeCount]);
+		}
+
+		/**
+		 * Splits the nodes in <code>segment[from...to-1]</code> at the median of their wider coordinate extent, orders
+		 * both halves recursively and then appends the nodes of the first half that have a neighbor in the second half.
+		 */
+		private void dissect(int[] segment, int from, int to, int[] buffer) {
+			int size = to - from;
+			if (size <= LEAF_SIZE) {
+				for (int i = from; i < to; i++) {
+					this.order[this.ordered++] = segment[i];
+				}
+				return;
+			}
+			double minX = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int i = from; i < to; i++) {
+				int node = segment[i];
+				minX = Math.min(minX, this.x[node]);
+				maxX = Math.max(maxX, this.x[node]);
+				minY = Math.min(minY, this.y[node]);
+				maxY = Math.max(maxY, this.y[node]);
+			}
+			double[] keys = (maxX - minX) >= (maxY - minY) ? this.x : this.y;
+			int median = from + size / 2;
+			select(segment, from, to - 1, median, keys);
+
+			int firstStamp = this.nextStamp;
+			this.nextStamp += 2;
+			for (int i = from; i < to; i++) {
+				this.stamp[segment[i]] = i < median ? firstStamp : firstStamp + 1;
+			}
+			// [first half without separator | second half | separator]
+			int low = from;
+			int separatorStart = to;
+			for (int i = from; i < median; i++) {
+				int node = segment[i];
+				boolean separates = false;
+				for (int neighbor : this.neighbors[node]) {
+					if (this.stamp[neighbor] == firstStamp + 1) {
+						separates = true;
+						break;
+					}
+				}
+				if (separates) {
+					buffer[--separatorStart] = node;
+				} else {
+					buffer[low++] = node;
+				}
+			}
+			for (int i = median; i < to; i++) {
+				buffer[low++] = segment[i];
+			}
+			System.arraycopy(buffer, from, segment, from, size);
+			int secondStart = median - (to - separatorStart);
+
+			dissect(segment, from, secondStart, buffer);
+			dissect(segment, secondStart, separatorStart, buffer);
+			for (int i = separatorStart; i < to; i++) {
+				this.order[this.ordered++] = segment[i];
+			}
+		}
+
+		/**
+		 * Rearranges <code>values[left...right]</code> such that the value with the given rank according to
+		 * <code>keys</code> is at position <code>k</code>, all values with smaller keys before it and all values with
+		 * larger keys after it.
+		 */
+		private static void select(int[] values, int left, int right, int k, double[] keys) {
+			while (left < right) {
+				double pivot = keys[values[(left + right) >>> 1]];
+				int i = left;
+				int j = right;
+				while (i <= j) {
+					while (keys[values[i]] < pivot) {
+						i++;
+					}
+					while (keys[values[j]] > pivot) {
+						j--;
+					}
+					if (i <= j) {
+						int tmp = values[i];
+						values[i] = values[j];
+						values[j] = tmp;
+						i++;
+						j--;
+					}
+				}
+				if (k <= j) {
+					right = j;
+				} else if (k >= i) {
+					left = i;
+				} else {
+					return;
+				}
+			}
+		}
+	}
+
+	// ---- queries and customization ----
+
+	/**
+	 * @return the rank of the given node, or NONE if the node is not part of the network
+	 */
+	int getRank(Node node) {
+		int index = node.getId().index();
+		if (index >= this.rankByNodeIndex.length) {
+			return NONE;
+		}
+		int rank = this.rankByNodeIndex[index];
+		return rank != NONE && this.nodes[rank] == node ? rank : NONE;
+	}
+
+	/**
+	 * @return the arc from <code>tail</code> to the higher ranked <code>head</code>, or NONE
+	 */
+	int findArc(int tail, int head) {
+		int arc = Arrays.binarySearch(this.arcHead, this.firstArc[tail], this.firstArc[tail + 1], head);
+		return arc < 0 ? NONE : arc;
+	}
+
+	/* package (for a test) */ int getLargestLevelSize() {
+		int largest = 0;
+		for (int level = 0; level < this.levelStart.length - 1; level++) {
+			largest = Math.max(largest, this.levelStart[level + 1] - this.levelStart[level]);
+		}
+		return largest;
+	}
+
+	/**
+	 * Computes the costs of all arcs for the given travel disutility at the given time. The costs of the links are
+	 * evaluated without a person or vehicle, by the calling thread. The shortcuts are then computed level by level,
+	 * using up to <code>numberOfThreads</code> threads for the nodes of each level.
+	 */
+	Metric customize(final TravelDisutility travelDisutility, final double time, final int numberOfThreads) {
+		Metric metric = new Metric(this.arcHead.length);
+		double[] linkCosts = new double[this.links.length];
+		for (int l = 0; l < this.links.length; l++) {
+			if (this.linkArcs[l] != NONE) {
+				linkCosts[l] = travelDisutility.getLinkTravelDisutility(this.links[l], time, null, null);
+			}
+		}
+		ExecutorService executor = numberOfThreads > 1 ? Executors.newFixedThreadPool(numberOfThreads) : null;
+		try {
+			for (int level = 0; level < this.levelStart.length - 1; level++) {
+				int start = this.levelStart[level];
+				int end = this.levelStart[level + 1];
+				if (executor == null || end - start < MIN_PARALLEL_LEVEL_SIZE) {
+					customizeNodes(metric, linkCosts, start, end);
+					continue;
+				}
+				List<Callable<Object>> tasks = new ArrayList<>();
+				int chunkSize = Math.max(MIN_PARALLEL_LEVEL_SIZE / 4, (end - start) / (4 * numberOfThreads) + 1);
+				for (int chunkStart = start; chunkStart < end; chunkStart += chunkSize) {
+					int from = chunkStart;
+					int to = Math.min(end, chunkStart + chunkSize);
+					tasks.add(() -> {
+						customizeNodes(metric, linkCosts, from, to);
+						return null;
+					});
+				}
+				for (Future<Object> future : executor.invokeAll(tasks)) {
+					future.get();
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			if (executor != null) {
+				executor.shutdown();
+			}
+		}
+		return metric;
+	}
+
+	/**
+	 * Computes the costs of the arcs of the nodes <code>levelNodes[start...end-1]</code>. All arcs of lower levels
+	 * must already be customized: they contain the lower triangles of the arcs of these nodes, as every node that
+	 * is connected to x by an arc is a descendant or ancestor of x in the elimination tree.
+	 */
+	private void customizeNodes(Metric metric, double[] linkCosts, int start, int end) {
+		for (int i = start; i < end; i++) {
+			int x = this.levelNodes[i];
+			for (int t = this.firstTailLink[x]; t < this.firstTailLink[x + 1]; t++) {
+				int l = this.tailLinks[t];
+				int arc = this.linkArcs[l] >> 1;
+				double cost = linkCosts[l];
+				if ((this.linkArcs[l] & 1) == 0) {
+					if (cost < metric.up[arc]) {
+						metric.up[arc] = cost;
+						metric.upVia[arc] = -l - 2;
+					}
+				} else if (cost < metric.down[arc]) {
+					metric.down[arc] = cost;
+					metric.downVia[arc] = -l - 2;
+				}
+			}
+			// the upward neighbors of x contain all upward neighbors of z above x, so the arcs from x can be found by
+			// walking along both sorted arc lists.
+			for (int d = this.firstDownArc[x]; d < this.firstDownArc[x + 1]; d++) {
+				int zx = this.downArcs[d];
+				int z = this.arcTail[zx];
+				int xy = this.firstArc[x];
+				for (int zy = zx + 1, zEnd = this.firstArc[z + 1]; zy < zEnd; zy++) {
+					int y = this.arcHead[zy];
+					while (this.arcHead[xy] != y) {
+						xy++;
+					}
+					double upCost = metric.down[zx] + metric.up[zy];
+					if (upCost < metric.up[xy]) {
+						metric.up[xy] = upCost;
+						metric.upVia[xy] = z;
+					}
+					double downCost = metric.down[zy] + metric.up[zx];
+					if (downCost < metric.down[xy]) {
+						metric.down[xy] = downCost;
+						metric.downVia[xy] = z;
+					}
+				}
+			}
+		}
+	}
+
+	// ---- cache ----
+
+	/**
+	 * @return a hash of the ids of all nodes and links and of the nodes the links connect
+	 */
+	private static long fingerprint(Network network) {
+		long hash = 1125899906842597L;
+		for (Node node : network.getNodes().values()) {
+			hash = 31 * hash + node.getId().toString().hashCode();
+			hash = 31 * hash + Double.hashCode(node.getCoord().getX());
+			hash = 31 * hash + Double.hashCode(node.getCoord().getY());
+		}
+		for (Link link : network.getLinks().values()) {
+			hash = 31 * hash + link.getId().toString().hashCode();
+			hash = 31 * hash + link.getFromNode().getId().toString().hashCode();
+			hash = 31 * hash + link.getToNode().getId().toString().hashCode();
+		}
+		return hash;
+	}
+
+	private void writeCache(File cacheFile) {
+		File tmpFile = new File(cacheFile.getPath() + ".tmp");
+		try {
+			Files.createDirectories(cacheFile.getAbsoluteFile().getParentFile().toPath());
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 64 * 1024))) {
+				out.writeInt(CACHE_MAGIC);
+				out.writeInt(CACHE_VERSION);
+				out.writeInt(this.nodeCount);
+				out.writeInt(this.arcHead.length);
+				for (Node node : this.nodes) {
+					out.writeUTF(node.getId().toString());
+				}
+				for (int r = 0; r <= this.nodeCount; r++) {
+					out.writeInt(this.firstArc[r]);
+				}
+				for (int head : this.arcHead) {
+					out.writeInt(head);
+				}
+			}
+			Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			log.info("wrote contraction hierarchy to " + cacheFile);
+		} catch (IOException e) {
+			log.warn("could not write contraction hierarchy to " + cacheFile + ": " + e.getMessage());
+			tmpFile.delete();
+		}
+	}
+
+	/**
+	 * @return the cached contraction hierarchy, or <code>null</code> if the file does not match the network
+	 */
+	private static ContractionHierarchiesGraph readCache(Network network, File cacheFile) {
+		Map<Id<Node>, ? extends Node> networkNodes = network.getNodes();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile), 64 * 1024))) {
+			if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION) {
+				log.warn("ignoring " + cacheFile + ", it is not a contraction hierarchy of a supported version.");
+				return null;
+			}
+			int nodeCount = in.readInt();
+			int arcCount = in.readInt();
+			if (nodeCount != networkNodes.size()) {
+				log.warn("ignoring " + cacheFile + ", it does not match the network.");
+				return null;
+			}
+			Node[] nodes = new Node[nodeCount];
+			for (int r = 0; r < nodeCount; r++) {
+				nodes[r] = networkNodes.get(Id.createNodeId(in.readUTF()));
+				if (nodes[r] == null) {
+					log.warn("ignoring " + cacheFile + ", it does not match the network.");
+					return null;
+				}
+			}
+			int[] firstArc = new int[nodeCount + 1];
+			for (int r = 0; r <= nodeCount; r++) {
+				firstArc[r] = in.readInt();
+			}
+			int[] arcHead = new int[arcCount];
+			for (int arc = 0; arc < arcCount; arc++) {
+				arcHead[arc] = in.readInt();
+			}
+			return new ContractionHierarchiesGraph(network, nodes, firstArc, arcHead);
+		} catch (IOException | IllegalArgumentException e) {
+			log.warn("could not read contraction hierarchy from " + cacheFile + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * The costs of all arcs for one travel disutility and time bin. For every arc and direction, the via-value
+	 * is either the rank of the middle node of the shortcut, or <code>-linkIndex-2</code> if the arc represents
+	 * a link, or NONE if there is no connection in this direction.
+	 */
+	static final class Metric {
+		final double[] up;
+		final double[] down;
+		final int[] upVia;
+		final int[] downVia;
+
+		Metric(int arcCount) {
+			this.up = new double[arcCount];
+			this.down = new double[arcCount];
+			this.upVia = new int[arcCount];
+			this.downVia = new int[arcCount];
+			Arrays.fill(this.up, Double.POSITIVE_INFINITY);
+			Arrays.fill(this.down, Double.POSITIVE_INFINITY);
+			Arrays.fill(this.upVia, NONE);
+			Arrays.fill(this.downVia, NONE);
+		}
+	}
+
+}
@@ -44,6 +44,11 @@ public class LeastCostPathCalculatorModule extends AbstractModule {
             bind(LeastCostPathCalculatorFactory.class).to(FastDijkstraFactory.class);
         } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.FastAStarLandmarks)) {
             bind(LeastCostPathCalculatorFactory.class).to(FastAStarLandmarksFactory.class);
+        } else if (config.controler().getRoutingAlgorithmType().equals(ControlerConfigGroup.RoutingAlgorithmType.ContractionHierarchies)) {
+            bind(ContractionHierarchiesFactory.class);
+            bind(LeastCostPathCalculatorFactory.class).to(ContractionHierarchiesFactory.class);
+            // the routing costs are re-computed from the new travel times in every iteration
+            addControlerListenerBinding().to(ContractionHierarchiesFactory.class);
         }
     }
 
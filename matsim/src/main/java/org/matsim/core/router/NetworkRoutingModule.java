@@ -18,9 +18,15 @@
  * *********************************************************************** */
 package org.matsim.core.router;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
@@ -39,10 +45,15 @@ import org.matsim.facilities.Facility;
 /**
  * This wraps a "computer science" {@link LeastCostPathCalculator}, which routes from a node to another node, into something that
  * routes from a {@link Facility} to another {@link Facility}, as we need in MATSim.
+ * <p></p>
+ * If the module has a {@link MultiNodePathCalculator}, batches of trips are routed by grouping them by their start link and
+ * departure time bin, and by routing each group with a single search to all destinations of the group.  All trips of a group
+ * are routed as if they departed at the earliest departure time of the group, and with the travel disutility of the person of
+ * the first trip of the group.
  * 
  * @author thibautd
  */
-public final class NetworkRoutingModule implements RoutingModule {
+public final class NetworkRoutingModule implements BatchRoutingModule {
 	// I think it makes sense to NOT add the bushwhacking mode directly into here ...
 	// ... since it makes sense be able to to route from facility.getLinkId() to facility.getLinkId(). kai, dec'15
 
@@ -52,49 +63,140 @@ public final class NetworkRoutingModule implements RoutingModule {
 	private final Network network;
 	private final LeastCostPathCalculator routeAlgo;
 
+	private final MultiNodePathCalculator multiNodeRouteAlgo;
+	private final double batchTimeBinSize;
+
 
 	 public NetworkRoutingModule(
 			final String mode,
 			final PopulationFactory populationFactory,
 			final Network network,
 			final LeastCostPathCalculator routeAlgo) {
+		 this(mode, populationFactory, network, routeAlgo, null, 0.0);
+	 }
+
+	/**
+	 * @param multiNodeRouteAlgo used to route batches of trips with the same start link, searching all end nodes.  May be
+	 * <tt>null</tt>: in this case, batches are routed trip by trip.
+	 * @param batchTimeBinSize the size of the departure time bins in which trips are routed together, in seconds.
+	 */
+	 public NetworkRoutingModule(
+			final String mode,
+			final PopulationFactory populationFactory,
+			final Network network,
+			final LeastCostPathCalculator routeAlgo,
+			final MultiNodePathCalculator multiNodeRouteAlgo,
+			final double batchTimeBinSize) {
 		 Gbl.assertNotNull(network);
 //		 Gbl.assertIf( network.getLinks().size()>0 ) ; // otherwise network for mode probably not defined
 		 // makes many tests fail.  
+		 if (multiNodeRouteAlgo != null && !(batchTimeBinSize > 0)) {
+			 throw new IllegalArgumentException("batch time bin size must be positive, but is " + batchTimeBinSize);
+		 }
 		 this.network = network;
 		 this.routeAlgo = routeAlgo;
 		 this.mode = mode;
 		 this.populationFactory = populationFactory;
+		 this.multiNodeRouteAlgo = multiNodeRouteAlgo;
+		 this.batchTimeBinSize = batchTimeBinSize;
+		 if (multiNodeRouteAlgo != null) {
+			 multiNodeRouteAlgo.setSearchAllEndNodes(true);
+		 }
 	}
 
 	@Override
 	public List<? extends PlanElement> calcRoute(final Facility fromFacility, final Facility toFacility, final double departureTime,
 			final Person person) {		
-		Leg newLeg = this.populationFactory.createLeg( this.mode );
-
 		Gbl.assertNotNull(fromFacility);
 		Gbl.assertNotNull(toFacility);
 
-		Link fromLink = this.network.getLinks().get(fromFacility.getLinkId());
-		if ( fromLink==null ) {
-			Gbl.assertNotNull( fromFacility.getCoord() ) ;
-			fromLink = NetworkUtils.getNearestLink( network, fromFacility.getCoord()) ;
-		}
-		Link toLink = this.network.getLinks().get(toFacility.getLinkId());
-		if ( toLink==null ) {
-			Gbl.assertNotNull( toFacility.getCoord() ) ;
-			toLink = NetworkUtils.getNearestLink(network, toFacility.getCoord());
-		}
-		Gbl.assertNotNull(fromLink);
-		Gbl.assertNotNull(toLink);
-		
+		Link fromLink = getLink(fromFacility);
+		Link toLink = getLink(toFacility);
+
+		Path path = null;
 		if (toLink != fromLink) {
 			// (a "true" route)
 			Node startNode = fromLink.getToNode(); // start at the end of the "current" link
 			Node endNode = toLink.getFromNode(); // the target is the start of the link
-			Path path = this.routeAlgo.calcLeastCostPath(startNode, endNode, departureTime, person, null);
+			path = this.routeAlgo.calcLeastCostPath(startNode, endNode, departureTime, person, null);
 			if (path == null)
 				throw new RuntimeException("No route found from node " + startNode.getId() + " to node " + endNode.getId() + " by mode " + this.mode + ".");
+		}
+		return createTrip(fromLink, toLink, path, departureTime);
+	}
+
+	@Override
+	public List<List<? extends PlanElement>> calcRoutes(final List<RoutingRequest> requests) {
+		List<List<? extends PlanElement>> trips = new ArrayList<>(Collections.nCopies(requests.size(), null));
+		if (this.multiNodeRouteAlgo == null) {
+			for (int i = 0; i < requests.size(); i++) {
+				RoutingRequest request = requests.get(i);
+				trips.set(i, calcRoute(request.getFromFacility(), request.getToFacility(), request.getDepartureTime(), request.getPerson()));
+			}
+			return trips;
+		}
+
+		Map<BatchKey, List<Integer>> batches = new LinkedHashMap<>();
+		Link[] toLinks = new Link[requests.size()];
+		for (int i = 0; i < requests.size(); i++) {
+			RoutingRequest request = requests.get(i);
+			Gbl.assertNotNull(request.getFromFacility());
+			Gbl.assertNotNull(request.getToFacility());
+			Link fromLink = getLink(request.getFromFacility());
+			toLinks[i] = getLink(request.getToFacility());
+			if (toLinks[i] == fromLink) {
+				trips.set(i, createTrip(fromLink, toLinks[i], null, request.getDepartureTime()));
+			} else {
+				BatchKey key = new BatchKey(fromLink, (long) Math.floor(request.getDepartureTime() / this.batchTimeBinSize));
+				batches.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+			}
+		}
+
+		for (Map.Entry<BatchKey, List<Integer>> batch : batches.entrySet()) {
+			Link fromLink = batch.getKey().fromLink;
+			List<Integer> indices = batch.getValue();
+			if (indices.size() == 1) {
+				RoutingRequest request = requests.get(indices.get(0));
+				trips.set(indices.get(0), calcRoute(request.getFromFacility(), request.getToFacility(), request.getDepartureTime(), request.getPerson()));
+				continue;
+			}
+
+			double departureTime = Double.POSITIVE_INFINITY;
+			Map<Id<Node>, InitialNode> endNodes = new LinkedHashMap<>();
+			for (int index : indices) {
+				departureTime = Math.min(departureTime, requests.get(index).getDepartureTime());
+				Node endNode = toLinks[index].getFromNode();
+				endNodes.computeIfAbsent(endNode.getId(), id -> new InitialNode(endNode, 0.0, 0.0));
+			}
+			// the search may replace the nodes of the initial nodes, thus they must not be re-used
+			Node startNode = fromLink.getToNode();
+			this.multiNodeRouteAlgo.calcLeastCostPath(startNode, MultiNodeDijkstra.createImaginaryNode(endNodes.values()),
+					departureTime, requests.get(indices.get(0)).getPerson(), null);
+
+			for (int index : indices) {
+				Node endNode = toLinks[index].getFromNode();
+				Path path = this.multiNodeRouteAlgo.constructPath(startNode, endNode, departureTime);
+				if (path == null)
+					throw new RuntimeException("No route found from node " + startNode.getId() + " to node " + endNode.getId() + " by mode " + this.mode + ".");
+				trips.set(index, createTrip(fromLink, toLinks[index], path, requests.get(index).getDepartureTime()));
+			}
+		}
+		return trips;
+	}
+
+	private Link getLink(final Facility facility) {
+		Link link = this.network.getLinks().get(facility.getLinkId());
+		if ( link==null ) {
+			Gbl.assertNotNull( facility.getCoord() ) ;
+			link = NetworkUtils.getNearestLink( network, facility.getCoord()) ;
+		}
+		Gbl.assertNotNull(link);
+		return link;
+	}
+
+	private List<? extends PlanElement> createTrip(final Link fromLink, final Link toLink, final Path path, final double departureTime) {
+		Leg newLeg = this.populationFactory.createLeg( this.mode );
+		if (path != null) {
 			NetworkRoute route = this.populationFactory.getRouteFactories().createRoute(NetworkRoute.class, fromLink.getId(), toLink.getId());
 			route.setLinkIds(fromLink.getId(), NetworkUtils.getLinkIds(path.links), toLink.getId());
 			route.setTravelTime(path.travelTime);
@@ -121,4 +223,28 @@ public final class NetworkRoutingModule implements RoutingModule {
 		return "[NetworkRoutingModule: mode="+this.mode+"]";
 	}
 
+	private static final class BatchKey {
+		private final Link fromLink;
+		private final long timeBin;
+
+		BatchKey(final Link fromLink, final long timeBin) {
+			this.fromLink = fromLink;
+			this.timeBin = timeBin;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof BatchKey)) {
+				return false;
+			}
+			BatchKey other = (BatchKey) obj;
+			return this.fromLink == other.fromLink && this.timeBin == other.timeBin;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(this.fromLink.getId(), this.timeBin);
+		}
+	}
+
 }
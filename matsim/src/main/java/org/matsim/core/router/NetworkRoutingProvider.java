@@ -52,6 +52,9 @@ public class NetworkRoutingProvider implements Provider<RoutingModule> {
 	@Inject PopulationFactory populationFactory;
 	@Inject LeastCostPathCalculatorFactory leastCostPathCalculatorFactory;
 	@Inject Scenario scenario ;
+	@Inject RouteCache routeCache ;
+
+	private final FastMultiNodeDijkstraFactory multiNodeDijkstraFactory = new FastMultiNodeDijkstraFactory(true) ;
 	
 	/**
 	 * This is the older (and still more standard) constructor, where the routingMode and the resulting mode were the
@@ -115,10 +118,19 @@ public class NetworkRoutingProvider implements Provider<RoutingModule> {
 						filteredNetwork,
 						travelDisutilityFactory.createTravelDisutility(travelTime),
 						travelTime);
+		routeAlgo = routeCache.wrap(mode, routingMode, routeAlgo);
 
 		// the following again refers to the (transport)mode, since it will determine the mode of the leg on the network:
 		if ( plansCalcRouteConfigGroup.isInsertingAccessEgressWalk() ) {
 			return DefaultRoutingModules.createAccessEgressNetworkRouter(mode, routeAlgo, scenario, filteredNetwork ) ;
+		} else if ( plansCalcRouteConfigGroup.getBatchRoutingTimeBinSize() > 0 ) {
+			// batches of trips are routed with a separate search, thus they do not use the route cache:
+			MultiNodePathCalculator multiNodeRouteAlgo = (MultiNodePathCalculator) multiNodeDijkstraFactory.createPathCalculator(
+					filteredNetwork,
+					travelDisutilityFactory.createTravelDisutility(travelTime),
+					travelTime);
+			return new NetworkRoutingModule(mode, populationFactory, filteredNetwork, routeAlgo, multiNodeRouteAlgo,
+					plansCalcRouteConfigGroup.getBatchRoutingTimeBinSize());
 		} else {
 			return DefaultRoutingModules.createPureNetworkRouter(mode, populationFactory, filteredNetwork, routeAlgo);
 		}
@@ -19,6 +19,7 @@
  * *********************************************************************** */
 package org.matsim.core.router;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.matsim.api.core.v01.Id;
@@ -28,6 +29,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.config.Config;
+import org.matsim.core.population.algorithms.BatchPlanAlgorithm;
 import org.matsim.core.population.algorithms.PersonAlgorithm;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.population.routes.NetworkRoute;
@@ -41,10 +43,15 @@ import org.matsim.vehicles.Vehicle;
  * {@link PlanAlgorithm} responsible for routing all trips of a plan.
  * Activity times are not updated, even if the previous trip arrival time
  * is after the activity end time.
+ * <p></p>
+ * If batch routing is enabled in the {@link org.matsim.core.config.groups.PlansCalcRouteConfigGroup}, several plans
+ * are routed together: first the first trips of all plans, then the second trips, and so on, with
+ * {@link TripRouter#calcRoutes(List)}.  As the trips of a plan are still routed in their order, the departure times
+ * of later trips consider the new routes of the earlier ones.
  *
  * @author thibautd
  */
-public class PlanRouter implements PlanAlgorithm, PersonAlgorithm {
+public class PlanRouter implements BatchPlanAlgorithm, PersonAlgorithm {
 	private final TripRouter tripRouter;
 	private final ActivityFacilities facilities;
 
@@ -102,6 +109,57 @@ public class PlanRouter implements PlanAlgorithm, PersonAlgorithm {
 		}
 	}
 
+	@Override
+	public void run(final List<Plan> plans) {
+		final Config config = tripRouter.getConfig();
+		if (config == null || !(config.plansCalcRoute().getBatchRoutingTimeBinSize() > 0)) {
+			for (Plan plan : plans) {
+				run( plan );
+			}
+			return;
+		}
+
+		final List<List<Trip>> tripsOfPlans = new ArrayList<>( plans.size() );
+		int maxTrips = 0;
+		for (Plan plan : plans) {
+			List<Trip> trips = TripStructureUtils.getTrips( plan );
+			tripsOfPlans.add( trips );
+			maxTrips = Math.max( maxTrips, trips.size() );
+		}
+
+		for (int tripIndex = 0; tripIndex < maxTrips; tripIndex++) {
+			final List<Plan> batchPlans = new ArrayList<>();
+			final List<Trip> batchTrips = new ArrayList<>();
+			final List<RoutingRequest> requests = new ArrayList<>();
+			for (int i = 0; i < plans.size(); i++) {
+				List<Trip> trips = tripsOfPlans.get( i );
+				if (tripIndex < trips.size()) {
+					Plan plan = plans.get( i );
+					Trip oldTrip = trips.get( tripIndex );
+					batchPlans.add( plan );
+					batchTrips.add( oldTrip );
+					requests.add( new RoutingRequest(
+							tripRouter.getMainModeIdentifier().identifyMainMode( oldTrip.getTripElements() ),
+							FacilitiesUtils.toFacility( oldTrip.getOriginActivity(), facilities ),
+							FacilitiesUtils.toFacility( oldTrip.getDestinationActivity(), facilities ),
+							calcEndOfActivity( oldTrip.getOriginActivity(), plan, config ),
+							plan.getPerson() ) );
+				}
+			}
+
+			final List<List<? extends PlanElement>> newTrips = tripRouter.calcRoutes( requests );
+			for (int i = 0; i < batchTrips.size(); i++) {
+				Trip oldTrip = batchTrips.get( i );
+				putVehicleFromOldTripIntoNewTripIfMeaningful( oldTrip, newTrips.get( i ) );
+				TripRouter.insertTrip(
+						batchPlans.get( i ),
+						oldTrip.getOriginActivity(),
+						newTrips.get( i ),
+						oldTrip.getDestinationActivity());
+			}
+		}
+	}
+
 	/**
 	 * If the old trip had vehicles set in its network routes, and it used a single vehicle,
 	 * and if the new trip does not come with vehicles set in its network routes,
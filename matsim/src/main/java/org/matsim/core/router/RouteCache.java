@@ -0,0 +1,267 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RouteCache.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Remembers the least cost paths found by the network routers during replanning, so that trips with the same mode,
+ * origin, destination and departure time bin get the same path without a new search. The paths are kept separately
+ * for each combination of mode and routing mode, since the mode determines the network a path may use and the routing
+ * mode its travel times and disutilities. Each combination keeps at most <code>maxSize</code> paths; the least
+ * recently used ones are dropped first. The cache is shared by all threads.
+ * <p></p>
+ * The cache is only active between the start of an iteration and the start of the mobsim. During the mobsim, the
+ * travel times are collected anew, so the cache is emptied at the start of each iteration, and routing requests
+ * during the mobsim (e.g. within-day replanning) always go to the router.
+ * <p></p>
+ * A cached path is returned as it was found for the first request, i.e. its travel time and cost refer to that
+ * departure time and person. Person-specific parts of the travel disutility are thus not considered for the
+ * following requests.
+ */
+@Singleton
+public final class RouteCache implements IterationStartsListener, BeforeMobsimListener {
+
+	private static final Logger log = Logger.getLogger(RouteCache.class);
+
+	private static final int SEGMENTS = 16;
+
+	private final int maxSize;
+	private final double timeBinSize;
+	private final Map<String, ModeCache> modeCaches = new ConcurrentHashMap<>();
+	private volatile boolean active = false;
+
+	@Inject
+	RouteCache(PlansCalcRouteConfigGroup config) {
+		this(config.getRouteCacheSize(), config.getRouteCacheTimeBinSize());
+		if (isEnabled() && config.getRoutingRandomness() > 0) {
+			log.warn("the route cache is enabled, so persons with the same trip share the same route. The routing "
+					+ "randomness of the travel disutility only applies to the first of them.");
+		}
+	}
+
+	public RouteCache(int maxSize, double timeBinSize) {
+		this.maxSize = maxSize;
+		this.timeBinSize = timeBinSize;
+	}
+
+	public boolean isEnabled() {
+		return this.maxSize > 0;
+	}
+
+	/**
+	 * @param mode the mode of the network <code>delegate</code> searches on
+	 * @param routingMode the mode of the travel times and disutilities <code>delegate</code> uses
+	 * @return a path calculator which uses the cache of the given mode and routing mode, or <code>delegate</code>
+	 * itself if the cache is disabled
+	 */
+	public LeastCostPathCalculator wrap(String mode, String routingMode, LeastCostPathCalculator delegate) {
+		if (!isEnabled()) {
+			return delegate;
+		}
+		ModeCache modeCache = this.modeCaches.computeIfAbsent(getName(mode, routingMode), name -> new ModeCache(this.maxSize));
+		return new CachingPathCalculator(delegate, modeCache);
+	}
+
+	private static String getName(String mode, String routingMode) {
+		return mode.equals(routingMode) ? mode : mode + " (routing mode " + routingMode + ")";
+	}
+
+	/**
+	 * Empties the cache and starts using it.
+	 */
+	public void activate() {
+		for (ModeCache modeCache : this.modeCaches.values()) {
+			modeCache.clear();
+		}
+		this.active = true;
+	}
+
+	/**
+	 * Stops using the cache, and logs how often it was used since it was activated.
+	 */
+	public void deactivate() {
+		this.active = false;
+		for (Map.Entry<String, ModeCache> e : this.modeCaches.entrySet()) {
+			ModeCache modeCache = e.getValue();
+			long hits = modeCache.hits.sum();
+			long requests = hits + modeCache.misses.sum();
+			if (requests > 0) {
+				log.info(String.format("route cache for mode %s: %d requests, %d hits (%.1f%%), %d cached paths",
+						e.getKey(), requests, hits, 100.0 * hits / requests, modeCache.size()));
+			}
+		}
+	}
+
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		activate();
+	}
+
+	@Override
+	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+		deactivate();
+	}
+
+	/* package (for a test) */ long getHits(String mode, String routingMode) {
+		ModeCache modeCache = this.modeCaches.get(getName(mode, routingMode));
+		return modeCache == null ? 0 : modeCache.hits.sum();
+	}
+
+	private final class CachingPathCalculator implements LeastCostPathCalculator {
+
+		private final LeastCostPathCalculator delegate;
+		private final ModeCache modeCache;
+
+		CachingPathCalculator(LeastCostPathCalculator delegate, ModeCache modeCache) {
+			this.delegate = delegate;
+			this.modeCache = modeCache;
+		}
+
+		@Override
+		public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person, Vehicle vehicle) {
+			if (!RouteCache.this.active) {
+				return this.delegate.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+			}
+			Key key = new Key(fromNode.getId().index(), toNode.getId().index(), (int) Math.floor(starttime / RouteCache.this.timeBinSize));
+			Path path = this.modeCache.get(key);
+			if (path != null) {
+				this.modeCache.hits.increment();
+				return path;
+			}
+			this.modeCache.misses.increment();
+			path = this.delegate.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+			if (path != null) {
+				this.modeCache.put(key, path);
+			}
+			return path;
+		}
+	}
+
+	/**
+	 * The paths of one mode and routing mode, split into segments which are locked independently.
+	 */
+	private static final class ModeCache {
+
+		private final List<Map<Key, LeastCostPathCalculator.Path>> segments = new ArrayList<>();
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+
+		ModeCache(int maxSize) {
+			final int maxSegmentSize = Math.max(1, maxSize / SEGMENTS);
+			for (int i = 0; i < SEGMENTS; i++) {
+				this.segments.add(new LinkedHashMap<Key, LeastCostPathCalculator.Path>(16, 0.75f, true) {
+					private static final long serialVersionUID = 1L;
+					@Override
+					protected boolean removeEldestEntry(Map.Entry<Key, LeastCostPathCalculator.Path> eldest) {
+						return size() > maxSegmentSize;
+					}
+				});
+			}
+		}
+
+		private Map<Key, LeastCostPathCalculator.Path> segment(Key key) {
+			return this.segments.get((key.hash ^ (key.hash >>> 16)) & (SEGMENTS - 1));
+		}
+
+		LeastCostPathCalculator.Path get(Key key) {
+			Map<Key, LeastCostPathCalculator.Path> segment = segment(key);
+			synchronized (segment) {
+				return segment.get(key);
+			}
+		}
+
+		void put(Key key, LeastCostPathCalculator.Path path) {
+			Map<Key, LeastCostPathCalculator.Path> segment = segment(key);
+			synchronized (segment) {
+				segment.put(key, path);
+			}
+		}
+
+		int size() {
+			int size = 0;
+			for (Map<Key, LeastCostPathCalculator.Path> segment : this.segments) {
+				synchronized (segment) {
+					size += segment.size();
+				}
+			}
+			return size;
+		}
+
+		void clear() {
+			for (Map<Key, LeastCostPathCalculator.Path> segment : this.segments) {
+				synchronized (segment) {
+					segment.clear();
+				}
+			}
+			this.hits.reset();
+			this.misses.reset();
+		}
+	}
+
+	private static final class Key {
+		private final int fromNode;
+		private final int toNode;
+		private final int timeBin;
+		private final int hash;
+
+		Key(int fromNode, int toNode, int timeBin) {
+			this.fromNode = fromNode;
+			this.toNode = toNode;
+			this.timeBin = timeBin;
+			this.hash = (31 * fromNode + toNode) * 31 + timeBin;
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return this.fromNode == other.fromNode && this.toNode == other.toNode && this.timeBin == other.timeBin;
+		}
+	}
+
+}
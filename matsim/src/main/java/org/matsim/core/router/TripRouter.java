@@ -209,6 +209,64 @@ public final class TripRouter implements MatsimExtensionPoint {
 		throw new UnknownModeException( "unregistered main mode |"+mainMode+"|: does not pertain to "+routingModules.keySet() );
 	}
 
+	/**
+	 * Routes many trips at once.  The requests are grouped by main mode; the groups of modes whose {@link RoutingModule}
+	 * is a {@link BatchRoutingModule} are routed together, all others trip by trip as in
+	 * {@link #calcRoute(String, Facility, Facility, double, Person)}.
+	 *
+	 * @return the trips, in the order of the requests.
+	 *
+	 * @throws UnknownModeException if no RoutingModule is registered for the
+	 * main mode of a request.
+	 */
+	public synchronized List<List<? extends PlanElement>> calcRoutes(final List<RoutingRequest> requests) {
+		final Map<String, List<Integer>> indicesByMode = new LinkedHashMap<>();
+		for (int i = 0; i < requests.size(); i++) {
+			RoutingRequest request = requests.get(i);
+			Gbl.assertNotNull( request.getFromFacility() );
+			Gbl.assertNotNull( request.getToFacility() );
+			indicesByMode.computeIfAbsent( request.getMainMode(), mode -> new ArrayList<>() ).add( i );
+		}
+
+		final List<List<? extends PlanElement>> trips = new ArrayList<>( Collections.nCopies( requests.size(), null ) );
+		for (Map.Entry<String, List<Integer>> entry : indicesByMode.entrySet()) {
+			String mainMode = entry.getKey();
+			List<Integer> indices = entry.getValue();
+			RoutingModule module = routingModules.get( mainMode );
+			if (module == null) {
+				throw new UnknownModeException( "unregistered main mode |"+mainMode+"|: does not pertain to "+routingModules.keySet() );
+			}
+
+			if (module instanceof BatchRoutingModule && indices.size() > 1) {
+				List<RoutingRequest> modeRequests = new ArrayList<>( indices.size() );
+				for (int index : indices) {
+					modeRequests.add( requests.get( index ) );
+				}
+				List<List<? extends PlanElement>> modeTrips = ((BatchRoutingModule) module).calcRoutes( modeRequests );
+				if (modeTrips == null || modeTrips.size() != indices.size()) {
+					throw new RuntimeException( "Routing module "+module+" returned "+(modeTrips == null ? null : modeTrips.size())
+							+" trips for "+indices.size()+" requests with main mode "+mainMode );
+				}
+				for (int i = 0; i < indices.size(); i++) {
+					trips.set( indices.get( i ), modeTrips.get( i ) );
+				}
+			} else {
+				for (int index : indices) {
+					RoutingRequest request = requests.get( index );
+					trips.set( index, module.calcRoute( request.getFromFacility(), request.getToFacility(),
+							request.getDepartureTime(), request.getPerson() ) );
+				}
+			}
+
+			for (int index : indices) {
+				if (trips.get( index ) == null) {
+					throw new NullPointerException( "Routing module "+module+" returned a null Trip for main mode "+mainMode );
+				}
+			}
+		}
+		return trips;
+	}
+
 	public static class UnknownModeException extends RuntimeException {
 		private UnknownModeException(
 				final String msg) {
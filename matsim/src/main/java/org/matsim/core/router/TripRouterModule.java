@@ -46,6 +46,10 @@ public class TripRouterModule extends AbstractModule {
         install(new TransitRouterModule());
         bind(SingleModeNetworksCache.class).asEagerSingleton();
         PlansCalcRouteConfigGroup routeConfigGroup = getConfig().plansCalcRoute();
+        bind(RouteCache.class); // always needed by the network routers, even if it is disabled
+        if (routeConfigGroup.getRouteCacheSize() > 0) {
+            addControlerListenerBinding().to(RouteCache.class);
+        }
         for (String mode : routeConfigGroup.getTeleportedModeFreespeedFactors().keySet()) {
             if (getConfig().transit().isUseTransit() && getConfig().transit().getTransitModes().contains(mode)) {
                 // default config contains "pt" as teleported mode, but if we have simulated transit, this is supposed to override it
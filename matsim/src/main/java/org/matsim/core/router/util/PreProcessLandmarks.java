@@ -21,15 +21,23 @@
 package org.matsim.core.router.util;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
-import org.matsim.core.api.internal.MatsimComparator;
 
 import java.awt.geom.Rectangle2D;
-import java.util.Comparator;
-import java.util.Map;
-import java.util.PriorityQueue;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -40,11 +48,18 @@ import java.util.concurrent.TimeUnit;
  * between a start and an end node. Specifically, designates some
  * nodes in the network that act as landmarks and computes the last-cost-path
  * from and to each node in the network to each of the landmarks.
+ * <p></p>
+ * The costs are stored in two float arrays, indexed by the position of the node in the network and the landmark.
+ * They are rounded such that the estimates based on them never get larger. If a cache directory is set, the
+ * tables are stored in and re-used from there.
  *
  * @author lnicolas
  */
 public class PreProcessLandmarks extends PreProcessEuclidean {
 
+	private static final int CACHE_MAGIC = 0x4d4c4d42; // "MLMB"
+	private static final int CACHE_VERSION = 1;
+
 	private final int landmarkCount;
 
 	private final Landmarker landmarker;
@@ -53,6 +68,16 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	
 	private int numberOfThreads = 8;
 
+	private String cacheDirectory = null;
+
+	private Node[] nodes;
+	/** the position of each node in <code>nodes</code>, by the index of its id */
+	private int[] nodeIndices;
+	/** the smaller of the costs to and from each landmark, at <code>nodeIndex * landmarkCount + landmarkIndex</code> */
+	private float[] minLandmarkCosts;
+	/** the larger of the costs to and from each landmark, at <code>nodeIndex * landmarkCount + landmarkIndex</code> */
+	private float[] maxLandmarkCosts;
+
 	private static final Logger log = Logger.getLogger(PreProcessLandmarks.class);
 
 	public PreProcessLandmarks(final TravelDisutility costFunction) {
@@ -82,6 +107,17 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 	public void setNumberOfThreads(int numberOfThreads) {
 		this.numberOfThreads = numberOfThreads;
 	}
+
+	/**
+	 * Sets the directory in which the landmark tables are cached. The tables are stored per network and cost function,
+	 * so later runs or other networks with the same nodes, links and minimal link costs can re-use them. Nothing is
+	 * cached if the directory is <code>null</code>, which is the default.
+	 *
+	 * @param cacheDirectory
+	 */
+	public void setCacheDirectory(String cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
 	
 	/**
 	 * @param costFunction
@@ -107,18 +143,36 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 
 	@Override
 	public void run(final Network network) {
+		this.nodes = network.getNodes().values().toArray(new Node[0]);
+		this.nodeIndices = new int[Id.getNumberOfIds(Node.class)];
+		Arrays.fill(this.nodeIndices, -1);
+		for (int i = 0; i < this.nodes.length; i++) {
+			this.nodeIndices[this.nodes[i].getId().index()] = i;
+		}
+
 		super.run(network);
-		
+
+		double[] linkCosts = new double[network.getLinks().size()];
+		int l = 0;
+		for (Link link : network.getLinks().values()) {
+			linkCosts[l++] = this.costFunction.getLinkMinimumTravelDisutility(link);
+		}
+
 		log.info("Putting landmarks on network...");
 		long now = System.currentTimeMillis();
 		landmarks = landmarker.identifyLandmarks( landmarkCount , network );
 		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
 
-		log.info("Initializing landmarks data");
-		for (Node node : network.getNodes().values()) {
-			this.nodeData.put(node, new LandmarksData(this.landmarkCount));
+		File cacheFile = null;
+		if (this.cacheDirectory != null) {
+			// the landmarks are part of the fingerprint, so it covers all settings of the landmarker
+			cacheFile = new File(this.cacheDirectory, "landmarks_" + Long.toHexString(fingerprint(network, linkCosts)) + ".bin");
+			if (cacheFile.exists() && readCache(cacheFile)) {
+				log.info("read landmarks from " + cacheFile);
+				return;
+			}
 		}
-		
+
 		int nOfThreads = this.numberOfThreads;
 		if (nOfThreads > this.landmarks.length) {
 			nOfThreads = this.landmarks.length;
@@ -129,10 +183,12 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
  		log.info("Calculating distance from each node to each of the " + this.landmarkCount + " landmarks using " + nOfThreads + " threads...");
 		now = System.currentTimeMillis();
 
-		
+		this.minLandmarkCosts = new float[this.nodes.length * this.landmarkCount];
+		this.maxLandmarkCosts = new float[this.nodes.length * this.landmarkCount];
+		Graph graph = new Graph(network, linkCosts);
 		ExecutorService executor = Executors.newFixedThreadPool(nOfThreads);
 		for (int i = 0; i < this.landmarks.length; i++) {
-			executor.execute(new Calculator(i, this.landmarks[i], this.nodeData, this.costFunction));
+			executor.execute(new Calculator(i, this.nodeIndices[this.landmarks[i].getId().index()], graph));
 		}
 		executor.shutdown();
 		while (!executor.isTerminated()) {
@@ -144,229 +200,317 @@ public class PreProcessLandmarks extends PreProcessEuclidean {
 			}
 		}
 
-		for (Node node : network.getNodes().values()) {
-			LandmarksData r = getNodeData(node);
-			r.updateMinMaxTravelTimes();
+		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
+
+		if (cacheFile != null) {
+			writeCache(cacheFile);
 		}
+	}
 
-		for (Node node : network.getNodes().values()) {
-			LandmarksData r = getNodeData(node);
-			for (int i = 0; i < this.landmarks.length; i++) {
-				if (r.getMinLandmarkTravelTime(i) > r.getMaxLandmarkTravelTime(i)) {
-					log.info("Min > max for node " + node.getId() + " and landmark " + i);
-				}
+	/**
+	 * The network as arrays, with the minimal costs of the links.
+	 */
+	private final class Graph {
+		final int[] firstOutLink;
+		final int[] outLinkTo;
+		final double[] outLinkCost;
+		final int[] firstInLink;
+		final int[] inLinkFrom;
+		final double[] inLinkCost;
+
+		Graph(final Network network, final double[] linkCosts) {
+			int nodeCount = nodes.length;
+			int linkCount = linkCosts.length;
+			this.firstOutLink = new int[nodeCount + 1];
+			this.firstInLink = new int[nodeCount + 1];
+			for (Link link : network.getLinks().values()) {
+				this.firstOutLink[nodeIndices[link.getFromNode().getId().index()] + 1]++;
+				this.firstInLink[nodeIndices[link.getToNode().getId().index()] + 1]++;
+			}
+			for (int i = 0; i < nodeCount; i++) {
+				this.firstOutLink[i + 1] += this.firstOutLink[i];
+				this.firstInLink[i + 1] += this.firstInLink[i];
+			}
+			this.outLinkTo = new int[linkCount];
+			this.outLinkCost = new double[linkCount];
+			this.inLinkFrom = new int[linkCount];
+			this.inLinkCost = new double[linkCount];
+			int[] nextOut = Arrays.copyOf(this.firstOutLink, nodeCount);
+			int[] nextIn = Arrays.copyOf(this.firstInLink, nodeCount);
+			int l = 0;
+			for (Link link : network.getLinks().values()) {
+				int from = nodeIndices[link.getFromNode().getId().index()];
+				int to = nodeIndices[link.getToNode().getId().index()];
+				this.outLinkTo[nextOut[from]] = to;
+				this.outLinkCost[nextOut[from]++] = linkCosts[l];
+				this.inLinkFrom[nextIn[to]] = from;
+				this.inLinkCost[nextIn[to]++] = linkCosts[l];
+				l++;
 			}
 		}
-
-		log.info("done in " + (System.currentTimeMillis() - now) + " ms");
 	}
 
-	private static class Calculator implements Runnable {
+	private class Calculator implements Runnable {
 		
 		private final int landmarkIdx;
-		private final Node landmark;
-		private final Map<Node, DeadEndData> nodeData;
-		private final TravelDisutility costFunction;
+		private final int landmarkNode;
+		private final Graph graph;
 		
-		public Calculator(final int landmarkIdx, final Node landmark, final Map<Node, DeadEndData> nodeData, final TravelDisutility costFunction) {
+		public Calculator(final int landmarkIdx, final int landmarkNode, final Graph graph) {
 			this.landmarkIdx = landmarkIdx;
-			this.landmark = landmark;
-			this.nodeData = nodeData;
-			this.costFunction = costFunction;
+			this.landmarkNode = landmarkNode;
+			this.graph = graph;
 		}
 		
 		@Override
 		public void run() {
-			expandLandmarkFrom();
-			expandLandmarkTo();
-		}
-	
-		private void expandLandmarkFrom() {
-			LandmarksFromTravelTimeComparator comparator = new LandmarksFromTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
-			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double fromTravTime = ((LandmarksData) this.nodeData.get(node)).getFromLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getOutLinks().values()) {
-					Node n;
-					n = l.getToNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = fromTravTime + linkTravTime;
-					if (role2.getFromLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setFromLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
-					}
-				}
+			double[] fromLandmark = expandLandmark(this.graph.firstOutLink, this.graph.outLinkTo, this.graph.outLinkCost);
+			double[] toLandmark = expandLandmark(this.graph.firstInLink, this.graph.inLinkFrom, this.graph.inLinkCost);
+			for (int node = 0; node < fromLandmark.length; node++) {
+				int position = node * landmarkCount + this.landmarkIdx;
+				minLandmarkCosts[position] = roundDown(Math.min(fromLandmark[node], toLandmark[node]));
+				maxLandmarkCosts[position] = roundUp(Math.max(fromLandmark[node], toLandmark[node]));
 			}
 		}
 
-		private void expandLandmarkTo() {
-			LandmarksToTravelTimeComparator comparator = new LandmarksToTravelTimeComparator(this.nodeData, this.landmarkIdx);
-			PriorityQueue<Node> pendingNodes = new PriorityQueue<>(100, comparator);
-			LandmarksData role = (LandmarksData) this.nodeData.get(this.landmark);
-			role.setToLandmarkTravelTime(this.landmarkIdx, 0.0);
-			role.setFromLandmarkTravelTime(this.landmarkIdx, 0.0);
-			pendingNodes.add(this.landmark);
+		/**
+		 * @return the least costs from the landmark to each node along the given links
+		 */
+		private double[] expandLandmark(final int[] firstLink, final int[] linkNode, final double[] linkCost) {
+			double[] costs = new double[firstLink.length - 1];
+			Arrays.fill(costs, Double.POSITIVE_INFINITY);
+			NodeHeap pendingNodes = new NodeHeap();
+			costs[this.landmarkNode] = 0.0;
+			pendingNodes.add(this.landmarkNode, 0.0);
 			while (!pendingNodes.isEmpty()) {
-				Node node = pendingNodes.poll();
-				double toTravTime = ((LandmarksData) this.nodeData.get(node)).getToLandmarkTravelTime(this.landmarkIdx);
-				LandmarksData role2;
-				for (Link l : node.getInLinks().values()) {
-					Node n = l.getFromNode();
-					double linkTravTime = this.costFunction.getLinkMinimumTravelDisutility(l);
-					role2 = (LandmarksData) this.nodeData.get(n);
-					double totalTravelTime = toTravTime + linkTravTime;
-					if (role2.getToLandmarkTravelTime(this.landmarkIdx) > totalTravelTime) {
-						role2.setToLandmarkTravelTime(this.landmarkIdx, totalTravelTime);
-						pendingNodes.add(n);
+				double cost = pendingNodes.peekCost();
+				int node = pendingNodes.poll();
+				if (cost > costs[node]) {
+					continue; // outdated entry, the node was added again with lower costs
+				}
+				for (int l = firstLink[node]; l < firstLink[node + 1]; l++) {
+					int n = linkNode[l];
+					double totalCost = cost + linkCost[l];
+					if (costs[n] > totalCost) {
+						costs[n] = totalCost;
+						pendingNodes.add(n, totalCost);
 					}
 				}
 			}
+			return costs;
 		}
-	
 	}
 
-	public Node[] getLandmarks() {
-		return this.landmarks.clone();
+	private static float roundDown(double value) {
+		float f = (float) value;
+		return f > value ? Math.nextDown(f) : f;
 	}
 
-	@Override
-	public LandmarksData getNodeData(final Node n) {
-		DeadEndData r = this.nodeData.get(n);
-		if (r == null) {
-			r = new LandmarksData(this.landmarkCount);
-			this.nodeData.put(n, r);
-		}
-		// would be better to work with a Map<Node,LandmarksData>, but for some reason the implementor of this class
-		// decided to inherit from PreProcessEuclidean, which inherits from PreprocessDijkstra, which is wehre the field
-		// is..
-		// Before I casted here, the cast was done from whithin AStarLandmarks algorithm, which is even worse.
-		// td dec 15
-		return (LandmarksData) r;
+	private static float roundUp(double value) {
+		float f = (float) value;
+		return f < value ? Math.nextUp(f) : f;
 	}
 
-	public static class LandmarksData extends DeadEndData {
-
-		private final double[] landmarkTravelTime1;
-		private final double[] landmarkTravelTime2;
-
-		LandmarksData(final int landmarkCount) {
-			this.landmarkTravelTime2 = new double[landmarkCount];
-			this.landmarkTravelTime1 = new double[landmarkCount];
-			for (int i = 0; i < this.landmarkTravelTime2.length; i++) {
-				this.landmarkTravelTime2[i] = Double.POSITIVE_INFINITY;
-				this.landmarkTravelTime1[i] = Double.POSITIVE_INFINITY;
-			}
-		}
-
-		void setToLandmarkTravelTime(final int landmarkIndex, final double travelTime) {
-			this.landmarkTravelTime2[landmarkIndex] = travelTime;
-		}
-
-		void setFromLandmarkTravelTime(final int landmarkIndex, final double travelTime) {
-			this.landmarkTravelTime1[landmarkIndex] = travelTime;
-		}
+	/**
+	 * A binary min-heap of node indices, which may contain the same node multiple times.
+	 */
+	private static final class NodeHeap {
+		private int[] nodes = new int[64];
+		private double[] costs = new double[64];
+		private int size = 0;
 
-		double getToLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime2[landmarkIndex];
+		boolean isEmpty() {
+			return this.size == 0;
 		}
 
-		double getFromLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime1[landmarkIndex];
+		double peekCost() {
+			return this.costs[0];
 		}
 
-		void updateMinMaxTravelTimes() {
-			for (int i = 0; i < this.landmarkTravelTime1.length; i++) {
-				setTravelTimes(i, this.landmarkTravelTime2[i], this.landmarkTravelTime1[i]);
+		void add(int node, double cost) {
+			if (this.size == this.nodes.length) {
+				this.nodes = Arrays.copyOf(this.nodes, 2 * this.size);
+				this.costs = Arrays.copyOf(this.costs, 2 * this.size);
 			}
+			int i = this.size++;
+			while (i > 0) {
+				int parent = (i - 1) >> 1;
+				if (this.costs[parent] <= cost) {
+					break;
+				}
+				this.nodes[i] = this.nodes[parent];
+				this.costs[i] = this.costs[parent];
+				i = parent;
+			}
+			this.nodes[i] = node;
+			this.costs[i] = cost;
 		}
 
-		private void setTravelTimes(final int landmarkIndex, final double travelTime1,
-				final double travelTime2) {
-			if (travelTime1 > travelTime2) {
-				this.landmarkTravelTime2[landmarkIndex] = travelTime1;
-				this.landmarkTravelTime1[landmarkIndex] = travelTime2;
-			} else {
-				this.landmarkTravelTime1[landmarkIndex] = travelTime1;
-				this.landmarkTravelTime2[landmarkIndex] = travelTime2;
+		int poll() {
+			int result = this.nodes[0];
+			int node = this.nodes[--this.size];
+			double cost = this.costs[this.size];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= this.size) {
+					break;
+				}
+				if (child + 1 < this.size && this.costs[child + 1] < this.costs[child]) {
+					child++;
+				}
+				if (this.costs[child] >= cost) {
+					break;
+				}
+				this.nodes[i] = this.nodes[child];
+				this.costs[i] = this.costs[child];
+				i = child;
 			}
+			this.nodes[i] = node;
+			this.costs[i] = cost;
+			return result;
 		}
+	}
 
-		public double getMinLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime1[landmarkIndex];
+	/**
+	 * @return a hash of the nodes and links of the network, their minimal costs, the landmark count and the landmarks
+	 * 		chosen by the landmarker
+	 */
+	private long fingerprint(final Network network, final double[] linkCosts) {
+		long hash = 1125899906842597L;
+		hash = 31 * hash + this.landmarkCount;
+		hash = 31 * hash + this.landmarker.getClass().getName().hashCode();
+		for (Node landmark : this.landmarks) {
+			hash = 31 * hash + landmark.getId().toString().hashCode();
 		}
+		for (Node node : this.nodes) {
+			hash = 31 * hash + node.getId().toString().hashCode();
+			hash = 31 * hash + Double.hashCode(node.getCoord().getX());
+			hash = 31 * hash + Double.hashCode(node.getCoord().getY());
+		}
+		int l = 0;
+		for (Link link : network.getLinks().values()) {
+			hash = 31 * hash + link.getId().toString().hashCode();
+			hash = 31 * hash + link.getFromNode().getId().toString().hashCode();
+			hash = 31 * hash + link.getToNode().getId().toString().hashCode();
+			hash = 31 * hash + Double.hashCode(linkCosts[l++]);
+		}
+		return hash;
+	}
 
-		public double getMaxLandmarkTravelTime(final int landmarkIndex) {
-			return this.landmarkTravelTime2[landmarkIndex];
+	private void writeCache(final File cacheFile) {
+		File tmpFile = new File(cacheFile.getPath() + ".tmp");
+		try {
+			Files.createDirectories(cacheFile.getAbsoluteFile().getParentFile().toPath());
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 64 * 1024))) {
+				out.writeInt(CACHE_MAGIC);
+				out.writeInt(CACHE_VERSION);
+				out.writeInt(this.nodes.length);
+				out.writeInt(this.landmarks.length);
+				for (Node node : this.nodes) {
+					out.writeUTF(node.getId().toString());
+				}
+				for (Node landmark : this.landmarks) {
+					out.writeInt(this.nodeIndices[landmark.getId().index()]);
+				}
+				for (int i = 0; i < this.minLandmarkCosts.length; i++) {
+					out.writeFloat(this.minLandmarkCosts[i]);
+					out.writeFloat(this.maxLandmarkCosts[i]);
+				}
+			}
+			Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			log.info("wrote landmarks to " + cacheFile);
+		} catch (IOException e) {
+			log.warn("could not write landmarks to " + cacheFile + ": " + e.getMessage());
+			tmpFile.delete();
 		}
 	}
 
-    /**
-	 * Sorts the Nodes ascending according to their ToLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
+	/**
+	 * @return <code>true</code> if the landmarks could be read from the file
 	 */
-	private static class LandmarksToTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-
-		protected LandmarksToTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
+	private boolean readCache(final File cacheFile) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile), 64 * 1024))) {
+			if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION || in.readInt() != this.nodes.length) {
+				log.warn("ignoring " + cacheFile + ", it does not contain landmarks for this network.");
+				return false;
+			}
+			int count = in.readInt();
+			for (Node node : this.nodes) {
+				if (!node.getId().toString().equals(in.readUTF())) {
+					log.warn("ignoring " + cacheFile + ", it does not contain landmarks for this network.");
+					return false;
+				}
+			}
+			if (count != this.landmarks.length) {
+				log.warn("ignoring " + cacheFile + ", it does not contain the same landmarks.");
+				return false;
+			}
+			for (int i = 0; i < count; i++) {
+				if (this.nodes[in.readInt()] != this.landmarks[i]) {
+					log.warn("ignoring " + cacheFile + ", it does not contain the same landmarks.");
+					return false;
+				}
+			}
+			float[] minCosts = new float[this.nodes.length * this.landmarkCount];
+			float[] maxCosts = new float[this.nodes.length * this.landmarkCount];
+			for (int i = 0; i < minCosts.length; i++) {
+				minCosts[i] = in.readFloat();
+				maxCosts[i] = in.readFloat();
+			}
+			this.minLandmarkCosts = minCosts;
+			this.maxLandmarkCosts = maxCosts;
+			return true;
+		} catch (IOException | ArrayIndexOutOfBoundsException e) {
+			log.warn("could not read landmarks from " + cacheFile + ": " + e.getMessage());
+			return false;
 		}
+	}
 
-		@Override
-		public int compare(final Node n1, final Node n2) {
-
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getToLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getToLandmarkTravelTime(this.landmarkIndex);
+	public Node[] getLandmarks() {
+		return this.landmarks.clone();
+	}
 
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
+	@Override
+	public LandmarksData getNodeData(final Node n) {
+		DeadEndData r = this.nodeData.get(n);
+		if (r == null) {
+			int index = n.getId().index() < this.nodeIndices.length ? this.nodeIndices[n.getId().index()] : -1;
+			if (index >= 0 && this.nodes[index] != n) {
+				index = -1;
 			}
-			return n1.getId().compareTo(n2.getId());
+			r = new LandmarksData(this, index);
+			this.nodeData.put(n, r);
 		}
+		// would be better to work with a Map<Node,LandmarksData>, but for some reason the implementor of this class
+		// decided to inherit from PreProcessEuclidean, which inherits from PreprocessDijkstra, which is wehre the field
+		// is..
+		// Before I casted here, the cast was done from whithin AStarLandmarks algorithm, which is even worse.
+		// td dec 15
+		return (LandmarksData) r;
 	}
 
 	/**
-	 * Sorts the Nodes ascending according to their FromLandmarkTravelTime.
-	 *
-	 * @author lnicolas
-	 * @author mrieser
+	 * The landmark costs of one node, as a view on the tables of {@link PreProcessLandmarks}. Nodes that were not
+	 * part of the network have infinite costs to all landmarks.
 	 */
-	private static class LandmarksFromTravelTimeComparator implements Comparator<Node>, MatsimComparator {
-		private final Map<Node, DeadEndData> roleData;
-		private final int landmarkIndex;
-		
-		protected LandmarksFromTravelTimeComparator(final Map<Node, DeadEndData> roleData, final int landmarkIndex) {
-			this.roleData = roleData;
-			this.landmarkIndex = landmarkIndex;
+	public static class LandmarksData extends DeadEndData {
+
+		private final PreProcessLandmarks preProcessData;
+		private final int position;
+
+		LandmarksData(final PreProcessLandmarks preProcessData, final int nodeIndex) {
+			this.preProcessData = preProcessData;
+			this.position = nodeIndex < 0 ? -1 : nodeIndex * preProcessData.landmarkCount;
 		}
-		
-		@Override
-		public int compare(final Node n1, final Node n2) {
-			
-			double c1 = ((LandmarksData) this.roleData.get(n1)).getFromLandmarkTravelTime(this.landmarkIndex);
-			double c2 = ((LandmarksData) this.roleData.get(n2)).getFromLandmarkTravelTime(this.landmarkIndex);
-			
-			if (c1 < c2) {
-				return -1;
-			}
-			if (c1 > c2) {
-				return +1;
-			}
-			return n1.getId().compareTo(n2.getId());
+
+		public double getMinLandmarkTravelTime(final int landmarkIndex) {
+			return this.position < 0 ? Double.POSITIVE_INFINITY : this.preProcessData.minLandmarkCosts[this.position + landmarkIndex];
+		}
+
+		public double getMaxLandmarkTravelTime(final int landmarkIndex) {
+			return this.position < 0 ? Double.POSITIVE_INFINITY : this.preProcessData.maxLandmarkCosts[this.position + landmarkIndex];
 		}
 	}
-	
+
 }
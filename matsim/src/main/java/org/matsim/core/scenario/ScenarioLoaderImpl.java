@@ -28,12 +28,17 @@ import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigGroup;
 import org.matsim.core.config.groups.FacilitiesConfigGroup;
 import org.matsim.core.config.groups.HouseholdsConfigGroup;
+import org.matsim.core.config.groups.PlansConfigGroup;
+import org.matsim.core.network.CompactNetwork;
 import org.matsim.core.network.NetworkChangeEvent;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.network.io.NetworkChangeEventsParser;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.io.PopulationSnapshotReader;
+import org.matsim.core.population.routes.CompressedNetworkRouteFactory;
+import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.facilities.MatsimFacilitiesReader;
@@ -134,6 +139,11 @@ class ScenarioLoaderImpl {
 			log.info("loading network from " + networkUrl);
 			String inputCRS = config.network().getInputCRS();
 
+			if (CompactNetwork.isCompactNetworkFile(networkUrl)) {
+				loadCompactNetwork(networkUrl, inputCRS);
+				return;
+			}
+
 			MatsimNetworkReader reader =
 					new MatsimNetworkReader(
 							inputCRS,
@@ -153,6 +163,24 @@ class ScenarioLoaderImpl {
 		}
 	}
 
+	private void loadCompactNetwork(URL networkUrl, String inputCRS) {
+		if (inputCRS != null && !inputCRS.equals(config.global().getCoordinateSystem())) {
+			throw new RuntimeException("compact networks cannot be transformed to another coordinate system while loading. "
+					+ "Transform the network before writing it as compact network.");
+		}
+		if (this.config.network().isTimeVariantNetwork()) {
+			throw new RuntimeException("compact networks cannot be modified, and thus cannot be used as time variant networks.");
+		}
+		CompactNetwork network = CompactNetwork.read(networkUrl);
+		network.putAttributeConverters(attributeConverters);
+		this.scenario.setNetwork(network);
+		if (PlansConfigGroup.NetworkRouteType.CompressedNetworkRoute.equals(this.config.plans().getNetworkRouteType())) {
+			// the route factory was created with the (empty) network of the scenario
+			this.scenario.getPopulation().getFactory().getRouteFactories().setRouteFactory(NetworkRoute.class,
+					new CompressedNetworkRouteFactory(network));
+		}
+	}
+
 	private void loadActivityFacilities() {
 		if ((this.config.facilities() != null) && (this.config.facilities().getInputFile() != null)) {
 			URL facilitiesFileName = this.config.facilities().getInputFileURL(config.getContext());
@@ -194,12 +222,19 @@ class ScenarioLoaderImpl {
 			URL populationFileName = this.config.plans().getInputFileURL(this.config.getContext());
 			log.info("loading population from " + populationFileName);
 
-            final String targetCRS = config.global().getCoordinateSystem();
-			final String internalCRS = config.global().getCoordinateSystem();
-
-            final PopulationReader reader = new PopulationReader(targetCRS, internalCRS, this.scenario);
-            reader.putAttributeConverters( attributeConverters );
-            reader.parse( populationFileName );
+			if (PopulationSnapshotReader.isSnapshotFile(populationFileName)) {
+				// written in the internal coordinate system of an earlier run
+				final PopulationSnapshotReader reader = new PopulationSnapshotReader(this.scenario);
+				reader.putAttributeConverters(attributeConverters);
+				reader.readURL(populationFileName);
+			} else {
+				final String targetCRS = config.global().getCoordinateSystem();
+				final String internalCRS = config.global().getCoordinateSystem();
+
+				final PopulationReader reader = new PopulationReader(targetCRS, internalCRS, this.scenario);
+				reader.putAttributeConverters( attributeConverters );
+				reader.parse( populationFileName );
+			}
 
 			PopulationUtils.printPlansCount(this.scenario.getPopulation()) ;
 		}
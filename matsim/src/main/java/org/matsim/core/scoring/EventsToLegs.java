@@ -368,6 +368,24 @@ public final class EventsToLegs
 		transitVehicle2currentRoute.put(event.getVehicleId(), lineAndRoute);
 	}
 
+	/**
+	 * Starts recording the route of a vehicle that was already used before, so legs of persons entering it later are
+	 * created as if all events of the vehicle had been processed. Only the link the vehicle is currently on and the
+	 * relative position on the link where it last left traffic are needed for that.
+	 *
+	 * @param currentLinkId the link the vehicle is on, or <code>null</code> if it has not entered traffic yet
+	 */
+	void initVehicleRoute(Id<Vehicle> vehicleId, Id<Link> currentLinkId, double relativePositionOnLastArrivalLink) {
+		if (!vehicle2route.containsKey(vehicleId)) {
+			VehicleRoute route = new VehicleRoute();
+			if (currentLinkId != null) {
+				route.links.add(currentLinkId);
+			}
+			route.relativePositionOnLastArrivalLink = relativePositionOnLastArrivalLink;
+			vehicle2route.put(vehicleId, route);
+		}
+	}
+
 	public void addLegHandler(LegHandler legHandler) {
 		this.legHandlers.add(legHandler);
 	}
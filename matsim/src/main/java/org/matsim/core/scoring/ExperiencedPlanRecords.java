@@ -0,0 +1,327 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ExperiencedPlanRecords.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scoring;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacility;
+
+/**
+ * The activities and legs which the persons of the population experienced in one iteration.
+ * <p></p>
+ * Instead of one {@link Activity} or {@link Leg} object (with its route and attributes) per plan element, the
+ * elements are stored in columns of primitive arrays: times, link and facility indices, codes of the activity types
+ * and modes, and the links of network routes. The elements of a person are chained backwards, so they can be
+ * appended in any order of persons. The arrays are kept from one iteration to the next, so recording the
+ * experienced plans does not allocate memory once they are large enough.
+ * <p></p>
+ * Plans are only materialised on demand, see {@link #createPlan(Id)} and {@link #forEachPlan(BiConsumer)}. Elements
+ * which cannot be represented in the columns (e.g. transit routes, or elements with attributes) are kept as they are.
+ * <p></p>
+ * Not thread-safe.
+ */
+final class ExperiencedPlanRecords {
+
+	private static final int ABSENT = -2;
+	private static final int NONE = -1;
+
+	private static final byte ACTIVITY = 0;
+	private static final byte LEG_WITHOUT_ROUTE = 1;
+	private static final byte LEG_WITH_GENERIC_ROUTE = 2;
+	private static final byte LEG_WITH_NETWORK_ROUTE = 3;
+	private static final byte OTHER = 4;
+
+	/** the last element of every person, by id index: NONE if there is none yet, ABSENT if the person is not recorded */
+	private int[] lastElements = new int[0];
+	private double[] scores = new double[0];
+	private boolean scored = false;
+
+	private int size = 0;
+	private int[] previousElements = new int[16];
+	private byte[] kinds = new byte[16];
+	/** the activity type or mode */
+	private int[] typeCodes = new int[16];
+	/** the start time of activities, the departure time of legs */
+	private double[] startTimes = new double[16];
+	/** the end time of activities, the travel time of legs */
+	private double[] endTimes = new double[16];
+	private double[] routeTravelTimes = new double[16];
+	private double[] routeDistances = new double[16];
+	/** the link of activities, the start link of routes */
+	private int[] firstLinks = new int[16];
+	/** the facility of activities, the end link of routes */
+	private int[] secondIndices = new int[16];
+	/** the position of the links between the start and end link of network routes in routeLinks */
+	private int[] routeLinkOffsets = new int[16];
+	private int[] routeLinkCounts = new int[16];
+
+	private int routeLinksSize = 0;
+	private int[] routeLinks = new int[64];
+
+	private final Map<Integer, PlanElement> otherElements = new HashMap<>();
+
+	private final Map<String, Integer> codes = new HashMap<>();
+	private String[] types = new String[16];
+
+	private int[] chain = new int[16];
+
+	/**
+	 * Removes all elements, and starts recording the given persons. Elements of other persons are ignored.
+	 */
+	void reset(Iterable<Id<Person>> personIds) {
+		int numberOfIds = Id.getNumberOfIds(Person.class);
+		if (this.lastElements.length < numberOfIds) {
+			this.lastElements = new int[numberOfIds];
+			this.scores = new double[numberOfIds];
+		}
+		Arrays.fill(this.lastElements, ABSENT);
+		Arrays.fill(this.scores, Double.NaN);
+		for (Id<Person> personId : personIds) {
+			this.lastElements[personId.index()] = NONE;
+		}
+		this.scored = false;
+		this.size = 0;
+		this.routeLinksSize = 0;
+		this.otherElements.clear();
+	}
+
+	boolean contains(Id<Person> personId) {
+		int index = personId.index();
+		return index < this.lastElements.length && this.lastElements[index] != ABSENT;
+	}
+
+	void addActivity(Id<Person> personId, Activity activity) {
+		if (!contains(personId)) {
+			return;
+		}
+		int element = append(personId);
+		if (activity.getCoord() != null || !Time.isUndefinedTime(activity.getMaximumDuration())
+				|| !activity.getAttributes().isEmpty()) {
+			this.kinds[element] = OTHER;
+			this.otherElements.put(element, activity);
+			return;
+		}
+		this.kinds[element] = ACTIVITY;
+		this.typeCodes[element] = getCode(activity.getType());
+		this.startTimes[element] = activity.getStartTime();
+		this.endTimes[element] = activity.getEndTime();
+		this.firstLinks[element] = activity.getLinkId() == null ? NONE : activity.getLinkId().index();
+		this.secondIndices[element] = activity.getFacilityId() == null ? NONE : activity.getFacilityId().index();
+	}
+
+	void addLeg(Id<Person> personId, Leg leg) {
+		if (!contains(personId)) {
+			return;
+		}
+		int element = append(personId);
+		Route route = leg.getRoute();
+		byte kind = getKind(leg, route);
+		this.kinds[element] = kind;
+		if (kind == OTHER) {
+			this.otherElements.put(element, leg);
+			return;
+		}
+		this.typeCodes[element] = getCode(leg.getMode());
+		this.startTimes[element] = leg.getDepartureTime();
+		this.endTimes[element] = leg.getTravelTime();
+		if (kind == LEG_WITHOUT_ROUTE) {
+			return;
+		}
+		this.routeTravelTimes[element] = route.getTravelTime();
+		this.routeDistances[element] = route.getDistance();
+		this.firstLinks[element] = route.getStartLinkId() == null ? NONE : route.getStartLinkId().index();
+		this.secondIndices[element] = route.getEndLinkId() == null ? NONE : route.getEndLinkId().index();
+		if (kind == LEG_WITH_NETWORK_ROUTE) {
+			List<Id<Link>> linkIds = ((NetworkRoute) route).getLinkIds();
+			ensureRouteLinksCapacity(this.routeLinksSize + linkIds.size());
+			this.routeLinkOffsets[element] = this.routeLinksSize;
+			this.routeLinkCounts[element] = linkIds.size();
+			for (Id<Link> linkId : linkIds) {
+				this.routeLinks[this.routeLinksSize++] = linkId.index();
+			}
+		}
+	}
+
+	private static byte getKind(Leg leg, Route route) {
+		if (!leg.getAttributes().isEmpty()) {
+			return OTHER;
+		}
+		if (route == null) {
+			return LEG_WITHOUT_ROUTE;
+		}
+		if (route instanceof GenericRouteImpl) {
+			return ((GenericRouteImpl) route).getRouteDescription() == null ? LEG_WITH_GENERIC_ROUTE : OTHER;
+		}
+		if (route instanceof NetworkRoute) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			return networkRoute.getVehicleId() == null && Double.isNaN(networkRoute.getTravelCost())
+					? LEG_WITH_NETWORK_ROUTE : OTHER;
+		}
+		return OTHER;
+	}
+
+	void setScore(Id<Person> personId, double score) {
+		if (contains(personId)) {
+			this.scores[personId.index()] = score;
+			this.scored = true;
+		}
+	}
+
+	/**
+	 * @return a new plan with the elements of the given person, or <code>null</code> if the person is not recorded
+	 */
+	Plan createPlan(Id<Person> personId) {
+		if (!contains(personId)) {
+			return null;
+		}
+		int index = personId.index();
+		int count = 0;
+		for (int element = this.lastElements[index]; element != NONE; element = this.previousElements[element]) {
+			if (count == this.chain.length) {
+				this.chain = Arrays.copyOf(this.chain, 2 * count);
+			}
+			this.chain[count++] = element;
+		}
+		Plan plan = PopulationUtils.createPlan();
+		for (int i = count - 1; i >= 0; i--) {
+			plan.getPlanElements().add(createPlanElement(this.chain[i]));
+		}
+		if (this.scored) {
+			plan.setScore(this.scores[index]);
+		}
+		return plan;
+	}
+
+	/**
+	 * Passes a new plan for every recorded person to the consumer, in the order of the id indices as in an
+	 * {@link org.matsim.api.core.v01.IdMap}. Only one plan exists at a time, unless the consumer keeps them.
+	 */
+	void forEachPlan(BiConsumer<Id<Person>, Plan> consumer) {
+		for (int index = 0; index < this.lastElements.length; index++) {
+			if (this.lastElements[index] != ABSENT) {
+				Id<Person> personId = Id.get(index, Person.class);
+				consumer.accept(personId, createPlan(personId));
+			}
+		}
+	}
+
+	private PlanElement createPlanElement(int element) {
+		byte kind = this.kinds[element];
+		if (kind == OTHER) {
+			return this.otherElements.get(element);
+		}
+		if (kind == ACTIVITY) {
+			Activity activity = PopulationUtils.createActivityFromLinkId(this.types[this.typeCodes[element]],
+					getLinkId(this.firstLinks[element]));
+			int facility = this.secondIndices[element];
+			activity.setFacilityId(facility == NONE ? null : Id.get(facility, ActivityFacility.class));
+			activity.setStartTime(this.startTimes[element]);
+			activity.setEndTime(this.endTimes[element]);
+			return activity;
+		}
+		Leg leg = PopulationUtils.createLeg(this.types[this.typeCodes[element]]);
+		leg.setDepartureTime(this.startTimes[element]);
+		leg.setTravelTime(this.endTimes[element]);
+		if (kind == LEG_WITHOUT_ROUTE) {
+			return leg;
+		}
+		Id<Link> startLinkId = getLinkId(this.firstLinks[element]);
+		Id<Link> endLinkId = getLinkId(this.secondIndices[element]);
+		Route route;
+		if (kind == LEG_WITH_NETWORK_ROUTE) {
+			@SuppressWarnings("unchecked")
+			Id<Link>[] linkIds = new Id[this.routeLinkCounts[element]];
+			for (int i = 0; i < linkIds.length; i++) {
+				linkIds[i] = getLinkId(this.routeLinks[this.routeLinkOffsets[element] + i]);
+			}
+			route = RouteUtils.createLinkNetworkRouteImpl(startLinkId, linkIds, endLinkId);
+		} else {
+			route = RouteUtils.createGenericRouteImpl(startLinkId, endLinkId);
+		}
+		route.setTravelTime(this.routeTravelTimes[element]);
+		route.setDistance(this.routeDistances[element]);
+		leg.setRoute(route);
+		return leg;
+	}
+
+	private static Id<Link> getLinkId(int index) {
+		return index == NONE ? null : Id.get(index, Link.class);
+	}
+
+	private int append(Id<Person> personId) {
+		if (this.size == this.kinds.length) {
+			int capacity = 2 * this.size;
+			this.previousElements = Arrays.copyOf(this.previousElements, capacity);
+			this.kinds = Arrays.copyOf(this.kinds, capacity);
+			this.typeCodes = Arrays.copyOf(this.typeCodes, capacity);
+			this.startTimes = Arrays.copyOf(this.startTimes, capacity);
+			this.endTimes = Arrays.copyOf(this.endTimes, capacity);
+			this.routeTravelTimes = Arrays.copyOf(this.routeTravelTimes, capacity);
+			this.routeDistances = Arrays.copyOf(this.routeDistances, capacity);
+			this.firstLinks = Arrays.copyOf(this.firstLinks, capacity);
+			this.secondIndices = Arrays.copyOf(this.secondIndices, capacity);
+			this.routeLinkOffsets = Arrays.copyOf(this.routeLinkOffsets, capacity);
+			this.routeLinkCounts = Arrays.copyOf(this.routeLinkCounts, capacity);
+		}
+		int element = this.size++;
+		int index = personId.index();
+		this.previousElements[element] = this.lastElements[index];
+		this.lastElements[index] = element;
+		return element;
+	}
+
+	private void ensureRouteLinksCapacity(int capacity) {
+		if (capacity > this.routeLinks.length) {
+			this.routeLinks = Arrays.copyOf(this.routeLinks, Math.max(capacity, 2 * this.routeLinks.length));
+		}
+	}
+
+	private int getCode(String type) {
+		Integer code = this.codes.get(type);
+		if (code == null) {
+			code = this.codes.size();
+			this.codes.put(type, code);
+			if (code == this.types.length) {
+				this.types = Arrays.copyOf(this.types, 2 * code);
+			}
+			this.types[code] = type;
+		}
+		return code;
+	}
+
+}
@@ -25,38 +25,41 @@ import com.google.inject.Inject;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
-import org.matsim.api.core.v01.population.Activity;
-import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
-import org.matsim.api.core.v01.population.PopulationWriter;
-import org.matsim.core.config.Config;
 import org.matsim.core.controler.ControlerListenerManager;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.io.StreamingPopulationWriter;
 
-import java.util.Map;
+import java.util.function.BiConsumer;
 
+/**
+ * Records the experienced plans in {@link ExperiencedPlanRecords}, which only creates plan objects when they are
+ * needed. {@link #writeExperiencedPlans(String)} streams them out one person at a time, {@link #getExperiencedPlans()}
+ * creates all of them once per iteration. Legs and activities experienced after that are also added to the created
+ * plans, so these stay up to date, as when the plans were recorded directly.
+ */
 class ExperiencedPlansServiceImpl implements ExperiencedPlansService, EventsToLegs.LegHandler, EventsToActivities.ActivityHandler {
 
 	private final static Logger log = Logger.getLogger(ExperiencedPlansServiceImpl.class);
 
-	@Inject private Config config;
 	@Inject private Population population;
 	@Inject(optional = true) private ScoringFunctionsForPopulation scoringFunctionsForPopulation;
 
-	private final IdMap<Person, Plan> agentRecords = new IdMap<>(Person.class);
+	private final ExperiencedPlanRecords agentRecords = new ExperiencedPlanRecords();
+	/** the plans created by {@link #getExperiencedPlans()}, <code>null</code> if they were not requested yet */
+	private IdMap<Person, Plan> experiencedPlans = null;
 
 	@Inject
 	ExperiencedPlansServiceImpl(ControlerListenerManager controlerListenerManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs) {
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
-				for (Person person : population.getPersons().values()) {
-					agentRecords.put(person.getId(), PopulationUtils.createPlan());
-				}
+				agentRecords.reset(population.getPersons().keySet());
+				experiencedPlans = null;
 			}
 		});
 		eventsToActivities.addActivityHandler(this);
@@ -67,11 +70,10 @@ class ExperiencedPlansServiceImpl implements ExperiencedPlansService, EventsToLe
 	synchronized public void handleLeg(PersonExperiencedLeg o) {
 		// Has to be synchronized because the thing which sends Legs and the thing which sends Activities can run
 		// on different threads. Will go away when/if we get a more Actor or Reactive Streams like event infrastructure.
-		Id<Person> agentId = o.getAgentId();
-		Leg leg = o.getLeg();
-		Plan plan = agentRecords.get(agentId);
+		agentRecords.addLeg(o.getAgentId(), o.getLeg());
+		Plan plan = this.experiencedPlans == null ? null : this.experiencedPlans.get(o.getAgentId());
 		if (plan != null) {
-			plan.addLeg(leg);
+			plan.addLeg(o.getLeg());
 		}
 	}
 
@@ -79,25 +81,30 @@ class ExperiencedPlansServiceImpl implements ExperiencedPlansService, EventsToLe
 	synchronized public void handleActivity(PersonExperiencedActivity o) {
 		// Has to be synchronized because the thing which sends Legs and the thing which sends Activities can run
 		// on different threads. Will go away when/if we get a more Actor or Reactive Streams like event infrastructure.
-		Id<Person> agentId = o.getAgentId();
-		Activity activity = o.getActivity();
-		Plan plan = agentRecords.get(agentId);
+		agentRecords.addActivity(o.getAgentId(), o.getActivity());
+		Plan plan = this.experiencedPlans == null ? null : this.experiencedPlans.get(o.getAgentId());
 		if (plan != null) {
-			agentRecords.get(agentId).addActivity(activity);
+			plan.addActivity(o.getActivity());
 		}
 	}
 
 	@Override
 	public void writeExperiencedPlans(String iterationFilename) {
 //		finishIteration(); // already called somewhere else in pgm flow.
-		Population tmpPop = PopulationUtils.createPopulation(config);
-		for (Map.Entry<Id<Person>, Plan> entry : this.agentRecords.entrySet()) {
-			Person person = PopulationUtils.getFactory().createPerson(entry.getKey());
-			Plan plan = entry.getValue();
+		StreamingPopulationWriter writer = new StreamingPopulationWriter();
+		writer.startStreaming(iterationFilename);
+		BiConsumer<Id<Person>, Plan> writePlan = (personId, plan) -> {
+			Person person = PopulationUtils.getFactory().createPerson(personId);
 			person.addPlan(plan);
-			tmpPop.addPerson(person);
+			writer.run(person);
+		};
+		if (this.experiencedPlans != null) {
+			// the plans were already created, and may have been modified since
+			this.experiencedPlans.forEach(writePlan);
+		} else {
+			this.agentRecords.forEachPlan(writePlan);
 		}
-		new PopulationWriter(tmpPop, null).write(iterationFilename);
+		writer.closeStreaming();
 		// I removed the "V5" here in the assumption that it is better to move along with future format changes.  If this is
 		// undesired, please change back but could you then please also add a comment why you prefer this.  Thanks.
 		// kai, jan'16
@@ -106,20 +113,34 @@ class ExperiencedPlansServiceImpl implements ExperiencedPlansService, EventsToLe
 	public final void finishIteration() {
 		// I separated this from "writeExperiencedPlans" so that it can be called separately even when nothing is written.  Can't say
 		// if the design might be better served by an iteration ends listener.  kai, feb'17
-		for (Map.Entry<Id<Person>, Plan> entry : this.agentRecords.entrySet()) {
-			Plan plan = entry.getValue();
-			if (scoringFunctionsForPopulation != null) {
-				plan.setScore(scoringFunctionsForPopulation.getScoringFunctionForAgent(entry.getKey()).getScore());
-				if (plan.getScore().isNaN()) {
-					log.warn("score is NaN; plan:" + plan.toString());
-				}
+		if (scoringFunctionsForPopulation == null) {
+			return;
+		}
+		for (Person person : population.getPersons().values()) {
+			ScoringFunction scoringFunction = scoringFunctionsForPopulation.getScoringFunctionForAgent(person.getId());
+			if (scoringFunction == null || !this.agentRecords.contains(person.getId())) {
+				continue;
+			}
+			double score = scoringFunction.getScore();
+			this.agentRecords.setScore(person.getId(), score);
+			Plan plan = this.experiencedPlans == null ? null : this.experiencedPlans.get(person.getId());
+			if (plan != null) {
+				plan.setScore(score);
+			}
+			if (Double.isNaN(score)) {
+				log.warn("score is NaN; person: " + person.getId());
 			}
 		}
 	}
 
 	@Override
-	public IdMap<Person, Plan> getExperiencedPlans() {
-		return this.agentRecords;
+	synchronized public IdMap<Person, Plan> getExperiencedPlans() {
+		if (this.experiencedPlans == null) {
+			IdMap<Person, Plan> plans = new IdMap<>(Person.class);
+			this.agentRecords.forEachPlan(plans::put);
+			this.experiencedPlans = plans;
+		}
+		return this.experiencedPlans;
 	}
 
 }
@@ -0,0 +1,136 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PartialScores.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scoring;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+
+/**
+ * The scores of the persons after each of their activities and legs in one iteration.
+ * <p></p>
+ * The scores are appended to a few large arrays, and the scores of a person are chained backwards, instead of
+ * keeping one list per person. The arrays are kept from one iteration to the next.
+ * <p></p>
+ * The persons are split into segments by their id index modulo the number of segments, as in
+ * {@link ScoringFunctionsForPopulation}. Scores of persons in different segments may be added concurrently, but the
+ * scores of one segment must be added by one thread at a time.
+ */
+final class PartialScores {
+
+	private static final int ABSENT = -2;
+	private static final int NONE = -1;
+
+	/** the last score of every person, by id index: NONE if there is none yet, ABSENT if the person is not recorded */
+	private int[] lastEntries = new int[0];
+	private final Segment[] segments;
+
+	PartialScores(int numberOfSegments) {
+		this.segments = new Segment[numberOfSegments];
+		for (int i = 0; i < numberOfSegments; i++) {
+			this.segments[i] = new Segment();
+		}
+	}
+
+	/**
+	 * Removes all scores, and starts recording the given persons. Scores of other persons are ignored.
+	 */
+	void reset(Iterable<Id<Person>> personIds) {
+		int numberOfIds = Id.getNumberOfIds(Person.class);
+		if (this.lastEntries.length < numberOfIds) {
+			this.lastEntries = new int[numberOfIds];
+		}
+		Arrays.fill(this.lastEntries, ABSENT);
+		for (Id<Person> personId : personIds) {
+			this.lastEntries[personId.index()] = NONE;
+		}
+		for (Segment segment : this.segments) {
+			segment.size = 0;
+		}
+	}
+
+	void add(Id<Person> personId, double score) {
+		int index = personId.index();
+		if (index >= this.lastEntries.length || this.lastEntries[index] == ABSENT) {
+			return;
+		}
+		this.lastEntries[index] = this.segments[index % this.segments.length].add(score, this.lastEntries[index]);
+	}
+
+	/**
+	 * @return the scores of the given person, in the order in which they were added
+	 */
+	double[] get(Id<Person> personId) {
+		int index = personId.index();
+		if (index >= this.lastEntries.length || this.lastEntries[index] == ABSENT) {
+			return new double[0];
+		}
+		Segment segment = this.segments[index % this.segments.length];
+		int count = 0;
+		for (int entry = this.lastEntries[index]; entry != NONE; entry = segment.previousEntries[entry]) {
+			count++;
+		}
+		double[] scores = new double[count];
+		for (int entry = this.lastEntries[index]; entry != NONE; entry = segment.previousEntries[entry]) {
+			scores[--count] = segment.scores[entry];
+		}
+		return scores;
+	}
+
+	/**
+	 * Writes one line per person, with the person id and its scores separated by tabs, in the order of the id
+	 * indices.
+	 */
+	void write(BufferedWriter out) throws IOException {
+		for (int index = 0; index < this.lastEntries.length; index++) {
+			if (this.lastEntries[index] == ABSENT) {
+				continue;
+			}
+			Id<Person> personId = Id.get(index, Person.class);
+			out.write(personId.toString());
+			for (double score : get(personId)) {
+				out.write('\t' + String.valueOf(score));
+			}
+			out.newLine();
+		}
+	}
+
+	private static final class Segment {
+
+		private int size = 0;
+		private double[] scores = new double[16];
+		private int[] previousEntries = new int[16];
+
+		int add(double score, int previousEntry) {
+			if (this.size == this.scores.length) {
+				this.scores = Arrays.copyOf(this.scores, 2 * this.size);
+				this.previousEntries = Arrays.copyOf(this.previousEntries, 2 * this.size);
+			}
+			this.scores[this.size] = score;
+			this.previousEntries[this.size] = previousEntry;
+			return this.size++;
+		}
+	}
+
+}
@@ -21,27 +21,38 @@
 package org.matsim.core.scoring;
 
 import com.google.inject.Inject;
-import gnu.trove.TDoubleCollection;
-import gnu.trove.iterator.TDoubleIterator;
-import gnu.trove.list.array.TDoubleArrayList;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.IdSet;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
 import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.events.AfterMobsimEvent;
 import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
 import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.events.algorithms.Vehicle2DriverEventHandler;
 import org.matsim.core.events.handler.BasicEventHandler;
@@ -49,12 +60,16 @@ import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.router.StageActivityTypeIdentifier;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.utils.io.IOUtils;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
 import org.matsim.vehicles.Vehicle;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.matsim.core.router.TripStructureUtils.Trip;
@@ -63,17 +78,38 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p></p>
+ * The persons are split into shards, one per thread of the parallel event handling. Every shard converts the events of
+ * its persons into legs and activities itself (with its own {@link EventsToLegs} and {@link EventsToActivities}), and
+ * scores them on its own thread. This class only routes the events to the shards, in the order in which it receives
+ * them, so every scoring function sees exactly the same calls as if all events were processed on one thread, and no
+ * locking is needed. With a single shard, everything is processed directly on the thread handling the events.
+ * <p></p>
+ * With several shards, the scoring functions are only up to date after the mobsim, or after
+ * {@link #finishScoringFunctions()}.
+ * <p></p>
+ * The same conversion into legs and activities is done a second time by the {@link EventsToLegs} and
+ * {@link EventsToActivities} that are bound for other users, e.g. the {@link ExperiencedPlansService}. The shards do not
+ * use their results on purpose: those converters run on the thread handling the events, so the conversion for scoring
+ * would no longer be spread over the threads of the shards, which receive the events of their persons anyway. The
+ * scoring functions also get their own leg and activity objects, independent of the ones in the experienced plans.
  * 
  * @author michaz
  *
  */
- final class ScoringFunctionsForPopulation implements BasicEventHandler, EventsToLegs.LegHandler, EventsToActivities.ActivityHandler {
+ final class ScoringFunctionsForPopulation implements BasicEventHandler {
 	// there is currently only one place outside package where this is used, and I think it
 	// can be changed there.  kai, sep'17
 	// I just removed that.  kai, apr'18
 	
 	@SuppressWarnings("unused")
 	private final static Logger log = Logger.getLogger(ScoringFunctionsForPopulation.class);
+
+	private static final int MAX_SHARDS = 64; // the shards of a vehicle are stored as bits of a long
+	private static final int BATCH_SIZE = 512;
+	private static final int QUEUE_CAPACITY = 16;
+	private static final Object FINISH_ACTIVITIES = new Object();
+
 	private final Population population;
 	private final ScoringFunctionFactory scoringFunctionFactory;
 	
@@ -86,9 +122,12 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	 * should be faster and reduce the memory overhead.
 	 *
 	 * cdobler, nov'15
+	 *
+	 * The partial scores of all persons are now stored in the shared arrays of PartialScores, which are re-used in
+	 * every iteration, instead of one list per person and iteration.
 	 */
 	private final IdMap<Person, ScoringFunction> agentScorers = new IdMap<>(Person.class);
-	private final IdMap<Person, TDoubleCollection> partialScores = new IdMap<>(Person.class);
+	private final PartialScores partialScores;
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
 	private final IdMap<Person, Plan> tripRecords = new IdMap<>(Person.class);
 	
@@ -100,73 +139,106 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	
 	private Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
 
+	private final Shard[] shards;
+	/** the vehicles for which legs are recorded, in the same way as in {@link EventsToLegs} */
+	private final IdMap<Vehicle, VehicleRecord> vehicleRecords = new IdMap<>(Vehicle.class);
+	private final IdSet<Vehicle> transitVehicles = new IdSet<>(Vehicle.class);
+	private boolean workersRunning = false;
+
 	@Inject
-	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
-						 Population population, ScoringFunctionFactory scoringFunctionFactory) {
+	ScoringFunctionsForPopulation( ControlerListenerManager controlerListenerManager, EventsManager eventsManager, Network network,
+						 Population population, ScoringFunctionFactory scoringFunctionFactory, ParallelEventHandlingConfigGroup parallelEventHandlingConfig) {
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
 				init();
 			}
 		});
+		controlerListenerManager.addControlerListener(new AfterMobsimListener() {
+			@Override
+			public void notifyAfterMobsim(AfterMobsimEvent event) {
+				finishActivities();
+			}
+		});
 		this.population = population;
 		this.scoringFunctionFactory = scoringFunctionFactory;
+		Integer numberOfThreads = parallelEventHandlingConfig.getNumberOfThreads();
+		int numberOfShards = numberOfThreads == null ? 1 : Math.max(1, Math.min(numberOfThreads, MAX_SHARDS));
+		this.shards = new Shard[numberOfShards];
+		for (int i = 0; i < numberOfShards; i++) {
+			this.shards[i] = new Shard(i, network);
+		}
+		this.partialScores = new PartialScores(numberOfShards);
 		eventsManager.addHandler(this);
-		eventsToActivities.addActivityHandler(this);
-		eventsToLegs.addLegHandler(this);
-//		if ( passLinkEventsToPerson ) {
-			eventsManager.addHandler(this.vehicles2Drivers);
-//		}
+	}
+
+	@Inject(optional = true)
+	void setTransitSchedule(TransitSchedule transitSchedule) {
+		for (Shard shard : this.shards) {
+			shard.eventsToLegs.setTransitSchedule(transitSchedule);
+		}
 	}
 
 	private void init() {
 		for (Person person : this.population.getPersons().values()) {
 			ScoringFunction data = this.scoringFunctionFactory.createNewScoringFunction(person);
 			this.agentScorers.put(person.getId(), data);
-			this.partialScores.put(person.getId(), new TDoubleArrayList());
-			this.tripRecords.put(person.getId(), PopulationUtils.createPlan());
+			Plan tripRecord = this.tripRecords.get(person.getId());
+			if (tripRecord == null) {
+				this.tripRecords.put(person.getId(), PopulationUtils.createPlan());
+			} else {
+				tripRecord.getPlanElements().clear();
+			}
 		}
+		this.partialScores.reset(this.population.getPersons().keySet());
 	}
 
 	@Override
-	synchronized public void handleEvent(Event o) {
+	public void handleEvent(Event o) {
+		long targetShards = 0;
+		Id<Person> scoredPersonId = null;
 		// this is for the stuff that is directly based on events.
 		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
 		// for the time being, not all PersonEvents may "implement HasPersonId".
 		// link enter/leave events are NOT passed on, for performance reasons.
 		// kai/dominik, dec'12
 		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
-			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-					// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
-					// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
-				} 
-//				else {
-					scoringFunction.handleEvent(o);
-					// passing this on in any case, see comment above.  kai, mar'17
-//				}
+			scoredPersonId = ((HasPersonId) o).getPersonId();
+			if (scoredPersonId != null) {
+				targetShards |= 1L << getShardIndex(scoredPersonId);
 			}
 		}
 //		if ( passLinkEventsToPerson ) {
 			// Establish and end connection between driver and vehicle
 			if (o instanceof VehicleEntersTrafficEvent) {
 				this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+				VehicleRecord record = this.vehicleRecords.get(((VehicleEntersTrafficEvent) o).getVehicleId());
+				if (record != null) {
+					record.currentLinkId = ((VehicleEntersTrafficEvent) o).getLinkId();
+					targetShards |= record.shards;
+				}
 			}
 			if (o instanceof VehicleLeavesTrafficEvent) {
 				this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+				VehicleRecord record = this.vehicleRecords.get(((VehicleLeavesTrafficEvent) o).getVehicleId());
+				if (record != null) {
+					record.relativePositionOnLastArrivalLink = ((VehicleLeavesTrafficEvent) o).getRelativePositionOnLink();
+					targetShards |= record.shards;
+				}
 			}
 			// Pass LinkEnterEvent to person scoring, required e.g. for bicycle where link attributes are observed in scoring
 			if ( o instanceof LinkEnterEvent ) {
 				Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId() ;
 				Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId) ;
-				ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
 				// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
-				if (scoringFunction != null) {
-					scoringFunction.handleEvent(o) ;
+				if (driverId != null) {
+					scoredPersonId = driverId;
+					targetShards |= 1L << getShardIndex(driverId);
+				}
+				VehicleRecord record = this.vehicleRecords.get(vehicleId);
+				if (record != null) {
+					record.currentLinkId = ((LinkEnterEvent) o).getLinkId();
+					targetShards |= record.shards;
 				}
 			}
 			/*
@@ -177,17 +249,62 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 			 * kai, mar'17)
 			 */
 //		}
+		if (o instanceof PersonEntersVehicleEvent && scoredPersonId != null) {
+			Id<Vehicle> vehicleId = ((PersonEntersVehicleEvent) o).getVehicleId();
+			if (!this.transitVehicles.contains(vehicleId)) {
+				VehicleRecord record = this.vehicleRecords.computeIfAbsent(vehicleId, k -> new VehicleRecord());
+				int shardIndex = getShardIndex(scoredPersonId);
+				if ((record.shards & (1L << shardIndex)) == 0) {
+					// the shard has not seen this vehicle yet, so it needs to know where the vehicle is
+					record.shards |= 1L << shardIndex;
+					submit(this.shards[shardIndex], new VehicleRouteStart(vehicleId, record.currentLinkId,
+							record.relativePositionOnLastArrivalLink), null);
+				}
+			}
+		}
+		if (o instanceof TransitDriverStartsEvent) {
+			this.transitVehicles.add(((TransitDriverStartsEvent) o).getVehicleId());
+			targetShards = -1L;
+		}
+		if (o instanceof VehicleArrivesAtFacilityEvent) {
+			targetShards = -1L;
+		}
+
+		for (Shard shard : this.shards) {
+			if ((targetShards & (1L << shard.index)) != 0) {
+				submit(shard, o, scoredPersonId != null && getShardIndex(scoredPersonId) == shard.index ? scoredPersonId : null);
+			}
+		}
 	}
 
-	@Override
-	synchronized public void handleLeg(PersonExperiencedLeg o) {
+	private int getShardIndex(Id<Person> personId) {
+		return personId.index() % this.shards.length;
+	}
+
+	private void scoreEvent(Event o, Id<Person> agentId) {
+		ScoringFunction scoringFunction = getScoringFunctionForAgent(agentId);
+		if (scoringFunction != null) {
+			if (o instanceof PersonStuckEvent) {
+				scoringFunction.agentStuck(o.getTime());
+			} else if (o instanceof PersonMoneyEvent) {
+				scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+				// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
+				// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
+			} 
+//			else {
+				scoringFunction.handleEvent(o);
+				// passing this on in any case, see comment above.  kai, mar'17
+//			}
+		}
+	}
+
+	private void scoreLeg(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
 		Leg leg = o.getLeg();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
 		if (scoringFunction != null) {
 			scoringFunction.handleLeg(leg);
-			TDoubleCollection partialScoresForAgent = this.partialScores.get(agentId);
-			partialScoresForAgent.add(scoringFunction.getScore());
+			this.partialScores.add(agentId, scoringFunction.getScore());
 		}
 		Plan plan = this.tripRecords.get( agentId ) ; // as container for trip
 		if ( plan!=null ) {
@@ -195,15 +312,13 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		}
 	}
 
-	@Override
-	synchronized public void handleActivity(PersonExperiencedActivity o) {
+	private void scoreActivity(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
 		Activity activity = o.getActivity();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
 		if (scoringFunction != null) {
 			scoringFunction.handleActivity(activity);
-			TDoubleCollection partialScoresForAgent = this.partialScores.get(agentId);
-			partialScoresForAgent.add(scoringFunction.getScore());
+			this.partialScores.add(agentId, scoringFunction.getScore());
 		}
 		
 		Plan plan = this.tripRecords.get( agentId ); // as container for trip
@@ -252,7 +367,20 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		return this.agentScorers.get(agentId);
 	}
 
+	/**
+	 * Passes the activities which were not ended until the end of the mobsim to the scoring functions, like
+	 * {@link EventsToActivities#finish()}.
+	 */
+	private void finishActivities() {
+		for (Shard shard : this.shards) {
+			submit(shard, FINISH_ACTIVITIES, null);
+		}
+		awaitShards();
+	}
+
 	public void finishScoringFunctions() {
+		awaitShards();
+		stopWorkers();
 		// Rethrow an exception in a scoring function (user code) if there was one.
 		Throwable throwable = this.exception.get();
 		if (throwable != null) {
@@ -265,21 +393,14 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		for (ScoringFunction sf : this.agentScorers.values()) {
 			sf.finish();
 		}
-		for (Entry<Id<Person>, TDoubleCollection> entry : this.partialScores.entrySet()) {
-			entry.getValue().add(this.getScoringFunctionForAgent(entry.getKey()).getScore());
+		for (Entry<Id<Person>, ScoringFunction> entry : this.agentScorers.entrySet()) {
+			this.partialScores.add(entry.getKey(), entry.getValue().getScore());
 		}
 	}
 
 	public void writePartialScores(String iterationFilename) {
 		try ( BufferedWriter out = IOUtils.getBufferedWriter(iterationFilename) ) {
-			for (Entry<Id<Person>, TDoubleCollection> entry : this.partialScores.entrySet()) {
-				out.write(entry.getKey().toString());
-				TDoubleIterator iterator = entry.getValue().iterator();
-				while (iterator.hasNext()) {
-					out.write('\t' + String.valueOf(iterator.next()));
-				}
-				out.newLine();
-			}
+			this.partialScores.write(out);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -287,7 +408,221 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	@Override
 	public void reset(int iteration) {
+		awaitShards();
+		this.vehicles2Drivers.reset(iteration);
+		this.vehicleRecords.clear();
+		this.transitVehicles.clear();
+		for (Shard shard : this.shards) {
+			shard.eventsToLegs.reset(iteration);
+			shard.eventsToActivities.reset(iteration);
+		}
+	}
 
+	/**
+	 * Hands the given item to the shard, or processes it directly if there is only one shard.
+	 */
+	private void submit(Shard shard, Object item, Id<Person> scoredPersonId) {
+		if (this.shards.length == 1) {
+			shard.process(item, scoredPersonId);
+			return;
+		}
+		if (!this.workersRunning) {
+			startWorkers();
+		}
+		shard.add(item, scoredPersonId);
+	}
+
+	/**
+	 * Waits until all shards have processed everything submitted to them so far.
+	 */
+	private void awaitShards() {
+		if (!this.workersRunning) {
+			return;
+		}
+		CountDownLatch latch = new CountDownLatch(this.shards.length);
+		for (Shard shard : this.shards) {
+			shard.add(latch, null);
+			shard.flush();
+		}
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void startWorkers() {
+		for (Shard shard : this.shards) {
+			Thread thread = new Thread(shard, "ScoringShard-" + shard.index);
+			thread.setDaemon(true);
+			thread.start();
+		}
+		this.workersRunning = true;
+	}
+
+	private void stopWorkers() {
+		if (!this.workersRunning) {
+			return;
+		}
+		for (Shard shard : this.shards) {
+			shard.add(shard, null); // a shard stops when it finds itself in its queue
+			shard.flush();
+		}
+		this.workersRunning = false;
+	}
+
+	/**
+	 * The state of a vehicle which is needed to start recording its route in another shard.
+	 */
+	private static final class VehicleRecord {
+		long shards = 0;
+		Id<Link> currentLinkId = null;
+		double relativePositionOnLastArrivalLink = 0.0;
+	}
+
+	private static final class VehicleRouteStart {
+		final Id<Vehicle> vehicleId;
+		final Id<Link> currentLinkId;
+		final double relativePositionOnLastArrivalLink;
+
+		VehicleRouteStart(Id<Vehicle> vehicleId, Id<Link> currentLinkId, double relativePositionOnLastArrivalLink) {
+			this.vehicleId = vehicleId;
+			this.currentLinkId = currentLinkId;
+			this.relativePositionOnLastArrivalLink = relativePositionOnLastArrivalLink;
+		}
+	}
+
+	/**
+	 * The persons with the same shard index. Items are collected in batches by the thread handling the events and
+	 * processed in the same order by the thread of the shard.
+	 */
+	private final class Shard implements Runnable, EventsToLegs.LegHandler, EventsToActivities.ActivityHandler {
+
+		final int index;
+		final EventsToLegs eventsToLegs;
+		final EventsToActivities eventsToActivities = new EventsToActivities();
+		private final BlockingQueue<Object[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		/** items and the persons to score them for, alternating */
+		private Object[] batch = new Object[2 * BATCH_SIZE];
+		private int batchSize = 0;
+
+		Shard(int index, Network network) {
+			this.index = index;
+			this.eventsToLegs = new EventsToLegs(network);
+			this.eventsToLegs.addLegHandler(this);
+			this.eventsToActivities.addActivityHandler(this);
+		}
+
+		void add(Object item, Id<Person> scoredPersonId) {
+			this.batch[this.batchSize++] = item;
+			this.batch[this.batchSize++] = scoredPersonId;
+			if (this.batchSize == this.batch.length) {
+				flush();
+			}
+		}
+
+		void flush() {
+			if (this.batchSize == 0) {
+				return;
+			}
+			Object[] items = this.batch;
+			if (this.batchSize < items.length) {
+				items[this.batchSize] = null; // marks the end of the batch
+			}
+			this.batch = new Object[2 * BATCH_SIZE];
+			this.batchSize = 0;
+			try {
+				this.queue.put(items);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void run() {
+			try {
+				while (true) {
+					Object[] items = this.queue.take();
+					for (int i = 0; i < items.length && items[i] != null; i += 2) {
+						Object item = items[i];
+						if (item == this) {
+							return;
+						}
+						if (item instanceof CountDownLatch) {
+							((CountDownLatch) item).countDown();
+						} else if (exception.get() == null) {
+							try {
+								process(item, (Id<Person>) items[i + 1]);
+							} catch (Throwable t) {
+								// remember the first exception, it is thrown again in finishScoringFunctions()
+								exception.compareAndSet(null, t);
+							}
+						}
+					}
+				}
+			} catch (InterruptedException e) {
+				exception.compareAndSet(null, e);
+			}
+		}
+
+		void process(Object item, Id<Person> scoredPersonId) {
+			if (item instanceof Event) {
+				Event event = (Event) item;
+				if (scoredPersonId != null) {
+					scoreEvent(event, scoredPersonId);
+				}
+				convert(event);
+			} else if (item instanceof PersonExperiencedLeg) {
+				scoreLeg((PersonExperiencedLeg) item);
+			} else if (item instanceof PersonExperiencedActivity) {
+				scoreActivity((PersonExperiencedActivity) item);
+			} else if (item instanceof VehicleRouteStart) {
+				VehicleRouteStart start = (VehicleRouteStart) item;
+				this.eventsToLegs.initVehicleRoute(start.vehicleId, start.currentLinkId, start.relativePositionOnLastArrivalLink);
+			} else if (item == FINISH_ACTIVITIES) {
+				this.eventsToActivities.finish();
+			}
+		}
+
+		/**
+		 * Passes the event to the converters into legs and activities, like {@link EventsToLegsAndActivities}.
+		 */
+		private void convert(Event event) {
+			if (event instanceof LinkEnterEvent) {
+				this.eventsToLegs.handleEvent((LinkEnterEvent) event);
+			} else if (event instanceof ActivityEndEvent) {
+				this.eventsToActivities.handleEvent((ActivityEndEvent) event);
+			} else if (event instanceof ActivityStartEvent) {
+				this.eventsToActivities.handleEvent((ActivityStartEvent) event);
+			} else if (event instanceof PersonDepartureEvent) {
+				this.eventsToLegs.handleEvent((PersonDepartureEvent) event);
+			} else if (event instanceof PersonArrivalEvent) {
+				this.eventsToLegs.handleEvent((PersonArrivalEvent) event);
+			} else if (event instanceof PersonEntersVehicleEvent) {
+				this.eventsToLegs.handleEvent((PersonEntersVehicleEvent) event);
+			} else if (event instanceof VehicleEntersTrafficEvent) {
+				this.eventsToLegs.handleEvent((VehicleEntersTrafficEvent) event);
+			} else if (event instanceof VehicleLeavesTrafficEvent) {
+				this.eventsToLegs.handleEvent((VehicleLeavesTrafficEvent) event);
+			} else if (event instanceof TeleportationArrivalEvent) {
+				this.eventsToLegs.handleEvent((TeleportationArrivalEvent) event);
+			} else if (event instanceof TransitDriverStartsEvent) {
+				this.eventsToLegs.handleEvent((TransitDriverStartsEvent) event);
+			} else if (event instanceof VehicleArrivesAtFacilityEvent) {
+				this.eventsToLegs.handleEvent((VehicleArrivesAtFacilityEvent) event);
+			}
+		}
+
+		@Override
+		public void handleLeg(PersonExperiencedLeg leg) {
+			scoreLeg(leg);
+		}
+
+		@Override
+		public void handleActivity(PersonExperiencedActivity activity) {
+			scoreActivity(activity);
+		}
 	}
 
 //	public boolean isPassLinkEventsToPerson() {
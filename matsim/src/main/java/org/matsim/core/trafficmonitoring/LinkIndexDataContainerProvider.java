@@ -0,0 +1,142 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkIndexDataContainerProvider.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.network.NetworkUtils;
+
+/**
+ * Stores the travel times of all links in dense arrays, with the sum and the number of travel times per link and time
+ * slot, addressed by the {@linkplain Id#index() index} of the link id.  The event handler part and the router part of
+ * the {@link TravelTimeCalculator} thus both find the data of a link without a map lookup, also for links of routing
+ * networks.
+ * <p></p>
+ * The {@link TravelTimeData} of a link is only a view into the arrays.  It is created once per link and also added to
+ * the map of the calculator, so that resetting the calculator works as with the other providers.
+ * <p></p>
+ * Like the other providers, the arrays are not synchronized: the events manager calls an event handler from one
+ * thread at a time, and the routers read the travel times while no events are handled.  Only the creation of the
+ * views is synchronized, as several routers may ask for links without data at the same time.
+ *
+ * @see org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType#TravelTimeCalculatorLinkIndexArray
+ */
+final class LinkIndexDataContainerProvider implements DataContainerProvider {
+
+	private final Map<Id<Link>, TravelTimeData> linkData;
+	private final Network network;
+	private final int numSlots;
+
+	private LinkData[] views;
+	private double[] timeSums;
+	private int[] timeCounts;
+
+	LinkIndexDataContainerProvider(final Map<Id<Link>, TravelTimeData> linkData, final Network network, final int numSlots) {
+		this.linkData = linkData;
+		this.network = network;
+		this.numSlots = numSlots;
+		int capacity = 0;
+		for (Id<Link> linkId : network.getLinks().keySet()) {
+			capacity = Math.max(capacity, linkId.index() + 1);
+		}
+		this.views = new LinkData[capacity];
+		this.timeSums = new double[capacity * numSlots];
+		this.timeCounts = new int[capacity * numSlots];
+	}
+
+	@Override
+	public TravelTimeData getTravelTimeData(final Id<Link> linkId, final boolean createIfMissing) {
+		int index = linkId.index();
+		LinkData[] views = this.views;
+		if (index < views.length) {
+			LinkData data = views[index];
+			if (data != null) {
+				return data;
+			}
+		}
+		return createIfMissing ? createTravelTimeData(linkId) : null;
+	}
+
+	@Override
+	public TravelTimeData getTravelTimeData(final Link link, final boolean createIfMissing) {
+		return getTravelTimeData(link.getId(), createIfMissing);
+	}
+
+	private synchronized TravelTimeData createTravelTimeData(final Id<Link> linkId) {
+		int index = linkId.index();
+		if (index >= this.views.length) {
+			int capacity = Math.max(index + 1, this.views.length * 5 / 4);
+			this.views = Arrays.copyOf(this.views, capacity);
+			this.timeSums = Arrays.copyOf(this.timeSums, capacity * this.numSlots);
+			this.timeCounts = Arrays.copyOf(this.timeCounts, capacity * this.numSlots);
+		}
+		LinkData data = this.views[index];
+		if (data == null) {
+			data = new LinkData(this.network.getLinks().get(linkId), index * this.numSlots);
+			this.views[index] = data;
+			this.linkData.put(linkId, data);
+		}
+		return data;
+	}
+
+	private final class LinkData extends TravelTimeData {
+
+		private final Link link;
+		private final int offset;
+
+		LinkData(final Link link, final int offset) {
+			this.link = link;
+			this.offset = offset;
+		}
+
+		@Override
+		public void resetTravelTimes() {
+			Arrays.fill(timeSums, this.offset, this.offset + numSlots, 0.0);
+			Arrays.fill(timeCounts, this.offset, this.offset + numSlots, 0);
+		}
+
+		@Override
+		void addTravelTime(final int timeSlot, final double traveltime) {
+			timeSums[this.offset + timeSlot] += traveltime;
+			timeCounts[this.offset + timeSlot]++;
+		}
+
+		@Override
+		void setTravelTime(final int timeSlot, final double traveltime) {
+			timeSums[this.offset + timeSlot] = traveltime;
+			timeCounts[this.offset + timeSlot] = 1;
+		}
+
+		@Override
+		double getTravelTime(final int timeSlot, final double now) {
+			int cnt = timeCounts[this.offset + timeSlot];
+			if (cnt == 0) {
+				return NetworkUtils.getFreespeedTravelTime(this.link, now);
+			}
+			return timeSums[this.offset + timeSlot] / cnt;
+		}
+	}
+
+}
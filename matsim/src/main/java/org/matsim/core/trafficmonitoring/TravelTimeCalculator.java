@@ -22,6 +22,9 @@ package org.matsim.core.trafficmonitoring;
 import com.google.inject.Inject;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdSet;
+import org.matsim.api.core.v01.IdToDoubleMap;
+import org.matsim.api.core.v01.IdToIntMap;
 import org.matsim.api.core.v01.events.*;
 import org.matsim.api.core.v01.events.handler.*;
 import org.matsim.api.core.v01.network.Link;
@@ -40,7 +43,6 @@ import org.matsim.core.utils.collections.Tuple;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.VehicleType;
 
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -55,7 +57,8 @@ import java.util.concurrent.ConcurrentHashMap;
  * is stored in {@link TravelTimeData}-objects. If a short binSize is used, it is useful to
  * use {@link TravelTimeDataHashMap},}
  * as that one does not use any memory to time bins where no traffic occurred. By default,
- * {@link TravelTimeDataArray} is used.
+ * {@link TravelTimeDataArray} is used.  With {@link LinkIndexDataContainerProvider}, the data of all links is stored in
+ * dense arrays which are addressed by the index of the link id, which avoids the map lookups per event.
  *
  * @author dgrether
  * @author mrieser
@@ -77,11 +80,13 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	private Map<Tuple<Id<Link>, Id<Link>>, TravelTimeData> linkToLinkData;
 
-	private final DataContainerProvider dataContainerProvider;
+	private DataContainerProvider dataContainerProvider;
 
-	private final Map<Id<Vehicle>, LinkEnterEvent> linkEnterEvents;
+	// time and link of the last link enter event per vehicle, as primitives instead of one map entry with the event per vehicle
+	private final IdToDoubleMap<Vehicle> linkEnterTimes;
+	private final IdToIntMap<Vehicle> linkEnterLinks;
 
-	private final Set<Id<Vehicle>> vehiclesToIgnore;
+	private final IdSet<Vehicle> vehiclesToIgnore;
 	private final Set<String> analyzedModes;
 
 	private final boolean filterAnalyzedModes;
@@ -114,6 +119,13 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			case TravelTimeCalculatorHashMap:
 				calculator.ttDataFactory = new TravelTimeDataHashMapFactory(network);
 				break;
+			case TravelTimeCalculatorLinkIndexArray:
+				// (the factory is still used for the link-to-link travel times)
+				calculator.ttDataFactory = new TravelTimeDataArrayFactory(network, calculator.numSlots);
+				if (calculator.calculateLinkTravelTimes) {
+					calculator.dataContainerProvider = new LinkIndexDataContainerProvider(calculator.linkData, network, calculator.numSlots);
+				}
+				break;
 			default:
 				throw new RuntimeException(config.getTravelTimeCalculatorType() + " is unknown!");
 		}
@@ -247,11 +259,12 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			// assume that every link has 2 outgoing links as default
 			this.linkToLinkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4 * 2));
 		}
-		this.linkEnterEvents = new ConcurrentHashMap<>();
+		this.linkEnterTimes = new IdToDoubleMap<>(Vehicle.class);
+		this.linkEnterLinks = new IdToIntMap<>(Vehicle.class);
 
 		// if we just look at one mode, we need to ignore all vehicles with a different mode. However, the info re the mode is only in
 		// the vehicleEntersTraffic event.  So we need to memorize the ignored vehicles from there ...
-		this.vehiclesToIgnore = new HashSet<>();
+		this.vehiclesToIgnore = new IdSet<>(Vehicle.class);
 
 
 		this.reset(0);
@@ -264,26 +277,26 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		 * performs a trip with one of those modes. if not, we skip the event. */
 		if (filterAnalyzedModes && vehiclesToIgnore.contains(e.getVehicleId())) return;
 
-		LinkEnterEvent oldEvent = this.linkEnterEvents.remove(e.getVehicleId());
-		if ((oldEvent != null) && this.calculateLinkToLinkTravelTimes) {
-			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldEvent.getLinkId(), e.getLinkId());
+		if (this.calculateLinkToLinkTravelTimes && this.linkEnterTimes.containsKey(e.getVehicleId())) {
+			Id<Link> oldLinkId = Id.get(this.linkEnterLinks.get(e.getVehicleId()), Link.class);
+			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldLinkId, e.getLinkId());
 			TravelTimeData data = getLinkToLinkTravelTimeData(fromToLink );
-			double enterTime = oldEvent.getTime();
+			double enterTime = this.linkEnterTimes.get(e.getVehicleId());
 
 			final int timeSlot = this.aggregator.getTimeSlotIndex(enterTime );
 			data.addTravelTime(timeSlot, e.getTime() - enterTime );
 			data.setNeedsConsolidation( true );
 		}
-		this.linkEnterEvents.put(e.getVehicleId(), e);
+		this.linkEnterTimes.put(e.getVehicleId(), e.getTime());
+		this.linkEnterLinks.put(e.getVehicleId(), e.getLinkId().index());
 	}
 
 	@Override
 	public void handleEvent(final LinkLeaveEvent e) {
 		if (this.calculateLinkTravelTimes) {
-			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getVehicleId());
-			if (oldEvent != null) {
+			if (this.linkEnterTimes.containsKey(e.getVehicleId())) {
 				TravelTimeData data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
-				double enterTime = oldEvent.getTime();
+				double enterTime = this.linkEnterTimes.get(e.getVehicleId());
 
 				final int timeSlot = this.aggregator.getTimeSlotIndex(enterTime );
 				data.addTravelTime(timeSlot, e.getTime() - enterTime );
@@ -307,7 +320,8 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		/* remove EnterEvents from list when a vehicle arrives.
 		 * otherwise, the activity duration would counted as travel time, when the
 		 * vehicle departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		this.linkEnterTimes.remove(event.getVehicleId());
+		this.linkEnterLinks.remove(event.getVehicleId());
 
 		// try to remove vehicles from set with filtered vehicles
 		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
@@ -318,14 +332,16 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		/* remove EnterEvents from list when a bus stops on a link.
 		 * otherwise, the stop time would counted as travel time, when the
 		 * bus departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		this.linkEnterTimes.remove(event.getVehicleId());
+		this.linkEnterLinks.remove(event.getVehicleId());
 	}
 
 	@Override
 	public void handleEvent(VehicleAbortsEvent event) {
-		LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
-		if (e != null) {
-			TravelTimeData data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
+		if (this.linkEnterTimes.remove(event.getVehicleId())) {
+			Id<Link> linkId = Id.get(this.linkEnterLinks.get(event.getVehicleId()), Link.class);
+			this.linkEnterLinks.remove(event.getVehicleId());
+			TravelTimeData data = this.dataContainerProvider.getTravelTimeData(linkId, true);
 			data.setNeedsConsolidation( true );
 
 			//			this.aggregator.addStuckEventTravelTime(data, e.getTime(), event.getTime());
@@ -426,7 +442,8 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 				data.setNeedsConsolidation( false );
 			}
 		}
-		this.linkEnterEvents.clear();
+		this.linkEnterTimes.clear();
+		this.linkEnterLinks.clear();
 		this.vehiclesToIgnore.clear();
 	}
 
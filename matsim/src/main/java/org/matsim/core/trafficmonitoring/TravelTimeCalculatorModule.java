@@ -89,6 +89,10 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 			}
 		}
 
+		if (getConfig().travelTimeCalculator().getWriteTravelTimesInterval() > 0) {
+			addControlerListenerBinding().to(TravelTimeSnapshotControlerListener.class);
+		}
+
 	}
 
 	private static class SingleModeTravelTimeCalculatorProvider implements Provider<TravelTimeCalculator> {
@@ -0,0 +1,286 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeSnapshot.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.vehicles.Vehicle;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Time-dependent link travel times, as written by {@link TravelTimeSnapshotWriter}, e.g. at the end of an iteration.
+ * <p></p>
+ * The travel times are memory-mapped from the file and are thus not part of the java heap. Several JVMs on the same
+ * machine (e.g. the controler and external routers or a pseudo-simulation) can load the travel times of the same
+ * iteration and share them through the page cache of the operating system. The file contains one travel time per
+ * link and time bin, either as float or quantized to an unsigned short.
+ * <p></p>
+ * As a {@link TravelTime}, the snapshot returns the travel time of the time bin the given time lies in, like the
+ * "average" travel time getter of the {@link TravelTimeCalculator}. {@link #getLinearInterpolatingTravelTime()}
+ * interpolates between the bins instead. Links that are not part of the snapshot (e.g. as they were added to the
+ * network after it was written) are traversed at free speed.
+ */
+public final class TravelTimeSnapshot implements TravelTime {
+
+	private final static Logger log = Logger.getLogger(TravelTimeSnapshot.class);
+
+	public static final byte[] MAGIC = new byte[] { 'M', 'T', 'T', 'S' };
+	public static final int VERSION = 1;
+	/** size of the header, in bytes; the travel times start right after it */
+	public static final int HEADER_SIZE = 32;
+
+	/** the travel times are stored as floats, in seconds */
+	public static final int ENCODING_FLOAT = 0;
+	/** the travel times are stored as unsigned shorts, in multiples of the resolution */
+	public static final int ENCODING_QUANTIZED = 1;
+	/** the quantized value used for infinite travel times, i.e. for links that cannot be traversed */
+	static final int QUANTIZED_INFINITY = 0xFFFF;
+
+	private final int linkCount;
+	private final int binSize;
+	private final int numSlots;
+	private final double halfBinSize;
+	private final int encoding;
+	private final double resolution;
+
+	/* The travel times of a link are stored one after the other, starting with the first time bin. The file is mapped
+	 * in blocks of whole links, so no single buffer gets larger than the 2GB that can be addressed in a ByteBuffer. */
+	private final int linksPerBlock;
+	private final FloatBuffer[] floatBlocks;
+	private final ShortBuffer[] shortBlocks;
+
+	/** the position of the links in the snapshot, by the index of their id; -1 if a link is not part of it */
+	private final int[] linkPositions;
+
+	/**
+	 * Memory-maps the travel times from the given file, which must have been written by {@link TravelTimeSnapshotWriter}.
+	 */
+	public static TravelTimeSnapshot read(final String filename) {
+		try (FileChannel channel = FileChannel.open(new File(filename).toPath(), StandardOpenOption.READ)) {
+			return new TravelTimeSnapshot(channel);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @see #read(String)
+	 */
+	public static TravelTimeSnapshot read(final URL url) {
+		return read(toFile(url).getPath());
+	}
+
+	/**
+	 * @return <code>true</code> if the given url points to a local file that starts like a file written by
+	 * {@link TravelTimeSnapshotWriter}.
+	 */
+	public static boolean isTravelTimeSnapshotFile(final URL url) {
+		if (!"file".equals(url.getProtocol())) {
+			return false;
+		}
+		File file = toFile(url);
+		if (!file.isFile()) {
+			return false;
+		}
+		try (InputStream stream = new FileInputStream(file)) {
+			byte[] magic = new byte[MAGIC.length];
+			int read = 0;
+			while (read < magic.length) {
+				int n = stream.read(magic, read, magic.length - read);
+				if (n < 0) {
+					return false;
+				}
+				read += n;
+			}
+			return Arrays.equals(magic, MAGIC);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static File toFile(final URL url) {
+		if (!"file".equals(url.getProtocol())) {
+			throw new IllegalArgumentException("travel time snapshots can only be read from local files, as they are memory-mapped: " + url);
+		}
+		try {
+			return new File(url.toURI());
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			// e.g. relative urls like file:../traveltimes.bin, which are not hierarchical
+			return new File(url.getPath());
+		}
+	}
+
+	private TravelTimeSnapshot(final FileChannel channel) throws IOException {
+		ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+		byte[] magic = new byte[MAGIC.length];
+		header.get(magic);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IllegalArgumentException("not a travel time snapshot file.");
+		}
+		int version = header.getInt();
+		if (version != VERSION) {
+			throw new IllegalArgumentException("unsupported version of the travel time snapshot format: " + version);
+		}
+		this.linkCount = header.getInt();
+		this.binSize = header.getInt();
+		this.numSlots = header.getInt();
+		this.encoding = header.getInt();
+		if (this.encoding != ENCODING_FLOAT && this.encoding != ENCODING_QUANTIZED) {
+			throw new IllegalArgumentException("unsupported encoding of the travel times: " + this.encoding);
+		}
+		this.resolution = header.getDouble();
+		this.halfBinSize = ((double) this.binSize) / 2;
+
+		int valueSize = this.encoding == ENCODING_FLOAT ? 4 : 2;
+		long linkSize = (long) valueSize * this.numSlots;
+		this.linksPerBlock = (int) Math.max(1, Math.min(this.linkCount, Integer.MAX_VALUE / linkSize));
+		int blockCount = this.linkCount == 0 ? 0 : (this.linkCount - 1) / this.linksPerBlock + 1;
+		this.floatBlocks = new FloatBuffer[this.encoding == ENCODING_FLOAT ? blockCount : 0];
+		this.shortBlocks = new ShortBuffer[this.encoding == ENCODING_QUANTIZED ? blockCount : 0];
+		long position = HEADER_SIZE;
+		for (int block = 0; block < blockCount; block++) {
+			int links = Math.min(this.linksPerBlock, this.linkCount - block * this.linksPerBlock);
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, links * linkSize);
+			position += links * linkSize;
+			if (this.encoding == ENCODING_FLOAT) {
+				this.floatBlocks[block] = buffer.asFloatBuffer();
+			} else {
+				this.shortBlocks[block] = buffer.asShortBuffer();
+			}
+		}
+		position = (position + 7) & ~7L;
+
+		// the ids have to be created in every JVM, so they are read (and not mapped)
+		channel.position(position);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+		int[] indices = new int[this.linkCount];
+		for (int i = 0; i < this.linkCount; i++) {
+			indices[i] = Id.create(readString(in), Link.class).index();
+		}
+		this.linkPositions = new int[Id.getNumberOfIds(Link.class)];
+		Arrays.fill(this.linkPositions, -1);
+		for (int i = 0; i < this.linkCount; i++) {
+			this.linkPositions[indices[i]] = i;
+		}
+		log.info("memory-mapped travel times of " + this.linkCount + " links in " + this.numSlots + " time bins.");
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public int getTimeBinSize() {
+		return this.binSize;
+	}
+
+	public int getNumberOfTimeBins() {
+		return this.numSlots;
+	}
+
+	/**
+	 * @return the resolution (in seconds) the travel times were quantized to, or 0 if they are stored as floats
+	 */
+	public double getResolution() {
+		return this.encoding == ENCODING_QUANTIZED ? this.resolution : 0;
+	}
+
+	public boolean containsLink(final Id<Link> linkId) {
+		return getPosition(linkId) >= 0;
+	}
+
+	@Override
+	public double getLinkTravelTime(final Link link, final double time, final Person person, final Vehicle vehicle) {
+		int position = getPosition(link.getId());
+		if (position < 0) {
+			return NetworkUtils.getFreespeedTravelTime(link, time);
+		}
+		return getTravelTime(position, TimeBinUtils.getTimeBinIndex(time, this.binSize, this.numSlots));
+	}
+
+	/**
+	 * @return the travel times of the snapshot, interpolated linearly between the middles of the time bins like the
+	 * "linearinterpolation" travel time getter of the {@link TravelTimeCalculator}
+	 */
+	public TravelTime getLinearInterpolatingTravelTime() {
+		return (link, time, person, vehicle) -> {
+			int position = getPosition(link.getId());
+			if (position < 0) {
+				return NetworkUtils.getFreespeedTravelTime(link, time);
+			}
+			int timeSlot = TimeBinUtils.getTimeBinIndex(time, this.binSize, this.numSlots);
+
+			// no interpolation in the first half of the first and the second half of the last time bin
+			if (time <= this.halfBinSize || time >= this.numSlots * this.binSize - this.halfBinSize) {
+				return getTravelTime(position, timeSlot);
+			}
+
+			int firstSlot;
+			if (timeSlot * this.binSize + this.halfBinSize > time) {
+				firstSlot = timeSlot - 1;
+			} else {
+				firstSlot = timeSlot;
+			}
+			double firstTravelTime = getTravelTime(position, firstSlot);
+			double secondTravelTime = getTravelTime(position, firstSlot + 1);
+			double dx = time - (firstSlot * this.binSize + this.halfBinSize);
+			return firstTravelTime + (secondTravelTime - firstTravelTime) * dx / this.binSize;
+		};
+	}
+
+	private int getPosition(final Id<Link> linkId) {
+		int index = linkId.index();
+		return index < this.linkPositions.length ? this.linkPositions[index] : -1;
+	}
+
+	private double getTravelTime(final int position, final int timeSlot) {
+		int block = position / this.linksPerBlock;
+		int offset = (position - block * this.linksPerBlock) * this.numSlots + timeSlot;
+		if (this.encoding == ENCODING_FLOAT) {
+			return this.floatBlocks[block].get(offset);
+		}
+		int value = this.shortBlocks[block].get(offset) & 0xFFFF;
+		return value == QUANTIZED_INFINITY ? Double.POSITIVE_INFINITY : value * this.resolution;
+	}
+
+}
@@ -0,0 +1,72 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeSnapshotControlerListener.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.router.util.TravelTime;
+
+import javax.inject.Inject;
+import java.util.Map;
+
+/**
+ * Writes the link travel times of the network modes as {@link TravelTimeSnapshot} files in the iterations defined by
+ * {@link TravelTimeCalculatorConfigGroup#getWriteTravelTimesInterval()}, so they can be used by other processes or
+ * later runs without reading the events again. If the modes are measured jointly, there is only one file.
+ */
+final class TravelTimeSnapshotControlerListener implements IterationEndsListener {
+
+	static final String FILENAME = "traveltimes.bin";
+
+	@Inject private TravelTimeCalculatorConfigGroup config;
+	@Inject private PlansCalcRouteConfigGroup routeConfig;
+	@Inject private Network network;
+	@Inject private OutputDirectoryHierarchy controlerIO;
+	@Inject private Map<String, TravelTime> travelTimes;
+
+	@Override
+	public void notifyIterationEnds(final IterationEndsEvent event) {
+		int interval = this.config.getWriteTravelTimesInterval();
+		if (interval <= 0 || event.getIteration() % interval != 0) {
+			return;
+		}
+		int numSlots = TimeBinUtils.getTimeBinCount(this.config.getMaxTime(), this.config.getTraveltimeBinSize());
+		for (String mode : this.routeConfig.getNetworkModes()) {
+			TravelTime travelTime = this.travelTimes.get(mode);
+			if (travelTime == null) {
+				continue;
+			}
+			String filename = this.config.getSeparateModes() ? mode + "." + FILENAME : FILENAME;
+			TravelTimeSnapshotWriter writer = new TravelTimeSnapshotWriter(this.network, travelTime, this.config.getTraveltimeBinSize(), numSlots);
+			writer.setResolution(this.config.getTravelTimesResolution());
+			writer.write(this.controlerIO.getIterationFilename(event.getIteration(), filename));
+			if (!this.config.getSeparateModes()) {
+				// all modes get the same travel times
+				break;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeSnapshotWriter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.api.internal.MatsimWriter;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the travel times of all links of a network in the binary format that can be memory-mapped by
+ * {@link TravelTimeSnapshot}.
+ * <p></p>
+ * The travel time of every time bin is taken from the given {@link TravelTime} in the middle of the bin, which is the
+ * travel time of the bin for both travel time getters of the {@link TravelTimeCalculator}. By default, the travel
+ * times are stored as floats. With a {@linkplain #setResolution(double) resolution}, they are rounded to multiples of
+ * it and stored as unsigned shorts, which halves the size of the file; e.g. a resolution of 0.1s allows travel times
+ * of up to about 1.8 hours per link.
+ */
+public final class TravelTimeSnapshotWriter implements MatsimWriter {
+
+	private final static Logger log = Logger.getLogger(TravelTimeSnapshotWriter.class);
+
+	private final Network network;
+	private final TravelTime travelTime;
+	private final int binSize;
+	private final int numSlots;
+	private double resolution = 0;
+
+	public TravelTimeSnapshotWriter(final Network network, final TravelTime travelTime, final int binSize, final int numSlots) {
+		if (binSize <= 0 || numSlots <= 0) {
+			throw new IllegalArgumentException("time bin size and number of time bins must be positive: " + binSize + ", " + numSlots);
+		}
+		this.network = network;
+		this.travelTime = travelTime;
+		this.binSize = binSize;
+		this.numSlots = numSlots;
+	}
+
+	/**
+	 * @param resolution the resolution (in seconds) the travel times are quantized to, or 0 to store them as floats
+	 */
+	public void setResolution(final double resolution) {
+		if (resolution < 0) {
+			throw new IllegalArgumentException("resolution must not be negative: " + resolution);
+		}
+		this.resolution = resolution;
+	}
+
+	@Override
+	public void write(final String filename) {
+		boolean quantized = this.resolution > 0;
+		long size = TravelTimeSnapshot.HEADER_SIZE;
+		int linkCount = this.network.getLinks().size();
+		int clamped = 0;
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 64 * 1024))) {
+			out.write(TravelTimeSnapshot.MAGIC);
+			out.writeInt(TravelTimeSnapshot.VERSION);
+			out.writeInt(linkCount);
+			out.writeInt(this.binSize);
+			out.writeInt(this.numSlots);
+			out.writeInt(quantized ? TravelTimeSnapshot.ENCODING_QUANTIZED : TravelTimeSnapshot.ENCODING_FLOAT);
+			out.writeDouble(this.resolution);
+
+			for (Link link : this.network.getLinks().values()) {
+				for (int slot = 0; slot < this.numSlots; slot++) {
+					double time = slot * this.binSize + this.binSize / 2.0;
+					double tt = this.travelTime.getLinkTravelTime(link, time, null, null);
+					if (quantized) {
+						long value = Double.isInfinite(tt) ? TravelTimeSnapshot.QUANTIZED_INFINITY : Math.round(tt / this.resolution);
+						if (value >= TravelTimeSnapshot.QUANTIZED_INFINITY && !Double.isInfinite(tt)) {
+							value = TravelTimeSnapshot.QUANTIZED_INFINITY - 1;
+							clamped++;
+						}
+						out.writeShort((int) value);
+					} else {
+						out.writeFloat((float) tt);
+					}
+				}
+			}
+			size += (long) linkCount * this.numSlots * (quantized ? 2 : 4);
+			while ((size & 7) != 0) {
+				out.writeByte(0);
+				size++;
+			}
+
+			for (Link link : this.network.getLinks().values()) {
+				byte[] bytes = link.getId().toString().getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (clamped > 0) {
+			log.warn(clamped + " travel times were too long for a resolution of " + this.resolution + "s and were shortened.");
+		}
+		log.info("wrote travel times of " + linkCount + " links in " + this.numSlots + " time bins to " + filename);
+	}
+
+}
@@ -0,0 +1,315 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * A queue of elements which are due at a certain time, for simulations that ask every time step for the elements
+ * that are due until then, e.g. for agents ending their activity or arriving after teleportation.
+ * <p></p>
+ * The elements are kept in buckets of a fixed width, usually the length of a time step, for a limited horizon of
+ * time ahead of the current bucket. Adding an element within the horizon only appends it to its bucket. Elements
+ * further in the future are kept in an overflow heap and moved into their bucket once it gets into the horizon.
+ * When all elements of a bucket are due, the bucket is sorted once and then drained in order. Elements with equal
+ * times are ordered by the given comparator, so the order is the same as in a {@link PriorityQueue} that compares
+ * the time first.
+ * <p></p>
+ * Elements can be added while the queue is drained, also for times that are already due. Removing an element
+ * needs to search the whole queue, as in a {@link PriorityQueue}.
+ * <p></p>
+ * This class is not thread-safe.
+ *
+ * @param <E> the type of elements held in this queue
+ */
+public final class CalendarQueue<E> implements Iterable<E> {
+
+	private final double bucketWidth;
+	private final int mask;
+	private final Comparator<Entry<E>> entryComparator;
+
+	/** bucket b of the horizon is stored at index (b & mask) */
+	private final List<Entry<E>>[] buckets;
+	private final PriorityQueue<Entry<E>> overflow;
+
+	/** the sorted entries of the current bucket and of entries added later for an earlier time */
+	private List<Entry<E>> current = new ArrayList<>();
+	private int currentPosition = 0;
+	/** the current bucket; the horizon covers the following buckets up to (currentBucket + buckets.length - 1) */
+	private long currentBucket = -1;
+	private int bucketsSize = 0;
+	private int size = 0;
+
+	/**
+	 * @param bucketWidth the time span covered by one bucket, usually the length of a time step
+	 * @param horizon the number of buckets, including the current one; rounded up to a power of 2
+	 * @param comparator the order of elements with equal times
+	 */
+	@SuppressWarnings("unchecked")
+	public CalendarQueue(final double bucketWidth, final int horizon, final Comparator<? super E> comparator) {
+		if (!(bucketWidth > 0) || horizon <= 0) {
+			throw new IllegalArgumentException("bucket width and horizon must be positive: " + bucketWidth + ", " + horizon);
+		}
+		int capacity = Integer.highestOneBit(horizon);
+		if (capacity < horizon) {
+			capacity <<= 1;
+		}
+		this.bucketWidth = bucketWidth;
+		this.mask = capacity - 1;
+		this.buckets = new List[capacity];
+		this.entryComparator = (e1, e2) -> {
+			int cmp = Double.compare(e1.time, e2.time);
+			return cmp != 0 ? cmp : comparator.compare(e1.element, e2.element);
+		};
+		this.overflow = new PriorityQueue<>(16, (e1, e2) -> Double.compare(e1.time, e2.time));
+	}
+
+	public void add(final E element, final double time) {
+		Entry<E> entry = new Entry<>(element, time);
+		long bucket = getBucket(time);
+		if (bucket <= this.currentBucket) {
+			// keep the remaining part of the current bucket sorted
+			int low = this.currentPosition;
+			int high = this.current.size();
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (this.entryComparator.compare(this.current.get(mid), entry) <= 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			this.current.add(low, entry);
+		} else if (bucket < this.currentBucket + this.buckets.length) {
+			addToBucket(bucket, entry);
+		} else {
+			this.overflow.add(entry);
+		}
+		this.size++;
+	}
+
+	/**
+	 * @return the next element that is due at the given time, i.e. whose time is not after it, or <code>null</code>
+	 * if there is none
+	 */
+	public E pollDue(final double now) {
+		if (this.currentPosition == this.current.size() && !loadNextBucket(now)) {
+			return null;
+		}
+		Entry<E> entry = this.current.get(this.currentPosition);
+		if (entry.time > now) {
+			return null;
+		}
+		this.current.set(this.currentPosition++, null);
+		this.size--;
+		return entry.element;
+	}
+
+	/**
+	 * Removes the given element, which is compared by identity.
+	 *
+	 * @return <code>true</code> if the element was part of the queue
+	 */
+	public boolean remove(final E element) {
+		for (int i = this.currentPosition; i < this.current.size(); i++) {
+			if (this.current.get(i).element == element) {
+				this.current.remove(i);
+				this.size--;
+				return true;
+			}
+		}
+		for (List<Entry<E>> bucket : this.buckets) {
+			if (bucket != null && removeFrom(bucket.iterator(), element)) {
+				this.bucketsSize--;
+				this.size--;
+				return true;
+			}
+		}
+		if (removeFrom(this.overflow.iterator(), element)) {
+			this.size--;
+			return true;
+		}
+		return false;
+	}
+
+	private static <E> boolean removeFrom(Iterator<Entry<E>> iterator, E element) {
+		while (iterator.hasNext()) {
+			if (iterator.next().element == element) {
+				iterator.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public void clear() {
+		this.current.clear();
+		this.currentPosition = 0;
+		for (List<Entry<E>> bucket : this.buckets) {
+			if (bucket != null) {
+				bucket.clear();
+			}
+		}
+		this.overflow.clear();
+		this.bucketsSize = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * @return an iterator over all elements of the queue, in no particular order
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		List<Iterator<Entry<E>>> iterators = new ArrayList<>();
+		iterators.add(this.current.subList(this.currentPosition, this.current.size()).iterator());
+		for (List<Entry<E>> bucket : this.buckets) {
+			if (bucket != null && !bucket.isEmpty()) {
+				iterators.add(bucket.iterator());
+			}
+		}
+		iterators.add(this.overflow.iterator());
+		return new Iterator<E>() {
+			private int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				while (this.index < iterators.size()) {
+					if (iterators.get(this.index).hasNext()) {
+						return true;
+					}
+					this.index++;
+				}
+				return false;
+			}
+
+			@Override
+			public E next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return iterators.get(this.index).next().element;
+			}
+		};
+	}
+
+	/**
+	 * Passes all elements of the queue together with their times to the given action, in no particular order.
+	 */
+	public void forEach(final ObjDoubleConsumer<? super E> action) {
+		for (int i = this.currentPosition; i < this.current.size(); i++) {
+			Entry<E> entry = this.current.get(i);
+			action.accept(entry.element, entry.time);
+		}
+		for (List<Entry<E>> bucket : this.buckets) {
+			if (bucket != null) {
+				for (Entry<E> entry : bucket) {
+					action.accept(entry.element, entry.time);
+				}
+			}
+		}
+		for (Entry<E> entry : this.overflow) {
+			action.accept(entry.element, entry.time);
+		}
+	}
+
+	private long getBucket(final double time) {
+		double bucket = Math.floor(time / this.bucketWidth);
+		if (Double.isNaN(bucket) || bucket >= Long.MAX_VALUE) {
+			return Long.MAX_VALUE;
+		}
+		return bucket <= Long.MIN_VALUE ? Long.MIN_VALUE : (long) bucket;
+	}
+
+	private void addToBucket(final long bucket, final Entry<E> entry) {
+		int index = (int) (bucket & this.mask);
+		List<Entry<E>> list = this.buckets[index];
+		if (list == null) {
+			list = new ArrayList<>();
+			this.buckets[index] = list;
+		}
+		list.add(entry);
+		this.bucketsSize++;
+	}
+
+	/**
+	 * Makes the next non-empty bucket that starts not after the given time the current one.
+	 *
+	 * @return <code>false</code> if there is no such bucket
+	 */
+	private boolean loadNextBucket(final double now) {
+		while (true) {
+			long next = this.currentBucket + 1;
+			if (this.bucketsSize == 0) {
+				if (this.overflow.isEmpty()) {
+					return false;
+				}
+				// skip the empty buckets up to the first overflowing entry
+				next = Math.max(next, getBucket(this.overflow.peek().time));
+			}
+			if (next == Long.MAX_VALUE || next * this.bucketWidth > now) {
+				return false;
+			}
+			this.currentBucket = next;
+			long horizonEnd = next + this.buckets.length;
+			while (!this.overflow.isEmpty() && getBucket(this.overflow.peek().time) < horizonEnd) {
+				addToBucket(getBucket(this.overflow.peek().time), this.overflow.poll());
+			}
+
+			int index = (int) (next & this.mask);
+			List<Entry<E>> bucket = this.buckets[index];
+			if (bucket != null && !bucket.isEmpty()) {
+				// swap the lists, so neither of them has to be allocated again
+				this.current.clear();
+				this.buckets[index] = this.current;
+				this.current = bucket;
+				this.currentPosition = 0;
+				this.bucketsSize -= bucket.size();
+				bucket.sort(this.entryComparator);
+				return true;
+			}
+		}
+	}
+
+	private static final class Entry<E> {
+		final E element;
+		final double time;
+
+		Entry(final E element, final double time) {
+			this.element = element;
+			this.time = time;
+		}
+	}
+
+}
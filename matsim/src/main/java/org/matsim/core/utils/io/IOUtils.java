@@ -304,29 +304,53 @@ final public class IOUtils {
 
 			OutputStream outputStream = new FileOutputStream(file, append);
 
-			if (compression != null) {
-				switch (compression) {
-					case GZIP:
-						outputStream = new GZIPOutputStream(outputStream);
-						break;
-					case LZ4:
-						outputStream = new LZ4BlockOutputStream(outputStream);
-						break;
-					case BZIP2:
-						outputStream = new CompressorStreamFactory().createCompressorOutputStream(CompressorStreamFactory.BZIP2, outputStream);
-						break;
-					case ZSTD:
-						outputStream = new ZstdOutputStream(outputStream, 6);
-						break;
-				}
-			}
+			return new BufferedOutputStream(getCompressedOutputStream(url, outputStream));
+		} catch (IOException | URISyntaxException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
 
-			return new BufferedOutputStream(outputStream);
-		} catch (IOException | CompressorException | URISyntaxException e) {
+	/**
+	 * Wraps an output stream such that the data written to it is compressed according to the extension of the URL, as
+	 * in {@link #getOutputStream(URL, boolean)}. If the URL has no compression extension, the stream is returned as
+	 * it is. Closing the returned stream completes the compressed data and closes the wrapped stream.
+	 * 
+	 * @throws UncheckedIOException
+	 */
+	public static OutputStream getCompressedOutputStream(URL url, OutputStream outputStream) throws UncheckedIOException {
+		CompressionType compression = getCompression(url);
+		if (compression == null) {
+			return outputStream;
+		}
+		try {
+			switch (compression) {
+				case GZIP:
+					return new GZIPOutputStream(outputStream);
+				case LZ4:
+					return new LZ4BlockOutputStream(outputStream);
+				case BZIP2:
+					return new CompressorStreamFactory().createCompressorOutputStream(CompressorStreamFactory.BZIP2, outputStream);
+				case ZSTD:
+					return new ZstdOutputStream(outputStream, 6);
+				default:
+					throw new IllegalArgumentException(compression.toString());
+			}
+		} catch (IOException | CompressorException e) {
 			throw new UncheckedIOException(e);
 		}
 	}
 
+	/**
+	 * Returns whether a file with the extension of the URL may be written as several independently compressed parts,
+	 * one after the other, each created with {@link #getCompressedOutputStream(URL, OutputStream)}. This is the case
+	 * for uncompressed files, and for gzip and zstd files, as {@link #getInputStream(URL)} reads concatenated gzip
+	 * members and zstd frames as one stream.
+	 */
+	public static boolean isConcatenationSupported(URL url) {
+		CompressionType compression = getCompression(url);
+		return compression == null || compression == CompressionType.GZIP || compression == CompressionType.ZSTD;
+	}
+
 	/**
 	 * Creates a writer for an output URL. If the URL has a compression extension,
 	 * the method will try to open the compressed file using the proper
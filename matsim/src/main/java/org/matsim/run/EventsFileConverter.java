@@ -0,0 +1,113 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsFileConverter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run;
+
+import java.util.Iterator;
+import java.util.Locale;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.utils.misc.ArgumentParser;
+
+/**
+ * Converts events files between the xml format and the binary format of {@link EventWriterBinary}. The formats are
+ * recognized by the file names: files whose name ends with <code>.bin</code> (optionally followed by a compression
+ * extension like <code>.lz4</code> or <code>.zst</code>) are binary, all others are xml.
+ */
+public class EventsFileConverter {
+
+	private void printUsage() {
+		System.out.println();
+		System.out.println("EventsFileConverter");
+		System.out.println("Converts an events-file from xml to the binary format or vice versa. The format");
+		System.out.println("is recognized by the file name: *.bin, *.bin.lz4, *.bin.zst, ... are binary,");
+		System.out.println("*.xml, *.xml.gz, ... are xml.");
+		System.out.println();
+		System.out.println("usage: EventsFileConverter [OPTIONS] input-events-file output-events-file");
+		System.out.println();
+		System.out.println("Options:");
+		System.out.println("-h, --help:     Displays this message.");
+		System.out.println();
+		System.out.println("----------------");
+		System.out.println("2019, matsim.org");
+		System.out.println();
+	}
+
+	/**
+	 * Reads the events from <code>inputEventsFile</code> and writes them to <code>outputEventsFile</code>.
+	 */
+	public void run(final String inputEventsFile, final String outputEventsFile) {
+		EventWriter writer;
+		if (isBinary(outputEventsFile)) {
+			writer = new EventWriterBinary(outputEventsFile);
+		} else {
+			writer = new EventWriterXML(outputEventsFile);
+		}
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(writer);
+		events.initProcessing();
+		new MatsimEventsReader(events).readFile(inputEventsFile);
+		events.finishProcessing();
+		writer.closeFile();
+	}
+
+	private static boolean isBinary(String filename) {
+		String lcFilename = filename.toLowerCase(Locale.ROOT);
+		return lcFilename.endsWith(".bin") || lcFilename.contains(".bin.");
+	}
+
+	public void run(final String[] args) {
+		if (args.length == 0) {
+			System.out.println("Too few arguments.");
+			printUsage();
+			System.exit(1);
+		}
+		Iterator<String> argIter = new ArgumentParser(args).iterator();
+		String arg = argIter.next();
+		if (arg.equals("-h") || arg.equals("--help")) {
+			printUsage();
+			System.exit(0);
+		} else {
+			String inputFile = arg;
+			if (!argIter.hasNext()) {
+				System.out.println("Too few arguments.");
+				printUsage();
+				System.exit(1);
+			}
+			String outputFile = argIter.next();
+			if (argIter.hasNext()) {
+				System.out.println("Too many arguments.");
+				printUsage();
+				System.exit(1);
+			}
+			run(inputFile, outputFile);
+		}
+	}
+
+	public static void main(String[] args) {
+		new EventsFileConverter().run(args);
+	}
+
+}
@@ -27,4 +27,12 @@
 public interface Attributable {
 
 	Attributes getAttributes();
+
+	/**
+	 * Tells whether there is at least one attribute, without creating the attributes of implementations which only
+	 * create them when they are first requested. Writers should check this before requesting the attributes.
+	 */
+	default boolean hasAttributes() {
+		return !getAttributes().isEmpty();
+	}
 }
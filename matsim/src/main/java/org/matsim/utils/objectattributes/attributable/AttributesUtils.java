@@ -47,7 +47,10 @@ public class AttributesUtils {
 	 * which should be fine for 99.9% of the usecases of Attributes (value objects)
 	 */
 	public static <T extends Attributable> void copyAttributesFromTo( T from , T to ) {
-		copyTo( from.getAttributes() , to.getAttributes() );
+		// (do not request the attributes without need, some implementations create them lazily)
+		if ( from.hasAttributes() ) {
+			copyTo( from.getAttributes() , to.getAttributes() );
+		}
 	}
 
 	/**
@@ -0,0 +1,119 @@
+package org.matsim.api.core.v01;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+/**
+ * Tests the maps from ids to primitive values, independent of the type of their values. The values are passed as
+ * <code>double</code>s, which can represent all values used here exactly.
+ */
+public abstract class AbstractIdPrimitiveMapTest {
+
+	abstract <T> AbstractIdPrimitiveMap<T> createMap(Class<T> idClass, boolean offHeap);
+
+	abstract <T> double get(AbstractIdPrimitiveMap<T> map, Id<T> key);
+
+	abstract <T> double getOrDefault(AbstractIdPrimitiveMap<T> map, Id<T> key, double defaultValue);
+
+	abstract <T> void put(AbstractIdPrimitiveMap<T> map, Id<T> key, double value);
+
+	abstract <T> double add(AbstractIdPrimitiveMap<T> map, Id<T> key, double value);
+
+	abstract <T> void forEach(AbstractIdPrimitiveMap<T> map, BiConsumer<Id<T>, Double> action);
+
+	abstract double randomValue(Random random);
+
+	@Test
+	public void testPutGetRemove() {
+		AbstractIdPrimitiveMap<SparseType> map = createMap(SparseType.class, false);
+		Id<SparseType> id1 = Id.create("1", SparseType.class);
+		Id<SparseType> id2 = Id.create("2", SparseType.class);
+
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertEquals(0.0, get(map, id1), 0.0);
+		Assert.assertEquals(-1.0, getOrDefault(map, id1, -1.0), 0.0);
+		Assert.assertFalse(map.containsKey(id1));
+
+		put(map, id1, -7.0);
+		Assert.assertEquals(1, map.size());
+		Assert.assertTrue(map.containsKey(id1));
+		Assert.assertEquals(-7.0, get(map, id1), 0.0);
+		Assert.assertEquals(-6.0, add(map, id1, 1.0), 0.0);
+		Assert.assertEquals(2.0, add(map, id2, 2.0), 0.0);
+		Assert.assertEquals(2, map.size());
+
+		Assert.assertTrue(map.remove(id1));
+		Assert.assertFalse(map.remove(id1));
+		Assert.assertEquals(1, map.size());
+		Assert.assertFalse(map.containsKey(id1));
+		Assert.assertEquals(0.0, get(map, id1), 0.0);
+		Assert.assertEquals(2.0, get(map, id2), 0.0);
+
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertFalse(map.containsKey(id2));
+	}
+
+	@Test
+	public void testAdd() {
+		for (boolean offHeap : new boolean[] { false, true }) {
+			AbstractIdPrimitiveMap<SparseType> map = createMap(SparseType.class, offHeap);
+			Id<SparseType> id = Id.create("counter", SparseType.class);
+			for (int i = 0; i < 10; i++) {
+				add(map, id, 2.0);
+			}
+			Assert.assertEquals(20.0, get(map, id), 0.0);
+		}
+	}
+
+	/**
+	 * Compares the map against a HashMap with many random operations, so the sparse map grows, removes entries from
+	 * clusters, and finally becomes dense.
+	 */
+	@Test
+	public void testAgainstHashMap() {
+		for (int i = 0; i < 2000; i++) {
+			Id.create(i, DenseType.class);
+		}
+		for (boolean offHeap : new boolean[] { false, true }) {
+			AbstractIdPrimitiveMap<DenseType> map = createMap(DenseType.class, offHeap);
+			Map<Id<DenseType>, Double> expected = new HashMap<>();
+			Random random = new Random(4711);
+			for (int step = 0; step < 20000; step++) {
+				// only few ids at the beginning, so the map stays sparse for a while
+				int bound = step < 5000 ? 200 : 2000;
+				Id<DenseType> id = Id.create(random.nextInt(bound), DenseType.class);
+				if (random.nextInt(3) == 0) {
+					Assert.assertEquals(expected.remove(id) != null, map.remove(id));
+				} else {
+					double value = randomValue(random);
+					put(map, id, value);
+					expected.put(id, value);
+				}
+				Assert.assertEquals(expected.size(), map.size());
+				if (step == 4999) {
+					Assert.assertFalse(map.isDense());
+				}
+			}
+			Assert.assertTrue(map.isDense());
+			for (Map.Entry<Id<DenseType>, Double> e : expected.entrySet()) {
+				Assert.assertEquals(e.getValue(), get(map, e.getKey()), 0.0);
+			}
+			Map<Id<DenseType>, Double> iterated = new HashMap<>();
+			forEach(map, iterated::put);
+			Assert.assertEquals(expected, iterated);
+		}
+	}
+
+	static class SparseType {
+	}
+
+	private static class DenseType {
+	}
+
+}
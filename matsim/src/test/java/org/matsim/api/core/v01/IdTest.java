@@ -25,6 +25,9 @@ import org.junit.Assert;
 
 import org.junit.Test;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 public class IdTest {
 
 	@Test
@@ -88,7 +91,55 @@ public class IdTest {
 //		} // FIXME temporarily deactivated
 	}
 	
+	/**
+	 * Ids created concurrently must get distinct indices, and other threads must be able to look them up by their
+	 * index at any time.
+	 */
+	@Test
+	public void testConcurrentCreateAndGet() throws InterruptedException {
+		final int threads = 4;
+		final int idsPerThread = 20000;
+		final AtomicBoolean done = new AtomicBoolean(false);
+		final AtomicReference<String> readerError = new AtomicReference<>();
+		Thread reader = new Thread(() -> {
+			while (!done.get()) {
+				int count = Id.getNumberOfIds(TConcurrent.class);
+				for (int i = Math.max(0, count - 100); i < count; i++) {
+					Id<TConcurrent> id = Id.get(i, TConcurrent.class);
+					if (id == null || id.index() != i) {
+						readerError.compareAndSet(null, "wrong id at index " + i + ": " + id);
+					}
+				}
+			}
+		});
+		reader.start();
+		Thread[] writers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			writers[t] = new Thread(() -> {
+				// all threads create the same ids, so they compete for them
+				for (int i = 0; i < idsPerThread; i++) {
+					Id.create(i, TConcurrent.class);
+				}
+			});
+			writers[t].start();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		done.set(true);
+		reader.join();
+
+		Assert.assertNull(readerError.get());
+		Assert.assertEquals(idsPerThread, Id.getNumberOfIds(TConcurrent.class));
+		for (int i = 0; i < idsPerThread; i++) {
+			Id<TConcurrent> id = Id.get(i, TConcurrent.class);
+			Assert.assertEquals(i, id.index());
+			Assert.assertSame(id, Id.create(id.toString(), TConcurrent.class));
+		}
+	}
+
 	private static class TLink {}
 	private static class TNode {}
+	private static class TConcurrent {}
 	
 }
@@ -0,0 +1,55 @@
+package org.matsim.api.core.v01;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+public class IdToDoubleMapTest extends AbstractIdPrimitiveMapTest {
+
+	@Override
+	<T> AbstractIdPrimitiveMap<T> createMap(Class<T> idClass, boolean offHeap) {
+		return new IdToDoubleMap<>(idClass, offHeap);
+	}
+
+	@Override
+	<T> double get(AbstractIdPrimitiveMap<T> map, Id<T> key) {
+		return ((IdToDoubleMap<T>) map).get(key);
+	}
+
+	@Override
+	<T> double getOrDefault(AbstractIdPrimitiveMap<T> map, Id<T> key, double defaultValue) {
+		return ((IdToDoubleMap<T>) map).getOrDefault(key, defaultValue);
+	}
+
+	@Override
+	<T> void put(AbstractIdPrimitiveMap<T> map, Id<T> key, double value) {
+		((IdToDoubleMap<T>) map).put(key, value);
+	}
+
+	@Override
+	<T> double add(AbstractIdPrimitiveMap<T> map, Id<T> key, double value) {
+		return ((IdToDoubleMap<T>) map).add(key, value);
+	}
+
+	@Override
+	<T> void forEach(AbstractIdPrimitiveMap<T> map, BiConsumer<Id<T>, Double> action) {
+		((IdToDoubleMap<T>) map).forEach(action::accept);
+	}
+
+	@Override
+	double randomValue(Random random) {
+		return random.nextDouble();
+	}
+
+	@Test
+	public void testFractionalValues() {
+		IdToDoubleMap<SparseType> map = new IdToDoubleMap<>(SparseType.class);
+		Id<SparseType> id = Id.create("fraction", SparseType.class);
+		map.put(id, 3.5);
+		Assert.assertEquals(3.75, map.add(id, 0.25), 0.0);
+		Assert.assertEquals(3.75, map.get(id), 0.0);
+	}
+
+}
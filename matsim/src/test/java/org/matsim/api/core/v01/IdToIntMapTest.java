@@ -0,0 +1,56 @@
+package org.matsim.api.core.v01;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+public class IdToIntMapTest extends AbstractIdPrimitiveMapTest {
+
+	@Override
+	<T> AbstractIdPrimitiveMap<T> createMap(Class<T> idClass, boolean offHeap) {
+		return new IdToIntMap<>(idClass, offHeap);
+	}
+
+	@Override
+	<T> double get(AbstractIdPrimitiveMap<T> map, Id<T> key) {
+		return ((IdToIntMap<T>) map).get(key);
+	}
+
+	@Override
+	<T> double getOrDefault(AbstractIdPrimitiveMap<T> map, Id<T> key, double defaultValue) {
+		return ((IdToIntMap<T>) map).getOrDefault(key, (int) defaultValue);
+	}
+
+	@Override
+	<T> void put(AbstractIdPrimitiveMap<T> map, Id<T> key, double value) {
+		((IdToIntMap<T>) map).put(key, (int) value);
+	}
+
+	@Override
+	<T> double add(AbstractIdPrimitiveMap<T> map, Id<T> key, double value) {
+		return ((IdToIntMap<T>) map).add(key, (int) value);
+	}
+
+	@Override
+	<T> void forEach(AbstractIdPrimitiveMap<T> map, BiConsumer<Id<T>, Double> action) {
+		((IdToIntMap<T>) map).forEach((key, value) -> action.accept(key, (double) value));
+	}
+
+	@Override
+	double randomValue(Random random) {
+		return random.nextInt();
+	}
+
+	@Test
+	public void testIntValues() {
+		IdToIntMap<SparseType> map = new IdToIntMap<>(SparseType.class, true);
+		Id<SparseType> id = Id.create("int", SparseType.class);
+		map.put(id, Integer.MAX_VALUE - 1);
+		Assert.assertEquals(Integer.MAX_VALUE, map.add(id, 1));
+		Assert.assertEquals(Integer.MAX_VALUE, map.get(id));
+		Assert.assertEquals(-1, map.getOrDefault(Id.create("none", SparseType.class), -1));
+	}
+
+}
@@ -0,0 +1,59 @@
+package org.matsim.api.core.v01;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+public class IdToLongMapTest extends AbstractIdPrimitiveMapTest {
+
+	@Override
+	<T> AbstractIdPrimitiveMap<T> createMap(Class<T> idClass, boolean offHeap) {
+		return new IdToLongMap<>(idClass, offHeap);
+	}
+
+	@Override
+	<T> double get(AbstractIdPrimitiveMap<T> map, Id<T> key) {
+		return ((IdToLongMap<T>) map).get(key);
+	}
+
+	@Override
+	<T> double getOrDefault(AbstractIdPrimitiveMap<T> map, Id<T> key, double defaultValue) {
+		return ((IdToLongMap<T>) map).getOrDefault(key, (long) defaultValue);
+	}
+
+	@Override
+	<T> void put(AbstractIdPrimitiveMap<T> map, Id<T> key, double value) {
+		((IdToLongMap<T>) map).put(key, (long) value);
+	}
+
+	@Override
+	<T> double add(AbstractIdPrimitiveMap<T> map, Id<T> key, double value) {
+		return ((IdToLongMap<T>) map).add(key, (long) value);
+	}
+
+	@Override
+	<T> void forEach(AbstractIdPrimitiveMap<T> map, BiConsumer<Id<T>, Double> action) {
+		((IdToLongMap<T>) map).forEach((key, value) -> action.accept(key, (double) value));
+	}
+
+	@Override
+	double randomValue(Random random) {
+		// at most 51 bits, so the values are exact as doubles
+		return random.nextLong() >> 13;
+	}
+
+	@Test
+	public void testLongValues() {
+		IdToLongMap<SparseType> map = new IdToLongMap<>(SparseType.class, true);
+		Id<SparseType> id = Id.create("long", SparseType.class);
+		for (int i = 0; i < 10; i++) {
+			map.add(id, 1L << 40);
+		}
+		Assert.assertEquals(10L << 40, map.get(id));
+		map.put(id, Long.MAX_VALUE);
+		Assert.assertEquals(Long.MAX_VALUE, map.get(id));
+	}
+
+}
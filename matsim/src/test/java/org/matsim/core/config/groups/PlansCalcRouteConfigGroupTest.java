@@ -158,6 +158,20 @@ public class PlansCalcRouteConfigGroupTest {
 				"unexpected teleportedModeSpeeds",
 				initialGroup.getTeleportedModeSpeeds(),
 				inputConfigGroup.getTeleportedModeSpeeds() );
+		Assert.assertEquals(
+				"unexpected routeCacheSize",
+				initialGroup.getRouteCacheSize(),
+				inputConfigGroup.getRouteCacheSize() );
+		Assert.assertEquals(
+				"unexpected routeCacheTimeBinSize",
+				initialGroup.getRouteCacheTimeBinSize(),
+				inputConfigGroup.getRouteCacheTimeBinSize(),
+				MatsimTestUtils.EPSILON );
+		Assert.assertEquals(
+				"unexpected batchRoutingTimeBinSize",
+				initialGroup.getBatchRoutingTimeBinSize(),
+				inputConfigGroup.getBatchRoutingTimeBinSize(),
+				MatsimTestUtils.EPSILON );
 	}
 
 	private static ConfigGroup toUnderscoredModule(final PlansCalcRouteConfigGroup initialGroup) {
@@ -205,6 +219,10 @@ public class PlansCalcRouteConfigGroupTest {
 
 		group.setBeelineDistanceFactor( 10000000 );
 
+		group.setRouteCacheSize( 5000 );
+		group.setRouteCacheTimeBinSize( 300 );
+		group.setBatchRoutingTimeBinSize( 600 );
+
 		// one mode with both speeds
 		// Was made illegal: do not test
 		//group.setTeleportedModeFreespeedFactor( "overboard" , 100 );
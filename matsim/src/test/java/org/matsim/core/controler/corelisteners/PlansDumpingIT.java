@@ -21,12 +21,19 @@ package org.matsim.core.controler.corelisteners;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ControlerConfigGroup.CompressionType;
 import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.io.PopulationSnapshotReader;
+import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.testcases.MatsimTestUtils;
 
 import java.io.File;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -108,4 +115,58 @@ public class PlansDumpingIT {
 		assertTrue(new File(c.getControlerIO().getIterationFilename(9, "plans.xml.gz")).exists());
 		assertTrue(new File(c.getControlerIO().getIterationFilename(10, "plans.xml.gz")).exists());
 	}
+
+	@Test
+	public void testPopulationSnapshotDump_Restart() throws Exception {
+		Config config = this.util.loadConfig("test/scenarios/equil/config_plans1.xml");
+		config.controler().setLastIteration(3);
+		config.controler().setWritePlansInterval(1);
+		config.controler().setWritePopulationSnapshotsInterval(2);
+		Controler c = new Controler(config);
+		c.getConfig().controler().setWriteEventsInterval(0);
+		c.getConfig().controler().setCreateGraphs(false);
+
+		c.run();
+
+		OutputDirectoryHierarchy io = c.getControlerIO();
+		assertTrue(new File(io.getIterationFilename(0, Controler.DefaultFiles.populationSnapshot, CompressionType.none)).exists());
+		assertFalse(new File(io.getIterationFilename(1, Controler.DefaultFiles.populationSnapshot, CompressionType.none)).exists());
+		assertTrue(new File(io.getIterationFilename(2, Controler.DefaultFiles.populationSnapshot, CompressionType.none)).exists());
+		assertFalse(new File(io.getIterationFilename(3, Controler.DefaultFiles.populationSnapshot, CompressionType.none)).exists());
+		String outputSnapshot = io.getOutputFilename(Controler.DefaultFiles.populationSnapshot, CompressionType.none);
+		assertTrue(PopulationSnapshotReader.isSnapshotFile(new File(outputSnapshot).toURI().toURL()));
+
+		// the snapshots must contain the same population as the xml files written at the same time
+		Scenario fromSnapshot = loadPopulation(io.getIterationFilename(2, Controler.DefaultFiles.populationSnapshot, CompressionType.none));
+		Scenario fromXml = loadPopulation(io.getIterationFilename(2, "plans.xml.gz"));
+		assertEquals(1, fromSnapshot.getPopulation().getPersons().size());
+		assertTrue(PopulationUtils.equalPopulation(fromXml.getPopulation(), fromSnapshot.getPopulation()));
+
+		Scenario outputFromSnapshot = loadPopulation(outputSnapshot);
+		Scenario outputFromXml = loadPopulation(io.getOutputFilename(Controler.DefaultFiles.population));
+		assertTrue(PopulationUtils.equalPopulation(outputFromXml.getPopulation(), outputFromSnapshot.getPopulation()));
+
+		// restart the run from the snapshot of iteration 2
+		Config restartConfig = this.util.loadConfig("test/scenarios/equil/config_plans1.xml");
+		restartConfig.plans().setInputFile(new File(io.getIterationFilename(2, Controler.DefaultFiles.populationSnapshot, CompressionType.none)).getAbsolutePath());
+		restartConfig.controler().setOutputDirectory(this.util.getOutputDirectory() + "restart/");
+		restartConfig.controler().setFirstIteration(2);
+		restartConfig.controler().setLastIteration(3);
+		restartConfig.controler().setWritePlansInterval(1);
+		restartConfig.controler().setWriteEventsInterval(0);
+		restartConfig.controler().setCreateGraphs(false);
+		Controler restart = new Controler(restartConfig);
+
+		restart.run();
+
+		assertFalse(new File(restart.getControlerIO().getIterationFilename(1, "plans.xml.gz")).exists());
+		assertTrue(new File(restart.getControlerIO().getIterationFilename(2, "plans.xml.gz")).exists());
+		assertTrue(new File(restart.getControlerIO().getOutputFilename(Controler.DefaultFiles.population)).exists());
+	}
+
+	private Scenario loadPopulation(String plansFile) {
+		Config config = this.util.loadConfig("test/scenarios/equil/config_plans1.xml");
+		config.plans().setInputFile(new File(plansFile).getAbsolutePath());
+		return ScenarioUtils.loadScenario(config);
+	}
 }
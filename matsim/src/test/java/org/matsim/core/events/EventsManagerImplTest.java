@@ -22,8 +22,12 @@ package org.matsim.core.events;
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.events.handler.EventHandler;
 
 /**
@@ -63,6 +67,52 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	public void testProcessEvent_ExceptionInDirectlyCalledEventHandler() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		manager.addHandler((LinkEnterEventHandler) event -> {
+			throw new IllegalStateException("test");
+		});
+		try {
+			manager.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(1), Id.createLinkId(1)));
+			Assert.fail("expected exception, but got none.");
+		} catch (IllegalStateException expected) {
+			// the exceptions of the handlers of the standard events are passed on unchanged, as before
+		}
+	}
+
+	@Test
+	public void testProcessEvent_HandlerWithSeveralInterfaces() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		SeveralInterfacesHandler handler = new SeveralInterfacesHandler();
+		manager.addHandler(handler);
+		manager.processEvent(new MyEvent(1.0));
+		manager.processEvent(new LinkEnterEvent(2.0, Id.createVehicleId(1), Id.createLinkId(1)));
+
+		Assert.assertEquals(1, handler.myEvents);
+		Assert.assertEquals(1, handler.linkEnterEvents);
+		Assert.assertEquals("the basic handler must get every event", 2, handler.allEvents);
+	}
+
+	@Test
+	public void testProcessEvent_SameEventThroughDifferentInterfaces() {
+		EventsManager manager = EventsUtils.createEventsManager();
+		CountingMyEventHandler handler1 = new CountingMyEventHandler();
+		CountingOtherMyEventHandler handler2 = new CountingOtherMyEventHandler();
+		manager.addHandler(handler1);
+		manager.addHandler(handler2);
+		manager.processEvent(new MyEvent(1.0));
+
+		Assert.assertEquals(1, handler1.counter);
+		Assert.assertEquals(1, handler2.counter);
+
+		manager.removeHandler(handler1);
+		manager.processEvent(new MyEvent(2.0));
+
+		Assert.assertEquals(1, handler1.counter);
+		Assert.assertEquals(2, handler2.counter);
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -102,4 +152,44 @@ public class EventsManagerImplTest {
 			System.out.println(i);
 		}
 	}
+
+	/**
+	 * A second handler interface for the same event class, unrelated to {@link MyEventHandler}.
+	 */
+	/*package*/ static interface OtherMyEventHandler extends EventHandler {
+		public void handleEvent(final MyEvent e);
+	}
+
+	/*package*/ static class CountingOtherMyEventHandler implements OtherMyEventHandler {
+		/*package*/ int counter = 0;
+		@Override
+		public void reset(final int iteration) {
+			this.counter = 0;
+		}
+		@Override
+		public void handleEvent(final MyEvent e) {
+			this.counter++;
+		}
+	}
+
+	/*package*/ static class SeveralInterfacesHandler implements MyEventHandler, LinkEnterEventHandler, BasicEventHandler {
+		/*package*/ int myEvents = 0;
+		/*package*/ int linkEnterEvents = 0;
+		/*package*/ int allEvents = 0;
+		@Override
+		public void reset(final int iteration) {
+		}
+		@Override
+		public void handleEvent(final MyEvent e) {
+			this.myEvents++;
+		}
+		@Override
+		public void handleEvent(final LinkEnterEvent e) {
+			this.linkEnterEvents++;
+		}
+		@Override
+		public void handleEvent(final Event e) {
+			this.allEvents++;
+		}
+	}
 }
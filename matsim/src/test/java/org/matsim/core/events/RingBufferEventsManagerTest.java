@@ -0,0 +1,183 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsManagerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonStuckEventHandler;
+import org.matsim.testcases.utils.EventsCollector;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+
+public class RingBufferEventsManagerTest {
+
+	@Test
+	public void testEventHandlerCanProduceAdditionalEventLateInSimStep() {
+		final RingBufferEventsManager events = new RingBufferEventsManager(8);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), Id.createLinkId(0), "car"));
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(1.0);
+		events.finishProcessing();
+
+		assertThat(collector.getEvents(),
+			contains(
+					new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(0.0, Id.createPersonId(0), Id.createLinkId(0), "car"),
+					new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(1.0, Id.createPersonId(0), Id.createLinkId(0), "car")));
+	}
+
+	@Test
+	public void testManyProducersSmallRingBuffer() throws InterruptedException {
+		final RingBufferEventsManager events = new RingBufferEventsManager(2, true, 16);
+		final AtomicInteger enterCount = new AtomicInteger();
+		final AtomicInteger leaveCount = new AtomicInteger();
+		events.addHandler((LinkEnterEventHandler) event -> enterCount.incrementAndGet());
+		events.addHandler((LinkLeaveEventHandler) event -> leaveCount.incrementAndGet());
+
+		for (int iteration = 0; iteration < 2; iteration++) {
+			enterCount.set(0);
+			leaveCount.set(0);
+			events.initProcessing();
+			for (int time = 0; time < 10; time++) {
+				final double now = time;
+				Thread[] producers = new Thread[4];
+				for (int p = 0; p < producers.length; p++) {
+					producers[p] = new Thread(() -> {
+						for (int i = 0; i < 100; i++) {
+							events.processEvent(new LinkEnterEvent(now, Id.createVehicleId(i), Id.createLinkId(0)));
+							events.processEvent(new LinkLeaveEvent(now, Id.createVehicleId(i), Id.createLinkId(0)));
+						}
+					});
+					producers[p].start();
+				}
+				for (Thread producer : producers) {
+					producer.join();
+				}
+				events.afterSimStep(now);
+				// all events of the time step must be processed when afterSimStep returns
+				Assert.assertEquals((time + 1) * 400, enterCount.get());
+				Assert.assertEquals((time + 1) * 400, leaveCount.get());
+			}
+			events.finishProcessing();
+
+			RingBufferEventsManager.IterationStatistics statistics = events.getLastIterationStatistics();
+			Assert.assertEquals(8000, statistics.getNumberOfEvents());
+			Assert.assertEquals(2, statistics.getMaxConsumerLags().length);
+		}
+	}
+
+	@Test
+	public void testExceptionInEventHandler() {
+		final RingBufferEventsManager events = new RingBufferEventsManager(2);
+		events.addHandler((LinkEnterEventHandler) event -> {
+			throw new ArithmeticException("/ by zero");
+		});
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		try {
+			events.finishProcessing();
+			Assert.fail("expected exception");
+		} catch (RuntimeException e) {
+			Assert.assertNotNull(e.getCause());
+		}
+	}
+
+	@Test
+	public void testEventHandlerProducesEventsWithoutSynchronizationOnSimSteps() {
+		final RingBufferEventsManager events = new RingBufferEventsManager(2, false, 64);
+		events.addHandler((LinkEnterEventHandler) event -> {
+			try {
+				Thread.sleep(1); // let the producer run ahead
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), Id.createLinkId(0), "car"));
+		});
+		final AtomicInteger stuckCount = new AtomicInteger();
+		events.addHandler((PersonStuckEventHandler) event -> stuckCount.incrementAndGet());
+
+		events.initProcessing();
+		for (int time = 0; time < 20; time++) {
+			events.processEvent(new LinkEnterEvent(time, Id.createVehicleId(0), Id.createLinkId(0)));
+			events.afterSimStep(time);
+		}
+		// the events created by the handler are older than the ones published before, but this must not fail
+		events.finishProcessing();
+		Assert.assertEquals(20, stuckCount.get());
+	}
+
+	@Test
+	public void testProcessedEventsAreNotKeptReachable() {
+		final RingBufferEventsManager events = new RingBufferEventsManager(2, true, 1024);
+		final AtomicInteger enterCount = new AtomicInteger();
+		events.addHandler((LinkEnterEventHandler) event -> enterCount.incrementAndGet());
+		events.addHandler((LinkLeaveEventHandler) event -> {});
+
+		events.initProcessing();
+		LinkEnterEvent event = new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0));
+		WeakReference<LinkEnterEvent> reference = new WeakReference<>(event);
+		events.processEvent(event);
+		event = null;
+		events.afterSimStep(0.0);
+		events.finishProcessing();
+		Assert.assertEquals(1, enterCount.get());
+
+		for (int i = 0; i < 10 && reference.get() != null; i++) {
+			System.gc();
+		}
+		Assert.assertNull("the ring buffer still references a processed event", reference.get());
+	}
+
+}
@@ -0,0 +1,147 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinaryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsReaderBinary;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+public class EventWriterBinaryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static List<Event> createEvents() {
+		Id<Person> person = Id.create("p1", Person.class);
+		Id<Link> link1 = Id.create("link<1", Link.class);
+		Id<Link> link2 = Id.create("2", Link.class);
+		Id<Vehicle> vehicle = Id.create("v\"1", Vehicle.class);
+		Id<ActivityFacility> facility = Id.create("f1", ActivityFacility.class);
+
+		List<Event> events = new ArrayList<>();
+		events.add(new ActivityEndEvent(21600.0, person, link1, facility, "home"));
+		events.add(new PersonDepartureEvent(21600.0, person, link1, "car"));
+		events.add(new PersonEntersVehicleEvent(21600.0, person, vehicle));
+		events.add(new VehicleEntersTrafficEvent(21600.0, person, link1, vehicle, "car", 1.0));
+		events.add(new LinkLeaveEvent(21601.0, vehicle, link1));
+		events.add(new LinkEnterEvent(21601.0, vehicle, link2));
+		events.add(new VehicleLeavesTrafficEvent(21650.25, person, link2, vehicle, "car", 0.5));
+		events.add(new PersonLeavesVehicleEvent(21650.25, person, vehicle));
+		events.add(new PersonArrivalEvent(21650.75, person, link2, "car"));
+		events.add(new ActivityStartEvent(21651.0, person, link2, null, "work"));
+		events.add(new PersonMoneyEvent(21651.0, person, -1.5));
+		GenericEvent generic = new GenericEvent("myEvent", 21651.0);
+		generic.getAttributes().put("someKey", "someValue & more");
+		events.add(generic);
+		events.add(new ActivityEndEvent(Double.POSITIVE_INFINITY, person, link2, null, "work"));
+		return events;
+	}
+
+	@Test
+	public void testWriteRead() {
+		List<Event> events = createEvents();
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(stream);
+		for (Event event : events) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		eventsManager.addHandler(collector);
+		new EventsReaderBinary(eventsManager).readStream(new ByteArrayInputStream(stream.toByteArray()));
+
+		Assert.assertEquals(events, collector.getEvents());
+		Assert.assertEquals(PersonMoneyEvent.class, collector.getEvents().get(10).getClass());
+		// the ids are stored only once
+		Assert.assertTrue(stream.size() < 400);
+	}
+
+	@Test
+	public void testReadWithMatsimEventsReader() {
+		String filename = this.utils.getOutputDirectory() + "events.bin.gz";
+		List<Event> events = createEvents();
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		for (Event event : events) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		eventsManager.addHandler(collector);
+		new MatsimEventsReader(eventsManager).readFile(filename);
+
+		Assert.assertEquals(events, collector.getEvents());
+	}
+
+	@Test
+	public void testManyEvents() {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(stream);
+		for (int i = 0; i < 100000; i++) {
+			// enough data to fill the internal buffers several times
+			writer.handleEvent(new LinkEnterEvent(i / 10, Id.create(i % 1000, Vehicle.class), Id.create("link" + i, Link.class)));
+		}
+		writer.closeFile();
+
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		eventsManager.addHandler(collector);
+		new EventsReaderBinary(eventsManager).readStream(new ByteArrayInputStream(stream.toByteArray()));
+
+		Assert.assertEquals(100000, collector.getEvents().size());
+		LinkEnterEvent last = (LinkEnterEvent) collector.getEvents().get(99999);
+		Assert.assertEquals(9999.0, last.getTime(), 0.0);
+		Assert.assertEquals("999", last.getVehicleId().toString());
+		Assert.assertEquals("link99999", last.getLinkId().toString());
+	}
+
+}
@@ -19,19 +19,37 @@
 
 package org.matsim.core.events.algorithms;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.facilities.ActivityFacility;
 import org.matsim.testcases.utils.EventsCollector;
 import org.matsim.vehicles.Vehicle;
 
@@ -92,4 +110,96 @@ public class EventWriterXMLTest {
 		
 		Assert.assertEquals("there must be 1 event.", 1, collector.getEvents().size());
 	}
+
+	/**
+	 * The event types that write themselves directly must produce the same output as the one based on
+	 * {@link Event#getAttributes()}.
+	 */
+	@Test
+	public void testWriteAsXMLSameAsAttributes() {
+		Id<Person> person = Id.create("p&1", Person.class);
+		Id<Link> link = Id.create("l1", Link.class);
+		Id<Vehicle> vehicle = Id.create("v<1", Vehicle.class);
+		Id<ActivityFacility> facility = Id.create("f1", ActivityFacility.class);
+		Event[] events = new Event[] {
+				new LinkEnterEvent(7.25, vehicle, link),
+				new LinkLeaveEvent(8.0, vehicle, link),
+				new VehicleEntersTrafficEvent(9.0, person, link, vehicle, "car", 1.0),
+				new VehicleEntersTrafficEvent(9.0, person, null, null, null, 0.5),
+				new VehicleLeavesTrafficEvent(10.0, person, link, vehicle, "car", 1.0),
+				new PersonDepartureEvent(11.0, person, link, "walk"),
+				new PersonDepartureEvent(11.0, person, null, null),
+				new PersonArrivalEvent(12.0, person, link, "walk"),
+				new ActivityStartEvent(13.0, person, link, facility, "home"),
+				new ActivityEndEvent(14.0, person, null, null, "work \"2\""),
+				new PersonEntersVehicleEvent(15.0, person, vehicle),
+				new PersonLeavesVehicleEvent(16.0, person, vehicle),
+		};
+		for (Event event : events) {
+			StringBuilder expected = new StringBuilder("\t<event ");
+			for (Map.Entry<String, String> entry : event.getAttributes().entrySet()) {
+				String value = entry.getValue() == null ? null : entry.getValue().replace("&", "&amp;")
+						.replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+				expected.append(entry.getKey()).append("=\"").append(value).append("\" ");
+			}
+			expected.append(" />\n");
+			StringBuilder actual = new StringBuilder();
+			event.writeAsXML(actual);
+			Assert.assertEquals(expected.toString(), actual.toString());
+		}
+	}
+
+	/**
+	 * Writes enough events that the buffers are handed over to the writer thread several times.
+	 */
+	@Test
+	public void testManyEvents() {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		EventWriterXML writer = new EventWriterXML(stream);
+		StringBuilder expected = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<events version=\"1.0\">\n");
+		for (int i = 0; i < 10000; i++) {
+			LinkLeaveEvent event = new LinkLeaveEvent(i, Id.create(i, Vehicle.class), Id.create(i % 10, Link.class));
+			writer.handleEvent(event);
+			event.writeAsXML(expected);
+		}
+		writer.closeFile();
+		expected.append("</events>");
+		Assert.assertEquals(expected.toString(), new String(stream.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * A failing output must neither block the thread producing the events nor get lost; it is thrown when the file
+	 * is closed. Closing the file a second time must not do anything.
+	 */
+	@Test
+	public void testFailingOutput() {
+		OutputStream stream = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("disk full");
+			}
+		};
+		EventWriterXML writer = new EventWriterXML(stream);
+		for (int i = 0; i < 10000; i++) {
+			writer.handleEvent(new LinkLeaveEvent(i, Id.create(i, Vehicle.class), Id.create(i % 10, Link.class)));
+		}
+		try {
+			writer.closeFile();
+			Assert.fail("expected exception");
+		} catch (UncheckedIOException e) {
+			Assert.assertEquals("disk full", e.getCause().getMessage());
+		}
+		writer.closeFile();
+	}
+
+	@Test
+	public void testCloseFileTwice() {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		EventWriterXML writer = new EventWriterXML(stream);
+		writer.handleEvent(new LinkLeaveEvent(1.0, Id.create(1, Vehicle.class), Id.create(1, Link.class)));
+		writer.closeFile();
+		String content = new String(stream.toByteArray(), StandardCharsets.UTF_8);
+		writer.closeFile();
+		Assert.assertEquals(content, new String(stream.toByteArray(), StandardCharsets.UTF_8));
+	}
 }
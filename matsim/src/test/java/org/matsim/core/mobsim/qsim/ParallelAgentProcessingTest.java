@@ -0,0 +1,208 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelAgentProcessingTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngine;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.utils.eventsfilecomparison.EventsFileComparator;
+
+public class ParallelAgentProcessingTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Rule
+	public Timeout globalTimeout = new Timeout(120000);
+
+	/**
+	 * All 2000 agents of the scenario end their first activity at the same time, half of them start a teleported leg
+	 * then, so activity ends and teleportation arrivals are processed in several blocks in parallel.
+	 * <p></p>
+	 * With more than one thread, the netsim engine itself does not keep the order of the events of different links
+	 * within a time step, so the files cannot be compared byte by byte even without parallel agent processing. They
+	 * are compared per time step instead, and the events of every agent must be in exactly the same order.
+	 */
+	@Test
+	public void testSameEventsAsSequentialProcessing() {
+		String sequential = runEquil(false, true, "sequential");
+		String threadpool = runEquil(true, true, "threadpool");
+		String barrier = runEquil(true, false, "barrier");
+
+		Assert.assertEquals(EventsFileComparator.Result.FILES_ARE_EQUAL, EventsFileComparator.compare(sequential, threadpool));
+		Assert.assertEquals(EventsFileComparator.Result.FILES_ARE_EQUAL, EventsFileComparator.compare(sequential, barrier));
+
+		Map<String, List<String>> expected = readEventsByAgent(sequential);
+		Assert.assertEquals(expected, readEventsByAgent(threadpool));
+		Assert.assertEquals(expected, readEventsByAgent(barrier));
+	}
+
+	@Test
+	public void testFailingTaskWithThreadpool() {
+		runWithFailingTask(true);
+	}
+
+	@Test
+	public void testFailingTaskWithBarrier() {
+		runWithFailingTask(false);
+	}
+
+	private String runEquil(boolean usingParallelAgentProcessing, boolean usingThreadpool, String name) {
+		Config config = this.utils.loadConfig("test/scenarios/equil/config_plans1.xml");
+		config.plans().setInputFile("plans2000.xml.gz");
+		config.qsim().setNumberOfThreads(4);
+		config.qsim().setUsingThreadpool(usingThreadpool);
+		config.qsim().setUsingParallelAgentProcessing(usingParallelAgentProcessing);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		int i = 0;
+		for (Person person : scenario.getPopulation().getPersons().values()) {
+			if (i++ % 2 == 0) {
+				List<PlanElement> planElements = person.getSelectedPlan().getPlanElements();
+				Leg leg = (Leg) planElements.get(1);
+				Route route = RouteUtils.createGenericRouteImpl(leg.getRoute().getStartLinkId(), leg.getRoute().getEndLinkId());
+				route.setTravelTime(900.0);
+				route.setDistance(leg.getRoute().getDistance());
+				leg.setMode(TransportMode.walk);
+				leg.setRoute(route);
+				leg.setTravelTime(900.0);
+			}
+		}
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		String filename = this.utils.getOutputDirectory() + name + "_events.xml";
+		EventsManager events = EventsUtils.createEventsManager();
+		EventWriterXML writer = new EventWriterXML(filename);
+		events.addHandler(writer);
+		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, events);
+		Assert.assertEquals(usingParallelAgentProcessing, qsim.getParallelAgentProcessing() != null);
+		qsim.run();
+		writer.closeFile();
+		return filename;
+	}
+
+	/**
+	 * @return the events of every person and vehicle, in the order of the file
+	 */
+	private static Map<String, List<String>> readEventsByAgent(String filename) {
+		Map<String, List<String>> eventsByAgent = new HashMap<>();
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler((BasicEventHandler) event -> {
+			Map<String, String> attributes = event.getAttributes();
+			for (String key : new String[] {"person", "vehicle"}) {
+				String id = attributes.get(key);
+				if (id != null) {
+					eventsByAgent.computeIfAbsent(key + " " + id, k -> new ArrayList<>()).add(attributes.toString());
+				}
+			}
+		});
+		new MatsimEventsReader(events).readFile(filename);
+		Assert.assertFalse(eventsByAgent.isEmpty());
+		return eventsByAgent;
+	}
+
+	/**
+	 * Runs tasks on the threads of the netsim engine of which one fails, checks that the failure is passed on, and that
+	 * the threads still run further tasks and the simulation afterwards.
+	 */
+	private void runWithFailingTask(boolean usingThreadpool) {
+		Config config = this.utils.loadConfig("test/scenarios/equil/config_plans1.xml");
+		config.qsim().setNumberOfThreads(2);
+		config.qsim().setUsingThreadpool(usingThreadpool);
+		config.qsim().setUsingParallelAgentProcessing(true);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		AtomicInteger arrivals = new AtomicInteger();
+		events.addHandler((PersonArrivalEventHandler) event -> arrivals.incrementAndGet());
+		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, events);
+		QNetsimEngine netsimEngine = qsim.getChildInjector().getInstance(QNetsimEngine.class);
+
+		int legs = 0;
+		for (PlanElement planElement : scenario.getPopulation().getPersons().values().iterator().next().getSelectedPlan().getPlanElements()) {
+			if (planElement instanceof Leg) {
+				legs++;
+			}
+		}
+
+		RuntimeException failure = new RuntimeException("task failed");
+		AtomicInteger finishedTasks = new AtomicInteger();
+		AtomicBoolean tested = new AtomicBoolean(false);
+		qsim.addQueueSimulationListeners((MobsimBeforeSimStepListener) e -> {
+			if (!tested.compareAndSet(false, true)) {
+				return;
+			}
+			List<Runnable> tasks = new ArrayList<>();
+			for (int i = 0; i < 20; i++) {
+				tasks.add(i == 5 ? () -> {
+					throw failure;
+				} : finishedTasks::incrementAndGet);
+			}
+			try {
+				netsimEngine.runInParallel(tasks);
+				Assert.fail("the failure of the task was not passed on");
+			} catch (RuntimeException ex) {
+				Assert.assertSame(failure, ex);
+			}
+			// the other runners carry on with their tasks
+			Assert.assertEquals(19, finishedTasks.get());
+
+			netsimEngine.runInParallel(Arrays.asList(finishedTasks::incrementAndGet, finishedTasks::incrementAndGet,
+					finishedTasks::incrementAndGet));
+			Assert.assertEquals(22, finishedTasks.get());
+		});
+
+		qsim.run();
+		Assert.assertTrue(tested.get());
+		Assert.assertEquals("the agent did not complete its plan", legs, arrivals.get());
+	}
+
+}
@@ -0,0 +1,176 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetsimLoadStatisticsTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.NetworkPartitioning;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class NetsimLoadStatisticsTest {
+
+	private static final int NUMBER_OF_NODES = 20;
+	private static final int NUMBER_OF_BUSY_NODES = 6;
+
+	@Test
+	public void testRecordMobsimRun() {
+		Scenario scenario = createScenario();
+		NetsimLoadStatistics statistics = new NetsimLoadStatistics();
+		Assert.assertFalse(statistics.hasWeights());
+
+		runQSim(scenario, statistics);
+
+		Assert.assertTrue(statistics.hasWeights());
+		double busyWeight = statistics.getWeight(Id.createNodeId(2));
+		double idleWeight = statistics.getWeight(Id.createNodeId(NUMBER_OF_NODES - 2));
+		Assert.assertEquals("a node which was never active only counts its own weight", 1.0, idleWeight, 0.0);
+		Assert.assertTrue("the busy node should be much more expensive than the idle one", busyWeight > 10 * idleWeight);
+
+		// the same load again, so the smoothed weights must not change
+		runQSim(scenario, statistics);
+		Assert.assertEquals(busyWeight, statistics.getWeight(Id.createNodeId(2)), 1e-9);
+		Assert.assertEquals(idleWeight, statistics.getWeight(Id.createNodeId(NUMBER_OF_NODES - 2)), 1e-9);
+	}
+
+	@Test
+	public void testPartitionWithMeasuredWeights() {
+		Scenario scenario = createScenario();
+		NetsimLoadStatistics statistics = new NetsimLoadStatistics();
+		runQSim(scenario, statistics);
+
+		List<Node> nodes = new ArrayList<>();
+		double[] defaultWeights = new double[NUMBER_OF_NODES];
+		double[] measuredWeights = new double[NUMBER_OF_NODES];
+		for (int i = 0; i < NUMBER_OF_NODES; i++) {
+			Node node = scenario.getNetwork().getNodes().get(Id.createNodeId(i));
+			nodes.add(node);
+			defaultWeights[i] = QNetworkPartitioner.getDefaultWeight(node);
+			measuredWeights[i] = statistics.getWeight(node.getId());
+		}
+
+		// with the static weights, all the traffic is in the first half of the network, i.e. on one runner
+		int[] defaultParts = QNetworkPartitioner.partition(nodes, defaultWeights, 2);
+		Assert.assertEquals(1, countPartsOfBusyNodes(defaultParts));
+
+		// the measured weights split the busy nodes between both runners
+		int[] measuredParts = QNetworkPartitioner.partition(nodes, measuredWeights, 2);
+		Assert.assertEquals(2, countPartsOfBusyNodes(measuredParts));
+	}
+
+	private static int countPartsOfBusyNodes(int[] parts) {
+		return (int) Arrays.stream(parts, 0, NUMBER_OF_BUSY_NODES).distinct().count();
+	}
+
+	private static void runQSim(Scenario scenario, NetsimLoadStatistics statistics) {
+		new QSimBuilder(scenario.getConfig())
+				.useDefaults()
+				.addOverridingModule(new AbstractModule() {
+					@Override
+					public void install() {
+						bind(NetsimLoadStatistics.class).toInstance(statistics);
+					}
+				})
+				.build(scenario, EventsUtils.createEventsManager())
+				.run();
+	}
+
+	/**
+	 * A line of nodes with links in both directions; all the agents drive back and forth between the first
+	 * {@link #NUMBER_OF_BUSY_NODES} nodes.
+	 */
+	private static Scenario createScenario() {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setNumberOfThreads(2);
+		config.qsim().setNetworkPartitioning(NetworkPartitioning.spatialWithLoadBalancing);
+		config.qsim().setEndTime(24 * 3600);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		Network network = scenario.getNetwork();
+		for (int i = 0; i < NUMBER_OF_NODES; i++) {
+			NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(i * 100, 0));
+		}
+		for (int i = 0; i + 1 < NUMBER_OF_NODES; i++) {
+			Node from = network.getNodes().get(Id.createNodeId(i));
+			Node to = network.getNodes().get(Id.createNodeId(i + 1));
+			NetworkUtils.createAndAddLink(network, Id.createLinkId(i + "_" + (i + 1)), from, to, 100, 10, 1000, 1);
+			NetworkUtils.createAndAddLink(network, Id.createLinkId((i + 1) + "_" + i), to, from, 100, 10, 1000, 1);
+		}
+
+		List<Id<Link>> forward = new ArrayList<>();
+		List<Id<Link>> backward = new ArrayList<>();
+		for (int i = 1; i + 2 < NUMBER_OF_BUSY_NODES; i++) {
+			forward.add(Id.createLinkId(i + "_" + (i + 1)));
+			backward.add(0, Id.createLinkId((i + 1) + "_" + i));
+		}
+		Id<Link> first = Id.createLinkId("0_1");
+		Id<Link> last = Id.createLinkId((NUMBER_OF_BUSY_NODES - 2) + "_" + (NUMBER_OF_BUSY_NODES - 1));
+		Id<Link> lastBack = Id.createLinkId((NUMBER_OF_BUSY_NODES - 1) + "_" + (NUMBER_OF_BUSY_NODES - 2));
+		Id<Link> firstBack = Id.createLinkId("1_0");
+
+		PopulationFactory factory = scenario.getPopulation().getFactory();
+		for (int p = 0; p < 50; p++) {
+			Person person = factory.createPerson(Id.createPersonId(p));
+			Plan plan = factory.createPlan();
+			Activity home = factory.createActivityFromLinkId("h", first);
+			home.setEndTime(6 * 3600 + p * 60);
+			plan.addActivity(home);
+			Leg there = factory.createLeg(TransportMode.car);
+			there.setRoute(RouteUtils.createLinkNetworkRouteImpl(first, forward, last));
+			plan.addLeg(there);
+			Activity work = factory.createActivityFromLinkId("w", last);
+			work.setMaximumDuration(3600);
+			plan.addActivity(work);
+			Leg back = factory.createLeg(TransportMode.car);
+			back.setRoute(RouteUtils.createLinkNetworkRouteImpl(lastBack, backward, firstBack));
+			plan.addLeg(back);
+			plan.addActivity(factory.createActivityFromLinkId("h", firstBack));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		return scenario;
+	}
+
+}
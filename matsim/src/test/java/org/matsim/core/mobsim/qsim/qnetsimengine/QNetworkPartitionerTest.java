@@ -0,0 +1,139 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetworkPartitionerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class QNetworkPartitionerTest {
+
+	@Test
+	public void testPartition_grid() {
+		Network network = NetworkUtils.createNetwork();
+		List<Node> nodes = new ArrayList<>();
+		for (int x = 0; x < 10; x++) {
+			for (int y = 0; y < 10; y++) {
+				nodes.add(NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 100, y * 100)));
+			}
+		}
+		double[] weights = new double[nodes.size()];
+		Arrays.fill(weights, 1.0);
+
+		int[] parts = QNetworkPartitioner.partition(nodes, weights, 4);
+
+		int[] sizes = new int[4];
+		for (int part : parts) {
+			sizes[part]++;
+		}
+		for (int size : sizes) {
+			Assert.assertEquals(25, size);
+		}
+		// every part must be one quadrant of the grid
+		int[] partOfQuadrant = {-1, -1, -1, -1};
+		for (int i = 0; i < nodes.size(); i++) {
+			Coord coord = nodes.get(i).getCoord();
+			int quadrant = (coord.getX() < 500 ? 0 : 2) + (coord.getY() < 500 ? 0 : 1);
+			if (partOfQuadrant[quadrant] == -1) {
+				partOfQuadrant[quadrant] = parts[i];
+			}
+			Assert.assertEquals(partOfQuadrant[quadrant], parts[i]);
+		}
+	}
+
+	@Test
+	public void testPartition_weights() {
+		Network network = NetworkUtils.createNetwork();
+		List<Node> nodes = new ArrayList<>();
+		for (int x = 0; x < 10; x++) {
+			nodes.add(NetworkUtils.createAndAddNode(network, Id.createNodeId(x), new Coord(x * 100, 0)));
+		}
+		double[] weights = new double[nodes.size()];
+		Arrays.fill(weights, 1.0);
+		weights[0] = 9.0; // the first node alone is as expensive as all the others together
+
+		int[] parts = QNetworkPartitioner.partition(nodes, weights, 2);
+
+		Assert.assertEquals(0, parts[0]);
+		for (int i = 1; i < nodes.size(); i++) {
+			Assert.assertEquals(1, parts[i]);
+		}
+	}
+
+	@Test
+	public void testPartition_isDeterministic() {
+		Network network = NetworkUtils.createNetwork();
+		List<Node> nodes = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			// all nodes at the same location, so only the ids can decide
+			nodes.add(NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(0, 0)));
+		}
+		double[] weights = new double[nodes.size()];
+		Arrays.fill(weights, 1.0);
+
+		int[] parts1 = QNetworkPartitioner.partition(nodes, weights, 3);
+		List<Node> reversed = new ArrayList<>(nodes);
+		Collections.reverse(reversed);
+		int[] parts2 = QNetworkPartitioner.partition(reversed, weights, 3);
+
+		for (int i = 0; i < nodes.size(); i++) {
+			Assert.assertEquals(parts1[i], parts2[nodes.size() - 1 - i]);
+		}
+	}
+
+	@Test
+	public void testSingleProducerSingleConsumerQueue() {
+		SingleProducerSingleConsumerQueue<String> queue = new SingleProducerSingleConsumerQueue<>(3);
+		Assert.assertEquals(4, queue.capacity());
+
+		queue.offer("a");
+		queue.offer("b");
+		queue.offer("c");
+		Assert.assertEquals(3, queue.size());
+
+		List<String> drained = new ArrayList<>();
+		Assert.assertEquals(3, queue.drainTo(drained));
+		Assert.assertEquals(Arrays.asList("a", "b", "c"), drained);
+		Assert.assertEquals(0, queue.size());
+
+		// wrap around
+		for (int i = 0; i < 4; i++) {
+			queue.offer("x" + i);
+		}
+		try {
+			queue.offer("too much");
+			Assert.fail("expected exception, queue is full");
+		} catch (IllegalStateException expected) {
+		}
+		drained.clear();
+		queue.drainTo(drained);
+		Assert.assertEquals(Arrays.asList("x0", "x1", "x2", "x3"), drained);
+	}
+}
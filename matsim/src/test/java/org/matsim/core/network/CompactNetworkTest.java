@@ -0,0 +1,124 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactNetworkTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class CompactNetworkTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteRead() {
+		Network network = createNetwork();
+		String filename = this.utils.getOutputDirectory() + "network.bin";
+		NetworkUtils.writeCompactNetwork(network, filename);
+
+		Network compact = NetworkUtils.readCompactNetwork(filename);
+		Assert.assertEquals("testnet", compact.getName());
+		Assert.assertEquals(1800.0, compact.getCapacityPeriod(), 0.0);
+		Assert.assertEquals(3.5, compact.getEffectiveLaneWidth(), 0.0);
+		Assert.assertEquals("value", compact.getAttributes().getAttribute("some"));
+		Assert.assertEquals(network.getNodes().size(), compact.getNodes().size());
+		Assert.assertEquals(network.getLinks().size(), compact.getLinks().size());
+
+		for (Node node : network.getNodes().values()) {
+			Node compactNode = compact.getNodes().get(node.getId());
+			Assert.assertEquals(node.getCoord(), compactNode.getCoord());
+			Assert.assertEquals(node.getInLinks().keySet(), compactNode.getInLinks().keySet());
+			Assert.assertEquals(node.getOutLinks().keySet(), compactNode.getOutLinks().keySet());
+		}
+		for (Link link : network.getLinks().values()) {
+			Link compactLink = compact.getLinks().get(link.getId());
+			Assert.assertEquals(link.getId(), compactLink.getId());
+			Assert.assertSame(compact.getNodes().get(link.getFromNode().getId()), compactLink.getFromNode());
+			Assert.assertSame(compact.getNodes().get(link.getToNode().getId()), compactLink.getToNode());
+			Assert.assertEquals(link.getLength(), compactLink.getLength(), 0.0);
+			Assert.assertEquals(link.getFreespeed(), compactLink.getFreespeed(), 0.0);
+			Assert.assertEquals(link.getCapacity(), compactLink.getCapacity(), 0.0);
+			Assert.assertEquals(link.getFlowCapacityPerSec(), compactLink.getFlowCapacityPerSec(), 0.0);
+			Assert.assertEquals(link.getNumberOfLanes(), compactLink.getNumberOfLanes(), 0.0);
+			Assert.assertEquals(link.getAllowedModes(), compactLink.getAllowedModes());
+			Assert.assertEquals(link.getCoord(), compactLink.getCoord());
+		}
+
+		Link link3 = compact.getLinks().get(Id.create("3", Link.class));
+		Assert.assertEquals("primary", link3.getAttributes().getAttribute("type"));
+		Assert.assertEquals(42, link3.getAttributes().getAttribute("lanesBackward"));
+		Assert.assertEquals(0, compact.getLinks().get(Id.create("1", Link.class)).getAttributes().size());
+		Assert.assertEquals(12.0, compact.getNodes().get(Id.create("c", Node.class)).getCoord().getZ(), 0.0);
+
+		Assert.assertSame(compact.getNodes().get(Id.create("b", Node.class)),
+				NetworkUtils.getNearestNode(compact, new Coord(990, 10)));
+		Assert.assertNull(compact.getLinks().get(Id.create("does-not-exist", Link.class)));
+	}
+
+	@Test
+	public void testUnmodifiable() {
+		String filename = this.utils.getOutputDirectory() + "network.bin";
+		NetworkUtils.writeCompactNetwork(createNetwork(), filename);
+		Network compact = NetworkUtils.readCompactNetwork(filename);
+		Link link = compact.getLinks().get(Id.create("1", Link.class));
+		try {
+			link.setCapacity(100.0);
+			Assert.fail("expected UnsupportedOperationException.");
+		} catch (UnsupportedOperationException expected) {
+		}
+		try {
+			compact.removeLink(link.getId());
+			Assert.fail("expected UnsupportedOperationException.");
+		} catch (UnsupportedOperationException expected) {
+		}
+		Assert.assertEquals(3, compact.getLinks().size());
+	}
+
+	private static Network createNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		network.setName("testnet");
+		network.setCapacityPeriod(1800.0);
+		network.setEffectiveLaneWidth(3.5);
+		network.getAttributes().putAttribute("some", "value");
+		Node a = NetworkUtils.createAndAddNode(network, Id.create("a", Node.class), new Coord(0, 0));
+		Node b = NetworkUtils.createAndAddNode(network, Id.create("b", Node.class), new Coord(1000, 0));
+		Node c = network.getFactory().createNode(Id.create("c", Node.class), new Coord(1000, 1000, 12.0));
+		network.addNode(c);
+		Link l1 = NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), a, b, 1000.0, 13.9, 1800.0, 1.0);
+		NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), b, a, 1000.0, 13.9, 1800.0, 1.0);
+		Link l3 = NetworkUtils.createAndAddLink(network, Id.create("3", Link.class), b, c, 1000.0, 27.8, 3600.0, 2.0);
+		l1.setAllowedModes(new HashSet<>(Arrays.asList("car", "bike")));
+		l3.getAttributes().putAttribute("type", "primary");
+		l3.getAttributes().putAttribute("lanesBackward", 42);
+		return network;
+	}
+
+}
@@ -0,0 +1,237 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPopulationFactoryImplTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.utils.objectattributes.attributable.Attributable;
+
+public class CompactPopulationFactoryImplTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testActivityRoundTrip() {
+		PopulationFactory factory = createPopulation(true).getFactory();
+		Activity act = factory.createActivityFromLinkId(new String("home"), Id.createLinkId(1));
+		Assert.assertTrue(act instanceof CompactActivityImpl);
+
+		Assert.assertSame("home", act.getType());
+		Assert.assertEquals(Id.createLinkId(1), act.getLinkId());
+		Assert.assertNull(act.getCoord());
+		Assert.assertNull(act.getFacilityId());
+
+		act.setCoord(new Coord(1.5, -2.5));
+		Assert.assertEquals(new Coord(1.5, -2.5), act.getCoord());
+		Assert.assertFalse(act.getCoord().hasZ());
+		act.setCoord(new Coord(1.5, -2.5, 3.0));
+		Assert.assertEquals(new Coord(1.5, -2.5, 3.0), act.getCoord());
+		act.setCoord(null);
+		Assert.assertNull(act.getCoord());
+
+		act.setFacilityId(Id.create("f1", ActivityFacility.class));
+		Assert.assertEquals(Id.create("f1", ActivityFacility.class), act.getFacilityId());
+		act.setStartTime(3600.0);
+		act.setEndTime(7200.0);
+		act.setMaximumDuration(1800.0);
+		Assert.assertEquals(3600.0, act.getStartTime(), 0.0);
+		Assert.assertEquals(7200.0, act.getEndTime(), 0.0);
+		Assert.assertEquals(1800.0, act.getMaximumDuration(), 0.0);
+		act.setType(new String("work"));
+		Assert.assertSame("work", act.getType());
+	}
+
+	@Test
+	public void testLegRoundTrip() {
+		PopulationFactory factory = createPopulation(true).getFactory();
+		Leg leg = factory.createLeg(new String("car"));
+		Assert.assertTrue(leg instanceof CompactLegImpl);
+		Assert.assertSame("car", leg.getMode());
+		Assert.assertNull(leg.getRoute());
+
+		leg.setDepartureTime(3600.0);
+		leg.setTravelTime(600.0);
+		NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId(1), Id.createLinkId(3));
+		route.setLinkIds(Id.createLinkId(1), Arrays.asList(Id.createLinkId(2)), Id.createLinkId(3));
+		leg.setRoute(route);
+		leg.setMode(new String("pt"));
+
+		Assert.assertEquals(3600.0, leg.getDepartureTime(), 0.0);
+		Assert.assertEquals(600.0, leg.getTravelTime(), 0.0);
+		Assert.assertSame(route, leg.getRoute());
+		Assert.assertSame("pt", leg.getMode());
+	}
+
+	@Test
+	public void testPersonAndPlanRoundTrip() {
+		PopulationFactory factory = createPopulation(true).getFactory();
+		Person person = factory.createPerson(Id.createPersonId(1));
+		Plan plan = factory.createPlan();
+		Assert.assertTrue(person instanceof CompactPersonImpl);
+		Assert.assertTrue(plan instanceof CompactPlanImpl);
+
+		Assert.assertNull(plan.getScore());
+		plan.setScore(12.5);
+		plan.setType(new String("car-plan"));
+		Assert.assertEquals(12.5, plan.getScore(), 0.0);
+		Assert.assertSame("car-plan", plan.getType());
+		plan.setScore(null);
+		Assert.assertNull(plan.getScore());
+
+		plan.addActivity(factory.createActivityFromLinkId("home", Id.createLinkId(1)));
+		plan.addLeg(factory.createLeg("car"));
+		plan.addActivity(factory.createActivityFromLinkId("work", Id.createLinkId(3)));
+		person.addPlan(plan);
+		Assert.assertSame(person, plan.getPerson());
+		Assert.assertSame(plan, person.getSelectedPlan());
+		Assert.assertEquals(Id.createPersonId(1), person.getId());
+
+		plan.getPlanElements().get(0).getAttributes().putAttribute("x", 1);
+		Plan copy = person.createCopyOfSelectedPlanAndMakeSelected();
+		Assert.assertTrue(copy instanceof CompactPlanImpl);
+		Assert.assertSame(copy, person.getSelectedPlan());
+		Assert.assertEquals(2, person.getPlans().size());
+		Assert.assertEquals(3, copy.getPlanElements().size());
+		Assert.assertTrue(copy.getPlanElements().get(0) instanceof CompactActivityImpl);
+		Assert.assertTrue(copy.getPlanElements().get(1) instanceof CompactLegImpl);
+		Assert.assertEquals(1, copy.getPlanElements().get(0).getAttributes().getAttribute("x"));
+	}
+
+	@Test
+	public void testAttributesAreCreatedLazily() throws Exception {
+		Population population = createPopulation(true);
+		Person person = createPerson(population, 1, false);
+		population.addPerson(person);
+		Plan plan = person.getSelectedPlan();
+
+		Attributable[] attributables = {person, plan, plan.getPlanElements().get(0), plan.getPlanElements().get(1)};
+		for (Attributable attributable : attributables) {
+			Assert.assertFalse(attributable.hasAttributes());
+		}
+
+		person.createCopyOfSelectedPlanAndMakeSelected();
+		new PopulationWriter(population).writeV6(this.utils.getOutputDirectory() + "/population.xml");
+		for (Attributable attributable : attributables) {
+			Assert.assertNull("attributes were created for " + attributable, getAttributesField(attributable));
+		}
+
+		for (Attributable attributable : attributables) {
+			Assert.assertSame(attributable.getAttributes(), attributable.getAttributes());
+			Assert.assertFalse(attributable.hasAttributes());
+			attributable.getAttributes().putAttribute("a", "b");
+			Assert.assertTrue(attributable.hasAttributes());
+			Assert.assertEquals("b", attributable.getAttributes().getAttribute("a"));
+		}
+	}
+
+	@Test
+	public void testSameOutputAsDefaultFactory() throws IOException {
+		String defaultFile = this.utils.getOutputDirectory() + "/default.xml";
+		String compactFile = this.utils.getOutputDirectory() + "/compact.xml";
+
+		new PopulationWriter(createTestPopulation(false)).writeV6(defaultFile);
+		new PopulationWriter(createTestPopulation(true)).writeV6(compactFile);
+
+		Assert.assertEquals(
+				new String(Files.readAllBytes(Paths.get(defaultFile)), "UTF-8"),
+				new String(Files.readAllBytes(Paths.get(compactFile)), "UTF-8"));
+	}
+
+	private static Population createPopulation(boolean compact) {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setUsingCompactPlanElements(compact);
+		return PopulationUtils.createPopulation(config);
+	}
+
+	private static Population createTestPopulation(boolean compact) {
+		Population population = createPopulation(compact);
+		population.getAttributes().putAttribute("name", "test");
+		for (int i = 0; i < 4; i++) {
+			population.addPerson(createPerson(population, i, i % 2 == 0));
+		}
+		return population;
+	}
+
+	private static Person createPerson(Population population, int i, boolean withAttributes) {
+		PopulationFactory factory = population.getFactory();
+		Person person = factory.createPerson(Id.createPersonId(i));
+		Plan plan = factory.createPlan();
+		plan.setScore(i * 1.5);
+
+		Activity home = factory.createActivityFromCoord("home", new Coord(i * 100.0, 200.0));
+		home.setLinkId(Id.createLinkId(1));
+		home.setEndTime(7 * 3600.0 + i);
+		plan.addActivity(home);
+
+		Leg leg = factory.createLeg("car");
+		leg.setDepartureTime(7 * 3600.0 + i);
+		leg.setTravelTime(600.0);
+		NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId(1), Id.createLinkId(3));
+		route.setLinkIds(Id.createLinkId(1), Arrays.<Id<Link>>asList(Id.createLinkId(2)), Id.createLinkId(3));
+		leg.setRoute(route);
+		plan.addLeg(leg);
+
+		Activity work = factory.createActivityFromLinkId("work", Id.createLinkId(3));
+		work.setFacilityId(Id.create("w" + i, ActivityFacility.class));
+		work.setMaximumDuration(8 * 3600.0);
+		plan.addActivity(work);
+
+		if (withAttributes) {
+			person.getAttributes().putAttribute("age", 30 + i);
+			plan.getAttributes().putAttribute("origin", "test");
+			home.getAttributes().putAttribute("parking", true);
+			leg.getAttributes().putAttribute("toll", 2.5);
+		}
+		person.addPlan(plan);
+		return person;
+	}
+
+	private static Object getAttributesField(Attributable attributable) throws ReflectiveOperationException {
+		Field field = attributable.getClass().getDeclaredField("attributes");
+		field.setAccessible(true);
+		return field.get(attributable);
+	}
+
+}
@@ -0,0 +1,211 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationSnapshotIOTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class PopulationSnapshotIOTest {
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteAndRead() throws MalformedURLException {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Population population = scenario.getPopulation();
+		PopulationFactory factory = population.getFactory();
+		population.setName("snapshot test");
+		population.getAttributes().putAttribute("year", 2019);
+
+		Person person = factory.createPerson(Id.createPersonId("1"));
+		person.getAttributes().putAttribute("age", 42);
+		population.addPerson(person);
+
+		Plan first = factory.createPlan();
+		first.setScore(12.5);
+		first.setType("first");
+		Activity home = factory.createActivityFromCoord("home", new Coord(1.0, 2.0, 3.0));
+		home.setLinkId(Id.createLinkId("a"));
+		home.setEndTime(8 * 3600.0);
+		first.addActivity(home);
+		Leg car = factory.createLeg("car");
+		car.setDepartureTime(8 * 3600.0);
+		car.setTravelTime(600.0);
+		NetworkRoute networkRoute = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId("a"),
+				Arrays.asList(Id.createLinkId("b"), Id.createLinkId("c")), Id.createLinkId("d"));
+		networkRoute.setDistance(1500.0);
+		networkRoute.setTravelTime(600.0);
+		networkRoute.setVehicleId(Id.create("v1", Vehicle.class));
+		car.setRoute(networkRoute);
+		car.getAttributes().putAttribute("toll", true);
+		first.addLeg(car);
+		Activity work = factory.createActivityFromLinkId("work", Id.createLinkId("d"));
+		work.setFacilityId(Id.create("f1", ActivityFacility.class));
+		work.setMaximumDuration(3600.0);
+		first.addActivity(work);
+		person.addPlan(first);
+
+		Plan second = factory.createPlan();
+		second.addActivity(factory.createActivityFromLinkId("home", Id.createLinkId("a")));
+		Leg walk = factory.createLeg("walk");
+		walk.setRoute(RouteUtils.createGenericRouteImpl(Id.createLinkId("a"), Id.createLinkId("d")));
+		walk.getRoute().setDistance(1000.0);
+		second.addLeg(walk);
+		person.addPlan(second);
+		person.setSelectedPlan(second);
+
+		population.addPerson(factory.createPerson(Id.createPersonId("2")));
+
+		String file = this.utils.getOutputDirectory() + "plans.snapshot";
+		new PopulationSnapshotWriter(population).write(file);
+		Assert.assertTrue(PopulationSnapshotReader.isSnapshotFile(new File(file).toURI().toURL()));
+
+		Scenario readScenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationSnapshotReader(readScenario).readFile(file);
+		Population readPopulation = readScenario.getPopulation();
+
+		Assert.assertEquals("snapshot test", readPopulation.getName());
+		Assert.assertEquals(2019, readPopulation.getAttributes().getAttribute("year"));
+		Assert.assertEquals(Arrays.asList(Id.createPersonId("1"), Id.createPersonId("2")),
+				Arrays.asList(readPopulation.getPersons().keySet().toArray()));
+
+		Person readPerson = readPopulation.getPersons().get(Id.createPersonId("1"));
+		Assert.assertEquals(42, readPerson.getAttributes().getAttribute("age"));
+		Assert.assertEquals(2, readPerson.getPlans().size());
+		Plan readFirst = readPerson.getPlans().get(0);
+		Assert.assertSame(readPerson.getPlans().get(1), readPerson.getSelectedPlan());
+		Assert.assertEquals(12.5, readFirst.getScore(), 0.0);
+		Assert.assertEquals("first", readFirst.getType());
+		Assert.assertNull(readPerson.getPlans().get(1).getScore());
+
+		Activity readHome = (Activity) readFirst.getPlanElements().get(0);
+		Assert.assertEquals("home", readHome.getType());
+		Assert.assertEquals(new Coord(1.0, 2.0, 3.0), readHome.getCoord());
+		Assert.assertEquals(Id.createLinkId("a"), readHome.getLinkId());
+		Assert.assertEquals(8 * 3600.0, readHome.getEndTime(), 0.0);
+
+		Leg readCar = (Leg) readFirst.getPlanElements().get(1);
+		Assert.assertEquals("car", readCar.getMode());
+		Assert.assertEquals(8 * 3600.0, readCar.getDepartureTime(), 0.0);
+		Assert.assertEquals(600.0, readCar.getTravelTime(), 0.0);
+		Assert.assertEquals(true, readCar.getAttributes().getAttribute("toll"));
+		NetworkRoute readRoute = (NetworkRoute) readCar.getRoute();
+		Assert.assertEquals(Id.createLinkId("a"), readRoute.getStartLinkId());
+		Assert.assertEquals(Arrays.asList(Id.createLinkId("b"), Id.createLinkId("c")), readRoute.getLinkIds());
+		Assert.assertEquals(Id.createLinkId("d"), readRoute.getEndLinkId());
+		Assert.assertEquals(1500.0, readRoute.getDistance(), 0.0);
+		Assert.assertEquals(600.0, readRoute.getTravelTime(), 0.0);
+		Assert.assertEquals(Id.create("v1", Vehicle.class), readRoute.getVehicleId());
+
+		Activity readWork = (Activity) readFirst.getPlanElements().get(2);
+		Assert.assertNull(readWork.getCoord());
+		Assert.assertEquals("f1", readWork.getFacilityId().toString());
+		Assert.assertEquals(3600.0, readWork.getMaximumDuration(), 0.0);
+
+		Leg readWalk = (Leg) readPerson.getPlans().get(1).getPlanElements().get(1);
+		Assert.assertEquals("generic", readWalk.getRoute().getRouteType());
+		Assert.assertEquals(Id.createLinkId("d"), readWalk.getRoute().getEndLinkId());
+		Assert.assertEquals(1000.0, readWalk.getRoute().getDistance(), 0.0);
+
+		Assert.assertTrue(readPopulation.getPersons().get(Id.createPersonId("2")).getPlans().isEmpty());
+	}
+
+	@Test
+	public void testWriteAndReadSeveralBlocks() throws IOException {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Population population = scenario.getPopulation();
+		PopulationFactory factory = population.getFactory();
+		for (int p = 0; p < 100; p++) {
+			Person person = factory.createPerson(Id.createPersonId(p));
+			person.getAttributes().putAttribute("group", "g" + (p % 7));
+			Plan plan = factory.createPlan();
+			plan.setScore((double) p);
+			Activity home = factory.createActivityFromLinkId("home", Id.createLinkId(p % 13));
+			home.setEndTime(6 * 3600.0 + p);
+			plan.addActivity(home);
+			Leg leg = factory.createLeg(p % 2 == 0 ? "car" : "bike");
+			List<Id<Link>> linkIds = new ArrayList<>();
+			for (int l = 0; l < p % 5; l++) {
+				linkIds.add(Id.createLinkId((p + l) % 13));
+			}
+			NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId(p % 13), linkIds, Id.createLinkId((p + 5) % 13));
+			route.setDistance(100.0 * p);
+			leg.setRoute(route);
+			plan.addLeg(leg);
+			plan.addActivity(factory.createActivityFromLinkId("work" + (p % 3), Id.createLinkId((p + 5) % 13)));
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+
+		// small blocks, so that the strings are referenced from many blocks, each with its own string table
+		String file = this.utils.getOutputDirectory() + "plans.snapshot";
+		new PopulationSnapshotWriter(population, 256).write(file);
+
+		int blocks = 0;
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			Assert.assertEquals(PopulationSnapshotWriter.MAGIC, in.readInt());
+			Assert.assertEquals(PopulationSnapshotWriter.VERSION, in.readInt());
+			while (in.available() > 0) {
+				int length = in.readInt();
+				Assert.assertEquals(length, in.skipBytes(length));
+				blocks++;
+			}
+		}
+		Assert.assertTrue("expected many blocks, got " + blocks, blocks > 10);
+
+		Scenario readScenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationSnapshotReader(readScenario).readFile(file);
+		Population readPopulation = readScenario.getPopulation();
+
+		Assert.assertEquals(new ArrayList<>(population.getPersons().keySet()), new ArrayList<>(readPopulation.getPersons().keySet()));
+		Assert.assertEquals("g1", readPopulation.getPersons().get(Id.createPersonId(99)).getAttributes().getAttribute("group"));
+		Assert.assertTrue(PopulationUtils.equalPopulation(population, readPopulation));
+	}
+
+}
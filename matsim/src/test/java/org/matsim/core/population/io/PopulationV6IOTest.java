@@ -34,14 +34,26 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.MatsimXmlWriter;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * @author thibautd
@@ -321,4 +333,118 @@ public class PopulationV6IOTest {
 
 		Assert.assertEquals(route.getRouteDescription(), ((Leg) scenario.getPopulation().getPersons().get(person1.getId()).getSelectedPlan().getPlanElements().get(1)).getRoute().getRouteDescription());
 	}
+
+	@Test
+	public void testParallelReadingKeepsOrder() {
+		Population population = createLargePopulation();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new PopulationWriter(population).write(out);
+
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(4);
+		final List<Person> persons = new ArrayList<>();
+		StreamingPopulationReader reader = new StreamingPopulationReader(ScenarioUtils.createScenario(config));
+		reader.addAlgorithm(persons::add);
+		reader.parse(new ByteArrayInputStream(out.toByteArray()));
+
+		Assert.assertEquals(1000, persons.size());
+		for (int i = 0; i < persons.size(); i++) {
+			Person person = persons.get(i);
+			Assert.assertEquals(Id.create(String.format("p%04d", i), Person.class), person.getId());
+			Assert.assertEquals(i, person.getAttributes().getAttribute("number"));
+			Plan plan = person.getSelectedPlan();
+			Assert.assertEquals(i, ((Activity) plan.getPlanElements().get(0)).getEndTime(), 0.0);
+			NetworkRoute route = (NetworkRoute) ((Leg) plan.getPlanElements().get(1)).getRoute();
+			Assert.assertEquals(Id.create("l" + i, Link.class), route.getStartLinkId());
+			Assert.assertEquals(Collections.singletonList(Id.create("m" + i, Link.class)), route.getLinkIds());
+			Assert.assertEquals(Id.create("n" + i, Link.class), route.getEndLinkId());
+		}
+	}
+
+	@Test
+	public void testParallelWritingKeepsContent() {
+		Population population = createLargePopulation();
+		population.getAttributes().putAttribute("description", "parallel");
+
+		String sequentialFile = utils.getOutputDirectory() + "/sequential.xml.gz";
+		new PopulationWriter(population).write(sequentialFile);
+		String parallelFile = utils.getOutputDirectory() + "/parallel.xml.gz";
+		PopulationWriter writer = new PopulationWriter(population);
+		writer.setNumberOfThreads(3);
+		writer.write(parallelFile);
+
+		Assert.assertTrue(IOUtils.isEqual(IOUtils.getInputStream(IOUtils.getFileUrl(sequentialFile)),
+				IOUtils.getInputStream(IOUtils.getFileUrl(parallelFile))));
+	}
+
+	private static Population createLargePopulation() {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < 1000; i++) {
+			Person person = pf.createPerson(Id.create(String.format("p%04d", i), Person.class));
+			person.getAttributes().putAttribute("number", i);
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromLinkId("home", Id.create("l" + i, Link.class));
+			home.setEndTime(i);
+			plan.addActivity(home);
+			Leg leg = pf.createLeg("car");
+			leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(Id.create("l" + i, Link.class),
+					Collections.singletonList(Id.create("m" + i, Link.class)), Id.create("n" + i, Link.class)));
+			plan.addLeg(leg);
+			plan.addActivity(pf.createActivityFromLinkId("work", Id.create("n" + i, Link.class)));
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+	@Test
+	public void testParallelReadingCreatesIdsInFileOrder() {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+		xml.append("<!DOCTYPE population SYSTEM \"" + MatsimXmlWriter.DEFAULT_DTD_LOCATION + "population_v6.dtd\">\n");
+		xml.append("<population>\n");
+		for (int i = 0; i < 2000; i++) {
+			xml.append("<person id=\"order-p" + i + "\"><plan selected=\"yes\">\n");
+			xml.append("<activity type=\"h\" link=\"order-a" + i + "\" facility=\"order-f" + i + "\" end_time=\"08:00:00\" />\n");
+			xml.append("<leg mode=\"car\"><route type=\"links\" start_link=\"order-a" + i + "\" end_link=\"order-c" + i
+					+ "\" vehicleRefId=\"order-v" + i + "\">order-a" + i + " order-b" + i + " order-c" + i + "</route></leg>\n");
+			xml.append("<activity type=\"w\" link=\"order-c" + i + "\" facility=\"order-g" + i + "\" end_time=\"17:00:00\" />\n");
+			xml.append("<leg mode=\"pt\"><route start_link=\"order-c" + i + "\" end_link=\"order-a" + i
+					+ "\">PT1===order-s" + i + "===line===route===order-t" + i + "</route></leg>\n");
+			xml.append("<activity type=\"h\" link=\"order-a" + i + "\" />\n");
+			xml.append("</plan></person>\n");
+		}
+		xml.append("</population>\n");
+
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(4);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new PopulationReader(scenario).parse(new ByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8)));
+		Assert.assertEquals(2000, scenario.getPopulation().getPersons().size());
+
+		// the ids of every type must have been created in the order in which they first appear in the file
+		int lastPerson = -1;
+		int lastLink = -1;
+		int lastFacility = -1;
+		int lastVehicle = -1;
+		int lastStop = -1;
+		for (int i = 0; i < 2000; i++) {
+			lastPerson = assertCreatedAfter(lastPerson, Id.get("order-p" + i, Person.class));
+			lastLink = assertCreatedAfter(lastLink, Id.get("order-a" + i, Link.class));
+			lastLink = assertCreatedAfter(lastLink, Id.get("order-c" + i, Link.class));
+			lastLink = assertCreatedAfter(lastLink, Id.get("order-b" + i, Link.class));
+			lastFacility = assertCreatedAfter(lastFacility, Id.get("order-f" + i, ActivityFacility.class));
+			lastFacility = assertCreatedAfter(lastFacility, Id.get("order-g" + i, ActivityFacility.class));
+			lastVehicle = assertCreatedAfter(lastVehicle, Id.get("order-v" + i, Vehicle.class));
+			lastStop = assertCreatedAfter(lastStop, Id.get("order-s" + i, TransitStopFacility.class));
+			lastStop = assertCreatedAfter(lastStop, Id.get("order-t" + i, TransitStopFacility.class));
+		}
+	}
+
+	private static int assertCreatedAfter(int previousIndex, Id<?> id) {
+		Assert.assertNotNull(id);
+		Assert.assertTrue(id + " was created too early", id.index() > previousIndex);
+		return id.index();
+	}
 }
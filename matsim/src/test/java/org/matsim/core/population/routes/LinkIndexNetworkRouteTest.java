@@ -0,0 +1,124 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkIndexNetworkRouteTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.routes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+public class LinkIndexNetworkRouteTest extends AbstractNetworkRouteTest {
+
+	@Override
+	public NetworkRoute getNetworkRouteInstance(final Id<Link> fromLinkId, final Id<Link> toLinkId, final Network network) {
+		return (NetworkRoute) new LinkIndexNetworkRouteFactory(true).createRoute(fromLinkId, toLinkId);
+	}
+
+	@Test
+	public void testClone() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		List<Id<Link>> srcRoute = new ArrayList<>();
+		srcRoute.add(Id.create(3, Link.class));
+		srcRoute.add(Id.create(4, Link.class));
+		NetworkRoute route1 = (NetworkRoute) new LinkIndexNetworkRouteFactory().createRoute(id1, id2);
+		route1.setLinkIds(id1, srcRoute, id2);
+		route1.setTravelCost(12.0);
+
+		NetworkRoute route2 = (NetworkRoute) route1.clone();
+
+		srcRoute.add(Id.create(5, Link.class));
+		route1.setLinkIds(id1, srcRoute, id2);
+
+		Assert.assertEquals(3, route1.getLinkIds().size());
+		Assert.assertEquals(2, route2.getLinkIds().size());
+		Assert.assertEquals(12.0, route2.getTravelCost(), 0.0);
+	}
+
+	@Test
+	public void testLinkIdsAreReadOnly() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		NetworkRoute route = (NetworkRoute) new LinkIndexNetworkRouteFactory().createRoute(id1, id2);
+		route.setLinkIds(id1, Arrays.asList(Id.create(3, Link.class)), id2);
+		try {
+			route.getLinkIds().add(Id.create(4, Link.class));
+			Assert.fail("expected exception, got none.");
+		} catch (UnsupportedOperationException expected) {
+		}
+		Assert.assertEquals(Arrays.asList(Id.create(3, Link.class)), route.getLinkIds());
+	}
+
+	@Test
+	public void testInterning() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		List<Id<Link>> links = Arrays.asList(Id.create(3, Link.class), Id.create(4, Link.class));
+
+		LinkIndexNetworkRouteFactory interning = new LinkIndexNetworkRouteFactory(true);
+		NetworkRoute route1 = (NetworkRoute) interning.createRoute(id1, id2);
+		route1.setLinkIds(id1, new ArrayList<>(links), id2);
+		NetworkRoute route2 = (NetworkRoute) interning.createRoute(id1, id2);
+		route2.setLinkIds(id1, new ArrayList<>(links), id2);
+		Assert.assertSame(route1.getLinkIds(), route2.getLinkIds());
+		Assert.assertSame(route1.getLinkIds(), ((NetworkRoute) route1.clone()).getLinkIds());
+		Assert.assertSame(route1.getLinkIds(), route1.getSubRoute(id1, id2).getLinkIds());
+
+		LinkIndexNetworkRouteFactory plain = new LinkIndexNetworkRouteFactory(false);
+		NetworkRoute route3 = (NetworkRoute) plain.createRoute(id1, id2);
+		route3.setLinkIds(id1, new ArrayList<>(links), id2);
+		NetworkRoute route4 = (NetworkRoute) plain.createRoute(id1, id2);
+		route4.setLinkIds(id1, new ArrayList<>(links), id2);
+		Assert.assertNotSame(route3.getLinkIds(), route4.getLinkIds());
+		Assert.assertEquals(route3.getLinkIds(), route4.getLinkIds());
+		Assert.assertEquals(links, route4.getLinkIds());
+	}
+
+	@Test
+	public void testLinkIdsHashCode() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		List<Id<Link>> links = Arrays.asList(Id.create(3, Link.class), Id.create(4, Link.class), Id.create(5, Link.class));
+		for (boolean interning : new boolean[] { true, false }) {
+			NetworkRoute route = (NetworkRoute) new LinkIndexNetworkRouteFactory(interning).createRoute(id1, id2);
+			route.setLinkIds(id1, links, id2);
+			Assert.assertEquals(new ArrayList<>(route.getLinkIds()).hashCode(), route.getLinkIds().hashCode());
+			Assert.assertEquals(links.hashCode(), route.getLinkIds().hashCode());
+			Assert.assertEquals(route.getLinkIds(), new ArrayList<>(links));
+			Assert.assertEquals(new ArrayList<>(links), route.getLinkIds());
+
+			Set<List<Id<Link>>> set = new HashSet<>();
+			set.add(new ArrayList<>(links));
+			Assert.assertTrue(set.contains(route.getLinkIds()));
+
+			route.setLinkIds(id1, new ArrayList<>(), id2);
+			Assert.assertEquals(new ArrayList<>().hashCode(), route.getLinkIds().hashCode());
+		}
+	}
+
+}
@@ -20,12 +20,18 @@
 
 package org.matsim.core.replanning.modules;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.algorithms.BatchPlanAlgorithm;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 
 /**
@@ -42,6 +48,75 @@ public class AbstractMultithreadedModuleTest {
 		config.global().setNumberOfThreads(3);
 		DummyAbstractMultithreadedModule testee = new DummyAbstractMultithreadedModule(config.global());
 		Assert.assertEquals(3, testee.getNumOfThreads());
+		Assert.assertEquals(1, testee.getQueuesPerThread());
+
+		config.global().setNumberOfReplanningQueuesPerThread(4);
+		testee = new DummyAbstractMultithreadedModule(config.global());
+		Assert.assertEquals(4, testee.getQueuesPerThread());
+	}
+
+	@Test
+	public void testPlansOfQueueHandledInOrderByOneAlgorithm() {
+		RecordingModule testee = new RecordingModule(3, 4);
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			plans.add(PopulationUtils.createPlan());
+		}
+		testee.prepareReplanning(null);
+		for (Plan plan : plans) {
+			testee.handlePlan(plan);
+		}
+		testee.finishReplanning();
+
+		Assert.assertEquals(12, testee.algorithms.size());
+		for (int q = 0; q < 12; q++) {
+			List<Plan> expected = new ArrayList<>();
+			for (int i = q; i < plans.size(); i += 12) {
+				expected.add(plans.get(i));
+			}
+			Assert.assertEquals("wrong plans in queue " + q, expected, testee.algorithms.get(q).handledPlans);
+		}
+	}
+
+	@Test
+	public void testBatchAlgorithmGetsPlansOfQueueInOrder() {
+		BatchRecordingModule testee = new BatchRecordingModule(3, 4);
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			plans.add(PopulationUtils.createPlan());
+		}
+		testee.prepareReplanning(null);
+		for (Plan plan : plans) {
+			testee.handlePlan(plan);
+		}
+		testee.finishReplanning();
+
+		Assert.assertEquals(12, testee.algorithms.size());
+		for (int q = 0; q < 12; q++) {
+			List<Plan> expected = new ArrayList<>();
+			for (int i = q; i < plans.size(); i += 12) {
+				expected.add(plans.get(i));
+			}
+			Assert.assertEquals("wrong batches in queue " + q, Collections.singletonList(expected), testee.algorithms.get(q).batches);
+		}
+	}
+
+	@Test
+	public void testBatchAlgorithmWithoutThreadsGetsAllPlans() {
+		BatchRecordingModule testee = new BatchRecordingModule(0, 1);
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			plans.add(PopulationUtils.createPlan());
+		}
+		testee.prepareReplanning(null);
+		for (Plan plan : plans) {
+			testee.handlePlan(plan);
+		}
+		Assert.assertTrue(testee.algorithms.get(0).batches.isEmpty());
+		testee.finishReplanning();
+
+		Assert.assertEquals(1, testee.algorithms.size());
+		Assert.assertEquals(Collections.singletonList(plans), testee.algorithms.get(0).batches);
 	}
 
 	@Test
@@ -80,6 +155,52 @@ public class AbstractMultithreadedModuleTest {
 		}
 	}
 
+	private static class RecordingModule extends AbstractMultithreadedModule {
+		private final List<RecordingPlanAlgo> algorithms = Collections.synchronizedList(new ArrayList<>());
+		public RecordingModule(final int nOfThreads, final int queuesPerThread) {
+			super(nOfThreads, queuesPerThread);
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			RecordingPlanAlgo algo = new RecordingPlanAlgo();
+			this.algorithms.add(algo);
+			return algo;
+		}
+	}
+
+	private static class RecordingPlanAlgo implements PlanAlgorithm {
+		private final List<Plan> handledPlans = new ArrayList<>();
+		@Override
+		public void run(Plan plan) {
+			this.handledPlans.add(plan);
+		}
+	}
+
+	private static class BatchRecordingModule extends AbstractMultithreadedModule {
+		private final List<BatchRecordingPlanAlgo> algorithms = Collections.synchronizedList(new ArrayList<>());
+		public BatchRecordingModule(final int nOfThreads, final int queuesPerThread) {
+			super(nOfThreads, queuesPerThread);
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			BatchRecordingPlanAlgo algo = new BatchRecordingPlanAlgo();
+			this.algorithms.add(algo);
+			return algo;
+		}
+	}
+
+	private static class BatchRecordingPlanAlgo implements BatchPlanAlgorithm {
+		private final List<List<Plan>> batches = new ArrayList<>();
+		@Override
+		public void run(Plan plan) {
+			throw new IllegalStateException("plans should be handed over in batches");
+		}
+		@Override
+		public void run(List<Plan> plans) {
+			this.batches.add(new ArrayList<>(plans));
+		}
+	}
+
 	private static class CrashingPlanAlgo implements PlanAlgorithm {
 		@Override
 		public void run(Plan plan) {
@@ -20,10 +20,20 @@
 
 package org.matsim.core.router;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
 import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.Landmarker;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
 import org.matsim.core.router.util.PreProcessLandmarks;
 
 public class AStarLandmarksTest extends AbstractLeastCostPathCalculatorTest {
@@ -36,4 +46,120 @@ public class AStarLandmarksTest extends AbstractLeastCostPathCalculatorTest {
 		return new AStarLandmarks(network, preProcessData, travelTimeCostCalculator);
 	}
 
+	/**
+	 * The landmark estimates must be admissible, so A* must find routes with the same costs as Dijkstra.
+	 */
+	public void testSameCostsAsDijkstra() {
+		Random random = new Random(20190612);
+		Network network = createRandomGridNetwork(random);
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		PreProcessLandmarks preProcessData = new PreProcessLandmarks(travelTimeCostCalculator, 8);
+		preProcessData.run(network);
+		LeastCostPathCalculator aStar = new AStarLandmarks(network, preProcessData, travelTimeCostCalculator);
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelTimeCostCalculator, travelTimeCostCalculator);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		int routes = 0;
+		for (int q = 0; q < 500; q++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8.0 * 3600, null, null);
+			Path actual = aStar.calcLeastCostPath(from, to, 8.0 * 3600, null, null);
+			if (expected == null) {
+				assertNull(actual);
+				continue;
+			}
+			routes++;
+			assertEquals(expected.travelCost, actual.travelCost, 1e-6);
+		}
+		assertTrue(routes > 100);
+	}
+
+	/**
+	 * The landmark tables read from the cache must be the same as the computed ones. Other landmark settings must not
+	 * use the same cache file.
+	 */
+	public void testCacheRoundTrip() {
+		Network network = createRandomGridNetwork(new Random(20190613));
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		String cacheDirectory = getOutputDirectory() + "cache";
+
+		PreProcessLandmarks computed = new PreProcessLandmarks(travelTimeCostCalculator, 8);
+		computed.setCacheDirectory(cacheDirectory);
+		computed.run(network);
+		assertEquals(1, new File(cacheDirectory).list().length);
+
+		PreProcessLandmarks cached = new PreProcessLandmarks(travelTimeCostCalculator, 8);
+		cached.setCacheDirectory(cacheDirectory);
+		cached.run(network);
+		assertEquals(1, new File(cacheDirectory).list().length);
+		assertTrue(Arrays.equals(computed.getLandmarks(), cached.getLandmarks()));
+		for (Node node : network.getNodes().values()) {
+			for (int i = 0; i < 8; i++) {
+				assertEquals(computed.getNodeData(node).getMinLandmarkTravelTime(i), cached.getNodeData(node).getMinLandmarkTravelTime(i), 0.0);
+				assertEquals(computed.getNodeData(node).getMaxLandmarkTravelTime(i), cached.getNodeData(node).getMaxLandmarkTravelTime(i), 0.0);
+			}
+		}
+
+		PreProcessLandmarks fewerLandmarks = new PreProcessLandmarks(travelTimeCostCalculator, 4);
+		fewerLandmarks.setCacheDirectory(cacheDirectory);
+		fewerLandmarks.run(network);
+		assertEquals(2, new File(cacheDirectory).list().length);
+
+		// the same landmarker class with other settings
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		PreProcessLandmarks firstNodes = new PreProcessLandmarks(travelTimeCostCalculator, new FixedLandmarker(nodes[0], nodes[1]), 2);
+		firstNodes.setCacheDirectory(cacheDirectory);
+		firstNodes.run(network);
+		assertEquals(3, new File(cacheDirectory).list().length);
+		PreProcessLandmarks lastNodes = new PreProcessLandmarks(travelTimeCostCalculator, new FixedLandmarker(nodes[nodes.length - 1], nodes[nodes.length - 2]), 2);
+		lastNodes.setCacheDirectory(cacheDirectory);
+		lastNodes.run(network);
+		assertEquals(4, new File(cacheDirectory).list().length);
+		assertEquals(nodes[nodes.length - 1], lastNodes.getLandmarks()[0]);
+	}
+
+	private static Network createRandomGridNetwork(Random random) {
+		Network network = NetworkUtils.createNetwork();
+		int size = 30;
+		Node[][] nodes = new Node[size][size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				nodes[i][j] = NetworkUtils.createAndAddNode(network, Id.createNodeId(i + "_" + j), new Coord(100.0 * i, 100.0 * j));
+			}
+		}
+		int linkCount = 0;
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				for (int[] neighbor : new int[][] { { i + 1, j }, { i, j + 1 } }) {
+					if (neighbor[0] >= size || neighbor[1] >= size || random.nextInt(5) == 0) {
+						continue;
+					}
+					Node other = nodes[neighbor[0]][neighbor[1]];
+					double length = 100.0 + random.nextInt(100);
+					double freespeed = 5.0 + random.nextInt(25);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkCount++), nodes[i][j], other, length, freespeed, 1000.0, 1.0);
+					if (random.nextInt(4) != 0) {
+						NetworkUtils.createAndAddLink(network, Id.createLinkId(linkCount++), other, nodes[i][j], length, freespeed, 1000.0, 1.0);
+					}
+				}
+			}
+		}
+		return network;
+	}
+
+	private static class FixedLandmarker implements Landmarker {
+
+		private final Node[] landmarks;
+
+		FixedLandmarker(Node... landmarks) {
+			this.landmarks = landmarks;
+		}
+
+		@Override
+		public Node[] identifyLandmarks(int nLandmarks, Network network) {
+			return this.landmarks.clone();
+		}
+	}
+
 }
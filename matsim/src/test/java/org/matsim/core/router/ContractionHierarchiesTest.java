@@ -0,0 +1,353 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.ContractionHierarchiesGraph.Metric;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class ContractionHierarchiesTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new ContractionHierarchiesFactory(900).createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	/**
+	 * Compares the routes on a grid with random one-way links and travel times that change over the day with the
+	 * routes found by Dijkstra.
+	 */
+	public void testSameCostsAsDijkstra() {
+		Random random = new Random(20190601);
+		Network network = createGrid(30, random);
+		int routes = assertSameCostsAsDijkstra(network, new ContractionHierarchiesFactory(3600), random, 500);
+		assertTrue(routes > 100);
+	}
+
+	/**
+	 * Customizes a network whose levels are large enough to be split over several threads, and compares the arc
+	 * costs with those computed by a single thread.
+	 */
+	public void testParallelCustomization() {
+		Random random = new Random(20190602);
+		Network network = createGrid(80, random);
+		ContractionHierarchiesGraph graph = ContractionHierarchiesGraph.create(network, null);
+		assertTrue(graph.getLargestLevelSize() >= ContractionHierarchiesGraph.MIN_PARALLEL_LEVEL_SIZE);
+
+		TravelDisutility travelDisutility = createTravelDisutility(createTravelTime());
+		for (double time : new double[] { 0.0, 8.0 * 3600 }) {
+			Metric sequential = graph.customize(travelDisutility, time, 1);
+			Metric parallel = graph.customize(travelDisutility, time, 4);
+			assertTrue(Arrays.equals(sequential.up, parallel.up));
+			assertTrue(Arrays.equals(sequential.down, parallel.down));
+			assertTrue(Arrays.equals(sequential.upVia, parallel.upVia));
+			assertTrue(Arrays.equals(sequential.downVia, parallel.downVia));
+		}
+
+		int routes = assertSameCostsAsDijkstra(network, new ContractionHierarchiesFactory(3600, 4, null), random, 200);
+		assertTrue(routes > 50);
+	}
+
+	/**
+	 * Writes the contraction hierarchy of a network to the cache directory, and reads it back for another instance of
+	 * the same network.
+	 */
+	public void testCacheRoundTrip() {
+		String cacheDirectory = getOutputDirectory() + "cache";
+		Network network = createGrid(20, new Random(20190603));
+		ContractionHierarchiesGraph built = ContractionHierarchiesGraph.create(network, cacheDirectory);
+		File[] cacheFiles = new File(cacheDirectory).listFiles();
+		assertEquals(1, cacheFiles.length);
+		// the file would get a new modification time if it was written again
+		assertTrue(cacheFiles[0].setLastModified(1000L));
+
+		Network sameNetwork = createGrid(20, new Random(20190603));
+		ContractionHierarchiesGraph read = ContractionHierarchiesGraph.create(sameNetwork, cacheDirectory);
+		assertEquals(1, new File(cacheDirectory).listFiles().length);
+		assertEquals(1000L, cacheFiles[0].lastModified());
+		assertSame(sameNetwork, read.network);
+		assertEquals(built.nodeCount, read.nodeCount);
+		for (int r = 0; r < built.nodeCount; r++) {
+			assertEquals(built.nodes[r].getId(), read.nodes[r].getId());
+			assertSame(sameNetwork.getNodes().get(built.nodes[r].getId()), read.nodes[r]);
+		}
+		assertTrue(Arrays.equals(built.firstArc, read.firstArc));
+		assertTrue(Arrays.equals(built.arcHead, read.arcHead));
+
+		TravelTime travelTime = createTravelTime();
+		TravelDisutility travelDisutility = createTravelDisutility(travelTime);
+		LeastCostPathCalculator expected = new ContractionHierarchiesFactory(3600).createPathCalculator(network, travelDisutility, travelTime);
+		LeastCostPathCalculator actual = new ContractionHierarchiesFactory(3600, 1, cacheDirectory).createPathCalculator(sameNetwork, travelDisutility, travelTime);
+		Random random = new Random(20190604);
+		Node[] allNodes = network.getNodes().values().toArray(new Node[0]);
+		int routes = 0;
+		for (int q = 0; q < 200; q++) {
+			Node from = allNodes[random.nextInt(allNodes.length)];
+			Node to = allNodes[random.nextInt(allNodes.length)];
+			double time = 3600.0 * random.nextInt(24);
+			Path expectedPath = expected.calcLeastCostPath(from, to, time, null, null);
+			Path actualPath = actual.calcLeastCostPath(sameNetwork.getNodes().get(from.getId()),
+					sameNetwork.getNodes().get(to.getId()), time, null, null);
+			if (expectedPath == null) {
+				assertNull(actualPath);
+				continue;
+			}
+			routes++;
+			assertEquals(expectedPath.travelCost, actualPath.travelCost, 1e-9);
+			assertEquals(expectedPath.links.size(), actualPath.links.size());
+			for (int i = 0; i < expectedPath.links.size(); i++) {
+				assertEquals(expectedPath.links.get(i).getId(), actualPath.links.get(i).getId());
+			}
+		}
+		assertTrue(routes > 50);
+		assertEquals(1000L, cacheFiles[0].lastModified());
+	}
+
+	/**
+	 * A network with an additional link must neither use the contraction hierarchy cached for the original network,
+	 * nor a stale cache file under its own name.
+	 */
+	public void testCacheNotUsedForChangedNetwork() throws IOException {
+		String cacheDirectory = getOutputDirectory() + "cache";
+		Network network = createGrid(20, new Random(20190603));
+		ContractionHierarchiesGraph original = ContractionHierarchiesGraph.create(network, cacheDirectory);
+		File staleFile = new File(cacheDirectory).listFiles()[0];
+
+		Network changed = createGrid(20, new Random(20190603));
+		Node from = changed.getNodes().get(Id.createNodeId("0_0"));
+		Node to = changed.getNodes().get(Id.createNodeId("19_19"));
+		NetworkUtils.createAndAddLink(changed, Id.createLinkId("bridge"), from, to, 100.0, 10.0, 1000.0, 1.0);
+		int fromRank = original.getRank(network.getNodes().get(from.getId()));
+		int toRank = original.getRank(network.getNodes().get(to.getId()));
+		assertEquals(ContractionHierarchiesGraph.NONE, original.findArc(Math.min(fromRank, toRank), Math.max(fromRank, toRank)));
+
+		ContractionHierarchiesGraph graph = ContractionHierarchiesGraph.create(changed, cacheDirectory);
+		File[] cacheFiles = new File(cacheDirectory).listFiles();
+		assertEquals(2, cacheFiles.length);
+		assertHasArc(graph, from, to);
+
+		// the stale file has the same nodes, but no arc for the new link
+		File changedFile = cacheFiles[0].equals(staleFile) ? cacheFiles[1] : cacheFiles[0];
+		Files.copy(staleFile.toPath(), changedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		graph = ContractionHierarchiesGraph.create(changed, cacheDirectory);
+		assertHasArc(graph, from, to);
+
+		Random random = new Random(20190605);
+		int routes = assertSameCostsAsDijkstra(changed, new ContractionHierarchiesFactory(3600, 1, cacheDirectory), random, 200);
+		assertTrue(routes > 50);
+	}
+
+	private static void assertHasArc(ContractionHierarchiesGraph graph, Node from, Node to) {
+		int fromRank = graph.getRank(from);
+		int toRank = graph.getRank(to);
+		assertTrue(graph.findArc(Math.min(fromRank, toRank), Math.max(fromRank, toRank)) != ContractionHierarchiesGraph.NONE);
+	}
+
+	/**
+	 * @return a grid of <code>size</code> x <code>size</code> nodes with random one-way and two-way links to their
+	 *         right, upper and upper right neighbors
+	 */
+	private static Network createGrid(int size, Random random) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				nodes[i][j] = NetworkUtils.createAndAddNode(network, Id.createNodeId(i + "_" + j), new Coord(100.0 * i, 100.0 * j));
+			}
+		}
+		int linkCount = 0;
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				for (int[] neighbor : new int[][] { { i + 1, j }, { i, j + 1 }, { i + 1, j + 1 } }) {
+					if (neighbor[0] >= size || neighbor[1] >= size || random.nextInt(5) == 0) {
+						continue;
+					}
+					Node other = nodes[neighbor[0]][neighbor[1]];
+					double length = 100.0 + random.nextInt(100);
+					if (random.nextInt(4) != 0) {
+						NetworkUtils.createAndAddLink(network, Id.createLinkId(linkCount++), nodes[i][j], other, length, 10.0, 1000.0, 1.0);
+					}
+					if (random.nextInt(4) != 0) {
+						NetworkUtils.createAndAddLink(network, Id.createLinkId(linkCount++), other, nodes[i][j], length, 10.0, 1000.0, 1.0);
+					}
+				}
+			}
+		}
+		return network;
+	}
+
+	/**
+	 * @return travel times of which some depend on the hour of the day
+	 */
+	private static TravelTime createTravelTime() {
+		return new TravelTime() {
+			@Override
+			public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+				int hour = (int) (time / 3600);
+				return link.getLength() / link.getFreespeed() * (1 + (link.getId().index() * 7 + hour) % 5);
+			}
+		};
+	}
+
+	private static TravelDisutility createTravelDisutility(TravelTime travelTime) {
+		return new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return travelTime.getLinkTravelTime(link, time, person, vehicle) + 0.01 * link.getLength();
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return link.getLength() / link.getFreespeed() + 0.01 * link.getLength();
+			}
+		};
+	}
+
+	/**
+	 * Compares the costs of the routes found by path calculators of the given factory for random queries with those
+	 * found by Dijkstra.
+	 *
+	 * @return the number of queries for which a route exists
+	 */
+	private static int assertSameCostsAsDijkstra(Network network, ContractionHierarchiesFactory factory, Random random, int queries) {
+		TravelTime travelTime = createTravelTime();
+		TravelDisutility travelDisutility = createTravelDisutility(travelTime);
+
+		// Dijkstra evaluates the costs at the time each link is entered, whereas the contraction hierarchy uses the costs of
+		// the departure time bin. So Dijkstra gets the costs at the departure time for all links.
+		double[] departureTime = new double[1];
+		TravelTime fixedTravelTime = (link, time, person, vehicle) -> travelTime.getLinkTravelTime(link, departureTime[0], person, vehicle);
+		TravelDisutility fixedTravelDisutility = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return travelDisutility.getLinkTravelDisutility(link, departureTime[0], person, vehicle);
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return travelDisutility.getLinkMinimumTravelDisutility(link);
+			}
+		};
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, fixedTravelDisutility, fixedTravelTime);
+		LeastCostPathCalculator ch = factory.createPathCalculator(network, travelDisutility, travelTime);
+		Node[] allNodes = network.getNodes().values().toArray(new Node[0]);
+		int routes = 0;
+		for (int q = 0; q < queries; q++) {
+			Node from = allNodes[random.nextInt(allNodes.length)];
+			Node to = allNodes[random.nextInt(allNodes.length)];
+			double time = 3600.0 * random.nextInt(24) + random.nextInt(3600);
+			departureTime[0] = time;
+			Path expected = dijkstra.calcLeastCostPath(from, to, time, null, null);
+			Path actual = ch.calcLeastCostPath(from, to, time, null, null);
+			if (expected == null) {
+				assertNull(actual);
+				continue;
+			}
+			routes++;
+			assertNotNull(actual);
+			assertEquals(from, actual.getFromNode());
+			assertEquals(to, actual.getToNode());
+			for (int i = 0; i < actual.links.size(); i++) {
+				assertEquals(actual.nodes.get(i), actual.links.get(i).getFromNode());
+				assertEquals(actual.nodes.get(i + 1), actual.links.get(i).getToNode());
+			}
+			double cost = 0.0;
+			for (Link link : actual.links) {
+				cost += travelDisutility.getLinkTravelDisutility(link, time, null, null);
+			}
+			assertEquals(expected.travelCost, cost, 1e-6);
+		}
+		return routes;
+	}
+
+	/**
+	 * Path calculators for the same travel time, but with different travel disutilities, must not share their arc costs.
+	 */
+	public void testDifferentTravelDisutilitiesForSameTravelTime() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(500, 500));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.createNodeId(3), new Coord(1000, 0));
+		// the direct link is short but slow, the detour is long but fast
+		Link direct = NetworkUtils.createAndAddLink(network, Id.createLinkId(1), node1, node3, 1000.0, 1.0, 1000.0, 1.0);
+		Link detour1 = NetworkUtils.createAndAddLink(network, Id.createLinkId(2), node1, node2, 1000.0, 100.0, 1000.0, 1.0);
+		Link detour2 = NetworkUtils.createAndAddLink(network, Id.createLinkId(3), node2, node3, 1000.0, 100.0, 1000.0, 1.0);
+
+		TravelTime travelTime = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed();
+		TravelDisutility timeDisutility = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return travelTime.getLinkTravelTime(link, time, person, vehicle);
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return travelTime.getLinkTravelTime(link, 0.0, null, null);
+			}
+		};
+		TravelDisutility distanceDisutility = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return link.getLength();
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return link.getLength();
+			}
+		};
+
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory(900);
+		LeastCostPathCalculator fastest = factory.createPathCalculator(network, timeDisutility, travelTime);
+		LeastCostPathCalculator shortest = factory.createPathCalculator(network, distanceDisutility, travelTime);
+
+		Path fastestPath = fastest.calcLeastCostPath(node1, node3, 8.0 * 3600, null, null);
+		Path shortestPath = shortest.calcLeastCostPath(node1, node3, 8.0 * 3600, null, null);
+		assertEquals(2, fastestPath.links.size());
+		assertEquals(detour1, fastestPath.links.get(0));
+		assertEquals(detour2, fastestPath.links.get(1));
+		assertEquals(20.0, fastestPath.travelCost, 1e-9);
+		assertEquals(1, shortestPath.links.size());
+		assertEquals(direct, shortestPath.links.get(0));
+		assertEquals(1000.0, shortestPath.travelCost, 1e-9);
+	}
+
+}
@@ -19,6 +19,7 @@
 
 package org.matsim.core.router;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Assert;
@@ -142,6 +143,59 @@ public class NetworkRoutingModuleTest {
 		}
 	}
 
+	@Test
+	public void testRouteLegsInBatch() {
+		Fixture f = new Fixture();
+		FreespeedTravelTimeAndDisutility freespeed = new FreespeedTravelTimeAndDisutility(-6.0/3600, +6.0/3600, 0.0);
+		LeastCostPathCalculator routeAlgo = new Dijkstra(f.s.getNetwork(), freespeed, freespeed);
+		MultiNodePathCalculator multiNodeRouteAlgo = (MultiNodePathCalculator) new FastMultiNodeDijkstraFactory(true)
+				.createPathCalculator(f.s.getNetwork(), freespeed, freespeed);
+
+		final NetworkRoutingModule routingModule = new NetworkRoutingModule(
+				TransportMode.car,
+				f.s.getPopulation().getFactory(),
+				f.s.getNetwork(),
+				routeAlgo,
+				multiNodeRouteAlgo,
+				900.0);
+
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+		Facility facility1 = createFacility(f, "1", 0.0);
+		Facility facility2 = createFacility(f, "2", 1000.0);
+		Facility facility3 = createFacility(f, "3", 3000.0);
+		List<RoutingRequest> requests = new ArrayList<>();
+		requests.add(new RoutingRequest(TransportMode.car, facility1, facility3, 7.0*3600, person));
+		requests.add(new RoutingRequest(TransportMode.car, facility1, facility2, 7.0*3600 + 60, person));
+		requests.add(new RoutingRequest(TransportMode.car, facility1, facility1, 7.0*3600, person));
+		requests.add(new RoutingRequest(TransportMode.car, facility1, facility3, 8.0*3600, person));
+		requests.add(new RoutingRequest(TransportMode.car, facility2, facility3, 7.0*3600, person));
+
+		List<List<? extends PlanElement>> results = routingModule.calcRoutes(requests);
+		Assert.assertEquals(requests.size(), results.size());
+		for (int i = 0; i < requests.size(); i++) {
+			RoutingRequest request = requests.get(i);
+			Leg expected = (Leg) routingModule.calcRoute(request.getFromFacility(), request.getToFacility(), request.getDepartureTime(), person).get(0);
+			Assert.assertEquals(1, results.get(i).size());
+			Leg leg = (Leg) results.get(i).get(0);
+			Assert.assertEquals(request.getDepartureTime(), leg.getDepartureTime(), 1e-8);
+			Assert.assertEquals(expected.getTravelTime(), leg.getTravelTime(), 1e-8);
+			NetworkRoute route = (NetworkRoute) leg.getRoute();
+			NetworkRoute expectedRoute = (NetworkRoute) expected.getRoute();
+			Assert.assertEquals(expectedRoute.getStartLinkId(), route.getStartLinkId());
+			Assert.assertEquals(expectedRoute.getLinkIds(), route.getLinkIds());
+			Assert.assertEquals(expectedRoute.getEndLinkId(), route.getEndLinkId());
+			Assert.assertEquals(expectedRoute.getDistance(), route.getDistance(), 1e-8);
+		}
+		Assert.assertEquals(100.0, ((Leg) results.get(0).get(0)).getTravelTime(), 1e-8);
+		Assert.assertEquals(0.0, ((Leg) results.get(1).get(0)).getTravelTime(), 1e-8);
+	}
+
+	private static Facility createFacility(Fixture f, String linkId, double y) {
+		Activity activity = PopulationUtils.createActivityFromCoord("h", new Coord(0, y));
+		activity.setLinkId(Id.create(linkId, Link.class));
+		return FacilitiesUtils.toFacility(activity, f.s.getActivityFacilities());
+	}
+
 	private static class Fixture {
 		public final Scenario s = ScenarioUtils.createScenario(ConfigUtils.createConfig());
 
@@ -0,0 +1,162 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RouteCacheTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Injector;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutilityFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.scenario.ScenarioByInstanceModule;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class RouteCacheTest {
+
+	@Test
+	public void testCachedOnlyWhileActive() {
+		CountingPathCalculator delegate = new CountingPathCalculator();
+		RouteCache cache = new RouteCache(1000, 900.0);
+		LeastCostPathCalculator calculator = cache.wrap("car", "car", delegate);
+		Node a = NetworkUtils.createNode(Id.createNodeId("a"));
+		Node b = NetworkUtils.createNode(Id.createNodeId("b"));
+
+		calculator.calcLeastCostPath(a, b, 3600.0, null, null);
+		calculator.calcLeastCostPath(a, b, 3600.0, null, null);
+		Assert.assertEquals("inactive cache must not be used", 2, delegate.count);
+
+		cache.activate();
+		LeastCostPathCalculator.Path path = calculator.calcLeastCostPath(a, b, 3600.0, null, null);
+		Assert.assertEquals(3, delegate.count);
+		Assert.assertSame(path, calculator.calcLeastCostPath(a, b, 3600.0 + 899.0, null, null));
+		Assert.assertEquals(3, delegate.count);
+		Assert.assertEquals(1, cache.getHits("car", "car"));
+
+		calculator.calcLeastCostPath(a, b, 3600.0 + 900.0, null, null);
+		calculator.calcLeastCostPath(b, a, 3600.0, null, null);
+		Assert.assertEquals("other time bin or direction must not be cached", 5, delegate.count);
+
+		cache.deactivate();
+		calculator.calcLeastCostPath(a, b, 3600.0, null, null);
+		Assert.assertEquals(6, delegate.count);
+
+		cache.activate();
+		calculator.calcLeastCostPath(a, b, 3600.0, null, null);
+		Assert.assertEquals("cache must be emptied when activated", 7, delegate.count);
+	}
+
+	@Test
+	public void testDisabled() {
+		CountingPathCalculator delegate = new CountingPathCalculator();
+		RouteCache cache = new RouteCache(0, 900.0);
+		Assert.assertFalse(cache.isEnabled());
+		Assert.assertSame(delegate, cache.wrap("car", "car", delegate));
+	}
+
+	/**
+	 * A provider routing trucks on their own network with the travel times of cars must not get the cached paths of
+	 * cars, which may use links that trucks must not.
+	 */
+	@Test
+	public void testProvidersWithSameRoutingModeAndOtherModes() {
+		Config config = ConfigUtils.createConfig();
+		config.plansCalcRoute().setRouteCacheSize(1000);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Network network = scenario.getNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(1000, 0));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.createNodeId(3), new Coord(2000, 0));
+		Node n4 = NetworkUtils.createAndAddNode(network, Id.createNodeId(4), new Coord(1500, 1000));
+		Node n5 = NetworkUtils.createAndAddNode(network, Id.createNodeId(5), new Coord(3000, 0));
+		Set<String> carAndTruck = new HashSet<>(Arrays.asList(TransportMode.car, TransportMode.truck));
+		Link start = NetworkUtils.createAndAddLink(network, Id.createLinkId(1), n1, n2, 1000, 10, 1000, 1);
+		start.setAllowedModes(carAndTruck);
+		Link carOnly = NetworkUtils.createAndAddLink(network, Id.createLinkId(2), n2, n3, 1000, 10, 1000, 1);
+		carOnly.setAllowedModes(Collections.singleton(TransportMode.car));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(3), n2, n4, 1200, 10, 1000, 1).setAllowedModes(carAndTruck);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(4), n4, n3, 1200, 10, 1000, 1).setAllowedModes(carAndTruck);
+		Link end = NetworkUtils.createAndAddLink(network, Id.createLinkId(5), n3, n5, 1000, 10, 1000, 1);
+		end.setAllowedModes(carAndTruck);
+
+		com.google.inject.Injector injector = Injector.createInjector(config, new AbstractModule() {
+			@Override
+			public void install() {
+				install(new TripRouterModule());
+				install(new ScenarioByInstanceModule(scenario));
+				addTravelTimeBinding(TransportMode.car).toInstance(new FreeSpeedTravelTime());
+				addTravelDisutilityFactoryBinding(TransportMode.car).toInstance(new OnlyTimeDependentTravelDisutilityFactory());
+				addRoutingModuleBinding(TransportMode.truck).toProvider(new NetworkRoutingProvider(TransportMode.truck, TransportMode.car));
+			}
+		});
+		TripRouter tripRouter = injector.getInstance(TripRouter.class);
+		RouteCache cache = injector.getInstance(RouteCache.class);
+		cache.activate();
+
+		NetworkRoute carRoute = route(tripRouter, TransportMode.car, start, end);
+		NetworkRoute truckRoute = route(tripRouter, TransportMode.truck, start, end);
+		Assert.assertEquals(Collections.singletonList(carOnly.getId()), carRoute.getLinkIds());
+		Assert.assertEquals(Arrays.asList(Id.createLinkId(3), Id.createLinkId(4)), truckRoute.getLinkIds());
+		Assert.assertEquals(0, cache.getHits(TransportMode.truck, TransportMode.car));
+
+		Assert.assertEquals(truckRoute.getLinkIds(), route(tripRouter, TransportMode.truck, start, end).getLinkIds());
+		Assert.assertEquals(1, cache.getHits(TransportMode.truck, TransportMode.car));
+		Assert.assertEquals(0, cache.getHits(TransportMode.car, TransportMode.car));
+	}
+
+	private static NetworkRoute route(TripRouter tripRouter, String mode, Link from, Link to) {
+		List<? extends PlanElement> trip = tripRouter.getRoutingModule(mode).calcRoute(new LinkWrapperFacility(from),
+				new LinkWrapperFacility(to), 7 * 3600, null);
+		return (NetworkRoute) ((Leg) trip.get(0)).getRoute();
+	}
+
+	private static class CountingPathCalculator implements LeastCostPathCalculator {
+		int count = 0;
+
+		@Override
+		public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person, Vehicle vehicle) {
+			this.count++;
+			return new Path(Collections.singletonList(fromNode), Collections.emptyList(), 60.0, 60.0);
+		}
+	}
+
+}
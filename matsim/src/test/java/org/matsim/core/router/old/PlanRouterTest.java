@@ -27,6 +27,9 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
@@ -47,6 +50,7 @@ import org.matsim.facilities.Facility;
 import org.matsim.testcases.MatsimTestUtils;
 import org.matsim.vehicles.Vehicle;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -138,4 +142,84 @@ public class PlanRouterTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void routesPlansInBatchLikeOneByOne() {
+        final Scenario batchScenario = loadScenarioForBatchRouting();
+        final Scenario singleScenario = loadScenarioForBatchRouting();
+        List<Plan> batchPlans = new ArrayList<>();
+        for (Person person : batchScenario.getPopulation().getPersons().values()) {
+            batchPlans.add(person.getSelectedPlan());
+        }
+
+        new PlanRouter(createTripRouter(batchScenario)).run(batchPlans);
+        PlanRouter singleRouter = new PlanRouter(createTripRouter(singleScenario));
+        for (Person person : singleScenario.getPopulation().getPersons().values()) {
+            singleRouter.run(person.getSelectedPlan());
+        }
+
+        for (Person person : batchScenario.getPopulation().getPersons().values()) {
+            List<Leg> legs = TripStructureUtils.getLegs(person.getSelectedPlan());
+            List<Leg> expectedLegs = TripStructureUtils.getLegs(singleScenario.getPopulation().getPersons().get(person.getId()).getSelectedPlan());
+            Assert.assertEquals(expectedLegs.size(), legs.size());
+            for (int i = 0; i < legs.size(); i++) {
+                Leg leg = legs.get(i);
+                Leg expected = expectedLegs.get(i);
+                String message = "leg " + i + " of person " + person.getId();
+                Assert.assertEquals(message, expected.getMode(), leg.getMode());
+                Assert.assertEquals(message, expected.getDepartureTime(), leg.getDepartureTime(), 1e-8);
+                Assert.assertEquals(message, expected.getTravelTime(), leg.getTravelTime(), 1e-8);
+                Assert.assertEquals(message, expected.getRoute().getStartLinkId(), leg.getRoute().getStartLinkId());
+                Assert.assertEquals(message, expected.getRoute().getEndLinkId(), leg.getRoute().getEndLinkId());
+                Assert.assertEquals(message, expected.getRoute().getDistance(), leg.getRoute().getDistance(), 1e-8);
+                if (expected.getRoute() instanceof NetworkRoute) {
+                    Assert.assertEquals(message, ((NetworkRoute) expected.getRoute()).getLinkIds(), ((NetworkRoute) leg.getRoute()).getLinkIds());
+                }
+            }
+        }
+
+        // the second trip departs after the new route of the first trip and the 10 minutes of the first work activity
+        List<Leg> legs = TripStructureUtils.getLegs(batchScenario.getPopulation().getPersons().get(Id.createPersonId(1)).getSelectedPlan());
+        Assert.assertEquals(Arrays.asList(Id.createLinkId(6), Id.createLinkId(15)), ((NetworkRoute) legs.get(0).getRoute()).getLinkIds());
+        Assert.assertEquals(legs.get(0).getDepartureTime() + legs.get(0).getTravelTime() + 600.0, legs.get(1).getDepartureTime(), 1e-8);
+    }
+
+    /**
+     * Loads plans with two or three trips per plan, where the later trips depart after activities with a duration.  Every
+     * third plan has a walk trip at the end.  A faster route over link 6 avoids ties between equally fast routes, which
+     * different routing algorithms may break differently.
+     */
+    private static Scenario loadScenarioForBatchRouting() {
+        final Config config = ConfigUtils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+        config.plans().setInputFile("plans100.xml");
+        config.plansCalcRoute().setInsertingAccessEgressWalk(false);
+        config.plansCalcRoute().setBatchRoutingTimeBinSize(900.0);
+        final Scenario scenario = ScenarioUtils.loadScenario(config);
+        Link fastLink = scenario.getNetwork().getLinks().get(Id.createLinkId(6));
+        fastLink.setFreespeed(2 * fastLink.getFreespeed());
+        int p = 0;
+        for (Person person : scenario.getPopulation().getPersons().values()) {
+            if (p++ % 3 == 0) {
+                List<Leg> legs = TripStructureUtils.getLegs(person.getSelectedPlan());
+                Leg lastLeg = legs.get(legs.size() - 1);
+                lastLeg.setMode(TransportMode.walk);
+                lastLeg.setRoute(null);
+            }
+        }
+        return scenario;
+    }
+
+    private static TripRouter createTripRouter(final Scenario scenario) {
+        final Config config = scenario.getConfig();
+        com.google.inject.Injector injector = Injector.createInjector(config, new AbstractModule() {
+            @Override
+            public void install() {
+                install(new TripRouterModule());
+                install(new ScenarioByInstanceModule(scenario));
+                addTravelTimeBinding("car").toInstance(new FreespeedTravelTimeAndDisutility(config.planCalcScore()));
+                addTravelDisutilityFactoryBinding("car").toInstance(new OnlyTimeDependentTravelDisutilityFactory());
+            }
+        });
+        return injector.getInstance(TripRouter.class);
+    }
+
+}
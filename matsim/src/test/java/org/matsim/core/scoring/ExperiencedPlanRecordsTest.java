@@ -0,0 +1,135 @@
+package org.matsim.core.scoring;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacility;
+
+public class ExperiencedPlanRecordsTest {
+
+	private final Id<Person> person1 = Id.create("1", Person.class);
+	private final Id<Person> person2 = Id.create("2", Person.class);
+	private final Id<Person> person3 = Id.create("3", Person.class);
+
+	@Test
+	public void testRecordsPlanElements() {
+		ExperiencedPlanRecords records = new ExperiencedPlanRecords();
+		records.reset(Arrays.asList(this.person1, this.person2));
+
+		Activity home = PopulationUtils.createActivityFromLinkId("home", Id.create("l1", Link.class));
+		home.setFacilityId(Id.create("f1", ActivityFacility.class));
+		home.setEndTime(100.0);
+		records.addActivity(this.person1, home);
+		Activity other = PopulationUtils.createActivityFromLinkId("home", Id.create("l9", Link.class));
+		other.setEndTime(50.0);
+		records.addActivity(this.person2, other);
+
+		Leg car = PopulationUtils.createLeg("car");
+		car.setDepartureTime(100.0);
+		car.setTravelTime(200.0);
+		NetworkRoute networkRoute = RouteUtils.createNetworkRoute(Arrays.asList(Id.create("l1", Link.class),
+				Id.create("l2", Link.class), Id.create("l3", Link.class), Id.create("l4", Link.class)), null);
+		networkRoute.setTravelTime(200.0);
+		networkRoute.setDistance(1234.0);
+		car.setRoute(networkRoute);
+		records.addLeg(this.person1, car);
+
+		Activity work = PopulationUtils.createActivityFromLinkId("work", Id.create("l4", Link.class));
+		work.setStartTime(300.0);
+		records.addActivity(this.person1, work);
+		records.addActivity(this.person3, work);
+
+		Leg walk = PopulationUtils.createLeg("walk");
+		walk.setDepartureTime(50.0);
+		walk.setTravelTime(60.0);
+		walk.setRoute(RouteUtils.createGenericRouteImpl(Id.create("l9", Link.class), Id.create("l8", Link.class)));
+		walk.getRoute().setTravelTime(60.0);
+		walk.getRoute().setDistance(70.0);
+		records.addLeg(this.person2, walk);
+
+		Plan plan1 = records.createPlan(this.person1);
+		Assert.assertEquals(3, plan1.getPlanElements().size());
+		Activity home1 = (Activity) plan1.getPlanElements().get(0);
+		Assert.assertEquals("home", home1.getType());
+		Assert.assertEquals(Id.create("l1", Link.class), home1.getLinkId());
+		Assert.assertEquals(Id.create("f1", ActivityFacility.class), home1.getFacilityId());
+		Assert.assertEquals(Time.UNDEFINED_TIME, home1.getStartTime(), 0.0);
+		Assert.assertEquals(100.0, home1.getEndTime(), 0.0);
+		Leg car1 = (Leg) plan1.getPlanElements().get(1);
+		Assert.assertEquals("car", car1.getMode());
+		Assert.assertEquals(100.0, car1.getDepartureTime(), 0.0);
+		Assert.assertEquals(200.0, car1.getTravelTime(), 0.0);
+		NetworkRoute route1 = (NetworkRoute) car1.getRoute();
+		Assert.assertEquals(Id.create("l1", Link.class), route1.getStartLinkId());
+		Assert.assertEquals(Arrays.asList(Id.create("l2", Link.class), Id.create("l3", Link.class)), route1.getLinkIds());
+		Assert.assertEquals(Id.create("l4", Link.class), route1.getEndLinkId());
+		Assert.assertEquals(200.0, route1.getTravelTime(), 0.0);
+		Assert.assertEquals(1234.0, route1.getDistance(), 0.0);
+		Activity work1 = (Activity) plan1.getPlanElements().get(2);
+		Assert.assertEquals("work", work1.getType());
+		Assert.assertNull(work1.getFacilityId());
+		Assert.assertEquals(300.0, work1.getStartTime(), 0.0);
+		Assert.assertNull(plan1.getScore());
+
+		Plan plan2 = records.createPlan(this.person2);
+		Assert.assertEquals(2, plan2.getPlanElements().size());
+		Leg walk2 = (Leg) plan2.getPlanElements().get(1);
+		Assert.assertEquals("walk", walk2.getMode());
+		Assert.assertEquals(Id.create("l8", Link.class), walk2.getRoute().getEndLinkId());
+		Assert.assertEquals(70.0, walk2.getRoute().getDistance(), 0.0);
+
+		Assert.assertNull(records.createPlan(this.person3));
+	}
+
+	@Test
+	public void testKeepsUnusualElements() {
+		ExperiencedPlanRecords records = new ExperiencedPlanRecords();
+		records.reset(Collections.singleton(this.person1));
+		Activity activity = PopulationUtils.createActivityFromCoord("home", new Coord(1.0, 2.0));
+		records.addActivity(this.person1, activity);
+		Leg leg = PopulationUtils.createLeg("pt");
+		leg.getAttributes().putAttribute("fare", 2.5);
+		records.addLeg(this.person1, leg);
+
+		Plan plan = records.createPlan(this.person1);
+		Assert.assertSame(activity, plan.getPlanElements().get(0));
+		Assert.assertSame(leg, plan.getPlanElements().get(1));
+	}
+
+	@Test
+	public void testResetAndScores() {
+		ExperiencedPlanRecords records = new ExperiencedPlanRecords();
+		records.reset(Arrays.asList(this.person1, this.person2));
+		records.addActivity(this.person1, PopulationUtils.createActivityFromLinkId("home", Id.create("l1", Link.class)));
+		records.addActivity(this.person2, PopulationUtils.createActivityFromLinkId("home", Id.create("l2", Link.class)));
+
+		records.reset(Arrays.asList(this.person2, this.person1));
+		records.addActivity(this.person2, PopulationUtils.createActivityFromLinkId("work", Id.create("l3", Link.class)));
+		records.setScore(this.person2, 42.0);
+		records.setScore(this.person1, 7.0);
+
+		IdMap<Person, Plan> plans = new IdMap<>(Person.class);
+		records.forEachPlan(plans::put);
+		Assert.assertEquals(2, plans.size());
+		Assert.assertTrue(plans.get(this.person1).getPlanElements().isEmpty());
+		Assert.assertEquals(7.0, plans.get(this.person1).getScore(), 0.0);
+		Assert.assertEquals(1, plans.get(this.person2).getPlanElements().size());
+		Assert.assertEquals("work", ((Activity) plans.get(this.person2).getPlanElements().get(0)).getType());
+		Assert.assertEquals(42.0, plans.get(this.person2).getScore(), 0.0);
+	}
+
+}
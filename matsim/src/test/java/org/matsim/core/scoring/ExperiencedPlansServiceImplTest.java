@@ -0,0 +1,94 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ExperiencedPlansServiceImplTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scoring;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.ControlerListenerManagerImpl;
+import org.matsim.core.controler.Injector;
+import org.matsim.core.events.EventsManagerModule;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.scenario.ScenarioByInstanceModule;
+import org.matsim.core.scenario.ScenarioUtils;
+
+public class ExperiencedPlansServiceImplTest {
+
+	/**
+	 * Plans requested before all legs and activities were experienced must be completed by the later ones.
+	 */
+	@Test
+	public void testExperiencedPlansStayUpToDate() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Id<Person> personId = Id.create(1, Person.class);
+		scenario.getPopulation().addPerson(scenario.getPopulation().getFactory().createPerson(personId));
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		com.google.inject.Injector injector = Injector.createInjector(scenario.getConfig(),
+				new ScenarioByInstanceModule(scenario),
+				new ExperiencedPlansModule(),
+				new AbstractModule() {
+					@Override
+					public void install() {
+						bind(ControlerListenerManagerImpl.class).asEagerSingleton();
+						bind(ControlerListenerManager.class).to(ControlerListenerManagerImpl.class);
+						bind(EventsManager.class).toInstance(eventsManager);
+						bind(EventsManagerModule.EventHandlerRegistrator.class).asEagerSingleton();
+					}
+				});
+		ControlerListenerManagerImpl controlerListenerManager = injector.getInstance(ControlerListenerManagerImpl.class);
+		ExperiencedPlansService service = injector.getInstance(ExperiencedPlansService.class);
+		controlerListenerManager.fireControlerIterationStartsEvent(0);
+
+		Id<Link> link1 = Id.createLinkId(1);
+		Id<Link> link2 = Id.createLinkId(2);
+		eventsManager.initProcessing();
+		eventsManager.processEvent(new ActivityEndEvent(10, personId, link1, null, "home"));
+		Plan plan = service.getExperiencedPlans().get(personId);
+		Assert.assertEquals(1, plan.getPlanElements().size());
+
+		eventsManager.processEvent(new PersonDepartureEvent(10, personId, link1, "walk"));
+		eventsManager.processEvent(new PersonArrivalEvent(20, personId, link2, "walk"));
+		eventsManager.processEvent(new ActivityStartEvent(20, personId, link2, null, "work"));
+		eventsManager.processEvent(new ActivityEndEvent(100, personId, link2, null, "work"));
+		eventsManager.finishProcessing();
+
+		Assert.assertSame(plan, service.getExperiencedPlans().get(personId));
+		Assert.assertEquals(3, plan.getPlanElements().size());
+		Assert.assertEquals("home", ((Activity) plan.getPlanElements().get(0)).getType());
+		Assert.assertEquals("walk", ((Leg) plan.getPlanElements().get(1)).getMode());
+		Assert.assertEquals("work", ((Activity) plan.getPlanElements().get(2)).getType());
+	}
+
+}
@@ -60,17 +60,13 @@ public class ScoringFunctionsForPopulationStressIT {
 		EventsManager events = EventsUtils.createEventsManager(config);
 		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
 		ScoringFunctionFactory throwingScoringFunctionFactory = new ThrowingScoringFunctionFactory();
-		EventsToActivities e2acts = new EventsToActivities(controlerListenerManager);
-		EventsToLegs e2legs = new EventsToLegs(scenario.getNetwork());
-		EventsToLegsAndActivities e2legsActs = new EventsToLegsAndActivities(e2legs, e2acts);
-		events.addHandler(e2legsActs);
 		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(
 				controlerListenerManager,
 				events,
-				e2acts,
-				e2legs,
+				scenario.getNetwork(),
 				scenario.getPopulation(),
-				throwingScoringFunctionFactory
+				throwingScoringFunctionFactory,
+				config.parallelEventHandling()
 		);
 		controlerListenerManager.fireControlerIterationStartsEvent(0);
 		events.processEvent(new PersonMoneyEvent(3600.0, personId, 3.4));
@@ -200,18 +196,14 @@ public class ScoringFunctionsForPopulationStressIT {
 				};
 			}
 		};
-		EventsToActivities e2acts = new EventsToActivities(controlerListenerManager);
-		EventsToLegs e2legs = new EventsToLegs(scenario.getNetwork());
-		EventsToLegsAndActivities e2legsActs = new EventsToLegsAndActivities(e2legs, e2acts);
-		events.addHandler(e2legsActs);
 
 		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(
 				controlerListenerManager,
 				events,
-				e2acts,
-				e2legs,
+				scenario.getNetwork(),
 				scenario.getPopulation(),
-				scoringFunctionFactory
+				scoringFunctionFactory,
+				config.parallelEventHandling()
 		);
 		controlerListenerManager.fireControlerIterationStartsEvent(0);
 		events.initProcessing();
@@ -346,10 +338,10 @@ public class ScoringFunctionsForPopulationStressIT {
 		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(
 				controlerListenerManager,
 				events,
-				new EventsToActivities(controlerListenerManager),
-				new EventsToLegs(scenario.getNetwork()),
+				scenario.getNetwork(),
 				scenario.getPopulation(),
-				scoringFunctionFactory
+				scoringFunctionFactory,
+				config.parallelEventHandling()
 		);
 		controlerListenerManager.fireControlerIterationStartsEvent(0);
 		int MAX = 10;
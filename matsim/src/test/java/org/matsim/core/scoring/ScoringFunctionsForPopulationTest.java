@@ -21,23 +21,50 @@
 
  package org.matsim.core.scoring;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.controler.ControlerListenerManagerImpl;
 import org.matsim.core.events.EventsUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.vehicles.Vehicle;
 
 /**
  * @author mrieser / Simunto GmbH
@@ -56,33 +83,46 @@ public class ScoringFunctionsForPopulationTest {
 		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
 		EventsManager eventsManager = EventsUtils.createEventsManager();
 
-		EventsToActivities eventsToActivities = new EventsToActivities();
-		EventsToLegs eventsToLegs = new EventsToLegs(scenario);
 		ScoringFunctionFactory scoringFunctionFactory = agentId -> new RecordingScoringFunction();
 
-		ScoringFunctionsForPopulation sf = new ScoringFunctionsForPopulation(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory);
+		ScoringFunctionsForPopulation sf = new ScoringFunctionsForPopulation(controlerListenerManager, eventsManager, scenario.getNetwork(), population, scoringFunctionFactory, scenario.getConfig().parallelEventHandling());
 		controlerListenerManager.fireControlerIterationStartsEvent(0);
 		ScoringFunction s = sf.getScoringFunctionForAgent(personId);
 		Assert.assertEquals(RecordingScoringFunction.class, s.getClass());
 		RecordingScoringFunction rs = (RecordingScoringFunction) s;
 
-		sf.handleActivity(new PersonExperiencedActivity(personId, pf.createActivityFromCoord("home", new Coord(100, 100))));
+		Id<Link> link1 = Id.createLinkId(1);
+		Id<Link> link2 = Id.createLinkId(2);
+		eventsManager.initProcessing();
+		eventsManager.processEvent(new ActivityEndEvent(10, personId, link1, null, "home"));
 		Assert.assertEquals(0, rs.tripCounter);
-		sf.handleLeg(new PersonExperiencedLeg(personId, pf.createLeg("walk")));
+		eventsManager.processEvent(new PersonDepartureEvent(10, personId, link1, "walk"));
+		eventsManager.processEvent(new PersonArrivalEvent(20, personId, link2, "walk"));
+		eventsManager.processEvent(new ActivityStartEvent(20, personId, link2, null, "work"));
 		Assert.assertEquals(0, rs.tripCounter);
-		sf.handleActivity(new PersonExperiencedActivity(personId, pf.createActivityFromCoord("work", new Coord(1000, 100))));
+		// activities are passed on when they end
+		eventsManager.processEvent(new ActivityEndEvent(100, personId, link2, null, "work"));
 		Assert.assertEquals(1, rs.tripCounter);
 		Assert.assertEquals(1, rs.lastTrip.getTripElements().size());
 		Assert.assertEquals("walk", ((Leg) rs.lastTrip.getTripElements().get(0)).getMode());
 
-		sf.handleLeg(new PersonExperiencedLeg(personId, pf.createLeg("transit_walk")));
-		sf.handleActivity(new PersonExperiencedActivity(personId, pf.createActivityFromCoord("pt_interaction", new Coord(1000, 200))));
-		Assert.assertEquals(1, rs.tripCounter);
-		sf.handleLeg(new PersonExperiencedLeg(personId, pf.createLeg("pt")));
-		sf.handleActivity(new PersonExperiencedActivity(personId, pf.createActivityFromCoord("pt_interaction", new Coord(1000, 200))));
+		double time = 100;
+		for (String mode : new String[] { "transit_walk", "pt" }) {
+			eventsManager.processEvent(new PersonDepartureEvent(time, personId, link2, mode));
+			time += 10;
+			eventsManager.processEvent(new PersonArrivalEvent(time, personId, link2, mode));
+			eventsManager.processEvent(new ActivityStartEvent(time, personId, link2, null, "pt_interaction"));
+			eventsManager.processEvent(new ActivityEndEvent(time, personId, link2, null, "pt_interaction"));
+			Assert.assertEquals(1, rs.tripCounter);
+		}
+		eventsManager.processEvent(new PersonDepartureEvent(time, personId, link2, "transit_walk"));
+		eventsManager.processEvent(new PersonArrivalEvent(time + 10, personId, link1, "transit_walk"));
+		eventsManager.processEvent(new ActivityStartEvent(time + 10, personId, link1, null, "leisure"));
+		eventsManager.finishProcessing();
 		Assert.assertEquals(1, rs.tripCounter);
-		sf.handleLeg(new PersonExperiencedLeg(personId, pf.createLeg("transit_walk")));
-		sf.handleActivity(new PersonExperiencedActivity(personId, pf.createActivityFromCoord("leisure", new Coord(1000, 200))));
+		// the last activity is passed on after the mobsim
+		controlerListenerManager.fireControlerAfterMobsimEvent(0);
+		sf.finishScoringFunctions();
 		Assert.assertEquals(2, rs.tripCounter);
 		Assert.assertEquals(5, rs.lastTrip.getTripElements().size());
 		Assert.assertEquals("transit_walk", ((Leg) rs.lastTrip.getTripElements().get(0)).getMode());
@@ -90,6 +130,158 @@ public class ScoringFunctionsForPopulationTest {
 		Assert.assertEquals("transit_walk", ((Leg) rs.lastTrip.getTripElements().get(4)).getMode());
 	}
 
+	@Test
+	public void testShardsScoreLikeOneThread() {
+		final int numberOfThreads = 4;
+		// the shard of a person is given by the index of its id, which depends on the ids created by earlier tests
+		Set<Integer> shardIndices = new HashSet<>();
+		List<Id<Person>> personIds = new ArrayList<>();
+		for (String name : Arrays.asList("driver", "passenger1", "passenger2")) {
+			Id<Person> personId = Id.create(name, Person.class);
+			for (int i = 1; !shardIndices.add(personId.index() % numberOfThreads); i++) {
+				personId = Id.create(name + "_" + i, Person.class);
+			}
+			personIds.add(personId);
+		}
+		Assert.assertEquals("persons must be in different shards", 3, shardIndices.size());
+
+		Map<Id<Person>, String> expected = scoreRideEvents(null, personIds.get(0), personIds.get(1), personIds.get(2));
+		Map<Id<Person>, String> actual = scoreRideEvents(numberOfThreads, personIds.get(0), personIds.get(1), personIds.get(2));
+		Assert.assertEquals(3, expected.size());
+		for (Map.Entry<Id<Person>, String> e : expected.entrySet()) {
+			Assert.assertEquals(e.getValue(), actual.get(e.getKey()));
+		}
+		// the second passenger's route starts on the link where the vehicle was when it was entered
+		Assert.assertTrue(expected.get(personIds.get(2)).contains("leg ride 200.0 2 [] 3 150.0"));
+	}
+
+	/**
+	 * A driver takes two passengers on two trips. The second passenger only enters the vehicle after it has been used
+	 * for the first trip.
+	 */
+	private static Map<Id<Person>, String> scoreRideEvents(Integer numberOfThreads, Id<Person> driver,
+			Id<Person> passenger1, Id<Person> passenger2) {
+		Config config = ConfigUtils.createConfig();
+		config.parallelEventHandling().setNumberOfThreads(numberOfThreads);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Network network = scenario.getNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(100, 0));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.createNodeId(3), new Coord(200, 0));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(1), n1, n2, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(2), n2, n3, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(3), n3, n1, 200, 10, 1000, 1);
+		Population population = scenario.getPopulation();
+		for (Id<Person> personId : Arrays.asList(driver, passenger1, passenger2)) {
+			population.addPerson(population.getFactory().createPerson(personId));
+		}
+		Id<Vehicle> vehicle = Id.create("car", Vehicle.class);
+
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		Map<Id<Person>, StringBuilder> logs = new HashMap<>();
+		ScoringFunctionFactory scoringFunctionFactory = person -> new LoggingScoringFunction(logs.computeIfAbsent(person.getId(), k -> new StringBuilder()));
+		ScoringFunctionsForPopulation sf = new ScoringFunctionsForPopulation(controlerListenerManager, eventsManager, network, population, scoringFunctionFactory, config.parallelEventHandling());
+		controlerListenerManager.fireControlerIterationStartsEvent(0);
+
+		Id<Link> link1 = Id.createLinkId(1);
+		Id<Link> link2 = Id.createLinkId(2);
+		Id<Link> link3 = Id.createLinkId(3);
+		eventsManager.initProcessing();
+		for (Id<Person> personId : Arrays.asList(driver, passenger1)) {
+			eventsManager.processEvent(new ActivityEndEvent(10, personId, link1, null, "home"));
+			eventsManager.processEvent(new PersonDepartureEvent(10, personId, link1, personId == driver ? "car" : "ride"));
+			eventsManager.processEvent(new PersonEntersVehicleEvent(10, personId, vehicle));
+		}
+		eventsManager.processEvent(new VehicleEntersTrafficEvent(10, driver, link1, vehicle, "car", 0.5));
+		eventsManager.processEvent(new LinkEnterEvent(20, vehicle, link2));
+		eventsManager.processEvent(new VehicleLeavesTrafficEvent(30, driver, link2, vehicle, "car", 0.5));
+		for (Id<Person> personId : Arrays.asList(driver, passenger1)) {
+			eventsManager.processEvent(new PersonLeavesVehicleEvent(30, personId, vehicle));
+			eventsManager.processEvent(new PersonArrivalEvent(30, personId, link2, personId == driver ? "car" : "ride"));
+			eventsManager.processEvent(new ActivityStartEvent(30, personId, link2, null, "work"));
+		}
+		eventsManager.processEvent(new PersonMoneyEvent(100, passenger1, -2.0));
+		for (Id<Person> personId : Arrays.asList(driver, passenger2)) {
+			eventsManager.processEvent(new ActivityEndEvent(200, personId, link2, null, personId == driver ? "work" : "home"));
+			eventsManager.processEvent(new PersonDepartureEvent(200, personId, link2, personId == driver ? "car" : "ride"));
+			eventsManager.processEvent(new PersonEntersVehicleEvent(200, personId, vehicle));
+		}
+		eventsManager.processEvent(new VehicleEntersTrafficEvent(200, driver, link2, vehicle, "car", 0.5));
+		eventsManager.processEvent(new LinkEnterEvent(210, vehicle, link3));
+		eventsManager.processEvent(new VehicleLeavesTrafficEvent(410, driver, link3, vehicle, "car", 0.5));
+		for (Id<Person> personId : Arrays.asList(driver, passenger2)) {
+			eventsManager.processEvent(new PersonLeavesVehicleEvent(410, personId, vehicle));
+			eventsManager.processEvent(new PersonArrivalEvent(410, personId, link3, personId == driver ? "car" : "ride"));
+			eventsManager.processEvent(new ActivityStartEvent(410, personId, link3, null, "home"));
+		}
+		eventsManager.processEvent(new PersonStuckEvent(500, passenger1, link2, "walk"));
+		eventsManager.finishProcessing();
+		controlerListenerManager.fireControlerAfterMobsimEvent(0);
+		sf.finishScoringFunctions();
+
+		Map<Id<Person>, String> result = new HashMap<>();
+		for (Map.Entry<Id<Person>, StringBuilder> e : logs.entrySet()) {
+			result.put(e.getKey(), e.getValue().toString());
+		}
+		return result;
+	}
+
+	private static class LoggingScoringFunction implements ScoringFunction {
+
+		private final StringBuilder log;
+
+		LoggingScoringFunction(StringBuilder log) {
+			this.log = log;
+		}
+
+		@Override
+		public void handleActivity(Activity activity) {
+			this.log.append("act ").append(activity.getType()).append(' ').append(activity.getStartTime()).append(' ').append(activity.getEndTime()).append('\n');
+		}
+
+		@Override
+		public void handleLeg(Leg leg) {
+			Route route = leg.getRoute();
+			this.log.append("leg ").append(leg.getMode()).append(' ').append(leg.getDepartureTime()).append(' ');
+			this.log.append(route.getStartLinkId()).append(' ');
+			if (route instanceof NetworkRoute) {
+				this.log.append(((NetworkRoute) route).getLinkIds()).append(' ');
+			}
+			this.log.append(route.getEndLinkId()).append(' ').append(route.getDistance()).append('\n');
+		}
+
+		@Override
+		public void handleTrip(TripStructureUtils.Trip trip) {
+			this.log.append("trip ").append(trip.getTripElements().size()).append('\n');
+		}
+
+		@Override
+		public void agentStuck(double time) {
+			this.log.append("stuck ").append(time).append('\n');
+		}
+
+		@Override
+		public void addMoney(double amount) {
+			this.log.append("money ").append(amount).append('\n');
+		}
+
+		@Override
+		public void finish() {
+			this.log.append("finish\n");
+		}
+
+		@Override
+		public double getScore() {
+			return this.log.length();
+		}
+
+		@Override
+		public void handleEvent(Event event) {
+			this.log.append("event ").append(event.getEventType()).append(' ').append(event.getTime()).append('\n');
+		}
+	}
+
 	private static class RecordingScoringFunction implements ScoringFunction {
 
 		int tripCounter = 0;
@@ -46,10 +46,12 @@ import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.MatsimEventsReader;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.scenario.MutableScenario;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.utils.io.IOUtils;
@@ -319,6 +321,47 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 		assertEquals(linkTravelTime2, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, firstTimeBinStart + 2.5*timeBinSize, null, null), EPSILON);
 	}
 
+	/**
+	 * Tests that the travel times stored in dense arrays by link index are averaged, consolidated and reset as the other
+	 * data containers do.
+	 */
+	public void testLinkIndexArray() {
+		Config config = ConfigUtils.createConfig();
+		config.travelTimeCalculator().setTravelTimeCalculatorType(TravelTimeCalculatorType.TravelTimeCalculatorLinkIndexArray.name());
+		int timeBinSize = 15*60;
+		config.travelTimeCalculator().setTraveltimeBinSize(timeBinSize);
+		config.travelTimeCalculator().setMaxTime(12*3600);
+
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Network network = scenario.getNetwork();
+		network.setCapacityPeriod(3600.0);
+		final Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		final Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		final Node node3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(2000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network,Id.create("1", Link.class), node1, node2, 1000.0, 100.0, 3600.0, 1.0 );
+		Link link2 = NetworkUtils.createAndAddLink(network,Id.create("2", Link.class), node2, node3, 1000.0, 100.0, 3600.0, 1.0 );
+		double freeSpeedTT = NetworkUtils.getFreespeedTravelTime(link2);
+		Id<Vehicle> vehId1 = Id.create("1", Vehicle.class);
+		Id<Vehicle> vehId2 = Id.create("2", Vehicle.class);
+
+		TravelTimeCalculator ttcalc = TravelTimeCalculator.create(network, config.travelTimeCalculator());
+		double firstTimeBinStart = 7.0 * 3600;
+
+		ttcalc.handleEvent(new LinkEnterEvent(firstTimeBinStart, vehId1, link1.getId()));
+		ttcalc.handleEvent(new LinkEnterEvent(firstTimeBinStart + 10, vehId2, link1.getId()));
+		ttcalc.handleEvent(new LinkLeaveEvent(firstTimeBinStart + 40.0 * 60, vehId1, link1.getId()));
+		ttcalc.handleEvent(new LinkLeaveEvent(firstTimeBinStart + 10 + 30.0 * 60, vehId2, link1.getId()));
+
+		TravelTime travelTime = ttcalc.getLinkTravelTimes();
+		assertEquals(35.0 * 60, travelTime.getLinkTravelTime(link1, firstTimeBinStart + 60, null, null), EPSILON);
+		// consolidated with the previous time bin
+		assertEquals(35.0 * 60 - timeBinSize, travelTime.getLinkTravelTime(link1, firstTimeBinStart + timeBinSize + 60, null, null), EPSILON);
+		assertEquals(freeSpeedTT, travelTime.getLinkTravelTime(link2, firstTimeBinStart + 60, null, null), EPSILON);
+
+		ttcalc.reset(1);
+		assertEquals(freeSpeedTT, travelTime.getLinkTravelTime(link1, firstTimeBinStart + 60, null, null), EPSILON);
+	}
+
 	/**
 	 * Tests that calculating LinkTravelTimes works also without reading in a complete scenario including population.
 	 *
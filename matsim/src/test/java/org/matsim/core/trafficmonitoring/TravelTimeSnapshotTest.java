@@ -0,0 +1,194 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeSnapshotTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class TravelTimeSnapshotTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static final int BIN_SIZE = 900;
+	private static final int NUM_SLOTS = 8;
+
+	@Test
+	public void testWriteAndMapFloats() {
+		Network network = createNetwork();
+		TravelTime travelTime = new TestTravelTime();
+		String filename = this.utils.getOutputDirectory() + "/traveltimes.bin";
+		new TravelTimeSnapshotWriter(network, travelTime, BIN_SIZE, NUM_SLOTS).write(filename);
+
+		TravelTimeSnapshot snapshot = TravelTimeSnapshot.read(filename);
+		Assert.assertEquals(BIN_SIZE, snapshot.getTimeBinSize());
+		Assert.assertEquals(NUM_SLOTS, snapshot.getNumberOfTimeBins());
+		Assert.assertEquals(0.0, snapshot.getResolution(), 0.0);
+
+		for (Link link : network.getLinks().values()) {
+			Assert.assertTrue(snapshot.containsLink(link.getId()));
+			for (int slot = 0; slot < NUM_SLOTS; slot++) {
+				double expected = travelTime.getLinkTravelTime(link, slot * BIN_SIZE + BIN_SIZE / 2.0, null, null);
+				// every time within the bin gets the travel time of the bin
+				Assert.assertEquals((float) expected, snapshot.getLinkTravelTime(link, slot * BIN_SIZE, null, null), 0.0);
+				Assert.assertEquals((float) expected, snapshot.getLinkTravelTime(link, slot * BIN_SIZE + BIN_SIZE - 1, null, null), 0.0);
+			}
+			// times after the last bin get the travel time of the last bin
+			Assert.assertEquals(
+					snapshot.getLinkTravelTime(link, (NUM_SLOTS - 1) * BIN_SIZE, null, null),
+					snapshot.getLinkTravelTime(link, NUM_SLOTS * BIN_SIZE * 2, null, null), 0.0);
+		}
+		Link blocked = network.getLinks().get(Id.createLinkId("blocked"));
+		Assert.assertEquals(Double.POSITIVE_INFINITY, snapshot.getLinkTravelTime(blocked, 0.0, null, null), 0.0);
+	}
+
+	@Test
+	public void testWriteAndMapQuantized() {
+		Network network = createNetwork();
+		TravelTime travelTime = new TestTravelTime();
+		String filename = this.utils.getOutputDirectory() + "/traveltimes.bin";
+		double resolution = 0.1;
+		TravelTimeSnapshotWriter writer = new TravelTimeSnapshotWriter(network, travelTime, BIN_SIZE, NUM_SLOTS);
+		writer.setResolution(resolution);
+		writer.write(filename);
+
+		TravelTimeSnapshot snapshot = TravelTimeSnapshot.read(filename);
+		Assert.assertEquals(BIN_SIZE, snapshot.getTimeBinSize());
+		Assert.assertEquals(NUM_SLOTS, snapshot.getNumberOfTimeBins());
+		Assert.assertEquals(resolution, snapshot.getResolution(), 0.0);
+
+		for (Link link : network.getLinks().values()) {
+			for (int slot = 0; slot < NUM_SLOTS; slot++) {
+				double time = slot * BIN_SIZE + BIN_SIZE / 2.0;
+				double expected = travelTime.getLinkTravelTime(link, time, null, null);
+				double actual = snapshot.getLinkTravelTime(link, time, null, null);
+				if (Double.isInfinite(expected)) {
+					Assert.assertEquals(Double.POSITIVE_INFINITY, actual, 0.0);
+				} else if (expected > resolution * (TravelTimeSnapshot.QUANTIZED_INFINITY - 1)) {
+					// too long for the resolution, the longest finite travel time is stored instead
+					Assert.assertEquals(resolution * (TravelTimeSnapshot.QUANTIZED_INFINITY - 1), actual, 1e-6);
+				} else {
+					Assert.assertEquals(expected, actual, resolution / 2 + 1e-6);
+				}
+			}
+		}
+		Link slow = network.getLinks().get(Id.createLinkId("slow"));
+		Assert.assertEquals(resolution * (TravelTimeSnapshot.QUANTIZED_INFINITY - 1), snapshot.getLinkTravelTime(slow, 0.0, null, null), 1e-6);
+	}
+
+	@Test
+	public void testLinksNotInSnapshot() {
+		Network network = createNetwork();
+		String filename = this.utils.getOutputDirectory() + "/traveltimes.bin";
+		new TravelTimeSnapshotWriter(network, new TestTravelTime(), BIN_SIZE, NUM_SLOTS).write(filename);
+
+		Node from = network.getNodes().get(Id.createNodeId(1));
+		Node to = network.getNodes().get(Id.createNodeId(3));
+		Link added = NetworkUtils.createAndAddLink(network, Id.createLinkId("added-later"), from, to, 1000.0, 10.0, 3600.0, 1.0);
+
+		TravelTimeSnapshot snapshot = TravelTimeSnapshot.read(filename);
+		Assert.assertFalse(snapshot.containsLink(added.getId()));
+		Assert.assertEquals(100.0, snapshot.getLinkTravelTime(added, 3600.0, null, null), 1e-9);
+		Assert.assertEquals(100.0, snapshot.getLinearInterpolatingTravelTime().getLinkTravelTime(added, 3600.0, null, null), 1e-9);
+	}
+
+	/**
+	 * Tests that the interpolated travel times of a snapshot are the same as the ones of the
+	 * {@link LinearInterpolatingTravelTimeGetter} of the travel time calculator it was written from.
+	 */
+	@Test
+	public void testSameInterpolationAsTravelTimeCalculator() {
+		int maxTime = 2 * 3600;
+		Config config = ConfigUtils.createConfig();
+		config.travelTimeCalculator().setTravelTimeGetterType("linearinterpolation");
+		config.travelTimeCalculator().setTraveltimeBinSize(BIN_SIZE);
+		config.travelTimeCalculator().setMaxTime(maxTime);
+
+		Network network = createNetwork();
+		TravelTimeCalculator ttcalc = TravelTimeCalculator.create(network, config.travelTimeCalculator());
+		Id<Vehicle> vehId = Id.create("1", Vehicle.class);
+		Id<Link> linkId = Id.createLinkId("1");
+		double[][] trips = {{0.0, 300.0}, {1000.0, 1500.0}, {2000.0, 250.0}, {4000.0, 700.0}, {6300.0, 180.0}, {7100.0, 400.0}};
+		for (double[] trip : trips) {
+			ttcalc.handleEvent(new LinkEnterEvent(trip[0], vehId, linkId));
+			ttcalc.handleEvent(new LinkLeaveEvent(trip[0] + trip[1], vehId, linkId));
+		}
+
+		int numSlots = TimeBinUtils.getTimeBinCount(maxTime, BIN_SIZE);
+		String filename = this.utils.getOutputDirectory() + "/traveltimes.bin";
+		new TravelTimeSnapshotWriter(network, ttcalc.getLinkTravelTimes(), BIN_SIZE, numSlots).write(filename);
+		TravelTime interpolated = TravelTimeSnapshot.read(filename).getLinearInterpolatingTravelTime();
+
+		for (Link link : network.getLinks().values()) {
+			if (Double.isInfinite(ttcalc.getLinkTravelTimes().getLinkTravelTime(link, 0.0, null, null))) {
+				continue;
+			}
+			for (double time = 0.0; time <= (numSlots + 1) * BIN_SIZE; time += 37.0) {
+				double expected = ttcalc.getLinkTravelTimes().getLinkTravelTime(link, time, null, null);
+				Assert.assertEquals("link " + link.getId() + " at time " + time, expected,
+						interpolated.getLinkTravelTime(link, time, null, null), 1e-3);
+			}
+		}
+	}
+
+	/**
+	 * Creates a small network with a link with measured travel times, a link with a very long and one with an
+	 * infinite travel time.
+	 */
+	private static Network createNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		network.setCapacityPeriod(3600.0);
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(1000, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.createNodeId(3), new Coord(2000, 0));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("1"), node1, node2, 1000.0, 20.0, 3600.0, 1.0);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("2"), node2, node3, 1000.0, 10.0, 3600.0, 1.0);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("slow"), node3, node1, 2000.0, 0.001, 3600.0, 1.0);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("blocked"), node2, node1, 1000.0, 0.0, 3600.0, 1.0);
+		return network;
+	}
+
+	/**
+	 * Free speed travel times, which increase by a third of a second with every minute, so they are no whole numbers.
+	 */
+	private static class TestTravelTime implements TravelTime {
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			return link.getLength() / link.getFreespeed() + time / 180.0;
+		}
+	}
+
+}
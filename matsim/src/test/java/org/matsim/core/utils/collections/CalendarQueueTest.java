@@ -0,0 +1,109 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CalendarQueueTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2019 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.collections;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CalendarQueueTest {
+
+	@Test
+	public void testPollDue() {
+		CalendarQueue<String> queue = new CalendarQueue<>(1.0, 8, Comparator.naturalOrder());
+		queue.add("c", 5.0);
+		queue.add("b", 2.5);
+		queue.add("a", 2.5);
+		queue.add("far", 100.0);
+		queue.add("never", Double.POSITIVE_INFINITY);
+		Assert.assertEquals(5, queue.size());
+
+		Assert.assertNull(queue.pollDue(2.0));
+		Assert.assertEquals("a", queue.pollDue(3.0));
+		Assert.assertEquals("b", queue.pollDue(3.0));
+		Assert.assertNull(queue.pollDue(3.0));
+
+		// added for a time that is already due
+		queue.add("late", 1.0);
+		Assert.assertEquals("late", queue.pollDue(3.0));
+
+		Assert.assertEquals("c", queue.pollDue(50.0));
+		Assert.assertNull(queue.pollDue(50.0));
+		Assert.assertEquals("far", queue.pollDue(100.0));
+		Assert.assertNull(queue.pollDue(1e9));
+		Assert.assertEquals(1, queue.size());
+	}
+
+	@Test
+	public void testRemove() {
+		CalendarQueue<String> queue = new CalendarQueue<>(1.0, 8, Comparator.naturalOrder());
+		queue.add("a", 1.0);
+		queue.add("b", 2.0);
+		queue.add("c", 200.0);
+		Assert.assertTrue(queue.remove("b"));
+		Assert.assertTrue(queue.remove("c"));
+		Assert.assertFalse(queue.remove("c"));
+		Assert.assertEquals(1, queue.size());
+		Assert.assertEquals("a", queue.pollDue(10.0));
+		Assert.assertNull(queue.pollDue(1000.0));
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	/**
+	 * Compares the order in which the elements are polled with the order of a {@link PriorityQueue}, with elements
+	 * being added between the time steps, also beyond the horizon of the calendar queue.
+	 */
+	@Test
+	public void testSameOrderAsPriorityQueue() {
+		CalendarQueue<Integer> queue = new CalendarQueue<>(1.0, 64, Comparator.reverseOrder());
+		PriorityQueue<double[]> reference = new PriorityQueue<>((e1, e2) -> {
+			int cmp = Double.compare(e1[0], e2[0]);
+			return cmp != 0 ? cmp : Double.compare(e2[1], e1[1]);
+		});
+		Random random = new Random(4711);
+		int next = 0;
+		for (double now = 0; now < 2000; now += 1.0) {
+			for (int i = random.nextInt(5); i > 0; i--) {
+				double time = now + random.nextInt(800) * 0.25;
+				queue.add(next, time);
+				reference.add(new double[] { time, next });
+				next++;
+			}
+			List<Integer> polled = new ArrayList<>();
+			Integer element;
+			while ((element = queue.pollDue(now)) != null) {
+				polled.add(element);
+			}
+			List<Integer> expected = new ArrayList<>();
+			while (!reference.isEmpty() && reference.peek()[0] <= now) {
+				expected.add((int) reference.poll()[1]);
+			}
+			Assert.assertEquals(expected, polled);
+			Assert.assertEquals(reference.size(), queue.size());
+		}
+	}
+
+}